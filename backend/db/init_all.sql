@@ -62,10 +62,11 @@ CREATE TABLE `project_version` (
   `project_id` BIGINT UNSIGNED NOT NULL COMMENT '项目ID',
   `version_name` VARCHAR(50) NOT NULL COMMENT '版本名称',
   `description` TEXT COMMENT '版本描述',
-  `schema_snapshot` LONGTEXT COMMENT '数据库结构快照(JSON格式)',
+  `schema_snapshot` LONGBLOB COMMENT '归档版本的压缩结构快照（列式编码+Deflate），未归档时为空',
   `status` TINYINT(1) NOT NULL DEFAULT 1 COMMENT '状态(0禁用,1启用)',
   `user_id` BIGINT UNSIGNED NOT NULL COMMENT '创建用户ID',
   `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `archived_time` DATETIME COMMENT '归档时间（表结构明细已删除，从压缩快照读取），未归档时为空',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_project_version` (`project_id`, `version_name`),
   KEY `idx_user_id` (`user_id`)
@@ -98,6 +99,7 @@ CREATE TABLE `version_database_schema` (
   `collation` VARCHAR(50) COMMENT '排序规则',
   `schemas_info` JSON COMMENT 'Schema信息（PostgreSQL专用，存储所有schema的详细信息）',
   `snapshot_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '快照时间',
+  `schema_hash` CHAR(64) COMMENT '整库内容哈希（SHA-256）',
   `user_id` BIGINT UNSIGNED NOT NULL COMMENT '创建用户ID',
   `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
@@ -122,18 +124,41 @@ CREATE TABLE `version_table_structure` (
   `data_length` BIGINT COMMENT '数据长度',
   `index_length` BIGINT COMMENT '索引长度',
   `auto_increment` BIGINT COMMENT '自增值',
+  `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID（表定义去重时使用）',
   `schema_name` VARCHAR(100) DEFAULT 'public' COMMENT 'Schema名称（PostgreSQL专用）',
+  `content_hash` CHAR(64) COMMENT '表内容哈希（SHA-256）',
+  `change_marker` TEXT COMMENT '表变更标记（增量采集使用）',
+  `stats_pending` TINYINT(1) DEFAULT 0 COMMENT '统计信息是否待采样(0否,1是)',
   `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_version_table_schema` (`project_version_id`, `schema_name`, `table_name`),
-  KEY `idx_project_version` (`project_version_id`)
+  KEY `idx_project_version` (`project_version_id`),
+  KEY `idx_definition` (`definition_id`),
+  KEY `idx_stats_pending` (`stats_pending`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='版本表结构表';
 
+-- 共享表定义表（内容相同的表只存储一份字段和索引）
+DROP TABLE IF EXISTS `table_definition`;
+CREATE TABLE `table_definition` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `content_hash` CHAR(64) NOT NULL COMMENT '表内容哈希（SHA-256）',
+  `column_count` INT NOT NULL DEFAULT 0 COMMENT '字段数量',
+  `index_count` INT NOT NULL DEFAULT 0 COMMENT '索引数量',
+  `created_by_version_id` BIGINT UNSIGNED COMMENT '创建该定义的项目版本ID',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_content_hash` (`content_hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='共享表定义表';
+
 -- 版本表字段结构表
+-- 字段表和索引表冗余存储项目版本ID，唯一键均包含该字段，未启用表定义去重时可按项目版本ID分区（见 upgrade/007_partition_version_detail.sql）；
+-- 共享表定义的记录项目版本ID为0，按 definition_id 读取
 DROP TABLE IF EXISTS `version_table_column`;
 CREATE TABLE `version_table_column` (
   `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
-  `version_table_id` BIGINT UNSIGNED NOT NULL COMMENT '版本表结构ID',
+  `project_version_id` BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '项目版本ID（冗余存储，共享表定义的记录为0）',
+  `version_table_id` BIGINT UNSIGNED COMMENT '版本表结构ID（共享表定义的记录为空）',
+  `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID',
   `column_name` VARCHAR(100) NOT NULL COMMENT '字段名',
   `ordinal_position` INT NOT NULL COMMENT '字段位置',
   `column_default` TEXT COMMENT '默认值',
@@ -152,7 +177,9 @@ CREATE TABLE `version_table_column` (
   `column_comment` TEXT COMMENT '字段注释',
   `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
-  UNIQUE KEY `uk_table_column` (`version_table_id`, `column_name`),
+  UNIQUE KEY `uk_table_column` (`project_version_id`, `version_table_id`, `column_name`),
+  UNIQUE KEY `uk_definition_column` (`definition_id`, `column_name`, `project_version_id`),
+  KEY `idx_version_table_position` (`project_version_id`, `version_table_id`, `ordinal_position`),
   KEY `idx_version_table` (`version_table_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='版本表字段结构表';
 
@@ -160,7 +187,9 @@ CREATE TABLE `version_table_column` (
 DROP TABLE IF EXISTS `version_table_index`;
 CREATE TABLE `version_table_index` (
   `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
-  `version_table_id` BIGINT UNSIGNED NOT NULL COMMENT '版本表结构ID',
+  `project_version_id` BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '项目版本ID（冗余存储，共享表定义的记录为0）',
+  `version_table_id` BIGINT UNSIGNED COMMENT '版本表结构ID（共享表定义的记录为空）',
+  `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID',
   `index_name` VARCHAR(100) NOT NULL COMMENT '索引名',
   `index_type` VARCHAR(50) NOT NULL COMMENT '索引类型(BTREE/HASH/FULLTEXT)',
   `is_unique` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否唯一索引',
@@ -170,10 +199,49 @@ CREATE TABLE `version_table_index` (
   `index_comment` TEXT COMMENT '索引注释',
   `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   PRIMARY KEY (`id`),
-  UNIQUE KEY `uk_table_index` (`version_table_id`, `index_name`),
+  UNIQUE KEY `uk_table_index` (`project_version_id`, `version_table_id`, `index_name`),
+  UNIQUE KEY `uk_definition_index` (`definition_id`, `index_name`, `project_version_id`),
   KEY `idx_version_table` (`version_table_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='版本表索引表';
 
+-- 结构采集任务表
+DROP TABLE IF EXISTS `schema_capture_job`;
+CREATE TABLE `schema_capture_job` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `project_version_id` BIGINT UNSIGNED NOT NULL COMMENT '项目版本ID',
+  `datasource_id` BIGINT UNSIGNED NOT NULL COMMENT '数据源ID',
+  `user_id` BIGINT UNSIGNED NOT NULL COMMENT '创建用户ID',
+  `status` VARCHAR(20) NOT NULL COMMENT '任务状态(QUEUED/RUNNING/SUCCESS/FAILED/CANCELLED)',
+  `phase` VARCHAR(50) COMMENT '当前阶段',
+  `total_tables` INT NOT NULL DEFAULT 0 COMMENT '表总数',
+  `processed_tables` INT NOT NULL DEFAULT 0 COMMENT '已处理表数',
+  `current_table` VARCHAR(200) COMMENT '最近处理的表',
+  `slowest_tables` TEXT COMMENT '耗时最长的表(JSON数组)',
+  `error_message` TEXT COMMENT '错误信息',
+  `start_time` DATETIME COMMENT '开始时间',
+  `finish_time` DATETIME COMMENT '结束时间',
+  `duration_ms` BIGINT COMMENT '总耗时(毫秒)',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_project_version` (`project_version_id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结构采集任务表';
+
+-- 版本差异表（采集完成后预先计算的与上一个版本的对比结果）
+DROP TABLE IF EXISTS `version_diff`;
+CREATE TABLE `version_diff` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `from_version_id` BIGINT UNSIGNED NOT NULL COMMENT '源版本ID',
+  `to_version_id` BIGINT UNSIGNED NOT NULL COMMENT '目标版本ID',
+  `from_schema_id` BIGINT UNSIGNED NOT NULL COMMENT '计算时源版本的数据库结构信息ID',
+  `to_schema_id` BIGINT UNSIGNED NOT NULL COMMENT '计算时目标版本的数据库结构信息ID',
+  `diff_content` LONGBLOB NOT NULL COMMENT '对比结果（gzip压缩的JSON）',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_version_pair` (`from_version_id`, `to_version_id`),
+  KEY `idx_to_version` (`to_version_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='版本差异表';
+
 -- 初始化管理员用户
 INSERT INTO `user` (`username`, `password`, `status`, `role`) VALUES
 ('admin', '$2a$10$N.zmdr9k7uOCQb376NoUnuTJ8iAt6Z5EHsM8lE9lBOsl7.QdEKLiq', 1, 'ADMIN')
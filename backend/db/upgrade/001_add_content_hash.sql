@@ -0,0 +1,10 @@
+-- 升级脚本：增加表内容哈希与整库内容哈希
+-- 已有版本的哈希为空，对比时会照常逐表对比；重新采集后生成哈希
+
+use db_record;
+
+ALTER TABLE `version_database_schema`
+  ADD COLUMN `schema_hash` CHAR(64) COMMENT '整库内容哈希（SHA-256）' AFTER `snapshot_time`;
+
+ALTER TABLE `version_table_structure`
+  ADD COLUMN `content_hash` CHAR(64) COMMENT '表内容哈希（SHA-256）' AFTER `schema_name`;
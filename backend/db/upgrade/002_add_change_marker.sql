@@ -0,0 +1,6 @@
+-- 升级脚本：增加表变更标记，用于增量采集判断表是否变化
+
+use db_record;
+
+ALTER TABLE `version_table_structure`
+  ADD COLUMN `change_marker` TEXT COMMENT '表变更标记（增量采集使用）' AFTER `content_hash`;
@@ -0,0 +1,29 @@
+-- 升级脚本：共享表定义（内容相同的表在所有版本中只存储一份字段和索引）
+-- 已有版本的字段和索引仍按版本表结构ID存储，读取时两种方式都支持
+
+use db_record;
+
+CREATE TABLE IF NOT EXISTS `table_definition` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `content_hash` CHAR(64) NOT NULL COMMENT '表内容哈希（SHA-256）',
+  `column_count` INT NOT NULL DEFAULT 0 COMMENT '字段数量',
+  `index_count` INT NOT NULL DEFAULT 0 COMMENT '索引数量',
+  `created_by_version_id` BIGINT UNSIGNED COMMENT '创建该定义的项目版本ID',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_content_hash` (`content_hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='共享表定义表';
+
+ALTER TABLE `version_table_structure`
+  ADD COLUMN `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID（表定义去重时使用）' AFTER `auto_increment`,
+  ADD KEY `idx_definition` (`definition_id`);
+
+ALTER TABLE `version_table_column`
+  MODIFY COLUMN `version_table_id` BIGINT UNSIGNED COMMENT '版本表结构ID（共享表定义的记录为空）',
+  ADD COLUMN `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID' AFTER `version_table_id`,
+  ADD UNIQUE KEY `uk_definition_column` (`definition_id`, `column_name`);
+
+ALTER TABLE `version_table_index`
+  MODIFY COLUMN `version_table_id` BIGINT UNSIGNED COMMENT '版本表结构ID（共享表定义的记录为空）',
+  ADD COLUMN `definition_id` BIGINT UNSIGNED COMMENT '共享表定义ID' AFTER `version_table_id`,
+  ADD UNIQUE KEY `uk_definition_index` (`definition_id`, `index_name`);
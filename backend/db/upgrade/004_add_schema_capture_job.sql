@@ -0,0 +1,24 @@
+-- 升级脚本：结构采集任务表（记录采集状态、进度和耗时，支持取消和重复请求合并）
+
+use db_record;
+
+CREATE TABLE IF NOT EXISTS `schema_capture_job` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `project_version_id` BIGINT UNSIGNED NOT NULL COMMENT '项目版本ID',
+  `datasource_id` BIGINT UNSIGNED NOT NULL COMMENT '数据源ID',
+  `user_id` BIGINT UNSIGNED NOT NULL COMMENT '创建用户ID',
+  `status` VARCHAR(20) NOT NULL COMMENT '任务状态(QUEUED/RUNNING/SUCCESS/FAILED/CANCELLED)',
+  `phase` VARCHAR(50) COMMENT '当前阶段',
+  `total_tables` INT NOT NULL DEFAULT 0 COMMENT '表总数',
+  `processed_tables` INT NOT NULL DEFAULT 0 COMMENT '已处理表数',
+  `current_table` VARCHAR(200) COMMENT '最近处理的表',
+  `slowest_tables` TEXT COMMENT '耗时最长的表(JSON数组)',
+  `error_message` TEXT COMMENT '错误信息',
+  `start_time` DATETIME COMMENT '开始时间',
+  `finish_time` DATETIME COMMENT '结束时间',
+  `duration_ms` BIGINT COMMENT '总耗时(毫秒)',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  KEY `idx_project_version` (`project_version_id`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='结构采集任务表';
@@ -0,0 +1,7 @@
+-- 升级脚本：增加统计信息待采样标记，只采集结构的版本由统计采样任务补充表行数、数据长度等统计信息
+
+use db_record;
+
+ALTER TABLE `version_table_structure`
+  ADD COLUMN `stats_pending` TINYINT(1) DEFAULT 0 COMMENT '统计信息是否待采样(0否,1是)' AFTER `change_marker`,
+  ADD KEY `idx_stats_pending` (`stats_pending`);
@@ -0,0 +1,56 @@
+-- 升级脚本：字段表和索引表冗余存储项目版本ID
+-- 按版本删除和读取字段、索引时不再关联版本表结构，复合索引与实际访问路径一致；
+-- 唯一键均包含项目版本ID，之后可按项目版本ID分区（可选，见 007_partition_version_detail.sql）。
+-- 启用表定义去重时，共享表定义的记录项目版本ID为0，按 definition_id 读取，这些复合索引和分区只对按版本存储的记录有效
+
+use db_record;
+
+ALTER TABLE `version_table_column`
+  ADD COLUMN `project_version_id` BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '项目版本ID（冗余存储，共享表定义的记录为0）' AFTER `id`;
+
+ALTER TABLE `version_table_index`
+  ADD COLUMN `project_version_id` BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '项目版本ID（冗余存储，共享表定义的记录为0）' AFTER `id`;
+
+-- 按版本表结构ID分段回填已有数据，每段一个事务，避免一次UPDATE长时间锁住整张表
+DROP PROCEDURE IF EXISTS `backfill_detail_project_version_id`;
+
+DELIMITER $$
+CREATE PROCEDURE `backfill_detail_project_version_id`()
+BEGIN
+  DECLARE batch_start BIGINT UNSIGNED DEFAULT 0;
+  DECLARE batch_size BIGINT UNSIGNED DEFAULT 1000;
+  DECLARE max_id BIGINT UNSIGNED;
+  SELECT COALESCE(MAX(`id`), 0) INTO max_id FROM `version_table_structure`;
+  WHILE batch_start < max_id DO
+    START TRANSACTION;
+    UPDATE `version_table_column` vtc
+      INNER JOIN `version_table_structure` vts ON vtc.`version_table_id` = vts.`id`
+      SET vtc.`project_version_id` = vts.`project_version_id`
+      WHERE vts.`id` > batch_start AND vts.`id` <= batch_start + batch_size;
+    UPDATE `version_table_index` vti
+      INNER JOIN `version_table_structure` vts ON vti.`version_table_id` = vts.`id`
+      SET vti.`project_version_id` = vts.`project_version_id`
+      WHERE vts.`id` > batch_start AND vts.`id` <= batch_start + batch_size;
+    COMMIT;
+    SET batch_start = batch_start + batch_size;
+  END WHILE;
+END$$
+DELIMITER ;
+
+CALL `backfill_detail_project_version_id`();
+DROP PROCEDURE IF EXISTS `backfill_detail_project_version_id`;
+
+-- 唯一键加入项目版本ID，增加按 (项目版本, 表, 字段位置) 读取的复合索引
+ALTER TABLE `version_table_column`
+  DROP INDEX `uk_table_column`,
+  DROP INDEX `uk_definition_column`,
+  ADD UNIQUE KEY `uk_table_column` (`project_version_id`, `version_table_id`, `column_name`),
+  ADD UNIQUE KEY `uk_definition_column` (`definition_id`, `column_name`, `project_version_id`),
+  ADD KEY `idx_version_table_position` (`project_version_id`, `version_table_id`, `ordinal_position`);
+
+-- 索引表的唯一键 (项目版本, 表, 索引名) 同时作为按版本读取的复合索引
+ALTER TABLE `version_table_index`
+  DROP INDEX `uk_table_index`,
+  DROP INDEX `uk_definition_index`,
+  ADD UNIQUE KEY `uk_table_index` (`project_version_id`, `version_table_id`, `index_name`),
+  ADD UNIQUE KEY `uk_definition_index` (`definition_id`, `index_name`, `project_version_id`);
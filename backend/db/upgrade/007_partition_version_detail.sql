@@ -0,0 +1,33 @@
+-- 可选升级脚本：字段表和索引表按项目版本ID分区，删除或读取一个版本只访问一个分区
+-- 需先执行 006_add_detail_project_version_id.sql。分区表要求主键和所有唯一键包含分区字段，因此主键改为 (id, project_version_id)；
+-- 分区数按数据量调整，修改分区会重建整张表，请在维护窗口执行
+--
+-- 只适用于未启用表定义去重（database.capture.dedup-definitions=false，默认值）的部署：
+-- 启用去重后新采集的字段和索引写入共享表定义，项目版本ID均为0，几乎全部集中在同一个分区，分区不再分散数据；
+-- 这部分记录按 definition_id 读取（走 uk_definition_column / uk_definition_index），也用不到按项目版本ID的复合索引。
+-- 执行前先确认共享表定义记录的占比，占比较高时不要分区：
+--   SELECT SUM(project_version_id = 0) / COUNT(*) FROM version_table_column;
+
+use db_record;
+
+ALTER TABLE `version_table_column`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`, `project_version_id`);
+
+ALTER TABLE `version_table_column`
+  PARTITION BY HASH (`project_version_id`) PARTITIONS 16;
+
+ALTER TABLE `version_table_index`
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`, `project_version_id`);
+
+ALTER TABLE `version_table_index`
+  PARTITION BY HASH (`project_version_id`) PARTITIONS 16;
+
+-- 也可以按项目版本ID范围分区，旧版本整段清理后可直接 DROP PARTITION，例如：
+-- ALTER TABLE `version_table_column` PARTITION BY RANGE (`project_version_id`) (
+--   PARTITION p0 VALUES LESS THAN (10000),
+--   PARTITION p1 VALUES LESS THAN (20000),
+--   PARTITION pmax VALUES LESS THAN MAXVALUE
+-- );
+-- 取消分区：ALTER TABLE `version_table_column` REMOVE PARTITIONING;
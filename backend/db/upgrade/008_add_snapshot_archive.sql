@@ -0,0 +1,11 @@
+-- 升级脚本：旧版本结构快照归档（冷存储）
+-- 归档版本的结构快照压缩存入 project_version.schema_snapshot，表结构、字段和索引明细行删除，查看和对比时从快照读取
+
+use db_record;
+
+-- 原JSON格式快照没有被写入和读取，转换类型前清空
+UPDATE `project_version` SET `schema_snapshot` = NULL WHERE `schema_snapshot` IS NOT NULL;
+
+ALTER TABLE `project_version`
+  MODIFY COLUMN `schema_snapshot` LONGBLOB COMMENT '归档版本的压缩结构快照（列式编码+Deflate），未归档时为空',
+  ADD COLUMN `archived_time` DATETIME COMMENT '归档时间（表结构明细已删除，从压缩快照读取），未归档时为空' AFTER `create_time`;
@@ -0,0 +1,17 @@
+-- 升级脚本：预先计算的版本差异
+-- 版本采集完成后计算与项目上一个版本的对比结果并保存，相邻版本的对比和差异SQL导出直接读取
+
+use db_record;
+
+CREATE TABLE IF NOT EXISTS `version_diff` (
+  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT COMMENT '主键',
+  `from_version_id` BIGINT UNSIGNED NOT NULL COMMENT '源版本ID',
+  `to_version_id` BIGINT UNSIGNED NOT NULL COMMENT '目标版本ID',
+  `from_schema_id` BIGINT UNSIGNED NOT NULL COMMENT '计算时源版本的数据库结构信息ID',
+  `to_schema_id` BIGINT UNSIGNED NOT NULL COMMENT '计算时目标版本的数据库结构信息ID',
+  `diff_content` LONGBLOB NOT NULL COMMENT '对比结果（gzip压缩的JSON）',
+  `create_time` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_version_pair` (`from_version_id`, `to_version_id`),
+  KEY `idx_to_version` (`to_version_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='版本差异表';
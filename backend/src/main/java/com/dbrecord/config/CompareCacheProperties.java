@@ -0,0 +1,34 @@
+package com.dbrecord.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 版本对比结果缓存配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "database.compare-cache")
+public class CompareCacheProperties {
+
+    /**
+     * 是否启用对比结果缓存（关闭后相同的并发对比仍合并为一次计算）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的最大版本对数量，超出时淘汰最近最少使用的结果
+     */
+    private long maximumSize = 200;
+
+    /**
+     * 对比结果写入多久后过期（分钟）
+     */
+    private long expireAfterWriteMinutes = 60;
+
+    /**
+     * 等待同一对版本正在进行的对比的最长时间（秒），超时后本次请求失败
+     */
+    private long waitTimeoutSeconds = 120;
+}
@@ -0,0 +1,49 @@
+package com.dbrecord.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 源数据库连接池配置属性（每个数据源一个连接池）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "database.connection-pool")
+public class ConnectionPoolProperties {
+
+    /**
+     * 每个数据源连接池的最大连接数
+     */
+    private int maximumPoolSize = 5;
+
+    /**
+     * 每个数据源连接池的最小空闲连接数（0表示空闲时不保留连接）
+     */
+    private int minimumIdle = 0;
+
+    /**
+     * 获取连接的超时时间（毫秒）
+     */
+    private long connectionTimeoutMs = 30000;
+
+    /**
+     * 连接空闲多久后被回收（毫秒）
+     */
+    private long idleTimeoutMs = 300000;
+
+    /**
+     * 连接最大存活时间（毫秒）
+     */
+    private long maxLifetimeMs = 1800000;
+
+    /**
+     * 整个连接池多久未被使用后关闭（分钟）
+     */
+    private long poolIdleEvictMinutes = 30;
+
+    /**
+     * 最多同时保留的数据源连接池数量，超出时关闭最久未使用的空闲连接池
+     */
+    private int maxPools = 50;
+}
@@ -0,0 +1,37 @@
+package com.dbrecord.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录拒绝次数的拒绝策略：统计后抛出 {@link RejectedExecutionException}，由提交方决定如何处理
+ */
+@Slf4j
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    private final String poolName;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CountingRejectedExecutionHandler(String poolName) {
+        this.poolName = poolName;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        long count = rejectedCount.incrementAndGet();
+        log.warn("线程池 {} 已满，拒绝任务（活动线程: {}，队列长度: {}，累计拒绝: {}）",
+                poolName, executor.getActiveCount(), executor.getQueue().size(), count);
+        throw new RejectedExecutionException("线程池 " + poolName + " 已满");
+    }
+
+    /**
+     * 累计拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -1,10 +1,17 @@
 package com.dbrecord.config;
 
+import com.dbrecord.util.NamePatternSet;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +63,8 @@ public class DatabaseScanFilterProperties {
 
     /**
      * 数据库过滤配置
+     * 排除和包含规则都支持精确名称、通配符（* 和 ?）以及 regex: 开头的正则表达式，
+     * 规则在第一次使用时编译，之后的匹配只做哈希查找和一次正则匹配
      */
     @Data
     public static class DatabaseFilterConfig {
@@ -67,17 +76,53 @@ public class DatabaseScanFilterProperties {
         /**
          * 需要排除的表配置
          * key: schema名称
-         * value: 该schema下需要排除的表名列表
+         * value: 该schema下需要排除的表名或规则列表
          */
         private Map<String, List<String>> excludedTables = new HashMap<>();
 
+        /**
+         * 所有schema通用的表排除规则，例如 log_20* 排除所有按月分表
+         */
+        private List<String> excludedTablePatterns = new ArrayList<>();
+
+        /**
+         * 表包含规则，非空时只采集匹配的表（排除规则优先）
+         */
+        private List<String> includedTablePatterns = new ArrayList<>();
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        @ToString.Exclude
+        private volatile CompiledRules compiledRules;
+
+        public void setExcludedSchemas(List<String> excludedSchemas) {
+            this.excludedSchemas = excludedSchemas;
+            this.compiledRules = null;
+        }
+
+        public void setExcludedTables(Map<String, List<String>> excludedTables) {
+            this.excludedTables = excludedTables;
+            this.compiledRules = null;
+        }
+
+        public void setExcludedTablePatterns(List<String> excludedTablePatterns) {
+            this.excludedTablePatterns = excludedTablePatterns;
+            this.compiledRules = null;
+        }
+
+        public void setIncludedTablePatterns(List<String> includedTablePatterns) {
+            this.includedTablePatterns = includedTablePatterns;
+            this.compiledRules = null;
+        }
+
         /**
          * 检查schema是否应该被排除
          * @param schemaName schema名称
          * @return true表示应该排除
          */
         public boolean isSchemaExcluded(String schemaName) {
-            return excludedSchemas.contains(schemaName);
+            return getSchemaExclusions().matches(schemaName);
         }
 
         /**
@@ -87,8 +132,53 @@ public class DatabaseScanFilterProperties {
          * @return true表示应该排除
          */
         public boolean isTableExcluded(String schemaName, String tableName) {
-            List<String> tables = excludedTables.get(schemaName);
-            return tables != null && tables.contains(tableName);
+            CompiledRules rules = getCompiledRules();
+            NamePatternSet schemaTables = rules.tableExclusionsBySchema.get(schemaName);
+            if (schemaTables != null && schemaTables.matches(tableName)) {
+                return true;
+            }
+            if (rules.tableExclusions.matches(tableName)) {
+                return true;
+            }
+            return !rules.tableInclusions.isEmpty() && !rules.tableInclusions.matches(tableName);
+        }
+
+        /**
+         * 是否配置了正则规则
+         * 正则规则不下推到目录查询（数据库的正则语法与Java不同），查询结果需要再用
+         * {@link #isSchemaExcluded} 和 {@link #isTableExcluded} 过滤
+         */
+        public boolean hasRegexRules() {
+            return getCompiledRules().hasRegexRules;
+        }
+
+        /**
+         * 已编译的schema排除规则
+         */
+        public NamePatternSet getSchemaExclusions() {
+            return getCompiledRules().schemaExclusions;
+        }
+
+        /**
+         * 已编译的按schema配置的表排除规则
+         * @return schema名称 -> 表排除规则
+         */
+        public Map<String, NamePatternSet> getTableExclusionsBySchema() {
+            return getCompiledRules().tableExclusionsBySchema;
+        }
+
+        /**
+         * 已编译的通用表排除规则
+         */
+        public NamePatternSet getTableExclusions() {
+            return getCompiledRules().tableExclusions;
+        }
+
+        /**
+         * 已编译的表包含规则，为空表示不限制
+         */
+        public NamePatternSet getTableInclusions() {
+            return getCompiledRules().tableInclusions;
         }
 
         /**
@@ -101,5 +191,44 @@ public class DatabaseScanFilterProperties {
             }
             return "'" + String.join("', '", excludedSchemas) + "'";
         }
+
+        private CompiledRules getCompiledRules() {
+            CompiledRules rules = compiledRules;
+            if (rules == null) {
+                rules = new CompiledRules(this);
+                compiledRules = rules;
+            }
+            return rules;
+        }
+    }
+
+    /**
+     * 编译后的过滤规则
+     */
+    private static class CompiledRules {
+        private final NamePatternSet schemaExclusions;
+        private final Map<String, NamePatternSet> tableExclusionsBySchema;
+        private final NamePatternSet tableExclusions;
+        private final NamePatternSet tableInclusions;
+        private final boolean hasRegexRules;
+
+        CompiledRules(DatabaseFilterConfig config) {
+            this.schemaExclusions = NamePatternSet.compile(config.getExcludedSchemas());
+            Map<String, NamePatternSet> bySchema = new HashMap<>();
+            if (config.getExcludedTables() != null) {
+                config.getExcludedTables().forEach((schema, tables) -> {
+                    NamePatternSet compiled = NamePatternSet.compile(tables);
+                    if (!compiled.isEmpty()) {
+                        bySchema.put(schema, compiled);
+                    }
+                });
+            }
+            this.tableExclusionsBySchema = Collections.unmodifiableMap(bySchema);
+            this.tableExclusions = NamePatternSet.compile(config.getExcludedTablePatterns());
+            this.tableInclusions = NamePatternSet.compile(config.getIncludedTablePatterns());
+            this.hasRegexRules = schemaExclusions.hasRegexes() || tableExclusions.hasRegexes()
+                    || tableInclusions.hasRegexes()
+                    || tableExclusionsBySchema.values().stream().anyMatch(NamePatternSet::hasRegexes);
+        }
     }
 }
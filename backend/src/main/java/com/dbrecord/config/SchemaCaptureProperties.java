@@ -0,0 +1,241 @@
+package com.dbrecord.config;
+
+import com.dbrecord.util.VirtualThreadSupport;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据库结构采集配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "database.capture")
+public class SchemaCaptureProperties {
+
+    /**
+     * 是否启用增量采集
+     * 启用后与项目上一个版本比较表变更标记，未变化的表直接复用上个版本的字段和索引
+     */
+    private boolean incremental = false;
+
+    /**
+     * 增量采集时逐表提取的最大表数量，变化的表超过该数量时改为整库批量提取
+     */
+    private int incrementalMaxChangedTables = 50;
+
+    /**
+     * 是否启用表定义去重
+     * 启用后内容相同的表（内容哈希相同）在所有版本中只存储一份字段和索引，版本表结构通过定义ID引用；
+     * 改变明细数据的存储方式，默认关闭，在并发采集下验证后再启用；
+     * 共享定义的字段和索引项目版本ID为0，启用后不要按项目版本ID对字段表和索引表分区（见 upgrade/007_partition_version_detail.sql）
+     */
+    private boolean dedupDefinitions = false;
+
+    /**
+     * 同时执行的采集任务数量（任务调度线程池大小）
+     */
+    private int jobConcurrency = 4;
+
+    /**
+     * 等待执行的采集任务队列容量，队列满时拒绝新任务
+     */
+    private int jobQueueCapacity = 50;
+
+    /**
+     * 逐表提取的执行方式
+     * platform：固定大小的工作窃取线程池；virtual：每个表一个虚拟线程（需要 JDK 21 及以上的运行时，
+     * 不支持时回退到 platform 并输出 WARN 日志；Docker 镜像为 JDK 17，不支持虚拟线程）
+     * 两种方式下源库的并发都由每个数据源的并发上限控制
+     */
+    private String executionMode = "platform";
+
+    /**
+     * 逐表提取线程池的并行度（platform 方式）
+     */
+    private int tableParallelism = 16;
+
+    /**
+     * 每个数据源同时提取的最大表数量（应不超过数据源连接池的最大连接数）
+     */
+    private int maxConcurrentTablesPerDatasource = 4;
+
+    /**
+     * 源库读取失败时的最大尝试次数（含第一次），逐表提取时只重试失败的表
+     */
+    private int retryAttempts = 3;
+
+    /**
+     * 第一次重试前的等待时间（毫秒），之后每次重试翻倍
+     */
+    private long retryBackoffMillis = 1000;
+
+    /**
+     * 每个检查点写入的表数量
+     * 每批表的表结构、字段和索引在一个事务中写入，采集中断后重新采集时跳过已写入且未变化的表
+     */
+    private int checkpointTables = 200;
+
+    /**
+     * 是否启用一致性快照采集
+     * 启用后一次采集的所有目录查询都在固定的少量会话上执行，每个会话处于只读的 REPEATABLE READ 事务中
+     * （PostgreSQL、KingbaseES 的会话共享同一个导出快照，系统目录受MVCC隔离，版本记录的是同一时间点的结构）。
+     * MySQL的 information_schema 不受一致性读隔离，不能保证同一时间点：读取结束后重新读取表列表比较变更标记，
+     * 采集期间有表结构变化时采集失败，需要重新采集
+     */
+    private boolean consistentSnapshot = false;
+
+    /**
+     * 一致性快照采集使用的会话数量（占用数据源连接池的连接，应小于连接池最大连接数）
+     */
+    private int snapshotSessions = 2;
+
+    /**
+     * PostgreSQL、KingbaseES 是否使用 pg_catalog 原生目录查询
+     * 按OID直接连接系统目录并一次读取整个库，不经过 information_schema 视图；关闭时使用原有的 information_schema 查询
+     */
+    private boolean pgNativeCatalog = true;
+
+    /**
+     * 是否只采集表结构（MySQL）
+     * 启用后读取表列表时只查询结构相关的列，不读取行数、数据长度、索引长度、自增值等统计信息，
+     * 避免 information_schema.TABLES 为每个表计算或打开统计信息；统计信息由统计采样任务在版本创建后补充
+     */
+    private boolean structureOnly = false;
+
+    /**
+     * 是否在采集完成后预先计算与项目上一个版本的差异
+     * 启用后对比结果压缩保存，相邻版本的对比和差异SQL导出直接读取，不再重新对比
+     */
+    private boolean materializeDiff = true;
+
+    /**
+     * 表统计信息采样配置
+     */
+    private StatsSampling statsSampling = new StatsSampling();
+
+    /**
+     * 已删除版本结构数据的后台清理配置
+     */
+    private Purge purge = new Purge();
+
+    /**
+     * 旧版本结构快照归档（冷存储）配置
+     */
+    private Archive archive = new Archive();
+
+    /**
+     * 表统计信息采样配置
+     */
+    @Data
+    public static class StatsSampling {
+
+        /**
+         * 是否启用统计信息采样任务（为只采集结构的版本补充表行数、数据长度等统计信息）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 两次采样之间的间隔（毫秒）
+         */
+        private long intervalMillis = 600000;
+
+        /**
+         * 每次采样最多处理的表数量
+         */
+        private int maxTablesPerRun = 2000;
+
+        /**
+         * 每次向源库查询的表数量
+         */
+        private int batchSize = 50;
+
+        /**
+         * 两批查询之间的暂停时间（毫秒），用于限制对源库的查询速率
+         */
+        private long batchPauseMillis = 1000;
+
+        /**
+         * 源库读取失败后的退避时间（毫秒），连续失败时每次加倍；退避期间不再选取该版本的待采样表
+         */
+        private long failureBackoffMillis = 600000;
+
+        /**
+         * 连续读取失败的次数上限，达到后清除该版本的待采样标记不再采样，小于等于0表示不限制
+         */
+        private int maxFailures = 10;
+    }
+
+    @Data
+    public static class Purge {
+
+        /**
+         * 是否启用后台清理任务（清理软删除版本和版本记录已不存在的结构数据）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 两次清理之间的间隔（毫秒）
+         */
+        private long intervalMillis = 300000;
+
+        /**
+         * 每次最多清理的版本数量
+         */
+        private int maxVersionsPerRun = 10;
+
+        /**
+         * 每批删除的版本表结构数量（及其字段、索引），每批一个事务
+         */
+        private int chunkSize = 500;
+
+        /**
+         * 按项目版本ID清理残留字段和索引时每批删除的行数，每批一个事务
+         */
+        private int rowChunkSize = 5000;
+
+        /**
+         * 后台清理时两批之间的暂停时间（毫秒），用于限制对元数据库的写入压力
+         */
+        private long chunkPauseMillis = 100;
+    }
+
+    /**
+     * 版本结构归档配置
+     */
+    @Data
+    public static class Archive {
+
+        /**
+         * 是否启用归档任务：旧版本的结构快照压缩存入项目版本表，删除表结构、字段和索引明细行
+         */
+        private boolean enabled = false;
+
+        /**
+         * 两次归档之间的间隔（毫秒）
+         */
+        private long intervalMillis = 3600000;
+
+        /**
+         * 创建超过该天数的版本可以归档，不大于0时不按时间判断
+         */
+        private int minAgeDays = 90;
+
+        /**
+         * 每个项目最近的若干个版本不按数量归档，不大于0时不按数量判断
+         */
+        private int keepLatestVersions = 10;
+
+        /**
+         * 每次最多归档的版本数量
+         */
+        private int maxVersionsPerRun = 5;
+    }
+
+    /**
+     * 是否使用虚拟线程执行逐表提取（配置为 virtual 且运行时支持虚拟线程）
+     */
+    public boolean useVirtualThreads() {
+        return "virtual".equalsIgnoreCase(executionMode) && VirtualThreadSupport.isAvailable();
+    }
+}
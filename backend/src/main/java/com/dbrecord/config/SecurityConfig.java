@@ -1,6 +1,7 @@
 package com.dbrecord.config;
 
 import com.dbrecord.security.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -57,6 +58,8 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // 流式下载等异步请求完成时的再次分派，鉴权已在首次请求时完成
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                 .requestMatchers("/login", "/register", "/api/test/**", "/api/datasource/test-connection").permitAll()
                 .anyRequest().authenticated()
             )
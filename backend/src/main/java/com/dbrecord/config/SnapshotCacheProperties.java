@@ -0,0 +1,29 @@
+package com.dbrecord.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 版本结构快照缓存配置属性
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "database.snapshot-cache")
+public class SnapshotCacheProperties {
+
+    /**
+     * 是否启用快照缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存的最大权重（表、字段、索引的总行数）
+     */
+    private long maximumWeight = 2_000_000;
+
+    /**
+     * 快照多久未被访问后过期（分钟）
+     */
+    private long expireAfterAccessMinutes = 60;
+}
@@ -1,32 +1,42 @@
 package com.dbrecord.config;
 
+import com.dbrecord.util.VirtualThreadSupport;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+@Slf4j
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class ThreadPoolConfig {
 
     @Bean("schemaCaptureTaskExecutor")
-    public Executor schemaCaptureTaskExecutor() {
+    public ThreadPoolTaskExecutor schemaCaptureTaskExecutor(SchemaCaptureProperties captureProperties,
+                                                            CountingRejectedExecutionHandler captureRejectedExecutionHandler) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        // 核心线程数
-        executor.setCorePoolSize(5);
-        // 最大线程数
-        executor.setMaxPoolSize(10);
-        // 队列容量
-        executor.setQueueCapacity(100);
+        // 采集任务调度：每个线程执行一个完整的采集任务，逐表提取交给 schemaTableTaskExecutor
+        executor.setCorePoolSize(captureProperties.getJobConcurrency());
+        executor.setMaxPoolSize(captureProperties.getJobConcurrency());
+        // 有界队列，超出的任务排队等待
+        executor.setQueueCapacity(captureProperties.getJobQueueCapacity());
         // 线程活跃时间（秒）
         executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
         // 线程名称前缀
         executor.setThreadNamePrefix("schema-capture-");
-        // 拒绝策略：由调用线程处理该任务
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 拒绝策略：记录拒绝次数后抛出异常，不在请求线程上执行采集
+        executor.setRejectedExecutionHandler(captureRejectedExecutionHandler);
         // 等待所有任务结束后再关闭线程池
         executor.setWaitForTasksToCompleteOnShutdown(true);
         // 设置等待时间
@@ -34,4 +44,73 @@ public class ThreadPoolConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public CountingRejectedExecutionHandler captureRejectedExecutionHandler() {
+        return new CountingRejectedExecutionHandler("schema-capture");
+    }
+
+    @Bean(name = "schemaTableTaskExecutor", destroyMethod = "shutdown")
+    public ExecutorService schemaTableTaskExecutor(SchemaCaptureProperties captureProperties) {
+        String executionMode = captureProperties.getExecutionMode();
+        if ("virtual".equalsIgnoreCase(executionMode)) {
+            ExecutorService virtualExecutor = captureProperties.useVirtualThreads()
+                    ? VirtualThreadSupport.newVirtualThreadPerTaskExecutor() : null;
+            if (virtualExecutor != null) {
+                // 逐表提取是阻塞的JDBC调用，每个表一个虚拟线程，并发由每个数据源的并发上限控制
+                log.info("逐表提取使用虚拟线程执行");
+                return virtualExecutor;
+            }
+            log.warn("已配置 database.capture.execution-mode=virtual，但当前运行时（Java {}）不支持虚拟线程，需要 JDK 21 及以上；" +
+                    "逐表提取回退为线程池执行", Runtime.version().feature());
+        } else if (!"platform".equalsIgnoreCase(executionMode)) {
+            log.warn("未知的逐表提取执行方式: {}，使用线程池执行", executionMode);
+        }
+        // 逐表提取：工作窃取线程池，与采集任务线程池分离，采集任务等待逐表结果时不会占满自身线程池
+        AtomicInteger threadNumber = new AtomicInteger();
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("schema-table-" + threadNumber.incrementAndGet());
+            return thread;
+        };
+        return new ForkJoinPool(captureProperties.getTableParallelism(), threadFactory, null, true);
+    }
+
+    @Bean("schemaCompareTaskExecutor")
+    public Executor schemaCompareTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // 版本对比是纯内存计算，线程数与CPU核数一致
+        int processors = Runtime.getRuntime().availableProcessors();
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors);
+        // 队列容量
+        executor.setQueueCapacity(1000);
+        // 线程活跃时间（秒）
+        executor.setKeepAliveSeconds(60);
+        executor.setAllowCoreThreadTimeOut(true);
+        // 线程名称前缀
+        executor.setThreadNamePrefix("schema-compare-");
+        // 拒绝策略：由调用线程处理该任务，队列满时自然限流
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean("sqlExportTaskExecutor")
+    public ThreadPoolTaskExecutor sqlExportTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        // SQL导出流式写出响应，主要耗时在元数据库查询和网络输出
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(8);
+        // 队列容量
+        executor.setQueueCapacity(50);
+        // 线程活跃时间（秒）
+        executor.setKeepAliveSeconds(60);
+        // 线程名称前缀
+        executor.setThreadNamePrefix("sql-export-");
+        // 拒绝策略：队列满时直接拒绝，避免占用请求线程
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
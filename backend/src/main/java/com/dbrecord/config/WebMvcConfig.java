@@ -0,0 +1,30 @@
+package com.dbrecord.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Web MVC配置
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * 异步请求（流式下载）超时时间（毫秒）
+     */
+    private static final long ASYNC_REQUEST_TIMEOUT_MS = 10 * 60 * 1000L;
+
+    @Autowired
+    @Qualifier("sqlExportTaskExecutor")
+    private ThreadPoolTaskExecutor sqlExportTaskExecutor;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(sqlExportTaskExecutor);
+        configurer.setDefaultTimeout(ASYNC_REQUEST_TIMEOUT_MS);
+    }
+}
@@ -78,6 +78,8 @@ public class DatasourceController {
             
             boolean success = datasourceService.updateById(datasource);
             if (success) {
+                // 连接配置可能已变化，关闭旧的连接池
+                datasourceService.invalidateConnectionPool(datasource.getId());
                 return Result.success("数据源更新成功");
             } else {
                 return Result.error("数据源更新失败");
@@ -106,6 +108,7 @@ public class DatasourceController {
             boolean success = datasourceService.updateById(existingDatasource);
             
             if (success) {
+                datasourceService.invalidateConnectionPool(id);
                 return Result.success("数据源删除成功");
             } else {
                 return Result.error("数据源删除失败");
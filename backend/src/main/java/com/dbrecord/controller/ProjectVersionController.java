@@ -5,19 +5,36 @@ import com.dbrecord.entity.domain.ProjectVersion;
 import com.dbrecord.entity.domain.User;
 import com.dbrecord.entity.domain.Project;
 import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.SchemaCaptureJob;
 import com.dbrecord.service.ProjectVersionService;
 import com.dbrecord.service.ProjectService;
 import com.dbrecord.service.DatasourceService;
 import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.SchemaCaptureJobService;
+import com.dbrecord.service.VersionDataPurgeService;
+import com.dbrecord.service.VersionSqlExportService;
+import com.dbrecord.service.CompareResultCache;
 import com.dbrecord.util.Result;
 import lombok.extern.slf4j.Slf4j;
-import java.util.concurrent.CompletableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 项目版本管理控制器
@@ -39,6 +56,23 @@ public class ProjectVersionController {
     @Autowired
     private DatabaseSchemaService databaseSchemaService;
     
+    @Autowired
+    private VersionSqlExportService versionSqlExportService;
+    
+    @Autowired
+    private SchemaCaptureJobService schemaCaptureJobService;
+    
+    @Autowired
+    private VersionDataPurgeService versionDataPurgeService;
+    
+    @Autowired
+    private CompareResultCache compareResultCache;
+    
+    /**
+     * 流式导出的写缓冲大小
+     */
+    private static final int SQL_STREAM_BUFFER_SIZE = 64 * 1024;
+    
     /**
      * 获取项目版本列表
      */
@@ -90,6 +124,8 @@ public class ProjectVersionController {
             if (deletedVersion != null) {
                 // 硬删除软删除的版本记录
                 projectVersionService.removeById(deletedVersion.getId());
+                databaseSchemaService.evictVersionCaches(deletedVersion.getId());
+                databaseSchemaService.deleteVersionDiffs(deletedVersion.getId());
             }
             
             // 获取项目信息
@@ -105,12 +141,12 @@ public class ProjectVersionController {
                     Datasource datasource = datasourceService.getById(project.getDatasourceId());
                     if (datasource != null && datasource.getUserId().equals(currentUser.getId())) {
                         try {
-                            // 异步捕获数据库结构
-                            CompletableFuture<Boolean> captureFuture = databaseSchemaService
-                                .captureAndSaveDatabaseSchemaAsync(projectVersion.getId(), datasource, currentUser.getId());
+                            // 提交采集任务，进度可通过 /api/capture-job 查询和订阅
+                            SchemaCaptureJob captureJob = schemaCaptureJobService
+                                .submit(projectVersion.getId(), datasource, currentUser.getId());
                             
                             // 不等待捕获完成，直接返回成功
-                            return Result.success(projectVersion, "版本创建成功，数据库结构正在后台捕获中");
+                            return Result.success(projectVersion, "版本创建成功，数据库结构正在后台捕获中（任务ID: " + captureJob.getId() + "）");
                         } catch (Exception e) {
                             log.error("启动异步数据库结构捕获失败: {}", e.getMessage(), e);
                             return Result.success(projectVersion, "版本创建成功，但启动数据库结构捕获失败: " + e.getMessage());
@@ -171,6 +207,8 @@ public class ProjectVersionController {
             boolean success = projectVersionService.updateById(existingVersion);
             
             if (success) {
+                databaseSchemaService.evictVersionCaches(id);
+                databaseSchemaService.deleteVersionDiffs(id);
                 return Result.success("版本删除成功");
             } else {
                 return Result.error("版本删除失败");
@@ -180,6 +218,30 @@ public class ProjectVersionController {
         }
     }
     
+    /**
+     * 获取已删除版本结构数据的清理积压和最近一次清理的指标
+     */
+    @GetMapping("/purge-stats")
+    public Result<Map<String, Object>> purgeStats() {
+        try {
+            return Result.success(versionDataPurgeService.getPurgeStats());
+        } catch (Exception e) {
+            return Result.error("获取清理指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取版本对比结果缓存的命中、未命中和合并请求计数
+     */
+    @GetMapping("/compare-cache-stats")
+    public Result<Map<String, Object>> compareCacheStats() {
+        try {
+            return Result.success(compareResultCache.getStats());
+        } catch (Exception e) {
+            return Result.error("获取对比缓存指标失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取版本详情
      */
@@ -246,24 +308,8 @@ public class ProjectVersionController {
                 return Result.error("项目不存在");
             }
             
-            // 获取数据源类型
-            String databaseType = "mysql"; // 默认为MySQL
-            if (project.getDatasourceId() != null) {
-                Datasource datasource = datasourceService.getById(project.getDatasourceId());
-                if (datasource != null) {
-                    databaseType = datasource.getType();
-                }
-            }
-            
-            // 获取版本的完整数据库结构
-            Map<String, Object> completeStructure = databaseSchemaService.getVersionCompleteStructure(id);
-            
-            if (completeStructure.containsKey("error")) {
-                return Result.error("获取数据库结构失败: " + completeStructure.get("error"));
-            }
-            
             // 根据数据库类型生成SQL脚本
-            String sql = generateCompleteStructureSql(id, version.getVersionName(), completeStructure, databaseType);
+            String sql = versionSqlExportService.generateVersionSql(version, getDatabaseType(project));
             
             Map<String, Object> result = new HashMap<>();
             result.put("version", version.getVersionName());
@@ -276,415 +322,30 @@ public class ProjectVersionController {
     }
     
     /**
-     * 生成完整的数据库结构SQL
-     */
-    private String generateCompleteStructureSql(Long versionId, String versionName, Map<String, Object> completeStructure, String databaseType) {
-        StringBuilder sql = new StringBuilder();
-        
-        // 添加头部注释
-        sql.append("-- 数据库结构导出\n");
-        sql.append("-- 版本: ").append(versionName).append("\n");
-        sql.append("-- 版本ID: ").append(versionId).append("\n");
-        sql.append("-- 导出时间: ").append(new java.util.Date()).append("\n\n");
-        
-        // 添加数据库信息
-        @SuppressWarnings("unchecked")
-        Map<String, Object> databaseInfo = (Map<String, Object>) completeStructure.get("database");
-        if (databaseInfo != null) {
-            sql.append("-- 数据库信息\n");
-            sql.append("-- 数据库名: ").append(databaseInfo.get("databaseName")).append("\n");
-            sql.append("-- 字符集: ").append(databaseInfo.get("charset")).append("\n");
-            sql.append("-- 排序规则: ").append(databaseInfo.get("collation")).append("\n\n");
-        }
-        
-        // 生成表结构SQL
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> tables = (List<Map<String, Object>>) completeStructure.get("tables");
-        if (tables != null && !tables.isEmpty()) {
-            if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-                // PostgreSQL/KingbaseES: 先创建schema，再创建表
-                generatePostgreSQLStructureSql(sql, tables, databaseInfo);
-            } else {
-                // MySQL等其他数据库: 直接创建表
-                for (Map<String, Object> table : tables) {
-                    sql.append(generateCreateTableSql(table, databaseType));
-                    sql.append("\n");
-                }
-            }
-        } else {
-            sql.append("-- 该版本暂无表结构数据\n");
-        }
-        
-        return sql.toString();
-    }
-
-    /**
-     * 生成PostgreSQL结构SQL（按schema分组）
-     */
-    private void generatePostgreSQLStructureSql(StringBuilder sql, List<Map<String, Object>> tables, Map<String, Object> databaseInfo) {
-        // 按schema分组表
-        Map<String, List<Map<String, Object>>> schemaGroups = new HashMap<>();
-        Set<String> schemas = new HashSet<>();
-
-        for (Map<String, Object> table : tables) {
-            String schemaName = (String) table.get("schemaName");
-            if (schemaName == null || schemaName.isEmpty()) {
-                schemaName = "public";
-            }
-            schemas.add(schemaName);
-
-            schemaGroups.computeIfAbsent(schemaName, k -> new ArrayList<>()).add(table);
-        }
-
-        // 生成CREATE SCHEMA语句
-        sql.append("-- 创建Schema\n");
-        for (String schemaName : schemas) {
-            if (!"public".equals(schemaName)) {
-                sql.append("CREATE SCHEMA IF NOT EXISTS \"").append(schemaName).append("\";\n");
-            }
-        }
-        sql.append("\n");
-
-        // 按schema分组生成表结构
-        for (Map.Entry<String, List<Map<String, Object>>> entry : schemaGroups.entrySet()) {
-            String schemaName = entry.getKey();
-            List<Map<String, Object>> schemaTables = entry.getValue();
-
-            sql.append("-- Schema: ").append(schemaName).append(" (").append(schemaTables.size()).append("个表)\n");
-            sql.append("-- ").append("=".repeat(50)).append("\n\n");
-
-            for (Map<String, Object> table : schemaTables) {
-                sql.append(generateCreateTableSql(table, "postgresql"));
-                sql.append("\n");
-            }
-            sql.append("\n");
-        }
-    }
-
-    /**
-     * 将MySQL字段类型转换为PostgreSQL字段类型
-     */
-    private String convertColumnTypeForPostgreSQL(String mysqlType, String extra) {
-        if (mysqlType == null) {
-            return "TEXT";
-        }
-
-        String type = mysqlType.toLowerCase().trim();
-
-        // 处理AUTO_INCREMENT
-        if (extra != null && extra.toLowerCase().contains("auto_increment")) {
-            if (type.contains("bigint")) {
-                return "BIGSERIAL";
-            } else if (type.contains("int")) {
-                return "SERIAL";
-            }
-        }
-
-        // 处理已经是PostgreSQL格式的类型（从PostgreSQL数据源捕获的）
-        if (type.startsWith("character varying")) {
-            return type.replace("character varying", "VARCHAR");
-        }
-        if (type.equals("character")) {
-            return "CHAR";
-        }
-        if (type.equals("timestamp without time zone")) {
-            return "TIMESTAMP";
-        }
-        if (type.equals("timestamp with time zone")) {
-            return "TIMESTAMPTZ";
-        }
-        
-        // 字符串类型
-        if (type.startsWith("varchar")) {
-            return type.replace("varchar", "VARCHAR");
-        }
-        if (type.startsWith("char")) {
-            return type.replace("char", "CHAR");
-        }
-        if (type.equals("text") || type.equals("longtext") || type.equals("mediumtext")) {
-            return "TEXT";
-        }
-        if (type.equals("tinytext")) {
-            return "TEXT";
-        }
-        
-        // 数值类型
-        if (type.equals("tinyint(1)") || type.equals("boolean")) {
-            return "BOOLEAN";
-        }
-        if (type.startsWith("tinyint")) {
-            return "SMALLINT";
-        }
-        if (type.startsWith("smallint")) {
-            return "SMALLINT";
-        }
-        if (type.startsWith("mediumint") || type.startsWith("int")) {
-            return "INTEGER";
-        }
-        if (type.startsWith("bigint")) {
-            return "BIGINT";
-        }
-        if (type.startsWith("decimal") || type.startsWith("numeric")) {
-            return type.toUpperCase();
-        }
-        if (type.startsWith("float")) {
-            return "REAL";
-        }
-        if (type.startsWith("double")) {
-            return "DOUBLE PRECISION";
-        }
-        
-        // 日期时间类型
-        if (type.equals("datetime")) {
-            return "TIMESTAMP";
-        }
-        if (type.equals("date")) {
-            return "DATE";
-        }
-        if (type.equals("time")) {
-            return "TIME";
-        }
-        if (type.equals("timestamp")) {
-            return "TIMESTAMP";
-        }
-        if (type.equals("year")) {
-            return "INTEGER";
-        }
-        
-        // 二进制类型
-        if (type.startsWith("blob") || type.equals("longblob") || type.equals("mediumblob")) {
-            return "BYTEA";
-        }
-        if (type.startsWith("binary") || type.startsWith("varbinary")) {
-            return "BYTEA";
-        }
-        
-        // JSON类型
-        if (type.equals("json")) {
-            return "JSON";
-        }
-        
-        // 枚举和集合类型
-        if (type.startsWith("enum")) {
-            return "VARCHAR(255)";
-        }
-        if (type.startsWith("set")) {
-            return "TEXT";
-        }
-        
-        // 默认返回原类型
-        return mysqlType.toUpperCase();
-    }
-    
-    /**
-     * 生成创建表的SQL语句
+     * 流式导出版本SQL（大结构使用，逐表写出，gzip=true时压缩传输）
      */
-    private String generateCreateTableSql(Map<String, Object> table, String databaseType) {
-        StringBuilder sql = new StringBuilder();
-
-        String tableName = (String) table.get("tableName");
-        String schemaName = (String) table.get("schemaName");
-        String tableComment = (String) table.get("tableComment");
-        String engine = (String) table.get("engine");
-        String charset = (String) table.get("charset");
-        String collation = (String) table.get("collation");
-        Object autoIncrement = table.get("autoIncrement");
-
-        // 构建完整的表名（包含schema）
-        String fullTableName = tableName;
-        if ("postgresql".equalsIgnoreCase(databaseType) && schemaName != null && !schemaName.isEmpty()) {
-            fullTableName = schemaName + "." + tableName;
-        }
-
-        sql.append("-- 表: ").append(fullTableName);
-        if (tableComment != null && !tableComment.isEmpty()) {
-            sql.append(" (").append(tableComment).append(")");
-        }
-        sql.append("\n");
-
-        // 根据数据库类型生成不同的语法
-        if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-            // PostgreSQL/KingbaseES语法，使用schema.table格式
-            if (schemaName != null && !schemaName.isEmpty()) {
-                sql.append("DROP TABLE IF EXISTS \"").append(schemaName).append("\".\"").append(tableName).append("\" CASCADE;\n");
-                sql.append("CREATE TABLE \"").append(schemaName).append("\".\"").append(tableName).append("\" (\n");
-            } else {
-                sql.append("DROP TABLE IF EXISTS \"").append(tableName).append("\" CASCADE;\n");
-                sql.append("CREATE TABLE \"").append(tableName).append("\" (\n");
-            }
-        } else {
-            // MySQL语法
-            sql.append("DROP TABLE IF EXISTS `").append(tableName).append("`;\n");
-            sql.append("CREATE TABLE `").append(tableName).append("` (\n");
-        }
+    @GetMapping("/export-sql/{id}/stream")
+    public ResponseEntity<StreamingResponseBody> exportSqlStream(@PathVariable Long id,
+                                                                 @RequestParam(defaultValue = "false") boolean gzip) {
+        User currentUser = getCurrentUser();
         
-        // 添加字段定义
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> columns = (List<Map<String, Object>>) table.get("columns");
-        if (columns != null && !columns.isEmpty()) {
-            for (int i = 0; i < columns.size(); i++) {
-                Map<String, Object> column = columns.get(i);
-                
-                if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-                    sql.append("  \"").append(column.get("columnName")).append("\" ");
-                    // PostgreSQL/KingbaseES字段类型转换
-                    sql.append(convertColumnTypeForPostgreSQL((String) column.get("columnType"), (String) column.get("extra")));
-                } else {
-                    // MySQL语法
-                    sql.append("  `").append(column.get("columnName")).append("` ");
-                    sql.append(column.get("columnType"));
-                }
-                
-                // 处理NULL约束
-                if ("NO".equals(column.get("isNullable"))) {
-                    sql.append(" NOT NULL");
-                }
-                
-                // 处理默认值
-                Object defaultValue = column.get("columnDefault");
-                if (defaultValue != null && !"null".equalsIgnoreCase(defaultValue.toString())) {
-                    if ("postgresql".equalsIgnoreCase(databaseType)) {
-                        sql.append(" DEFAULT '").append(defaultValue).append("'");
-                    } else {
-                        sql.append(" DEFAULT '").append(defaultValue).append("'");
-                    }
-                }
-                
-                // 处理额外属性（如AUTO_INCREMENT）
-                String extra = (String) column.get("extra");
-                if (extra != null && !extra.isEmpty() && !"postgresql".equalsIgnoreCase(databaseType)) {
-                    // PostgreSQL的AUTO_INCREMENT已在类型转换中处理
-                    sql.append(" ").append(extra.toUpperCase());
-                }
-                
-                // 处理字段注释
-                String columnComment = (String) column.get("columnComment");
-                if (columnComment != null && !columnComment.isEmpty()) {
-                    if ("postgresql".equalsIgnoreCase(databaseType)) {
-                        // PostgreSQL注释需要单独的COMMENT语句，这里先跳过
-                    } else {
-                        sql.append(" COMMENT '").append(columnComment.replace("'", "\\'")).append("'");
-                    }
-                }
-                
-                if (i < columns.size() - 1) {
-                    sql.append(",");
-                }
-                sql.append("\n");
-            }
+        ProjectVersion version = projectVersionService.getById(id);
+        if (version == null || !version.getUserId().equals(currentUser.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
         
-        // 添加索引定义
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> indexes = (List<Map<String, Object>>) table.get("indexes");
-        if (indexes != null && !indexes.isEmpty()) {
-            for (Map<String, Object> index : indexes) {
-                Boolean isPrimary = (Boolean) index.get("isPrimary");
-                Boolean isUnique = (Boolean) index.get("isUnique");
-                String indexName = (String) index.get("indexName");
-                String columnNames = (String) index.get("columnNames");
-                
-                sql.append(",\n  ");
-                
-                if (Boolean.TRUE.equals(isPrimary)) {
-                    sql.append("PRIMARY KEY (").append(columnNames).append(")");
-                } else if (Boolean.TRUE.equals(isUnique)) {
-                    if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-                        sql.append("UNIQUE (").append(columnNames).append(")");
-                    } else {
-                        sql.append("UNIQUE KEY `").append(indexName).append("` (").append(columnNames).append(")");
-                    }
-                } else {
-                    if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-                        // PostgreSQL/KingbaseES的普通索引需要在CREATE TABLE外部创建
-                        // 这里先跳过，后面单独处理
-                    } else {
-                        sql.append("KEY `").append(indexName).append("` (").append(columnNames).append(")");
-                    }
-                }
-            }
+        Project project = projectService.getById(version.getProjectId());
+        if (project == null) {
+            return ResponseEntity.notFound().build();
         }
+        String databaseType = getDatabaseType(project);
         
-        if ("postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType)) {
-            sql.append("\n);");
-
-            // PostgreSQL/KingbaseES表注释
-            if (tableComment != null && !tableComment.isEmpty()) {
-                sql.append("\nCOMMENT ON TABLE \"").append(tableName).append("\" IS '").append(tableComment.replace("'", "\\'")).append("';");
+        StreamingResponseBody body = outputStream -> {
+            try (Writer writer = openSqlWriter(outputStream, gzip)) {
+                versionSqlExportService.writeVersionSql(version, databaseType, writer);
             }
-            
-            // 构建完整表名（用于注释和索引）
-            String quotedTableName = schemaName != null && !schemaName.isEmpty() ?
-                "\"" + schemaName + "\".\"" + tableName + "\"" : "\"" + tableName + "\"";
-
-            // PostgreSQL字段注释
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> columnsForComment = (List<Map<String, Object>>) table.get("columns");
-            if (columnsForComment != null) {
-                for (Map<String, Object> column : columnsForComment) {
-                    String columnComment = (String) column.get("columnComment");
-                    if (columnComment != null && !columnComment.isEmpty()) {
-                        sql.append("\nCOMMENT ON COLUMN ").append(quotedTableName).append(".\"").append(column.get("columnName")).append("\" IS '").append(columnComment.replace("'", "\\'")).append("';");
-                    }
-                }
-            }
-
-            // PostgreSQL索引
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> indexesForCreate = (List<Map<String, Object>>) table.get("indexes");
-            if (indexesForCreate != null) {
-                for (Map<String, Object> index : indexesForCreate) {
-                    Object isPrimaryObj = index.get("isPrimary");
-                    Object isUniqueObj = index.get("isUnique");
-                    Boolean isPrimary = isPrimaryObj instanceof Boolean ? (Boolean) isPrimaryObj :
-                        (isPrimaryObj instanceof Number ? ((Number) isPrimaryObj).intValue() != 0 : false);
-                    Boolean isUnique = isUniqueObj instanceof Boolean ? (Boolean) isUniqueObj :
-                        (isUniqueObj instanceof Number ? ((Number) isUniqueObj).intValue() != 0 : false);
-                    String indexName = (String) index.get("indexName");
-                    String columnNames = (String) index.get("columnNames");
-                    String indexComment = (String) index.get("indexComment");
-
-                    // 跳过主键索引（已在表定义中处理）
-                    if (Boolean.TRUE.equals(isPrimary)) {
-                        continue;
-                    }
-
-                    if (Boolean.TRUE.equals(isUnique)) {
-                        sql.append("\nCREATE UNIQUE INDEX \"").append(indexName).append("\" ON ").append(quotedTableName).append(" (").append(columnNames).append(");");
-                    } else {
-                        sql.append("\nCREATE INDEX \"").append(indexName).append("\" ON ").append(quotedTableName).append(" (").append(columnNames).append(");");
-                    }
-
-                    // 添加索引注释
-                    if (indexComment != null && !indexComment.isEmpty()) {
-                        sql.append("\nCOMMENT ON INDEX \"").append(indexName).append("\" IS '").append(indexComment.replace("'", "\\'")).append("';");
-                    }
-                }
-            }
-        } else {
-            // MySQL语法
-            sql.append("\n) ENGINE=").append(engine != null ? engine : "InnoDB");
-            
-            if (autoIncrement != null && !"0".equals(autoIncrement.toString())) {
-                sql.append(" AUTO_INCREMENT=").append(autoIncrement);
-            }
-            
-            if (charset != null) {
-                sql.append(" DEFAULT CHARSET=").append(charset);
-            }
-            
-            if (collation != null) {
-                sql.append(" COLLATE=").append(collation);
-            }
-            
-            if (tableComment != null && !tableComment.isEmpty()) {
-                sql.append(" COMMENT='").append(tableComment.replace("'", "\\'")).append("'");
-            }
-        }
-        
-        sql.append(";\n");
-        
-        return sql.toString();
+        };
+        return sqlAttachment("version_" + id + ".sql", gzip, body);
     }
     
     /**
@@ -719,6 +380,33 @@ public class ProjectVersionController {
         }
     }
     
+    /**
+     * 流式导出版本差异SQL（gzip=true时压缩传输）
+     */
+    @GetMapping("/export-diff-sql/{fromVersionId}/{toVersionId}/stream")
+    public ResponseEntity<StreamingResponseBody> exportDiffSqlStream(@PathVariable Long fromVersionId,
+                                                                     @PathVariable Long toVersionId,
+                                                                     @RequestParam(defaultValue = "false") boolean gzip) {
+        User currentUser = getCurrentUser();
+        
+        ProjectVersion fromVersion = projectVersionService.getById(fromVersionId);
+        ProjectVersion toVersion = projectVersionService.getById(toVersionId);
+        
+        if (fromVersion == null || toVersion == null || 
+            !fromVersion.getUserId().equals(currentUser.getId()) || 
+            !toVersion.getUserId().equals(currentUser.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            try (Writer writer = openSqlWriter(outputStream, gzip)) {
+                databaseSchemaService.writeDiffSql(fromVersionId, toVersionId,
+                        fromVersion.getVersionName(), toVersion.getVersionName(), writer);
+            }
+        };
+        return sqlAttachment("diff_" + fromVersionId + "_" + toVersionId + ".sql", gzip, body);
+    }
+    
     /**
      * 获取版本完整结构
      */
@@ -743,6 +431,41 @@ public class ProjectVersionController {
     
 
     
+    /**
+     * 获取项目数据源类型，默认为MySQL
+     */
+    private String getDatabaseType(Project project) {
+        if (project.getDatasourceId() != null) {
+            Datasource datasource = datasourceService.getById(project.getDatasourceId());
+            if (datasource != null) {
+                return datasource.getType();
+            }
+        }
+        return "mysql";
+    }
+    
+    /**
+     * 创建SQL输出流，按需套上gzip压缩
+     */
+    private Writer openSqlWriter(OutputStream outputStream, boolean gzip) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(outputStream, SQL_STREAM_BUFFER_SIZE) : outputStream;
+        return new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), SQL_STREAM_BUFFER_SIZE);
+    }
+    
+    /**
+     * 构建SQL附件下载响应
+     */
+    private ResponseEntity<StreamingResponseBody> sqlAttachment(String fileName, boolean gzip, StreamingResponseBody body) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(new MediaType("text", "plain", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString());
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(body);
+    }
+    
     /**
      * 获取当前登录用户
      */
@@ -0,0 +1,166 @@
+package com.dbrecord.controller;
+
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.Project;
+import com.dbrecord.entity.domain.ProjectVersion;
+import com.dbrecord.entity.domain.SchemaCaptureJob;
+import com.dbrecord.entity.domain.User;
+import com.dbrecord.service.DatasourceService;
+import com.dbrecord.service.ProjectService;
+import com.dbrecord.service.ProjectVersionService;
+import com.dbrecord.service.SchemaCaptureJobService;
+import com.dbrecord.util.Result;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * 结构采集任务控制器
+ */
+@RestController
+@RequestMapping("/api/capture-job")
+public class SchemaCaptureJobController {
+    
+    @Autowired
+    private SchemaCaptureJobService schemaCaptureJobService;
+    
+    @Autowired
+    private ProjectVersionService projectVersionService;
+    
+    @Autowired
+    private ProjectService projectService;
+    
+    @Autowired
+    private DatasourceService datasourceService;
+    
+    /**
+     * 重新采集版本的数据库结构，版本已有运行中的任务时返回该任务
+     */
+    @PostMapping("/start/{projectVersionId}")
+    public Result<SchemaCaptureJob> start(@PathVariable Long projectVersionId) {
+        try {
+            User currentUser = getCurrentUser();
+            
+            ProjectVersion version = projectVersionService.getById(projectVersionId);
+            if (version == null || !version.getUserId().equals(currentUser.getId())) {
+                return Result.error(403, "版本不存在或无权限访问");
+            }
+            
+            Project project = projectService.getById(version.getProjectId());
+            if (project == null || project.getDatasourceId() == null) {
+                return Result.error("项目未关联数据源");
+            }
+            
+            Datasource datasource = datasourceService.getById(project.getDatasourceId());
+            if (datasource == null || !datasource.getUserId().equals(currentUser.getId())) {
+                return Result.error(403, "数据源不存在或无权限访问");
+            }
+            
+            SchemaCaptureJob job = schemaCaptureJobService.submit(projectVersionId, datasource, currentUser.getId());
+            return Result.success(job, "采集任务已提交");
+        } catch (Exception e) {
+            return Result.error("提交采集任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取采集线程池运行指标
+     */
+    @GetMapping("/executor-stats")
+    public Result<Map<String, Object>> executorStats() {
+        try {
+            return Result.success(schemaCaptureJobService.getExecutorStats());
+        } catch (Exception e) {
+            return Result.error("获取线程池指标失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取采集任务详情
+     */
+    @GetMapping("/{id}")
+    public Result<SchemaCaptureJob> detail(@PathVariable Long id) {
+        try {
+            SchemaCaptureJob job = getOwnedJob(id);
+            if (job == null) {
+                return Result.error(403, "任务不存在或无权限访问");
+            }
+            return Result.success(job);
+        } catch (Exception e) {
+            return Result.error("获取采集任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 获取版本最近一次的采集任务
+     */
+    @GetMapping("/latest/{projectVersionId}")
+    public Result<SchemaCaptureJob> latest(@PathVariable Long projectVersionId) {
+        try {
+            User currentUser = getCurrentUser();
+            SchemaCaptureJob job = schemaCaptureJobService.getLatestJob(projectVersionId);
+            if (job != null && !job.getUserId().equals(currentUser.getId())) {
+                return Result.error(403, "任务不存在或无权限访问");
+            }
+            return Result.success(job);
+        } catch (Exception e) {
+            return Result.error("获取采集任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 取消采集任务
+     */
+    @PostMapping("/cancel/{id}")
+    public Result<Object> cancel(@PathVariable Long id) {
+        try {
+            if (getOwnedJob(id) == null) {
+                return Result.error(403, "任务不存在或无权限访问");
+            }
+            if (schemaCaptureJobService.cancel(id)) {
+                return Result.success("已请求取消采集任务");
+            }
+            return Result.error("任务已结束，无法取消");
+        } catch (Exception e) {
+            return Result.error("取消采集任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 订阅采集进度（SSE），事件 progress 推送进度，事件 done 推送最终状态
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable Long id) {
+        if (getOwnedJob(id) == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(schemaCaptureJobService.subscribe(id));
+    }
+    
+    /**
+     * 获取当前用户的采集任务
+     */
+    private SchemaCaptureJob getOwnedJob(Long id) {
+        User currentUser = getCurrentUser();
+        SchemaCaptureJob job = schemaCaptureJobService.getJob(id);
+        if (job == null || !job.getUserId().equals(currentUser.getId())) {
+            return null;
+        }
+        return job;
+    }
+    
+    /**
+     * 获取当前登录用户
+     */
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (User) authentication.getPrincipal();
+    }
+}
@@ -0,0 +1,43 @@
+package com.dbrecord.entity.catalog;
+
+/**
+ * 源库字段的目录信息，由各数据库的提取器从目录查询结果映射而来
+ * schemaName 和 tableName 只在批量查询时提供，用于按表分组
+ * @param schemaName schema名，MySQL为null
+ * @param tableName 表名
+ * @param columnName 字段名
+ * @param ordinalPosition 字段位置
+ * @param columnDefault 默认值
+ * @param isNullable 是否可空（YES/NO）
+ * @param dataType 数据类型
+ * @param characterMaximumLength 字符最大长度
+ * @param characterOctetLength 字节最大长度
+ * @param numericPrecision 数值精度
+ * @param numericScale 数值小数位数
+ * @param datetimePrecision 时间精度
+ * @param characterSetName 字符集
+ * @param collationName 排序规则
+ * @param columnType 完整字段类型
+ * @param columnKey 键类型（PRI/UNI/MUL）
+ * @param extra 额外信息（如 auto_increment）
+ * @param columnComment 字段注释
+ */
+public record ColumnMeta(String schemaName,
+                         String tableName,
+                         String columnName,
+                         Integer ordinalPosition,
+                         String columnDefault,
+                         String isNullable,
+                         String dataType,
+                         Long characterMaximumLength,
+                         Long characterOctetLength,
+                         Integer numericPrecision,
+                         Integer numericScale,
+                         Integer datetimePrecision,
+                         String characterSetName,
+                         String collationName,
+                         String columnType,
+                         String columnKey,
+                         String extra,
+                         String columnComment) {
+}
@@ -0,0 +1,25 @@
+package com.dbrecord.entity.catalog;
+
+/**
+ * 源库索引字段的目录信息，每个索引字段一条，由各数据库的提取器从目录查询结果映射而来
+ * schemaName 和 tableName 只在批量查询时提供，用于按表分组
+ * @param schemaName schema名，MySQL为null
+ * @param tableName 表名
+ * @param indexName 索引名
+ * @param columnName 索引字段名
+ * @param indexType 索引类型
+ * @param unique 是否唯一索引
+ * @param primary 是否主键
+ * @param subPart 前缀索引长度，没有时为null
+ * @param indexComment 索引注释
+ */
+public record IndexMeta(String schemaName,
+                        String tableName,
+                        String indexName,
+                        String columnName,
+                        String indexType,
+                        boolean unique,
+                        boolean primary,
+                        String subPart,
+                        String indexComment) {
+}
@@ -0,0 +1,32 @@
+package com.dbrecord.entity.catalog;
+
+/**
+ * 源库表的目录信息，由各数据库的提取器从目录查询结果映射而来
+ * @param schemaName schema名，MySQL没有schema概念，为null
+ * @param tableName 表名
+ * @param tableComment 表注释
+ * @param tableType 表类型
+ * @param engine 存储引擎
+ * @param collation 表排序规则
+ * @param rowFormat 行格式
+ * @param tableRows 行数（估算值）
+ * @param avgRowLength 平均行长度
+ * @param dataLength 数据大小
+ * @param indexLength 索引大小
+ * @param autoIncrement 自增值
+ * @param changeMarker 变更标记，用于增量采集时判断表结构是否可能发生变化；null表示无法判断
+ */
+public record TableMeta(String schemaName,
+                        String tableName,
+                        String tableComment,
+                        String tableType,
+                        String engine,
+                        String collation,
+                        String rowFormat,
+                        Long tableRows,
+                        Long avgRowLength,
+                        Long dataLength,
+                        Long indexLength,
+                        Long autoIncrement,
+                        String changeMarker) {
+}
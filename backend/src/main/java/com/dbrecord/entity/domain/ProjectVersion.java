@@ -38,9 +38,16 @@ public class ProjectVersion implements Serializable {
     private String description;
 
     /**
-     * 数据库结构快照(JSON格式)
+     * 归档版本的压缩结构快照（{@link com.dbrecord.util.SchemaSnapshotCodec} 编码），未归档时为空
+     * 默认查询不读取该字段，按需通过 {@link com.dbrecord.mapper.ProjectVersionMapper#selectArchivedSnapshot} 读取
      */
-    private String schemaSnapshot;
+    @TableField(select = false)
+    private byte[] schemaSnapshot;
+
+    /**
+     * 归档时间（结构快照已压缩存储、表结构明细已删除），未归档时为空
+     */
+    private LocalDateTime archivedTime;
 
     /**
      * 状态(0禁用,1启用)
@@ -0,0 +1,97 @@
+package com.dbrecord.entity.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 结构采集任务表
+ * @TableName schema_capture_job
+ */
+@TableName(value = "schema_capture_job")
+@Data
+public class SchemaCaptureJob implements Serializable {
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 项目版本ID
+     */
+    private Long projectVersionId;
+
+    /**
+     * 数据源ID
+     */
+    private Long datasourceId;
+
+    /**
+     * 创建用户ID
+     */
+    private Long userId;
+
+    /**
+     * 任务状态，取值见 {@link com.dbrecord.enums.CaptureJobStatus}
+     */
+    private String status;
+
+    /**
+     * 当前阶段
+     */
+    private String phase;
+
+    /**
+     * 表总数
+     */
+    private Integer totalTables;
+
+    /**
+     * 已处理表数
+     */
+    private Integer processedTables;
+
+    /**
+     * 最近处理的表
+     */
+    private String currentTable;
+
+    /**
+     * 耗时最长的表(JSON数组)
+     */
+    private String slowestTables;
+
+    /**
+     * 错误信息
+     */
+    private String errorMessage;
+
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishTime;
+
+    /**
+     * 总耗时(毫秒)
+     */
+    private Long durationMs;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,52 @@
+package com.dbrecord.entity.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 共享表定义表（按内容哈希去重，内容相同的表在所有版本中只存储一份字段和索引）
+ * @TableName table_definition
+ */
+@TableName(value = "table_definition")
+@Data
+public class TableDefinition implements Serializable {
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 表内容哈希
+     */
+    private String contentHash;
+
+    /**
+     * 字段数量
+     */
+    private Integer columnCount;
+
+    /**
+     * 索引数量
+     */
+    private Integer indexCount;
+
+    /**
+     * 创建该定义的项目版本ID（用于判断字段和索引是否由本次采集写入）
+     */
+    private Long createdByVersionId;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -57,6 +57,11 @@ public class VersionDatabaseSchema implements Serializable {
      */
     private Long userId;
 
+    /**
+     * 整库内容哈希（所有表的 schema.表名 与表内容哈希规范化后的SHA-256）
+     */
+    private String schemaHash;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,57 @@
+package com.dbrecord.entity.domain;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 版本差异表（采集完成后预先计算的与上一个版本的对比结果）
+ * @TableName version_diff
+ */
+@TableName(value = "version_diff")
+@Data
+public class VersionDiff implements Serializable {
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 源版本ID
+     */
+    private Long fromVersionId;
+
+    /**
+     * 目标版本ID
+     */
+    private Long toVersionId;
+
+    /**
+     * 计算时源版本的数据库结构信息ID（版本重新采集后ID变化，结果失效）
+     */
+    private Long fromSchemaId;
+
+    /**
+     * 计算时目标版本的数据库结构信息ID
+     */
+    private Long toSchemaId;
+
+    /**
+     * 对比结果（gzip压缩的JSON）
+     */
+    private byte[] diffContent;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
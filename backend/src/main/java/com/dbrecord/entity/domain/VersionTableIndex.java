@@ -22,6 +22,11 @@ public class VersionTableIndex implements Serializable {
     @TableId(type = IdType.AUTO)
     private Long id;
 
+    /**
+     * 项目版本ID（冗余存储，按版本删除和读取时不需要关联版本表结构；共享表定义的记录为0）
+     */
+    private Long projectVersionId;
+
     /**
      * 版本表结构ID
      */
@@ -62,6 +67,11 @@ public class VersionTableIndex implements Serializable {
      */
     private String indexComment;
 
+    /**
+     * 共享表定义ID（启用表定义去重时使用，此时版本表结构ID为空）
+     */
+    private Long definitionId;
+
     /**
      * 创建时间
      */
@@ -92,6 +92,26 @@ public class VersionTableStructure implements Serializable {
      */
     private Long autoIncrement;
 
+    /**
+     * 共享表定义ID（启用表定义去重时，字段和索引存储在该定义下）
+     */
+    private Long definitionId;
+
+    /**
+     * 表内容哈希（字段、索引、表注释规范化后的SHA-256）
+     */
+    private String contentHash;
+
+    /**
+     * 表变更标记（增量采集时与上个版本比较，判断表是否需要重新采集）
+     */
+    private String changeMarker;
+
+    /**
+     * 统计信息是否待采样（只采集结构时表行数、数据长度等统计信息由采样任务补充）
+     */
+    private Boolean statsPending;
+
     /**
      * 创建时间
      */
@@ -0,0 +1,109 @@
+package com.dbrecord.entity.snapshot;
+
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 版本数据库结构快照，按项目版本ID构建一次，构建后不可修改
+ * 版本采集完成后结构不再变化，快照会被缓存并在结构查看、SQL导出、版本对比之间共享；
+ * 构建时复制传入的实体（见 {@link TableSnapshot}），读取实体时返回副本，调用方修改返回的实体不会影响缓存中的快照
+ */
+public final class SchemaSnapshot {
+
+    private final Long projectVersionId;
+    private final VersionDatabaseSchema databaseSchema;
+    private final List<TableSnapshot> tables;
+    private final Map<Long, TableSnapshot> tablesById;
+    private final Map<String, TableSnapshot> tablesByName;
+    private final int weight;
+
+    public SchemaSnapshot(Long projectVersionId, VersionDatabaseSchema databaseSchema, List<TableSnapshot> tables) {
+        this.projectVersionId = projectVersionId;
+        this.databaseSchema = SnapshotCopies.copy(databaseSchema, VersionDatabaseSchema::new);
+        this.tables = List.copyOf(tables);
+
+        Map<Long, TableSnapshot> byId = new LinkedHashMap<>();
+        Map<String, TableSnapshot> byName = new LinkedHashMap<>();
+        int totalWeight = 1;
+        for (TableSnapshot table : this.tables) {
+            byId.put(table.getId(), table);
+            // 同名表存在于多个schema时，按表名查找返回第一个
+            byName.putIfAbsent(table.getTableName(), table);
+            totalWeight += table.weight();
+        }
+        this.tablesById = Collections.unmodifiableMap(byId);
+        this.tablesByName = Collections.unmodifiableMap(byName);
+        this.weight = totalWeight;
+    }
+
+    /**
+     * 空快照（版本尚未采集结构）
+     */
+    public static SchemaSnapshot empty(Long projectVersionId) {
+        return new SchemaSnapshot(projectVersionId, null, Collections.emptyList());
+    }
+
+    public Long getProjectVersionId() {
+        return projectVersionId;
+    }
+
+    /**
+     * 数据库结构信息（副本），版本尚未采集结构时为null
+     */
+    public VersionDatabaseSchema getDatabaseSchema() {
+        return SnapshotCopies.copy(databaseSchema, VersionDatabaseSchema::new);
+    }
+
+    /**
+     * 是否已有数据库结构信息（版本采集已完成）
+     */
+    public boolean hasDatabaseSchema() {
+        return databaseSchema != null;
+    }
+
+    public List<TableSnapshot> getTables() {
+        return tables;
+    }
+
+    /**
+     * 表结构实体列表（副本，按快照中的表顺序）
+     */
+    public List<VersionTableStructure> getTableStructures() {
+        return tables.stream().map(TableSnapshot::getTable).toList();
+    }
+
+    public TableSnapshot getTable(Long tableId) {
+        return tablesById.get(tableId);
+    }
+
+    /**
+     * 指定表的字段列表（副本），表不存在时返回空列表
+     */
+    public List<VersionTableColumn> getColumns(Long tableId) {
+        TableSnapshot table = tablesById.get(tableId);
+        return table != null ? table.getColumns() : Collections.emptyList();
+    }
+
+    /**
+     * 指定表的索引列表（副本），表不存在时返回空列表
+     */
+    public List<VersionTableIndex> getIndexes(Long tableId) {
+        TableSnapshot table = tablesById.get(tableId);
+        return table != null ? table.getIndexes() : Collections.emptyList();
+    }
+
+    public TableSnapshot findTable(String tableName) {
+        return tablesByName.get(tableName);
+    }
+
+    public int weight() {
+        return weight;
+    }
+}
@@ -0,0 +1,38 @@
+package com.dbrecord.entity.snapshot;
+
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 快照实体复制
+ * 版本结构实体的属性都是不可变类型（字符串、数值、布尔、LocalDateTime），按属性浅复制即可得到独立的副本
+ */
+final class SnapshotCopies {
+
+    private SnapshotCopies() {
+    }
+
+    static <T> T copy(T source, Supplier<T> factory) {
+        if (source == null) {
+            return null;
+        }
+        T target = factory.get();
+        BeanUtils.copyProperties(source, target);
+        return target;
+    }
+
+    static <T> List<T> copyAll(List<T> source, Supplier<T> factory) {
+        if (source == null || source.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> copies = new ArrayList<>(source.size());
+        for (T item : source) {
+            copies.add(copy(item, factory));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,82 @@
+package com.dbrecord.entity.snapshot;
+
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 表结构快照（表 + 字段 + 索引），构建后不可修改
+ * 快照会被缓存并在多个请求间共享：构建时复制传入的实体，读取表、字段、索引时返回副本，
+ * 调用方修改返回的实体不会影响快照；按表名、变更标记等单个属性读取时不复制
+ */
+public final class TableSnapshot {
+
+    private final VersionTableStructure table;
+    private final List<VersionTableColumn> columns;
+    private final List<VersionTableIndex> indexes;
+
+    public TableSnapshot(VersionTableStructure table, List<VersionTableColumn> columns, List<VersionTableIndex> indexes) {
+        this.table = SnapshotCopies.copy(table, VersionTableStructure::new);
+        this.columns = Collections.unmodifiableList(SnapshotCopies.copyAll(columns, VersionTableColumn::new));
+        this.indexes = Collections.unmodifiableList(SnapshotCopies.copyAll(indexes, VersionTableIndex::new));
+    }
+
+    public Long getId() {
+        return table.getId();
+    }
+
+    public String getSchemaName() {
+        return table.getSchemaName();
+    }
+
+    public String getTableName() {
+        return table.getTableName();
+    }
+
+    public String getChangeMarker() {
+        return table.getChangeMarker();
+    }
+
+    public String getContentHash() {
+        return table.getContentHash();
+    }
+
+    /**
+     * 表结构（副本）
+     */
+    public VersionTableStructure getTable() {
+        return SnapshotCopies.copy(table, VersionTableStructure::new);
+    }
+
+    /**
+     * 字段列表（副本），按字段顺序
+     */
+    public List<VersionTableColumn> getColumns() {
+        return SnapshotCopies.copyAll(columns, VersionTableColumn::new);
+    }
+
+    /**
+     * 索引列表（副本）
+     */
+    public List<VersionTableIndex> getIndexes() {
+        return SnapshotCopies.copyAll(indexes, VersionTableIndex::new);
+    }
+
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    public int getIndexCount() {
+        return indexes.size();
+    }
+
+    /**
+     * 快照权重（行数），用于缓存按权重限制容量
+     */
+    public int weight() {
+        return 1 + columns.size() + indexes.size();
+    }
+}
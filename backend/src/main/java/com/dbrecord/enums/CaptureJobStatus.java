@@ -0,0 +1,29 @@
+package com.dbrecord.enums;
+
+/**
+ * 结构采集任务状态枚举
+ */
+public enum CaptureJobStatus {
+    QUEUED("排队中"),
+    RUNNING("采集中"),
+    SUCCESS("采集成功"),
+    FAILED("采集失败"),
+    CANCELLED("已取消");
+    
+    private final String description;
+    
+    CaptureJobStatus(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * 是否为结束状态
+     */
+    public boolean isFinished() {
+        return this == SUCCESS || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,11 @@
+package com.dbrecord.exception;
+
+/**
+ * 结构采集被取消时抛出，用于中断采集流程
+ */
+public class CaptureCancelledException extends CustomizeRuntimeException {
+
+    public CaptureCancelledException(Long projectVersionId) {
+        super("项目版本 " + projectVersionId + " 的结构采集已取消");
+    }
+}
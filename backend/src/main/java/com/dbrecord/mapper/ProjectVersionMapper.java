@@ -3,11 +3,55 @@ package com.dbrecord.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.dbrecord.entity.domain.ProjectVersion;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 项目版本表 Mapper接口
  */
 @Mapper
 public interface ProjectVersionMapper extends BaseMapper<ProjectVersion> {
-    
+
+    /**
+     * 读取归档版本的压缩结构快照，版本未归档时返回null
+     */
+    @Select("SELECT id, schema_snapshot, archived_time FROM project_version " +
+            "WHERE id = #{id} AND archived_time IS NOT NULL")
+    ProjectVersion selectArchivedSnapshot(@Param("id") Long id);
+
+    /**
+     * 写入归档快照
+     * 只在版本未归档、且快照对应的数据库结构信息仍存在时写入（期间被重新采集时不写入）
+     * @param databaseSchemaId 快照中数据库结构信息的ID
+     */
+    @Update("UPDATE project_version SET schema_snapshot = #{snapshot}, archived_time = #{archivedTime} " +
+            "WHERE id = #{id} AND archived_time IS NULL " +
+            "AND EXISTS (SELECT 1 FROM version_database_schema vds WHERE vds.id = #{databaseSchemaId})")
+    int updateArchivedSnapshot(@Param("id") Long id,
+                               @Param("snapshot") byte[] snapshot,
+                               @Param("archivedTime") LocalDateTime archivedTime,
+                               @Param("databaseSchemaId") Long databaseSchemaId);
+
+    /**
+     * 清除归档快照（版本重新采集或删除结构数据时调用）
+     */
+    @Update("UPDATE project_version SET schema_snapshot = NULL, archived_time = NULL " +
+            "WHERE id = #{id} AND archived_time IS NOT NULL")
+    int clearArchivedSnapshot(@Param("id") Long id);
+
+    /**
+     * 查询可以归档的版本ID：已启用、未归档、已完成采集、没有待采样的统计信息和进行中的采集任务，
+     * 且创建时间早于指定时间，或不在项目最近的若干个版本中
+     * @param createdBefore 创建时间早于该时间的版本可以归档，为null时不按时间判断
+     * @param keepLatestVersions 每个项目保留不归档的最近版本数量，不大于0时不按数量判断
+     * @param limit 最多返回的数量
+     */
+    List<Long> selectArchivableVersionIds(@Param("createdBefore") LocalDateTime createdBefore,
+                                          @Param("keepLatestVersions") int keepLatestVersions,
+                                          @Param("limit") int limit);
+
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.dbrecord.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dbrecord.entity.domain.SchemaCaptureJob;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * 结构采集任务表 Mapper接口
+ */
+@Mapper
+public interface SchemaCaptureJobMapper extends BaseMapper<SchemaCaptureJob> {
+
+    /**
+     * 将未结束的任务标记为失败（服务重启后这些任务已不在运行）
+     * @param errorMessage 错误信息
+     * @param createdBefore 只处理在该时间之前创建的任务（本次启动后提交的任务不处理）
+     * @return 更新的任务数
+     */
+    @Update("UPDATE schema_capture_job SET status = 'FAILED', error_message = #{errorMessage}, finish_time = NOW() " +
+            "WHERE status IN ('QUEUED', 'RUNNING') AND create_time < #{createdBefore}")
+    int failUnfinishedJobs(@Param("errorMessage") String errorMessage, @Param("createdBefore") LocalDateTime createdBefore);
+}
@@ -0,0 +1,37 @@
+package com.dbrecord.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dbrecord.entity.domain.TableDefinition;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 共享表定义Mapper
+ * @author system
+ */
+public interface TableDefinitionMapper extends BaseMapper<TableDefinition> {
+
+    /**
+     * 按内容哈希查询表定义（不加锁，用于找出缺少的定义）
+     */
+    List<TableDefinition> selectByContentHashes(@Param("hashes") Collection<String> contentHashes);
+
+    /**
+     * 按内容哈希查询表定义，并加共享锁，防止采集引用期间被清理任务删除
+     * 只在定义已写入后调用：记录都存在时只锁记录，不产生阻塞并发插入的间隙锁
+     */
+    List<TableDefinition> selectByContentHashesForShare(@Param("hashes") Collection<String> contentHashes);
+
+    /**
+     * 批量插入表定义，内容哈希已存在的记录被忽略（并发采集相同内容时只保留一份）
+     */
+    int insertIgnoreBatch(@Param("list") List<TableDefinition> list);
+
+    /**
+     * 从给定的表定义中找出已不再被任何版本表结构引用的定义ID
+     */
+    List<Long> selectUnreferencedIds(@Param("ids") Collection<Long> definitionIds);
+
+}
@@ -0,0 +1,37 @@
+package com.dbrecord.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.dbrecord.entity.domain.VersionDiff;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 版本差异Mapper
+ * @author system
+ */
+public interface VersionDiffMapper extends BaseMapper<VersionDiff> {
+
+    /**
+     * 查询两个版本之间预先计算的对比结果
+     */
+    @Select("SELECT * FROM version_diff WHERE from_version_id = #{fromVersionId} AND to_version_id = #{toVersionId}")
+    VersionDiff selectByVersionPair(@Param("fromVersionId") Long fromVersionId, @Param("toVersionId") Long toVersionId);
+
+    /**
+     * 写入对比结果，同一对版本已有结果时覆盖
+     */
+    @Insert("INSERT INTO version_diff (from_version_id, to_version_id, from_schema_id, to_schema_id, diff_content) " +
+            "VALUES (#{fromVersionId}, #{toVersionId}, #{fromSchemaId}, #{toSchemaId}, #{diffContent}) " +
+            "ON DUPLICATE KEY UPDATE from_schema_id = VALUES(from_schema_id), to_schema_id = VALUES(to_schema_id), " +
+            "diff_content = VALUES(diff_content), create_time = CURRENT_TIMESTAMP")
+    int upsert(VersionDiff versionDiff);
+
+    /**
+     * 删除与指定版本相关的全部对比结果（版本重新采集或删除时调用）
+     */
+    @Delete("DELETE FROM version_diff WHERE from_version_id = #{projectVersionId} OR to_version_id = #{projectVersionId}")
+    int deleteByVersionId(@Param("projectVersionId") Long projectVersionId);
+
+}
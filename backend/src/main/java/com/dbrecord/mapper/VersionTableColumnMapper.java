@@ -5,6 +5,9 @@ import com.dbrecord.entity.domain.VersionTableColumn;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 版本表字段Mapper
  * @author system
@@ -12,12 +15,33 @@ import org.apache.ibatis.annotations.Param;
 public interface VersionTableColumnMapper extends BaseMapper<VersionTableColumn> {
 
     /**
-     * 根据项目版本ID删除所有相关的表字段记录
-     * 使用两步删除避免MySQL子查询限制
+     * 根据项目版本ID删除相关的表字段记录（按冗余的项目版本ID删除，不关联版本表结构），每次最多删除 limit 行
+     * 调用方循环调用直到返回值小于 limit
+     */
+    @Delete("DELETE FROM version_table_column WHERE project_version_id = #{projectVersionId} ORDER BY id LIMIT #{limit}")
+    int deleteByVersionId(@Param("projectVersionId") Long projectVersionId, @Param("limit") int limit);
+
+    /**
+     * 一次查询获取项目版本下所有表的字段记录，按表ID排序，由调用方在内存中按表分组
+     * 同时包含版本独占的记录和通过共享表定义引用的记录，后者的版本表结构ID填充为引用它的表结构ID
+     */
+    List<VersionTableColumn> selectByVersionId(@Param("projectVersionId") Long projectVersionId);
+
+    /**
+     * 查询指定表结构的字段记录（含通过共享表定义引用的记录），按表ID排序
+     */
+    List<VersionTableColumn> selectByVersionTableIds(@Param("projectVersionId") Long projectVersionId,
+                                                     @Param("tableIds") Collection<Long> versionTableIds);
+
+    /**
+     * 批量插入表字段记录（单条多行INSERT）
+     * 调用方负责控制每批的行数
+     */
+    int insertBatch(@Param("list") List<VersionTableColumn> list);
+
+    /**
+     * 删除指定共享表定义下的字段记录
      */
-    @Delete("DELETE vtc FROM version_table_column vtc " +
-            "INNER JOIN version_table_structure vts ON vtc.version_table_id = vts.id " +
-            "WHERE vts.project_version_id = #{projectVersionId}")
-    int deleteByVersionId(@Param("projectVersionId") Long projectVersionId);
+    int deleteByDefinitionIds(@Param("ids") Collection<Long> definitionIds);
 
 }
\ No newline at end of file
@@ -2,6 +2,12 @@ package com.dbrecord.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.dbrecord.entity.domain.VersionTableStructure;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * 版本表结构Mapper
@@ -9,4 +15,64 @@ import com.dbrecord.entity.domain.VersionTableStructure;
  */
 public interface VersionTableStructureMapper extends BaseMapper<VersionTableStructure> {
 
-} 
\ No newline at end of file
+    /**
+     * 批量插入表结构记录（单条多行INSERT）
+     * 不回填自增ID，调用方按 (project_version_id, schema_name, table_name) 唯一键回查
+     */
+    int insertBatch(@Param("list") List<VersionTableStructure> list);
+
+    /**
+     * 清除项目版本所有表的待采样标记（放弃统计信息采样）
+     * @return 清除的表数量
+     */
+    @Update("UPDATE version_table_structure SET stats_pending = 0 " +
+            "WHERE project_version_id = #{projectVersionId} AND stats_pending = 1")
+    int clearStatsPending(@Param("projectVersionId") Long projectVersionId);
+
+    /**
+     * 查询项目版本引用的共享表定义ID
+     */
+    @Select("SELECT DISTINCT definition_id FROM version_table_structure " +
+            "WHERE project_version_id = #{projectVersionId} AND definition_id IS NOT NULL")
+    List<Long> selectDefinitionIdsByVersionId(@Param("projectVersionId") Long projectVersionId);
+
+    /**
+     * 按 (schema_name, table_name) 键集分页读取项目版本的表结构，用于流式导出
+     * @param afterSchemaName 上一页最后一个表的schema名，首页传null
+     * @param afterTableName 上一页最后一个表的表名，首页传null
+     * @param limit 每页数量
+     */
+    List<VersionTableStructure> selectPageByVersionId(@Param("projectVersionId") Long projectVersionId,
+                                                      @Param("afterSchemaName") String afterSchemaName,
+                                                      @Param("afterTableName") String afterTableName,
+                                                      @Param("limit") int limit);
+
+    /**
+     * 统计项目版本各schema下的表数量
+     */
+    @Select("SELECT schema_name, COUNT(*) AS table_count FROM version_table_structure " +
+            "WHERE project_version_id = #{projectVersionId} GROUP BY schema_name ORDER BY schema_name")
+    List<Map<String, Object>> countTablesBySchema(@Param("projectVersionId") Long projectVersionId);
+
+    /**
+     * 查询待清理的项目版本ID：版本已软删除（status=0）或版本记录已不存在，但仍有结构数据
+     * @param limit 最多返回的数量
+     */
+    @Select("SELECT v.project_version_id FROM (" +
+            "SELECT DISTINCT project_version_id FROM version_table_structure " +
+            "UNION SELECT project_version_id FROM version_database_schema) v " +
+            "LEFT JOIN project_version pv ON pv.id = v.project_version_id " +
+            "WHERE pv.id IS NULL OR pv.status = 0 " +
+            "ORDER BY v.project_version_id LIMIT #{limit}")
+    List<Long> selectPurgeableVersionIds(@Param("limit") int limit);
+
+    /**
+     * 统计待清理的版本数量和表结构数量
+     */
+    @Select("SELECT COUNT(DISTINCT vts.project_version_id) AS pending_versions, COUNT(*) AS pending_tables " +
+            "FROM version_table_structure vts " +
+            "LEFT JOIN project_version pv ON pv.id = vts.project_version_id " +
+            "WHERE pv.id IS NULL OR pv.status = 0")
+    Map<String, Object> countPurgeBacklog();
+
+}
@@ -0,0 +1,51 @@
+package com.dbrecord.service;
+
+/**
+ * 结构采集进度监听器
+ * 采集流程在各阶段和每个表处理完成时回调，并在检查点通过 {@link #isCancelled()} 判断是否需要中断
+ */
+public interface CaptureProgressListener {
+
+    /**
+     * 不关心进度的空监听器
+     */
+    CaptureProgressListener NONE = new CaptureProgressListener() {
+    };
+
+    /**
+     * 进入新的采集阶段
+     * @param phase 阶段描述
+     */
+    default void onPhase(String phase) {
+    }
+
+    /**
+     * 已读取表列表
+     * @param totalTables 需要采集的表数量
+     */
+    default void onTablesDiscovered(int totalTables) {
+    }
+
+    /**
+     * 单个表采集完成
+     * @param schemaName schema名
+     * @param tableName 表名
+     * @param elapsedMillis 该表的处理耗时（毫秒）
+     */
+    default void onTableCaptured(String schemaName, String tableName, long elapsedMillis) {
+    }
+
+    /**
+     * 采集失败
+     * @param error 失败原因
+     */
+    default void onFailure(Throwable error) {
+    }
+
+    /**
+     * 是否已请求取消采集
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,191 @@
+package com.dbrecord.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 一致性快照采集会话组
+ * 一次采集固定使用少量源库会话，每个会话都处于只读的 REPEATABLE READ 事务中（PostgreSQL及兼容数据库共享同一个导出快照），
+ * 采集期间的所有目录查询都在这些会话上执行，读到的是同一时间点的结构，且不再为每个查询获取连接。
+ * 执行任务时从组中借出一个会话并绑定到当前线程，提取器获取连接时优先使用绑定的会话
+ */
+@Slf4j
+public final class CaptureSessions implements AutoCloseable {
+
+    private static final ThreadLocal<Binding> BOUND = new ThreadLocal<>();
+
+    /**
+     * 等待空闲会话时检查会话组是否已关闭的间隔
+     */
+    private static final long BORROW_POLL_MILLIS = 200;
+
+    private final List<Connection> connections;
+    private final BlockingQueue<Connection> idleConnections;
+    private final String snapshotId;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    /**
+     * @param connections 已开启只读事务的会话
+     * @param snapshotId 共享的导出快照ID，不支持导出快照时为null
+     */
+    public CaptureSessions(List<Connection> connections, String snapshotId) {
+        this.connections = List.copyOf(connections);
+        this.idleConnections = new ArrayBlockingQueue<>(Math.max(1, connections.size()), true, connections);
+        this.snapshotId = snapshotId;
+    }
+
+    /**
+     * 借出一个会话执行任务，执行期间会话绑定到当前线程
+     * 当前线程已绑定会话时直接执行
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> T call(Supplier<T> task) {
+        if (BOUND.get() != null) {
+            return task.get();
+        }
+        Connection connection = borrow();
+        BOUND.set(new Binding(this, connection));
+        try {
+            return task.get();
+        } finally {
+            BOUND.remove();
+            release(connection);
+        }
+    }
+
+    /**
+     * 等待空闲会话，会话组关闭后不再借出
+     */
+    private Connection borrow() {
+        try {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("采集会话已关闭");
+                }
+                Connection connection = idleConnections.poll(BORROW_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (connection != null) {
+                    if (closed) {
+                        release(connection);
+                        throw new IllegalStateException("采集会话已关闭");
+                    }
+                    return connection;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待采集会话时被中断", e);
+        }
+    }
+
+    /**
+     * 归还会话，会话组已关闭时（例如采集取消后仍在执行的任务）直接结束该会话
+     */
+    private synchronized void release(Connection connection) {
+        if (closed) {
+            closeConnection(connection);
+        } else {
+            idleConnections.add(connection);
+        }
+    }
+
+    /**
+     * 当前线程绑定的会话，返回的连接关闭时不会真正关闭会话
+     * @return 绑定的会话连接，当前线程未绑定会话时返回null
+     */
+    public static Connection currentConnection() {
+        Binding binding = BOUND.get();
+        if (binding == null) {
+            return null;
+        }
+        Connection connection = binding.connection();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * 记录当前线程绑定会话上的查询失败
+     * 事务中的查询失败后该会话不能再继续使用（PostgreSQL会中止整个事务），整个采集按失败处理
+     * @param error 查询异常
+     */
+    public static void reportFailure(Throwable error) {
+        Binding binding = BOUND.get();
+        if (binding != null && binding.sessions().failure == null) {
+            binding.sessions().failure = error;
+        }
+    }
+
+    /**
+     * 检查采集期间会话上是否有查询失败，有则抛出异常
+     */
+    public void checkHealthy() {
+        Throwable error = failure;
+        if (error != null) {
+            throw new IllegalStateException("一致性快照会话中的查询失败: " + error.getMessage(), error);
+        }
+    }
+
+    /**
+     * 会话数量
+     */
+    public int size() {
+        return connections.size();
+    }
+
+    /**
+     * 共享的导出快照ID，不支持导出快照时为null
+     */
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+    /**
+     * 结束空闲会话的只读事务并归还连接，正在使用的会话在任务结束时归还，可重复调用
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            closeConnection(connection);
+        }
+    }
+
+    private void closeConnection(Connection connection) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (Exception e) {
+            log.warn("结束采集会话事务失败: {}", e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (Exception e) {
+            log.warn("关闭采集会话失败: {}", e.getMessage());
+        }
+    }
+
+    private record Binding(CaptureSessions sessions, Connection connection) {
+    }
+}
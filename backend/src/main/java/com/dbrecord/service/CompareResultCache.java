@@ -0,0 +1,163 @@
+package com.dbrecord.service;
+
+import com.dbrecord.config.CompareCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 版本对比结果缓存
+ * 按 (源版本ID, 目标版本ID) 缓存对比结果，容量按版本对数量限制；
+ * 同一对版本的并发对比只计算一次，其余请求等待并共享同一个结果
+ */
+@Slf4j
+@Component
+public class CompareResultCache {
+
+    @Autowired
+    private CompareCacheProperties cacheProperties;
+
+    private Cache<VersionPair, Map<String, Object>> cache;
+
+    /**
+     * 正在计算的对比，同一对版本的后续请求等待该计算完成
+     */
+    private final ConcurrentMap<VersionPair, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效时递增，计算期间发生过失效的结果不写入缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMinutes(cacheProperties.getExpireAfterWriteMinutes()))
+                .build();
+    }
+
+    /**
+     * 获取两个版本的对比结果，未命中时使用 loader 计算
+     * 包含 error 的结果不缓存；返回的是结果的浅拷贝，调用方可以继续添加字段
+     * @param fromVersionId 源版本ID
+     * @param toVersionId 目标版本ID
+     * @param loader 对比计算函数
+     * @return 对比结果
+     */
+    public Map<String, Object> get(Long fromVersionId, Long toVersionId, Supplier<Map<String, Object>> loader) {
+        VersionPair key = new VersionPair(fromVersionId, toVersionId);
+        if (cacheProperties.isEnabled()) {
+            Map<String, Object> cached = cache.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                return new HashMap<>(cached);
+            }
+        }
+
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.increment();
+            log.debug("版本 {} 与 {} 的对比正在进行，等待其结果", fromVersionId, toVersionId);
+            return new HashMap<>(await(running));
+        }
+
+        misses.increment();
+        long startGeneration = generation.get();
+        try {
+            Map<String, Object> result = loader.get();
+            if (cacheProperties.isEnabled() && !result.containsKey("error") && generation.get() == startGeneration) {
+                cache.put(key, result);
+            }
+            future.complete(result);
+            return new HashMap<>(result);
+        } catch (Throwable e) {
+            // 包括 Error 在内的任何失败都要结束 future，否则等待的请求会一直阻塞
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 使与指定版本相关的对比结果失效（版本被重新采集或删除时调用）
+     * 正在进行的对比不再被新请求共享，其结果也不写入缓存
+     * @param projectVersionId 项目版本ID
+     */
+    public void evictVersion(Long projectVersionId) {
+        if (projectVersionId == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        inFlight.keySet().removeIf(key -> key.involves(projectVersionId));
+        cache.asMap().keySet().removeIf(key -> key.involves(projectVersionId));
+        log.debug("项目版本 {} 的对比结果缓存已失效", projectVersionId);
+    }
+
+    /**
+     * 缓存命中、未命中和合并请求的计数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", cacheProperties.isEnabled());
+        stats.put("size", cache.estimatedSize());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+
+    /**
+     * 等待正在进行的对比完成，最多等待配置的超时时间
+     */
+    private Map<String, Object> await(CompletableFuture<Map<String, Object>> future) {
+        try {
+            return future.get(cacheProperties.getWaitTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("等待版本对比结果超时（" + cacheProperties.getWaitTimeoutSeconds() + " 秒）", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待版本对比结果时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("版本对比失败: " + e.getMessage(), e.getCause());
+        }
+    }
+
+    private record VersionPair(Long fromVersionId, Long toVersionId) {
+
+        boolean involves(Long projectVersionId) {
+            return Objects.equals(fromVersionId, projectVersionId) || Objects.equals(toVersionId, projectVersionId);
+        }
+    }
+}
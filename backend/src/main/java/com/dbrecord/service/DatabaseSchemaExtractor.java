@@ -1,9 +1,14 @@
 package com.dbrecord.service;
 
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 数据库结构提取器接口
@@ -18,29 +23,99 @@ public interface DatabaseSchemaExtractor {
     Map<String, Object> getDatabaseInfo(Datasource datasource);
     
     /**
-     * 获取所有表的结构信息
+     * 获取所有表的结构信息（已按过滤配置排除）
+     * 源库查询失败时抛出异常
      * @param datasource 数据源
-     * @return 表结构信息列表
+     * @return 表信息列表
      */
-    List<Map<String, Object>> getTablesStructure(Datasource datasource);
+    List<TableMeta> getTablesStructure(Datasource datasource);
+    
+    /**
+     * 读取表列表时是否跳过了统计信息（只采集结构模式）
+     * 跳过时表行数、数据长度等统计信息由统计采样任务在版本创建后补充
+     * @return 是否跳过统计信息
+     */
+    boolean isStatisticsDeferred();
+    
+    /**
+     * 目录查询是否读取一致性快照事务的读视图
+     * PostgreSQL、KingbaseES 的系统目录受MVCC隔离；MySQL的 information_schema 读取数据字典的最新状态，
+     * 不受一致性读事务隔离，一致性快照采集时需要在读取结束后检查结构是否变化
+     * @return 目录查询是否受快照隔离
+     */
+    boolean isCatalogSnapshotIsolated();
+    
+    /**
+     * 获取指定表的统计信息（表行数、平均行长度、数据长度、索引长度、自增值）
+     * 源库查询失败时抛出异常，调用方可稍后重试
+     * @param datasource 数据源
+     * @param schemaName schema名
+     * @param tableNames 表名列表
+     * @return 表信息列表，只填充表名和统计字段，已不存在的表不返回；不支持统计采样的数据库返回空列表
+     */
+    List<TableMeta> getTablesStatistics(Datasource datasource, String schemaName, Collection<String> tableNames);
     
     /**
      * 获取指定表的字段信息
+     * 源库查询失败时抛出异常，调用方可重试该表
      * @param datasource 数据源
      * @param schemaName schema名
      * @param tableName 表名
-     * @return 字段信息列表
+     * @return 字段信息列表，按字段位置排序
      */
-    List<Map<String, Object>> getTableColumns(Datasource datasource, String schemaName, String tableName);
+    List<ColumnMeta> getTableColumns(Datasource datasource, String schemaName, String tableName);
     
     /**
      * 获取指定表的索引信息
+     * 源库查询失败时抛出异常，调用方可重试该表
      * @param datasource 数据源
      * @param schemaName schema名
      * @param tableName 表名
-     * @return 索引信息列表
+     * @return 索引信息列表，每个索引字段一条，同一索引的字段按索引定义顺序相邻
+     */
+    List<IndexMeta> getTableIndexes(Datasource datasource, String schemaName, String tableName);
+    
+    /**
+     * 批量获取整个数据库（所有未排除的schema）的字段信息，一次查询完成
+     * 每条都带有schema名（MySQL为null）和表名，由调用方在内存中按表分组
+     * @param datasource 数据源
+     * @return 字段信息列表，按schema、表名、字段位置排序
+     */
+    List<ColumnMeta> getAllTableColumns(Datasource datasource);
+    
+    /**
+     * 批量获取整个数据库（所有未排除的schema）的索引信息，一次查询完成
+     * 每个索引字段一条，带有schema名（MySQL为null）和表名，由调用方在内存中按表分组
+     * @param datasource 数据源
+     * @return 索引信息列表，按schema、表名、索引名、索引字段顺序排序
+     */
+    List<IndexMeta> getAllTableIndexes(Datasource datasource);
+    
+    /**
+     * 流式读取整个数据库的字段信息，逐条交给consumer处理，不在内存中缓存整个结果集
+     * 内容和顺序与 {@link #getAllTableColumns(Datasource)} 一致
+     * @param datasource 数据源
+     * @param consumer 字段处理
+     */
+    void forEachTableColumn(Datasource datasource, Consumer<ColumnMeta> consumer);
+    
+    /**
+     * 流式读取整个数据库的索引信息，逐条交给consumer处理，不在内存中缓存整个结果集
+     * 内容和顺序与 {@link #getAllTableIndexes(Datasource)} 一致
+     * @param datasource 数据源
+     * @param consumer 索引字段处理
+     */
+    void forEachTableIndex(Datasource datasource, Consumer<IndexMeta> consumer);
+    
+    /**
+     * 开启一致性快照采集会话
+     * 每个会话开启只读的 REPEATABLE READ 事务；支持导出快照的数据库（PostgreSQL、KingbaseES）由第一个会话导出快照，
+     * 其他会话导入同一个快照，所有会话读到同一时间点的目录（MySQL见 {@link #isCatalogSnapshotIsolated()}）。使用完毕后必须关闭
+     * @param datasource 数据源
+     * @param sessionCount 会话数量
+     * @return 采集会话组
      */
-    List<Map<String, Object>> getTableIndexes(Datasource datasource, String schemaName, String tableName);
+    CaptureSessions openCaptureSessions(Datasource datasource, int sessionCount);
     
     /**
      * 获取数据库连接
@@ -3,7 +3,10 @@ package com.dbrecord.service;
 import com.dbrecord.entity.domain.Datasource;
 import com.dbrecord.entity.domain.VersionDatabaseSchema;
 import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -22,6 +25,18 @@ public interface DatabaseSchemaService {
      */
     boolean captureAndSaveDatabaseSchema(Long projectVersionId, Datasource datasource, Long userId);
     
+    /**
+     * 获取数据库结构信息并保存到版本表中，采集过程中回调进度监听器
+     * 监听器请求取消时在下一个检查点抛出 {@link com.dbrecord.exception.CaptureCancelledException}，取消发生在写入之前
+     * @param projectVersionId 项目版本ID
+     * @param datasource 数据源信息
+     * @param userId 用户ID
+     * @param listener 进度监听器
+     * @return 是否成功
+     */
+    boolean captureAndSaveDatabaseSchema(Long projectVersionId, Datasource datasource, Long userId,
+                                         CaptureProgressListener listener);
+    
     /**
      * 异步获取数据库结构信息并保存到版本表中
      * @param projectVersionId 项目版本ID
@@ -46,6 +61,14 @@ public interface DatabaseSchemaService {
      */
     List<VersionTableStructure> getVersionTableStructures(Long projectVersionId);
     
+    /**
+     * 获取版本的结构快照（优先从缓存读取，已归档版本从压缩快照还原）
+     * 快照在缓存中共享且不可修改，读取的实体都是副本
+     * @param projectVersionId 项目版本ID
+     * @return 结构快照，版本尚未采集结构时返回空快照
+     */
+    SchemaSnapshot getSchemaSnapshot(Long projectVersionId);
+    
     /**
      * 对比两个版本的数据库结构差异
      * @param fromVersionId 源版本ID
@@ -70,4 +93,28 @@ public interface DatabaseSchemaService {
      * @return 差异SQL字符串
      */
     String generateDiffSql(Long fromVersionId, Long toVersionId, String fromVersionName, String toVersionName);
+    
+    /**
+     * 生成版本差异SQL并写出到输出流，按Schema分段写出，适合大版本的流式下载
+     * @param fromVersionId 源版本ID
+     * @param toVersionId 目标版本ID
+     * @param fromVersionName 源版本名称
+     * @param toVersionName 目标版本名称
+     * @param writer 输出目标
+     * @throws IOException 写出失败
+     */
+    void writeDiffSql(Long fromVersionId, Long toVersionId, String fromVersionName, String toVersionName,
+                      Writer writer) throws IOException;
+    
+    /**
+     * 使版本相关的缓存失效（版本结构被重新采集或版本被删除时调用）
+     * @param projectVersionId 项目版本ID
+     */
+    void evictVersionCaches(Long projectVersionId);
+    
+    /**
+     * 删除与版本相关的预先计算差异（版本被删除时调用，重新采集时由结构数据清理一并删除）
+     * @param projectVersionId 项目版本ID
+     */
+    void deleteVersionDiffs(Long projectVersionId);
 }
\ No newline at end of file
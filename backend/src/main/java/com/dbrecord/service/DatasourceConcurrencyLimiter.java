@@ -0,0 +1,67 @@
+package com.dbrecord.service;
+
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.domain.Datasource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 数据源并发限制器
+ * 按数据源限制同时进行的逐表提取数量，避免多个采集任务同时压到同一个源库上
+ */
+@Component
+public class DatasourceConcurrencyLimiter {
+
+    @Autowired
+    private SchemaCaptureProperties captureProperties;
+
+    private final Map<Long, Semaphore> permits = new ConcurrentHashMap<>();
+
+    /**
+     * 获取数据源的一个并发许可，没有可用许可时阻塞等待
+     * @param datasource 数据源
+     * @throws InterruptedException 等待时被中断
+     */
+    public void acquire(Datasource datasource) throws InterruptedException {
+        semaphore(datasource).acquire();
+    }
+
+    /**
+     * 释放数据源的一个并发许可
+     * @param datasource 数据源
+     */
+    public void release(Datasource datasource) {
+        semaphore(datasource).release();
+    }
+
+    /**
+     * 各数据源当前正在进行的提取数量
+     * @return 数据源ID -> 占用的许可数
+     */
+    public Map<Long, Integer> inFlightByDatasource() {
+        int limit = permitLimit();
+        Map<Long, Integer> inFlight = new TreeMap<>();
+        permits.forEach((id, semaphore) -> {
+            int used = limit - semaphore.availablePermits();
+            if (used > 0) {
+                inFlight.put(id, used);
+            }
+        });
+        return inFlight;
+    }
+
+    private Semaphore semaphore(Datasource datasource) {
+        // 未保存的数据源没有ID，共用一个限制
+        Long key = datasource.getId() != null ? datasource.getId() : -1L;
+        return permits.computeIfAbsent(key, id -> new Semaphore(permitLimit(), true));
+    }
+
+    private int permitLimit() {
+        return Math.max(1, captureProperties.getMaxConcurrentTablesPerDatasource());
+    }
+}
@@ -0,0 +1,195 @@
+package com.dbrecord.service;
+
+import com.dbrecord.config.ConnectionPoolProperties;
+import com.dbrecord.entity.domain.Datasource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 源数据库连接池注册表
+ * 按数据源ID维护连接池，结构提取等访问源库的操作都从这里获取连接；连接测试使用一次性连接，不经过连接池
+ */
+@Slf4j
+@Component
+public class DatasourceConnectionRegistry implements DisposableBean {
+
+    @Autowired
+    private ConnectionPoolProperties poolProperties;
+
+    private final Map<Long, PoolHolder> pools = new ConcurrentHashMap<>();
+
+    /**
+     * 获取数据源连接
+     * 已保存的数据源（有ID）使用连接池；未保存的数据源（没有ID）直接建立连接
+     * @param datasource 数据源
+     * @param jdbcUrl 连接URL
+     * @return 数据库连接，使用完毕后需要关闭（归还连接池）
+     * @throws SQLException 连接异常
+     */
+    public Connection getConnection(Datasource datasource, String jdbcUrl) throws SQLException {
+        if (datasource.getId() == null) {
+            return DriverManager.getConnection(jdbcUrl, datasource.getUsername(), datasource.getPassword());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            PoolHolder holder = obtainPool(datasource, jdbcUrl);
+            holder.lastAccessTime = System.currentTimeMillis();
+            if (pools.size() > poolProperties.getMaxPools()) {
+                evictLeastRecentlyUsed();
+            }
+            try {
+                return holder.dataSource.getConnection();
+            } catch (SQLException e) {
+                // 取得连接池后、借出连接前连接池被淘汰关闭（空闲淘汰、超出上限或失效），重新获取连接池一次
+                if (attempt > 1 || !holder.dataSource.isClosed()) {
+                    throw e;
+                }
+                log.debug("数据源 {} 的连接池已被关闭，重新获取连接池", datasource.getId());
+            }
+        }
+    }
+
+    /**
+     * 获取数据源当前配置对应的连接池，不存在或配置已变化时新建
+     * 连接池在映射之外创建（创建时会建立初始连接，可能较慢），再通过 putIfAbsent/replace 安装；
+     * 并发创建时只保留安装成功的连接池，其余的立即关闭
+     */
+    private PoolHolder obtainPool(Datasource datasource, String jdbcUrl) throws SQLException {
+        Long id = datasource.getId();
+        String signature = buildSignature(datasource, jdbcUrl);
+        while (true) {
+            PoolHolder existing = pools.get(id);
+            if (existing != null && existing.signature.equals(signature)) {
+                return existing;
+            }
+
+            PoolHolder created;
+            try {
+                created = new PoolHolder(createDataSource(datasource, jdbcUrl), signature);
+            } catch (RuntimeException e) {
+                throw new SQLException("创建数据源连接池失败: " + e.getMessage(), e);
+            }
+
+            boolean installed = existing == null
+                    ? pools.putIfAbsent(id, created) == null
+                    : pools.replace(id, existing, created);
+            if (installed) {
+                if (existing != null) {
+                    log.info("数据源 {} 的连接配置已变化，已重建连接池", id);
+                    existing.close();
+                }
+                return created;
+            }
+            // 其他线程已安装连接池，关闭本次创建的连接池后重新检查
+            created.close();
+        }
+    }
+
+    /**
+     * 使指定数据源的连接池失效（数据源被修改或删除时调用）
+     * @param datasourceId 数据源ID
+     */
+    public void invalidate(Long datasourceId) {
+        if (datasourceId == null) {
+            return;
+        }
+        PoolHolder holder = pools.remove(datasourceId);
+        if (holder != null) {
+            log.info("关闭数据源 {} 的连接池", datasourceId);
+            holder.close();
+        }
+    }
+
+    /**
+     * 定期关闭长时间未使用的连接池
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdlePools() {
+        long threshold = System.currentTimeMillis() - poolProperties.getPoolIdleEvictMinutes() * 60_000L;
+        pools.forEach((id, holder) -> {
+            if (holder.lastAccessTime < threshold && holder.activeConnections() == 0) {
+                if (pools.remove(id, holder)) {
+                    log.info("数据源 {} 的连接池长时间未使用，已关闭", id);
+                    holder.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(PoolHolder::close);
+        pools.clear();
+    }
+
+    /**
+     * 连接池数量超出上限时，关闭最久未使用且没有活动连接的连接池
+     */
+    private void evictLeastRecentlyUsed() {
+        pools.entrySet().stream()
+                .filter(entry -> entry.getValue().activeConnections() == 0)
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastAccessTime))
+                .ifPresent(entry -> {
+                    if (pools.remove(entry.getKey(), entry.getValue())) {
+                        log.info("连接池数量超出上限 {}，关闭数据源 {} 的连接池", poolProperties.getMaxPools(), entry.getKey());
+                        entry.getValue().close();
+                    }
+                });
+    }
+
+    private HikariDataSource createDataSource(Datasource datasource, String jdbcUrl) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("datasource-" + datasource.getId());
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(datasource.getUsername());
+        config.setPassword(datasource.getPassword());
+        config.setMaximumPoolSize(poolProperties.getMaximumPoolSize());
+        config.setMinimumIdle(poolProperties.getMinimumIdle());
+        config.setConnectionTimeout(poolProperties.getConnectionTimeoutMs());
+        config.setIdleTimeout(poolProperties.getIdleTimeoutMs());
+        config.setMaxLifetime(poolProperties.getMaxLifetimeMs());
+        log.info("为数据源 {} 创建连接池: {}", datasource.getId(), jdbcUrl);
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * 连接配置签名，配置变化时重建连接池
+     */
+    private String buildSignature(Datasource datasource, String jdbcUrl) {
+        return jdbcUrl + "|" + datasource.getUsername() + "|" + Objects.hashCode(datasource.getPassword());
+    }
+
+    private static class PoolHolder {
+        private final HikariDataSource dataSource;
+        private final String signature;
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        PoolHolder(HikariDataSource dataSource, String signature) {
+            this.dataSource = dataSource;
+            this.signature = signature;
+        }
+
+        int activeConnections() {
+            HikariPoolMXBean poolBean = dataSource.getHikariPoolMXBean();
+            return poolBean != null ? poolBean.getActiveConnections() : 0;
+        }
+
+        void close() {
+            dataSource.close();
+        }
+    }
+}
@@ -14,4 +14,10 @@ public interface DatasourceService extends IService<Datasource> {
      * @return 连接是否成功
      */
     boolean testConnection(Datasource datasource);
+    
+    /**
+     * 使数据源的连接池失效，数据源被修改或删除后调用
+     * @param datasourceId 数据源ID
+     */
+    void invalidateConnectionPool(Long datasourceId);
 } 
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.dbrecord.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.SchemaCaptureJob;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * 结构采集任务服务接口
+ */
+public interface SchemaCaptureJobService extends IService<SchemaCaptureJob> {
+
+    /**
+     * 提交结构采集任务
+     * 同一版本已有未结束的任务时不会重复采集，直接返回正在运行的任务
+     * @param projectVersionId 项目版本ID
+     * @param datasource 数据源
+     * @param userId 用户ID
+     * @return 采集任务
+     */
+    SchemaCaptureJob submit(Long projectVersionId, Datasource datasource, Long userId);
+
+    /**
+     * 取消采集任务，采集会在下一个检查点中断（写入开始后不可取消）
+     * @param jobId 任务ID
+     * @return 任务仍在运行并已请求取消时返回true
+     */
+    boolean cancel(Long jobId);
+
+    /**
+     * 获取任务当前状态，运行中的任务返回内存中的最新进度
+     * @param jobId 任务ID
+     * @return 采集任务，不存在时返回null
+     */
+    SchemaCaptureJob getJob(Long jobId);
+
+    /**
+     * 获取版本最近一次的采集任务
+     * @param projectVersionId 项目版本ID
+     * @return 采集任务，不存在时返回null
+     */
+    SchemaCaptureJob getLatestJob(Long projectVersionId);
+
+    /**
+     * 订阅任务进度（SSE），任务已结束时推送最终状态后立即结束
+     * @param jobId 任务ID
+     * @return SSE发送器
+     */
+    SseEmitter subscribe(Long jobId);
+
+    /**
+     * 采集线程池运行指标：任务线程池的队列深度和拒绝次数、逐表线程池状态、各数据源正在进行的提取数
+     * @return 指标
+     */
+    Map<String, Object> getExecutorStats();
+}
@@ -0,0 +1,73 @@
+package com.dbrecord.service;
+
+import com.dbrecord.config.SnapshotCacheProperties;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 版本结构快照缓存
+ * 按项目版本ID缓存 {@link SchemaSnapshot}（不可修改，读取的实体都是副本），容量按快照权重（行数）限制
+ */
+@Slf4j
+@Component
+public class SchemaSnapshotCache {
+
+    @Autowired
+    private SnapshotCacheProperties cacheProperties;
+
+    private Cache<Long, SchemaSnapshot> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(cacheProperties.getMaximumWeight())
+                .weigher((Long versionId, SchemaSnapshot snapshot) -> snapshot.weight())
+                .expireAfterAccess(Duration.ofMinutes(cacheProperties.getExpireAfterAccessMinutes()))
+                .build();
+    }
+
+    /**
+     * 获取版本快照，未命中时使用 loader 构建
+     * loader 返回 null 时不缓存（例如版本尚未采集结构）
+     * @param projectVersionId 项目版本ID
+     * @param loader 快照构建函数
+     * @return 快照，可能为 null
+     */
+    public SchemaSnapshot get(Long projectVersionId, Function<Long, SchemaSnapshot> loader) {
+        if (!cacheProperties.isEnabled()) {
+            return loader.apply(projectVersionId);
+        }
+        return cache.get(projectVersionId, loader);
+    }
+
+    /**
+     * 使指定版本的快照失效
+     * 在事务中调用时，事务结束后会再失效一次，避免事务提交前被并发请求重新加载旧数据
+     * @param projectVersionId 项目版本ID
+     */
+    public void evict(Long projectVersionId) {
+        if (projectVersionId == null) {
+            return;
+        }
+        cache.invalidate(projectVersionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(projectVersionId);
+                }
+            });
+        }
+        log.debug("项目版本 {} 的结构快照已失效", projectVersionId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.dbrecord.service;
+
+/**
+ * 表统计信息采样服务接口
+ * 只采集结构的版本不读取表行数、数据长度等统计信息，由本服务在版本创建后按速率限制分批补充
+ */
+public interface TableStatisticsSamplingService {
+
+    /**
+     * 为统计信息待采样的表补充统计信息
+     * 源库查询失败的表保持待采样状态，下次采样时重试
+     * @param maxTables 本次最多处理的表数量
+     * @return 已处理的表数量（补充了统计信息，或源库中已不存在）
+     */
+    int samplePendingTables(int maxTables);
+}
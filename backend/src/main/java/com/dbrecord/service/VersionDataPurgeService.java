@@ -0,0 +1,42 @@
+package com.dbrecord.service;
+
+import com.dbrecord.entity.domain.VersionTableStructure;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 版本结构数据清理服务接口
+ * 按版本表结构的主键范围分批删除表结构及其字段、索引，每批在一个事务中完成，不做大范围JOIN删除；
+ * 后台任务定期清理已删除版本（软删除或版本记录已不存在）遗留的结构数据，批与批之间暂停，减轻元数据库压力
+ */
+public interface VersionDataPurgeService {
+
+    /**
+     * 同步删除版本的全部结构数据（重新采集前调用），批与批之间不暂停
+     * 数据库结构信息最后删除，中途失败时版本仍视为已完成采集，再次删除时继续清理
+     * @param projectVersionId 项目版本ID
+     * @return 删除的行数
+     */
+    long purgeVersion(Long projectVersionId);
+
+    /**
+     * 删除指定的版本表结构及其字段、索引，并清理不再被引用的共享表定义
+     * @param tables 版本表结构（需包含ID和共享表定义ID）
+     * @return 删除的行数
+     */
+    long purgeTables(Collection<VersionTableStructure> tables);
+
+    /**
+     * 清理已删除版本遗留的结构数据
+     * @param maxVersions 本次最多清理的版本数量
+     * @return 删除的行数
+     */
+    long purgeDeletedVersions(int maxVersions);
+
+    /**
+     * 获取清理积压和最近一次清理的指标
+     * @return 指标
+     */
+    Map<String, Object> getPurgeStats();
+}
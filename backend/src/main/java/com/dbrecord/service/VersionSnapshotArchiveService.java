@@ -0,0 +1,23 @@
+package com.dbrecord.service;
+
+/**
+ * 版本结构归档服务接口
+ * 旧版本的结构快照按列编码、字典压缩后存入项目版本表，随后删除表结构、字段和索引明细行；
+ * 读取归档版本时由结构快照透明还原，数据库结构信息保留，作为版本已完成采集的标记
+ */
+public interface VersionSnapshotArchiveService {
+
+    /**
+     * 归档单个版本
+     * @param projectVersionId 项目版本ID
+     * @return 是否已归档（版本不存在、已归档、未完成采集或期间被重新采集时返回false）
+     */
+    boolean archiveVersion(Long projectVersionId);
+
+    /**
+     * 归档符合条件的旧版本（创建超过指定天数，或不在项目最近的若干个版本中）
+     * @param maxVersions 本次最多归档的版本数量
+     * @return 已归档的版本数量
+     */
+    int archiveEligibleVersions(int maxVersions);
+}
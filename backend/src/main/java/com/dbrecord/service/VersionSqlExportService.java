@@ -0,0 +1,30 @@
+package com.dbrecord.service;
+
+import com.dbrecord.entity.domain.ProjectVersion;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * 版本结构SQL导出服务接口
+ */
+public interface VersionSqlExportService {
+
+    /**
+     * 将版本的完整建表SQL逐表写出
+     * 表结构分页读取、字段和索引分块加载，内存占用与表数量无关
+     * @param version 项目版本
+     * @param databaseType 数据库类型
+     * @param writer 输出
+     * @throws IOException 写出异常
+     */
+    void writeVersionSql(ProjectVersion version, String databaseType, Writer writer) throws IOException;
+
+    /**
+     * 生成版本的完整建表SQL字符串（小规模结构使用，大结构请使用 {@link #writeVersionSql}）
+     * @param version 项目版本
+     * @param databaseType 数据库类型
+     * @return SQL脚本
+     */
+    String generateVersionSql(ProjectVersion version, String databaseType);
+}
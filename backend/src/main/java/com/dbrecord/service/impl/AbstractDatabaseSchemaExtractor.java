@@ -1,16 +1,28 @@
 package com.dbrecord.service.impl;
 
 import com.dbrecord.config.DatabaseScanFilterProperties;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.service.CaptureSessions;
 import com.dbrecord.service.DatabaseSchemaExtractor;
+import com.dbrecord.service.DatasourceConnectionRegistry;
+import com.dbrecord.util.NamePatternSet;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * 数据库结构提取器抽象基类
@@ -18,13 +30,138 @@ import java.util.Map;
 @Slf4j
 public abstract class AbstractDatabaseSchemaExtractor implements DatabaseSchemaExtractor {
 
+    /**
+     * PostgreSQL及兼容数据库的表变更标记表达式（需要 pg_class 别名为 c）
+     * 由表的 relfilenode、pg_class 行版本，以及字段、索引、默认值、表和字段注释、索引注释等目录行的版本组成，
+     * 表结构发生任何DDL变化时至少有一个目录行被重写，标记随之改变（索引注释记录在索引自身的 pg_description 行上）
+     */
+    protected static final String PG_CHANGE_MARKER_SQL =
+            "c.relfilenode::text || ':' || c.xmin::text || ':' || md5(" +
+            "COALESCE((SELECT string_agg(a.attnum || '.' || a.xmin::text, ',' ORDER BY a.attnum) " +
+            "FROM pg_attribute a WHERE a.attrelid = c.oid), '') || '|' || " +
+            "COALESCE((SELECT string_agg(ix.indexrelid::text || '.' || ix.xmin::text || '.' || ic.xmin::text, ',' ORDER BY ix.indexrelid) " +
+            "FROM pg_index ix JOIN pg_class ic ON ic.oid = ix.indexrelid WHERE ix.indrelid = c.oid), '') || '|' || " +
+            "COALESCE((SELECT string_agg(ad.adnum || '.' || ad.xmin::text, ',' ORDER BY ad.adnum) " +
+            "FROM pg_attrdef ad WHERE ad.adrelid = c.oid), '') || '|' || " +
+            "COALESCE((SELECT string_agg(ds.objsubid || '.' || ds.xmin::text, ',' ORDER BY ds.objsubid) " +
+            "FROM pg_description ds WHERE ds.objoid = c.oid AND ds.classoid = 'pg_class'::regclass), '') || '|' || " +
+            "COALESCE((SELECT string_agg(ids.objoid::text || '.' || ids.xmin::text, ',' ORDER BY ids.objoid) " +
+            "FROM pg_index iix JOIN pg_description ids ON ids.objoid = iix.indexrelid " +
+            "AND ids.classoid = 'pg_class'::regclass AND ids.objsubid = 0 WHERE iix.indrelid = c.oid), '')" +
+            ")";
+
+    /**
+     * 默认每次从服务端读取的行数
+     */
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * TRACE日志中每隔多少行输出一行样本
+     */
+    private static final int ROW_LOG_SAMPLE_INTERVAL = 1000;
+
     @Autowired
     protected DatabaseScanFilterProperties filterProperties;
     
+    @Autowired
+    protected SchemaCaptureProperties captureProperties;
+    
+    @Autowired
+    protected DatasourceConnectionRegistry connectionRegistry;
+    
     @Override
     public Connection getConnection(Datasource datasource) throws Exception {
+        // 一致性快照采集时使用当前线程绑定的采集会话
+        Connection session = CaptureSessions.currentConnection();
+        if (session != null) {
+            return session;
+        }
         String url = buildConnectionUrl(datasource);
-        return DriverManager.getConnection(url, datasource.getUsername(), datasource.getPassword());
+        // 从数据源连接池获取连接，关闭连接即归还连接池
+        return connectionRegistry.getConnection(datasource, url);
+    }
+    
+    @Override
+    public CaptureSessions openCaptureSessions(Datasource datasource, int sessionCount) {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            Connection leader = getConnection(datasource);
+            connections.add(leader);
+            String snapshotId = beginSnapshot(leader);
+            for (int i = 1; i < Math.max(1, sessionCount); i++) {
+                Connection follower = getConnection(datasource);
+                connections.add(follower);
+                joinSnapshot(follower, snapshotId);
+            }
+            log.info("数据源 {} 开启 {} 个一致性快照采集会话，快照: {}", datasource.getId(), connections.size(),
+                    snapshotId != null ? snapshotId : "各会话独立");
+            return new CaptureSessions(connections, snapshotId);
+        } catch (Exception e) {
+            new CaptureSessions(connections, null).close();
+            throw new IllegalStateException("开启一致性快照采集会话失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 在会话上开启只读的 REPEATABLE READ 事务
+     * 支持导出快照的数据库导出事务快照，供其他会话共享
+     * @param connection 会话
+     * @return 导出的快照ID，不支持导出快照时返回null
+     */
+    protected String beginSnapshot(Connection connection) throws SQLException {
+        beginReadOnlyTransaction(connection);
+        if (!isSnapshotExportSupported()) {
+            return null;
+        }
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+    
+    /**
+     * 在其他会话上开启只读事务，并导入第一个会话导出的快照（必须是事务中的第一条语句）
+     * 没有导出快照时各会话的事务独立开始
+     * @param connection 会话
+     * @param snapshotId 导出的快照ID，可以为null
+     */
+    protected void joinSnapshot(Connection connection, String snapshotId) throws SQLException {
+        if (snapshotId == null) {
+            beginSnapshot(connection);
+            return;
+        }
+        // SET TRANSACTION SNAPSHOT 不支持参数绑定，快照ID只允许十六进制数字和连字符
+        if (!snapshotId.matches("[0-9A-Fa-f-]+")) {
+            throw new SQLException("无效的快照ID: " + snapshotId);
+        }
+        beginReadOnlyTransaction(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+        }
+    }
+    
+    /**
+     * 设置会话为只读、REPEATABLE READ、非自动提交，驱动在下一条语句前开启事务
+     */
+    protected void beginReadOnlyTransaction(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        connection.setReadOnly(true);
+    }
+    
+    /**
+     * 是否使用 pg_catalog 原生目录查询（PostgreSQL及兼容数据库），未注入配置时默认使用
+     */
+    protected boolean useNativeCatalog() {
+        return captureProperties == null || captureProperties.isPgNativeCatalog();
+    }
+    
+    /**
+     * 是否支持导出事务快照供多个会话共享（PostgreSQL及兼容数据库的 pg_export_snapshot）
+     */
+    protected boolean isSnapshotExportSupported() {
+        return false;
     }
     
     /**
@@ -51,8 +188,125 @@ public abstract class AbstractDatabaseSchemaExtractor implements DatabaseSchemaE
         return filterProperties.getFilterConfig(getDatabaseType());
     }
     
+    /**
+     * 构建schema过滤条件，把schema排除规则中的精确名称和通配符下推到目录查询
+     * 正则规则不下推，由 {@link #filterByRules} 或调用方在Java中过滤
+     * @param schemaColumn schema字段
+     * @param params 条件参数，按出现顺序追加
+     * @return 过滤条件，没有可下推的规则时为 1 = 1
+     */
+    protected String buildSchemaFilterSql(String schemaColumn, List<Object> params) {
+        String excluded = buildMatchSql(schemaColumn, getFilterConfig().getSchemaExclusions(), params);
+        return excluded != null ? "NOT " + excluded : "1 = 1";
+    }
+    
+    /**
+     * 构建表过滤条件，把表的排除和包含规则下推到目录查询，被排除的表不会从源库读取
+     * 只下推精确名称（IN）和通配符（LIKE）；正则规则按Java语法在查询后过滤，
+     * 包含规则里有正则时整组包含规则都不下推，避免漏掉只匹配正则的表
+     * @param schemaColumn schema字段
+     * @param tableColumn 表名字段
+     * @param schemaName 只查询单个schema时（如MySQL的当前库）传入schema名，只使用该schema的排除规则；
+     *                   为null时按schema字段匹配各schema的排除规则
+     * @param params 条件参数，按出现顺序追加
+     * @return 以 AND 开头的过滤条件，没有可下推的规则时为空字符串
+     */
+    protected String buildTableFilterSql(String schemaColumn, String tableColumn, String schemaName, List<Object> params) {
+        var filterConfig = getFilterConfig();
+        StringBuilder sql = new StringBuilder();
+        if (schemaName != null) {
+            NamePatternSet schemaTables = filterConfig.getTableExclusionsBySchema().get(schemaName);
+            String excluded = schemaTables != null ? buildMatchSql(tableColumn, schemaTables, params) : null;
+            if (excluded != null) {
+                sql.append(" AND NOT ").append(excluded);
+            }
+        } else {
+            for (Map.Entry<String, NamePatternSet> entry : filterConfig.getTableExclusionsBySchema().entrySet()) {
+                List<Object> tableParams = new ArrayList<>();
+                String excluded = buildMatchSql(tableColumn, entry.getValue(), tableParams);
+                if (excluded == null) {
+                    continue;
+                }
+                params.add(entry.getKey());
+                params.addAll(tableParams);
+                sql.append(" AND NOT (").append(schemaColumn).append(" = ? AND ").append(excluded).append(")");
+            }
+        }
+        String excluded = buildMatchSql(tableColumn, filterConfig.getTableExclusions(), params);
+        if (excluded != null) {
+            sql.append(" AND NOT ").append(excluded);
+        }
+        NamePatternSet inclusions = filterConfig.getTableInclusions();
+        if (!inclusions.hasRegexes()) {
+            String included = buildMatchSql(tableColumn, inclusions, params);
+            if (included != null) {
+                sql.append(" AND ").append(included);
+            }
+        }
+        return sql.toString();
+    }
+    
+    /**
+     * 构建名称匹配条件：精确名称用 IN，通配符用 LIKE
+     * 正则规则不参与，数据库的正则语法（MySQL的ICU、PostgreSQL的POSIX）与Java不一致
+     * @return 括号包围的条件，没有可下推的规则时返回null
+     */
+    private String buildMatchSql(String column, NamePatternSet patterns, List<Object> params) {
+        String matchColumn = caseSensitiveColumn(column);
+        List<String> conditions = new ArrayList<>();
+        if (!patterns.getExactNames().isEmpty()) {
+            StringBuilder in = new StringBuilder(matchColumn).append(" IN (");
+            int i = 0;
+            for (String name : patterns.getExactNames()) {
+                in.append(i++ > 0 ? ", ?" : "?");
+                params.add(name);
+            }
+            conditions.add(in.append(")").toString());
+        }
+        for (String like : patterns.getLikePatterns()) {
+            conditions.add(matchColumn + " LIKE ?");
+            params.add(like);
+        }
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        return "(" + String.join(" OR ", conditions) + ")";
+    }
+    
+    /**
+     * 名称比较时使用的字段表达式，目录字段默认区分大小写时直接返回字段
+     * @param column 字段
+     * @return 区分大小写比较的字段表达式
+     */
+    protected String caseSensitiveColumn(String column) {
+        return column;
+    }
+    
+    /**
+     * 按过滤规则在Java中过滤目录行，补上没有下推到SQL的正则规则
+     * 没有正则规则时SQL已经完成过滤，直接返回原consumer
+     * @param consumer 目录行处理
+     * @param schemaName 取行的schema名
+     * @param tableName 取行的表名
+     * @return 过滤后的consumer
+     */
+    protected <T> Consumer<T> filterByRules(Consumer<T> consumer, Function<T, String> schemaName,
+                                            Function<T, String> tableName) {
+        var filterConfig = getFilterConfig();
+        if (!filterConfig.hasRegexRules()) {
+            return consumer;
+        }
+        return row -> {
+            String schema = schemaName.apply(row);
+            if (!filterConfig.isSchemaExcluded(schema) && !filterConfig.isTableExcluded(schema, tableName.apply(row))) {
+                consumer.accept(row);
+            }
+        };
+    }
+    
     /**
      * 执行查询并返回结果
+     * 查询失败时记录错误并返回已读取的行（通常为空）
      * @param datasource 数据源
      * @param sql SQL语句
      * @param params 参数
@@ -60,41 +314,428 @@ public abstract class AbstractDatabaseSchemaExtractor implements DatabaseSchemaE
      */
     protected List<Map<String, Object>> executeQuery(Datasource datasource, String sql, Object... params) {
         List<Map<String, Object>> result = new ArrayList<>();
-        
-        try (Connection connection = getConnection(datasource);
-             PreparedStatement stmt = connection.prepareStatement(sql)) {
-            
-            // 设置参数
-            for (int i = 0; i < params.length; i++) {
-                stmt.setObject(i + 1, params[i]);
+        try {
+            streamQuery(datasource, sql, result::add, params);
+        } catch (Exception e) {
+            log.error("执行查询失败: {}", e.getMessage(), e);
+        }
+        return result;
+    }
+    
+    /**
+     * 流式执行查询，每行转换为 字段名 -> 值 的Map后交给consumer，不缓存整个结果集
+     * @param datasource 数据源
+     * @param sql SQL语句
+     * @param consumer 行处理
+     * @param params 参数
+     */
+    protected void streamQuery(Datasource datasource, String sql, Consumer<Map<String, Object>> consumer, Object... params) {
+        streamRows(datasource, sql, columns -> rs -> {
+            Map<String, Object> row = new HashMap<>(columns.size() * 4 / 3 + 1);
+            for (int i = 1; i <= columns.size(); i++) {
+                row.put(columns.getName(i), rs.getObject(i));
             }
+            return row;
+        }, consumer, params);
+    }
+    
+    /**
+     * 流式执行查询，每行映射为对象后交给consumer，不缓存整个结果集
+     * 行映射在读取第一行前按结果集字段创建一次，之后每行直接按字段位置读取
+     * 查询失败时抛出 {@link IllegalStateException}
+     * @param datasource 数据源
+     * @param sql SQL语句
+     * @param mapperFactory 行映射工厂
+     * @param consumer 对象处理
+     * @param params 参数
+     */
+    protected <T> void streamRows(Datasource datasource, String sql, RowMapperFactory<T> mapperFactory,
+                                  Consumer<T> consumer, Object... params) {
+        queryForEach(datasource, sql, new RowCallback() {
+            private RowMapper<T> mapper;
             
-            log.info("执行SQL查询: {} 参数: {}", sql, java.util.Arrays.toString(params));
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> row = new HashMap<>();
-                    ResultSetMetaData metaData = rs.getMetaData();
-                    
-                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
-                        String columnName = metaData.getColumnName(i);
-                        Object value = rs.getObject(i);
-                        row.put(columnName, value);
-                    }
-                    
-                    result.add(row);
+            @Override
+            public void processRow(ResultSet rs, ResultColumns columns) throws SQLException {
+                if (mapper == null) {
+                    mapper = mapperFactory.create(columns);
                 }
+                consumer.accept(mapper.mapRow(rs));
             }
-            
-            log.info("查询结果数量: {}", result.size());
-            if (!result.isEmpty()) {
-                log.info("第一行数据: {}", result.get(0));
+        }, params);
+    }
+    
+    /**
+     * 执行查询并将每行映射为对象
+     * 查询失败时抛出 {@link IllegalStateException}，不返回部分结果，避免读取失败的表被当作没有字段或索引的表保存
+     * @param datasource 数据源
+     * @param sql SQL语句
+     * @param mapperFactory 行映射工厂
+     * @param params 参数
+     * @return 映射结果
+     */
+    protected <T> List<T> queryForList(Datasource datasource, String sql, RowMapperFactory<T> mapperFactory, Object... params) {
+        List<T> result = new ArrayList<>();
+        streamRows(datasource, sql, mapperFactory, result::add, params);
+        return result;
+    }
+    
+    /**
+     * 流式执行查询，逐行回调
+     * 语句为只进只读，按 {@link #getFetchSize()} 分批从服务端读取；字段名和位置在读取第一行前解析一次。
+     * 查询失败时抛出 {@link IllegalStateException}
+     * @param datasource 数据源
+     * @param sql SQL语句
+     * @param callback 行回调
+     * @param params 参数
+     */
+    protected void queryForEach(Datasource datasource, String sql, RowCallback callback, Object... params) {
+        long start = System.currentTimeMillis();
+        long rowCount = 0;
+        if (log.isDebugEnabled()) {
+            log.debug("执行SQL查询: {} 参数: {}", sql, Arrays.toString(params));
+        }
+        
+        try (Connection connection = openConnection(datasource)) {
+            // PostgreSQL驱动只有在事务中才按fetchSize分批读取
+            boolean restoreAutoCommit = isCursorFetchRequiresTransaction() && connection.getAutoCommit();
+            if (restoreAutoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(getFetchSize());
+                for (int i = 0; i < params.length; i++) {
+                    stmt.setObject(i + 1, params[i]);
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    ResultColumns columns = new ResultColumns(rs.getMetaData());
+                    while (rs.next()) {
+                        rowCount++;
+                        callback.processRow(rs, columns);
+                        if (log.isTraceEnabled() && (rowCount == 1 || rowCount % ROW_LOG_SAMPLE_INTERVAL == 0)) {
+                            log.trace("第 {} 行: {}", rowCount, columns.describeRow(rs));
+                        }
+                    }
+                }
+            } finally {
+                if (restoreAutoCommit) {
+                    // 只读查询，结束事务后恢复自动提交
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
             }
         } catch (Exception e) {
-            log.error("执行查询失败: {}", e.getMessage(), e);
+            CaptureSessions.reportFailure(e);
+            throw new IllegalStateException("执行查询失败: " + e.getMessage(), e);
         }
         
-        return result;
+        if (log.isDebugEnabled()) {
+            log.debug("查询完成，结果数量: {}，耗时: {} ms", rowCount, System.currentTimeMillis() - start);
+        }
+    }
+    
+    /**
+     * 获取查询使用的连接，获取失败时在异常信息中注明是连接失败
+     */
+    private Connection openConnection(Datasource datasource) throws SQLException {
+        try {
+            return getConnection(datasource);
+        } catch (Exception e) {
+            throw new SQLException("获取数据库连接失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 每次从服务端读取的行数
+     */
+    protected int getFetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+    
+    /**
+     * 驱动是否只在非自动提交模式下按fetchSize分批读取（PostgreSQL及兼容驱动）
+     */
+    protected boolean isCursorFetchRequiresTransaction() {
+        return false;
+    }
+    
+    /**
+     * 行回调
+     */
+    @FunctionalInterface
+    protected interface RowCallback {
+        void processRow(ResultSet rs, ResultColumns columns) throws SQLException;
+    }
+    
+    /**
+     * 行映射，字段位置已在创建时解析
+     */
+    @FunctionalInterface
+    protected interface RowMapper<T> {
+        T mapRow(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * 行映射工厂，每个结果集调用一次，按结果集字段解析字段位置并创建行映射
+     */
+    @FunctionalInterface
+    protected interface RowMapperFactory<T> {
+        RowMapper<T> create(ResultColumns columns) throws SQLException;
+    }
+    
+    /**
+     * 结果集字段信息，查询开始时解析一次，按字段名（不区分大小写）查找字段位置
+     */
+    protected static class ResultColumns {
+        
+        private final String[] names;
+        private final Map<String, Integer> indexByName;
+        
+        ResultColumns(ResultSetMetaData metaData) throws SQLException {
+            int count = metaData.getColumnCount();
+            this.names = new String[count + 1];
+            this.indexByName = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 1; i <= count; i++) {
+                names[i] = metaData.getColumnName(i);
+                indexByName.putIfAbsent(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+                indexByName.putIfAbsent(names[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+        
+        /**
+         * 字段数量
+         */
+        public int size() {
+            return names.length - 1;
+        }
+        
+        /**
+         * 字段名
+         * @param index 字段位置（从1开始）
+         */
+        public String getName(int index) {
+            return names[index];
+        }
+        
+        /**
+         * 按字段名查找字段位置
+         * @param name 字段名或别名，不区分大小写
+         * @return 字段位置（从1开始），不存在时返回0
+         */
+        public int indexOf(String name) {
+            Integer index = indexByName.get(name.toLowerCase(Locale.ROOT));
+            return index != null ? index : 0;
+        }
+        
+        /**
+         * 读取字符串字段，字段不存在时返回null
+         */
+        public String getString(ResultSet rs, String name) throws SQLException {
+            int index = indexOf(name);
+            return index > 0 ? rs.getString(index) : null;
+        }
+        
+        /**
+         * 读取对象字段，字段不存在时返回null
+         */
+        public Object getObject(ResultSet rs, String name) throws SQLException {
+            int index = indexOf(name);
+            return index > 0 ? rs.getObject(index) : null;
+        }
+        
+        String describeRow(ResultSet rs) throws SQLException {
+            StringBuilder sb = new StringBuilder("{");
+            for (int i = 1; i < names.length; i++) {
+                if (i > 1) {
+                    sb.append(", ");
+                }
+                sb.append(names[i]).append('=').append(rs.getObject(i));
+            }
+            return sb.append('}').toString();
+        }
+    }
+    
+    @Override
+    public List<ColumnMeta> getAllTableColumns(Datasource datasource) {
+        List<ColumnMeta> columns = new ArrayList<>();
+        forEachTableColumn(datasource, columns::add);
+        return columns;
+    }
+    
+    @Override
+    public List<IndexMeta> getAllTableIndexes(Datasource datasource) {
+        List<IndexMeta> indexes = new ArrayList<>();
+        forEachTableIndex(datasource, indexes::add);
+        return indexes;
+    }
+    
+    /**
+     * 默认在读取表列表时一并读取统计信息
+     */
+    @Override
+    public boolean isStatisticsDeferred() {
+        return false;
+    }
+    
+    /**
+     * 默认目录受MVCC隔离，一致性快照事务中读到的是同一时间点的目录
+     */
+    @Override
+    public boolean isCatalogSnapshotIsolated() {
+        return true;
+    }
+    
+    /**
+     * 默认不支持统计信息采样
+     */
+    @Override
+    public List<TableMeta> getTablesStatistics(Datasource datasource, String schemaName, Collection<String> tableNames) {
+        return new ArrayList<>();
+    }
+    
+    /**
+     * 表信息映射
+     * 目录查询的字段名在各数据库中只有大小写差异（MySQL为大写，PostgreSQL/KingbaseES为小写），按名称不区分大小写解析一次
+     */
+    protected RowMapper<TableMeta> tableMetaMapper(ResultColumns columns) throws SQLException {
+        int schemaName = columns.indexOf("schema_name");
+        int tableName = columns.indexOf("table_name");
+        int tableComment = columns.indexOf("table_comment");
+        int tableType = columns.indexOf("table_type");
+        int engine = columns.indexOf("engine");
+        int collation = columns.indexOf("table_collation");
+        int rowFormat = columns.indexOf("row_format");
+        int tableRows = columns.indexOf("table_rows");
+        int avgRowLength = columns.indexOf("avg_row_length");
+        int dataLength = columns.indexOf("data_length");
+        int indexLength = columns.indexOf("index_length");
+        int autoIncrement = columns.indexOf("auto_increment");
+        RowMapper<String> changeMarker = changeMarkerMapper(columns);
+        return rs -> new TableMeta(
+                readString(rs, schemaName),
+                readString(rs, tableName),
+                readString(rs, tableComment),
+                readString(rs, tableType),
+                readString(rs, engine),
+                readString(rs, collation),
+                readString(rs, rowFormat),
+                readLong(rs, tableRows),
+                readLong(rs, avgRowLength),
+                readLong(rs, dataLength),
+                readLong(rs, indexLength),
+                readLong(rs, autoIncrement),
+                changeMarker.mapRow(rs));
+    }
+    
+    /**
+     * 表变更标记映射，默认读取表查询中的 change_marker 字段
+     */
+    protected RowMapper<String> changeMarkerMapper(ResultColumns columns) throws SQLException {
+        int changeMarker = columns.indexOf("change_marker");
+        return rs -> readString(rs, changeMarker);
+    }
+    
+    /**
+     * 字段信息映射
+     */
+    protected RowMapper<ColumnMeta> columnMetaMapper(ResultColumns columns) throws SQLException {
+        int schemaName = columns.indexOf("schema_name");
+        int tableName = columns.indexOf("table_name");
+        int columnName = columns.indexOf("column_name");
+        int ordinalPosition = columns.indexOf("ordinal_position");
+        int columnDefault = columns.indexOf("column_default");
+        int isNullable = columns.indexOf("is_nullable");
+        int dataType = columns.indexOf("data_type");
+        int characterMaximumLength = columns.indexOf("character_maximum_length");
+        int characterOctetLength = columns.indexOf("character_octet_length");
+        int numericPrecision = columns.indexOf("numeric_precision");
+        int numericScale = columns.indexOf("numeric_scale");
+        int datetimePrecision = columns.indexOf("datetime_precision");
+        int characterSetName = columns.indexOf("character_set_name");
+        int collationName = columns.indexOf("collation_name");
+        int columnType = columns.indexOf("column_type");
+        int columnKey = columns.indexOf("column_key");
+        int extra = columns.indexOf("extra");
+        int columnComment = columns.indexOf("column_comment");
+        return rs -> new ColumnMeta(
+                readString(rs, schemaName),
+                readString(rs, tableName),
+                readString(rs, columnName),
+                readInt(rs, ordinalPosition),
+                readString(rs, columnDefault),
+                readString(rs, isNullable),
+                readString(rs, dataType),
+                readLong(rs, characterMaximumLength),
+                readLong(rs, characterOctetLength),
+                readInt(rs, numericPrecision),
+                readInt(rs, numericScale),
+                readInt(rs, datetimePrecision),
+                readString(rs, characterSetName),
+                readString(rs, collationName),
+                readString(rs, columnType),
+                readString(rs, columnKey),
+                readString(rs, extra),
+                readString(rs, columnComment));
+    }
+    
+    /**
+     * 索引字段信息映射
+     * PostgreSQL/KingbaseES 直接返回 is_unique / is_primary；MySQL 返回 non_unique，主键索引名为 PRIMARY
+     */
+    protected RowMapper<IndexMeta> indexMetaMapper(ResultColumns columns) throws SQLException {
+        int schemaName = columns.indexOf("schema_name");
+        int tableName = columns.indexOf("table_name");
+        int indexName = columns.indexOf("index_name");
+        int columnName = columns.indexOf("column_name");
+        int indexType = columns.indexOf("index_type");
+        int isUnique = columns.indexOf("is_unique");
+        int nonUnique = columns.indexOf("non_unique");
+        int isPrimary = columns.indexOf("is_primary");
+        int subPart = columns.indexOf("sub_part");
+        int indexComment = columns.indexOf("index_comment");
+        return rs -> {
+            String name = readString(rs, indexName);
+            boolean unique = isUnique > 0 ? readBoolean(rs, isUnique) : !readBoolean(rs, nonUnique);
+            boolean primary = "PRIMARY".equals(name) || readBoolean(rs, isPrimary);
+            return new IndexMeta(
+                    readString(rs, schemaName),
+                    readString(rs, tableName),
+                    name,
+                    readString(rs, columnName),
+                    readString(rs, indexType),
+                    unique,
+                    primary,
+                    readString(rs, subPart),
+                    readString(rs, indexComment));
+        };
+    }
+    
+    /**
+     * 读取字符串字段，字段不存在（位置为0）时返回null
+     */
+    protected String readString(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? rs.getString(index) : null;
+    }
+    
+    /**
+     * 读取Long字段，字段不存在或值为空时返回null
+     */
+    protected Long readLong(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? getLongValue(rs.getObject(index)) : null;
+    }
+    
+    /**
+     * 读取Integer字段，字段不存在或值为空时返回null
+     */
+    protected Integer readInt(ResultSet rs, int index) throws SQLException {
+        return index > 0 ? getIntValue(rs.getObject(index)) : null;
+    }
+    
+    /**
+     * 读取布尔字段，字段不存在或值为空时返回false
+     */
+    protected boolean readBoolean(ResultSet rs, int index) throws SQLException {
+        return index > 0 && getBooleanValue(rs.getObject(index));
     }
     
     /**
@@ -146,26 +787,4 @@ public abstract class AbstractDatabaseSchemaExtractor implements DatabaseSchemaE
         }
         return Boolean.parseBoolean(value.toString());
     }
-    
-    /**
-     * 获取字符串值（处理大小写差异）
-     */
-    protected String getStringValue(Map<String, Object> data, String upperCaseKey, String lowerCaseKey) {
-        String value = (String) data.get(upperCaseKey);
-        if (value == null) {
-            value = (String) data.get(lowerCaseKey);
-        }
-        return value;
-    }
-    
-    /**
-     * 获取对象值（处理大小写差异）
-     */
-    protected Object getObjectValue(Map<String, Object> data, String upperCaseKey, String lowerCaseKey) {
-        Object value = data.get(upperCaseKey);
-        if (value == null) {
-            value = data.get(lowerCaseKey);
-        }
-        return value;
-    }
 }
\ No newline at end of file
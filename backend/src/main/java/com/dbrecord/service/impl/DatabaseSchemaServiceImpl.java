@@ -1,30 +1,59 @@
 package com.dbrecord.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.*;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.dbrecord.entity.snapshot.TableSnapshot;
 import com.dbrecord.enums.DatabaseType;
+import com.dbrecord.exception.CaptureCancelledException;
 import com.dbrecord.mapper.*;
+import com.dbrecord.service.CaptureProgressListener;
+import com.dbrecord.service.CaptureSessions;
+import com.dbrecord.service.CompareResultCache;
 import com.dbrecord.service.DatabaseSchemaExtractor;
 import com.dbrecord.service.DatabaseSchemaExtractorFactory;
 import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.DatasourceConcurrencyLimiter;
+import com.dbrecord.service.SchemaSnapshotCache;
+import com.dbrecord.service.VersionDataPurgeService;
 import com.dbrecord.strategy.SqlGenerationStrategy;
 import com.dbrecord.strategy.SqlGenerationStrategyFactory;
+import com.dbrecord.util.SchemaHashUtil;
+import com.dbrecord.util.SchemaSnapshotCodec;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * 数据库结构服务实现类
@@ -47,6 +76,9 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     @Autowired
     private VersionTableIndexMapper versionTableIndexMapper;
     
+    @Autowired
+    private TableDefinitionMapper tableDefinitionMapper;
+    
     @Autowired
     private DatabaseSchemaExtractorFactory extractorFactory;
     
@@ -62,32 +94,96 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     @Autowired
     private SqlGenerationStrategyFactory sqlGenerationStrategyFactory;
     
+    @Autowired
+    private SchemaSnapshotCache schemaSnapshotCache;
+    
+    @Autowired
+    private CompareResultCache compareResultCache;
+    
+    @Autowired
+    private SchemaCaptureProperties captureProperties;
+    
     @Autowired
     @Qualifier("schemaCaptureTaskExecutor")
     private Executor schemaCaptureTaskExecutor;
     
+    @Autowired
+    @Qualifier("schemaCompareTaskExecutor")
+    private Executor schemaCompareTaskExecutor;
+    
+    @Autowired
+    @Qualifier("schemaTableTaskExecutor")
+    private Executor schemaTableTaskExecutor;
+    
+    @Autowired
+    private DatasourceConcurrencyLimiter datasourceConcurrencyLimiter;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private VersionDataPurgeService versionDataPurgeService;
+    
+    @Autowired
+    private VersionDiffMapper versionDiffMapper;
+    
+    /**
+     * 多行INSERT每批的行数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+    
+    /**
+     * 共享表定义的字段和索引记录的项目版本ID（不属于任何版本）
+     */
+    private static final long SHARED_DEFINITION_VERSION_ID = 0L;
+    
+    /**
+     * 共有表数量达到该值时并行对比
+     */
+    private static final int PARALLEL_COMPARE_THRESHOLD = 200;
+    
+    /**
+     * 并行对比时每个任务处理的表数量
+     */
+    private static final int COMPARE_CHUNK_SIZE = 100;
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     @Override
-    @Transactional
     public boolean captureAndSaveDatabaseSchema(Long projectVersionId, Datasource datasource, Long userId) {
+        return captureAndSaveDatabaseSchema(projectVersionId, datasource, userId, CaptureProgressListener.NONE);
+    }
+    
+    @Override
+    public boolean captureAndSaveDatabaseSchema(Long projectVersionId, Datasource datasource, Long userId,
+                                                CaptureProgressListener listener) {
+        CaptureSessions sessions = null;
         try {
             // 1. 检查数据库类型是否支持
             if (!extractorFactory.isSupported(datasource.getType())) {
                 log.error("不支持的数据库类型: {}", datasource.getType());
+                listener.onFailure(new IllegalArgumentException("不支持的数据库类型: " + datasource.getType()));
                 return false;
             }
             
             // 2. 获取对应的数据库结构提取器
             DatabaseSchemaExtractor extractor = extractorFactory.getExtractor(datasource.getType());
             
-            // 3. 删除该版本已存在的数据库结构信息（如果有的话）
-            deleteExistingVersionData(projectVersionId);
+            // 3. 已完成采集的版本删除原有数据重新采集；上次采集中断的版本保留已写入的表，从检查点继续
+            Map<String, VersionTableStructure> checkpointTables = loadCheckpoints(projectVersionId);
+            
+            // 一致性快照采集：后续所有目录查询都在同一组只读事务会话上执行
+            if (captureProperties.isConsistentSnapshot()) {
+                sessions = extractor.openCaptureSessions(datasource, captureProperties.getSnapshotSessions());
+            }
+            CaptureSessions captureSessions = sessions;
             
             // 4. 获取数据库基本信息
-            Map<String, Object> databaseInfo = extractor.getDatabaseInfo(datasource);
+            listener.onPhase("读取数据库信息");
+            Map<String, Object> databaseInfo = readSource("读取数据库信息", projectVersionId, sessions, listener,
+                    () -> onSession(captureSessions, () -> extractor.getDatabaseInfo(datasource)));
             
-            // 5. 保存数据库结构信息
+            // 5. 构建数据库结构信息（所有表写入后最后保存，作为版本采集完成的标记）
             VersionDatabaseSchema versionDatabaseSchema = new VersionDatabaseSchema();
             versionDatabaseSchema.setProjectVersionId(projectVersionId);
             versionDatabaseSchema.setDatabaseName(datasource.getDatabaseName());
@@ -106,221 +202,840 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
             
             versionDatabaseSchema.setSnapshotTime(LocalDateTime.now());
             versionDatabaseSchema.setUserId(userId);
-            versionDatabaseSchemaMapper.insert(versionDatabaseSchema);
             
             // 6. 获取所有表的结构信息
-            List<Map<String, Object>> tablesStructure = extractor.getTablesStructure(datasource);
+            checkCancelled(projectVersionId, listener);
+            listener.onPhase("读取表列表");
+            List<TableMeta> tablesStructure = readSource("读取表列表", projectVersionId, sessions, listener,
+                    () -> onSession(captureSessions, () -> extractor.getTablesStructure(datasource)));
+            
+            // 7. 增量采集时加载项目上一个版本的快照
+            SchemaSnapshot previousSnapshot = captureProperties.isIncremental() ? findPreviousSnapshot(projectVersionId) : null;
             
-            // 7. 批量保存表结构信息
+            // 8. 构建表结构信息（只采集结构时，基本表的统计信息标记为待采样）
             List<VersionTableStructure> tableStructures = new ArrayList<>();
-            Map<String, Map<String, Object>> tableInfoMap = new HashMap<>(); // schemaName.tableName -> tableInfo
+            boolean statisticsDeferred = extractor.isStatisticsDeferred();
             
-            for (Map<String, Object> tableInfo : tablesStructure) {
-                // PostgreSQL返回小写字段名，MySQL返回大写字段名
-                String tableName = (String) tableInfo.get("TABLE_NAME");
-                if (tableName == null) {
-                    tableName = (String) tableInfo.get("table_name");
-                }
-                
+            for (TableMeta table : tablesStructure) {
                 // 跳过表名为空的记录
-                if (tableName == null || tableName.trim().isEmpty()) {
-                    log.warn("跳过表名为空的表记录: {}", tableInfo);
+                if (table.tableName() == null || table.tableName().trim().isEmpty()) {
+                    log.warn("跳过表名为空的表记录: {}", table);
                     continue;
                 }
                 
                 // 保存表结构信息
                 VersionTableStructure versionTableStructure = new VersionTableStructure();
                 versionTableStructure.setProjectVersionId(projectVersionId);
-                versionTableStructure.setTableName(tableName);
-                
-                // 处理schema信息（PostgreSQL专用）
-                String schemaName = (String) tableInfo.get("SCHEMA_NAME");
-                if (schemaName == null) schemaName = (String) tableInfo.get("schema_name");
-                if (schemaName == null) schemaName = "public"; // 默认schema
-                versionTableStructure.setSchemaName(schemaName);
-                
-                // 处理字段名大小写差异
-                String tableComment = (String) tableInfo.get("TABLE_COMMENT");
-                if (tableComment == null) tableComment = (String) tableInfo.get("table_comment");
-                
-                String tableType = (String) tableInfo.get("TABLE_TYPE");
-                if (tableType == null) tableType = (String) tableInfo.get("table_type");
-                
-                String engine = (String) tableInfo.get("ENGINE");
-                if (engine == null) engine = (String) tableInfo.get("engine");
-                
-                Object tableRows = tableInfo.get("TABLE_ROWS");
-                if (tableRows == null) tableRows = tableInfo.get("table_rows");
-                
-                Object dataLength = tableInfo.get("DATA_LENGTH");
-                if (dataLength == null) dataLength = tableInfo.get("data_length");
-                
-                Object indexLength = tableInfo.get("INDEX_LENGTH");
-                if (indexLength == null) indexLength = tableInfo.get("index_length");
-                
-                versionTableStructure.setTableComment(tableComment);
-                versionTableStructure.setTableType(tableType);
-                versionTableStructure.setEngine(engine);
-                versionTableStructure.setCharset((String) tableInfo.get("TABLE_COLLATION"));
-                versionTableStructure.setCollation((String) tableInfo.get("TABLE_COLLATION"));
-                versionTableStructure.setRowFormat((String) tableInfo.get("ROW_FORMAT"));
-                versionTableStructure.setTableRows(getLongValue(tableRows));
-                versionTableStructure.setAvgRowLength(getLongValue(tableInfo.get("AVG_ROW_LENGTH")));
-                versionTableStructure.setDataLength(getLongValue(dataLength));
-                versionTableStructure.setIndexLength(getLongValue(indexLength));
-                versionTableStructure.setAutoIncrement(getLongValue(tableInfo.get("AUTO_INCREMENT")));
+                versionTableStructure.setTableName(table.tableName());
+                // MySQL没有schema概念，统一为默认schema
+                versionTableStructure.setSchemaName(table.schemaName() != null ? table.schemaName() : "public");
+                versionTableStructure.setTableComment(table.tableComment());
+                versionTableStructure.setTableType(table.tableType());
+                versionTableStructure.setEngine(table.engine());
+                versionTableStructure.setCharset(table.collation());
+                versionTableStructure.setCollation(table.collation());
+                versionTableStructure.setRowFormat(table.rowFormat());
+                versionTableStructure.setTableRows(table.tableRows());
+                versionTableStructure.setAvgRowLength(table.avgRowLength());
+                versionTableStructure.setDataLength(table.dataLength());
+                versionTableStructure.setIndexLength(table.indexLength());
+                versionTableStructure.setAutoIncrement(table.autoIncrement());
+                versionTableStructure.setChangeMarker(table.changeMarker());
+                versionTableStructure.setStatsPending(statisticsDeferred && "BASE TABLE".equalsIgnoreCase(table.tableType()));
                 
                 tableStructures.add(versionTableStructure);
-                tableInfoMap.put(schemaName + "." + tableName, tableInfo);
             }
+            listener.onTablesDiscovered(tableStructures.size());
+            checkCancelled(projectVersionId, listener);
             
-            // 批量插入表结构
-            if (!tableStructures.isEmpty()) {
-                for (VersionTableStructure tableStructure : tableStructures) {
-                    versionTableStructureMapper.insert(tableStructure);
+            // 检查点中变更标记与源库一致的表直接跳过，其余检查点表（源库已变化或已删除）删除后重新采集
+            List<VersionTableStructure> resumedTables = new ArrayList<>();
+            List<VersionTableStructure> pendingTables = new ArrayList<>();
+            for (VersionTableStructure table : tableStructures) {
+                String tableKey = buildTableKey(table.getSchemaName(), table.getTableName());
+                VersionTableStructure saved = checkpointTables.get(tableKey);
+                if (saved != null && table.getChangeMarker() != null && table.getChangeMarker().equals(saved.getChangeMarker())) {
+                    checkpointTables.remove(tableKey);
+                    resumedTables.add(saved);
+                    listener.onTableCaptured(saved.getSchemaName(), saved.getTableName(), 0);
+                } else {
+                    pendingTables.add(table);
                 }
             }
+            deleteCheckpointTables(checkpointTables.values());
+            if (!resumedTables.isEmpty()) {
+                log.info("项目版本 {} 从检查点继续采集：跳过 {} 个已写入的表，待采集 {} 个表",
+                        projectVersionId, resumedTables.size(), pendingTables.size());
+            }
             
-            // 8. 并发处理字段和索引信息
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            // 变更标记与上个版本一致的表直接复用，其余的表需要提取字段和索引
+            Map<VersionTableStructure, TableSnapshot> reusableTables = findReusableTables(pendingTables, previousSnapshot);
+            List<VersionTableStructure> changedTables = pendingTables.stream()
+                    .filter(table -> !reusableTables.containsKey(table))
+                    .collect(Collectors.toList());
             
-            for (VersionTableStructure tableStructure : tableStructures) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+            listener.onPhase("提取字段和索引");
+            Map<String, List<ColumnMeta>> columnsByTable = null;
+            Map<String, List<IndexMeta>> indexesByTable = null;
+            Map<VersionTableStructure, Long> extractMillis = new IdentityHashMap<>();
+            Set<VersionTableStructure> failedTables = Collections.newSetFromMap(new IdentityHashMap<>());
+            boolean bulkExtraction = changedTables.size() > captureProperties.getIncrementalMaxChangedTables()
+                    || (previousSnapshot == null && resumedTables.isEmpty());
+            if (bulkExtraction && !changedTables.isEmpty()) {
+                // 批量获取所有表的字段和索引信息（每类只查询一次，两个查询并行执行），边读取边按表分组
+                CompletableFuture<Map<String, List<ColumnMeta>>> columnsFuture = submitExtraction(datasource, captureSessions,
+                        () -> readSource("批量获取字段", projectVersionId, captureSessions, listener,
+                                () -> groupByTable(consumer -> extractor.forEachTableColumn(datasource, consumer),
+                                        (ColumnMeta column) -> buildTableKey(column.schemaName(), column.tableName()))));
+                CompletableFuture<Map<String, List<IndexMeta>>> indexesFuture = submitExtraction(datasource, captureSessions,
+                        () -> readSource("批量获取索引", projectVersionId, captureSessions, listener,
+                                () -> groupByTable(consumer -> extractor.forEachTableIndex(datasource, consumer),
+                                        (IndexMeta index) -> buildTableKey(index.schemaName(), index.tableName()))));
+                try {
+                    columnsByTable = awaitExtraction(columnsFuture);
+                    indexesByTable = awaitExtraction(indexesFuture);
+                    log.info("批量获取字段和索引完成，表数量: {}，含字段的表: {}，含索引的表: {}",
+                            tablesStructure.size(), columnsByTable.size(), indexesByTable.size());
+                } catch (CaptureCancelledException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    // 一致性快照会话上的查询失败后事务已不可用，不能降级
+                    if (sessions != null) {
+                        throw e;
+                    }
+                    log.warn("批量获取字段和索引失败，改为逐表提取 {} 个表: {}", changedTables.size(), e.getMessage());
+                    columnsByTable = null;
+                    indexesByTable = null;
+                }
+            }
+            if (columnsByTable == null || indexesByTable == null) {
+                // 只有少量表需要提取（或批量提取失败），在逐表线程池上并行提取，每个数据源同时提取的表数量受限
+                // 单个表失败时按退避重试，仍失败的表本次不写入，其余表照常写入检查点
+                columnsByTable = new HashMap<>();
+                indexesByTable = new HashMap<>();
+                List<CompletableFuture<TableExtraction>> futures = new ArrayList<>(changedTables.size());
+                for (VersionTableStructure table : changedTables) {
+                    checkCancelled(projectVersionId, listener);
+                    futures.add(submitExtraction(datasource, captureSessions, () -> readSource(
+                            "提取表 " + buildTableKey(table.getSchemaName(), table.getTableName()),
+                            projectVersionId, captureSessions, listener, () -> extractTable(extractor, datasource, table))));
+                }
+                for (int i = 0; i < changedTables.size(); i++) {
+                    VersionTableStructure table = changedTables.get(i);
+                    String tableKey = buildTableKey(table.getSchemaName(), table.getTableName());
+                    TableExtraction extraction;
                     try {
-                        processTableStructure(datasource, extractor, tableStructure, tableInfoMap);
-                    } catch (Exception e) {
-                        log.error("处理表结构失败: {}/{}", tableStructure.getSchemaName(), tableStructure.getTableName(), e);
+                        extraction = awaitExtraction(futures.get(i));
+                    } catch (CaptureCancelledException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        log.error("表 {} 提取失败: {}", tableKey, e.getMessage());
+                        failedTables.add(table);
+                        continue;
                     }
-                }, schemaCaptureTaskExecutor);
-                
-                futures.add(future);
+                    columnsByTable.put(tableKey, extraction.columns());
+                    indexesByTable.put(tableKey, extraction.indexes());
+                    extractMillis.put(table, extraction.millis());
+                }
+            }
+            checkCancelled(projectVersionId, listener);
+            if (sessions != null) {
+                // 源库读取结束，会话上有查询失败时快照不完整，整个采集按失败处理
+                sessions.checkHealthy();
+                sessions.close();
+                // MySQL的 information_schema 不受一致性读隔离，重新比较变更标记确认读取期间结构没有变化
+                if (!extractor.isCatalogSnapshotIsolated()) {
+                    verifyCatalogUnchanged(projectVersionId, datasource, extractor, tableStructures, listener);
+                }
+            }
+            if (previousSnapshot != null) {
+                log.info("增量采集：基于项目版本 {}，复用 {} 个表，重新提取 {} 个表",
+                        previousSnapshot.getProjectVersionId(), reusableTables.size(), changedTables.size());
             }
             
-            // 等待所有任务完成
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            // 9. 使用提取结果构建字段和索引并计算内容哈希，按检查点分批写入
+            listener.onPhase("保存表结构");
+            int checkpointSize = Math.max(1, captureProperties.getCheckpointTables());
+            List<VersionTableStructure> checkpoint = new ArrayList<>(checkpointSize);
+            Map<VersionTableStructure, List<VersionTableColumn>> tableColumns = new IdentityHashMap<>();
+            Map<VersionTableStructure, List<VersionTableIndex>> tableIndexes = new IdentityHashMap<>();
+            for (VersionTableStructure tableStructure : pendingTables) {
+                checkCancelled(projectVersionId, listener);
+                if (failedTables.contains(tableStructure)) {
+                    continue;
+                }
+                long tableStart = System.currentTimeMillis();
+                List<VersionTableColumn> columns;
+                List<VersionTableIndex> indexes;
+                TableSnapshot previousTable = reusableTables.get(tableStructure);
+                if (previousTable != null) {
+                    columns = copyColumns(previousTable.getColumns());
+                    indexes = copyIndexes(previousTable.getIndexes());
+                } else {
+                    String tableKey = buildTableKey(tableStructure.getSchemaName(), tableStructure.getTableName());
+                    columns = buildTableColumns(tableStructure,
+                            columnsByTable.getOrDefault(tableKey, Collections.emptyList()));
+                    indexes = buildTableIndexes(tableStructure,
+                            indexesByTable.getOrDefault(tableKey, Collections.emptyList()));
+                }
+                tableStructure.setContentHash(SchemaHashUtil.tableHash(tableStructure, columns, indexes));
+                tableColumns.put(tableStructure, columns);
+                tableIndexes.put(tableStructure, indexes);
+                checkpoint.add(tableStructure);
+                listener.onTableCaptured(tableStructure.getSchemaName(), tableStructure.getTableName(),
+                        System.currentTimeMillis() - tableStart + extractMillis.getOrDefault(tableStructure, 0L));
+                if (checkpoint.size() >= checkpointSize) {
+                    saveCheckpoint(projectVersionId, checkpoint, tableColumns, tableIndexes);
+                    checkpoint = new ArrayList<>(checkpointSize);
+                    tableColumns.clear();
+                    tableIndexes.clear();
+                }
+            }
+            saveCheckpoint(projectVersionId, checkpoint, tableColumns, tableIndexes);
+            
+            if (!failedTables.isEmpty()) {
+                List<String> failedNames = failedTables.stream()
+                        .map(table -> buildTableKey(table.getSchemaName(), table.getTableName()))
+                        .sorted()
+                        .collect(Collectors.toList());
+                throw new IllegalStateException(String.format("%d 个表提取失败，其余表已保存，重新采集时只提取失败的表: %s",
+                        failedNames.size(), failedNames.size() > 20 ? failedNames.subList(0, 20) + " ..." : failedNames));
+            }
+            
+            // 10. 所有表写入后保存数据库结构信息，版本采集完成
+            List<VersionTableStructure> allTables = new ArrayList<>(resumedTables.size() + pendingTables.size());
+            allTables.addAll(resumedTables);
+            allTables.addAll(pendingTables);
+            versionDatabaseSchema.setSchemaHash(SchemaHashUtil.schemaHash(allTables));
+            versionDatabaseSchemaMapper.insert(versionDatabaseSchema);
+            log.info("项目版本 {} 结构保存完成: {} 个表（从检查点跳过 {} 个）",
+                    projectVersionId, allTables.size(), resumedTables.size());
+            
+            // 采集期间可能有请求加载了未完成的快照，采集完成后再失效一次
+            evictVersionCaches(projectVersionId);
+            
+            // 11. 预先计算与上一个版本的差异（失败不影响采集结果，对比时照常计算）
+            if (captureProperties.isMaterializeDiff()) {
+                listener.onPhase("计算与上个版本的差异");
+                materializeDiffToPrevious(projectVersionId);
+            }
             
             return true;
+        } catch (CaptureCancelledException e) {
+            log.info("项目版本 {} 的结构采集已取消", projectVersionId);
+            throw e;
         } catch (Exception e) {
             log.error("捕获数据库结构失败: {}", e.getMessage(), e);
+            listener.onFailure(e);
             return false;
+        } finally {
+            if (sessions != null) {
+                sessions.close();
+            }
         }
     }
     
     /**
-     * 处理单个表的字段和索引信息
+     * 加载上次中断的采集已写入的表（检查点）
+     * 版本已有数据库结构信息说明上次采集已完成，此时删除原有数据重新采集，没有可继续的检查点
+     * @return schema.table -> 已写入的表结构
      */
-    private void processTableStructure(Datasource datasource, DatabaseSchemaExtractor extractor, 
-                                      VersionTableStructure tableStructure, 
-                                      Map<String, Map<String, Object>> tableInfoMap) {
-        Long versionTableId = tableStructure.getId();
-        String schemaName = tableStructure.getSchemaName();
-        String tableName = tableStructure.getTableName();
+    private Map<String, VersionTableStructure> loadCheckpoints(Long projectVersionId) {
+        Map<String, VersionTableStructure> checkpointTables = new HashMap<>();
+        if (getVersionDatabaseSchema(projectVersionId) != null) {
+            deleteExistingVersionData(projectVersionId);
+            return checkpointTables;
+        }
+        QueryWrapper<VersionTableStructure> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("project_version_id", projectVersionId);
+        for (VersionTableStructure table : versionTableStructureMapper.selectList(queryWrapper)) {
+            checkpointTables.put(buildTableKey(table.getSchemaName(), table.getTableName()), table);
+        }
+        if (!checkpointTables.isEmpty()) {
+            log.info("项目版本 {} 上次采集未完成，已写入 {} 个表", projectVersionId, checkpointTables.size());
+        }
+        return checkpointTables;
+    }
+    
+    /**
+     * 重新读取表列表并与采集开始时的变更标记比较
+     * 目录不受快照隔离的数据库（MySQL）在一致性快照采集期间仍会读到并发执行的DDL，
+     * 有表新增、删除或结构变化时整个采集按失败处理（此时还没有写入任何表），避免版本混合不同时间点的结构
+     */
+    private void verifyCatalogUnchanged(Long projectVersionId, Datasource datasource, DatabaseSchemaExtractor extractor,
+                                        List<VersionTableStructure> tableStructures, CaptureProgressListener listener) {
+        listener.onPhase("校验采集期间结构未变化");
+        List<TableMeta> currentTables = readSource("重新读取表列表", projectVersionId, null, listener,
+                () -> extractor.getTablesStructure(datasource));
+        Map<String, String> currentMarkers = new HashMap<>();
+        for (TableMeta table : currentTables) {
+            if (table.tableName() == null || table.tableName().trim().isEmpty()) {
+                continue;
+            }
+            currentMarkers.put(buildTableKey(table.schemaName() != null ? table.schemaName() : "public", table.tableName()),
+                    table.changeMarker());
+        }
+        List<String> changedTables = new ArrayList<>();
+        for (VersionTableStructure table : tableStructures) {
+            String tableKey = buildTableKey(table.getSchemaName(), table.getTableName());
+            if (!currentMarkers.containsKey(tableKey)
+                    || !Objects.equals(currentMarkers.remove(tableKey), table.getChangeMarker())) {
+                changedTables.add(tableKey);
+            }
+        }
+        changedTables.addAll(currentMarkers.keySet());
+        if (!changedTables.isEmpty()) {
+            Collections.sort(changedTables);
+            throw new IllegalStateException(String.format("采集期间 %d 个表的结构发生变化，请重新采集: %s",
+                    changedTables.size(), changedTables.size() > 20 ? changedTables.subList(0, 20) + " ..." : changedTables));
+        }
+    }
+    
+    /**
+     * 删除已失效的检查点表（源库中已删除，或变更标记已变化）及其字段和索引
+     */
+    private void deleteCheckpointTables(Collection<VersionTableStructure> tables) {
+        if (tables.isEmpty()) {
+            return;
+        }
+        // 表结构与其字段、索引按批在同一个事务中删除，中途中断时不会留下缺少字段的检查点表
+        versionDataPurgeService.purgeTables(tables);
+        log.info("删除了 {} 个已失效的检查点表", tables.size());
+    }
+    
+    /**
+     * 写入一个检查点：这批表的表结构、字段和索引在同一个事务中写入，提交后重新采集时直接跳过这些表
+     */
+    private void saveCheckpoint(Long projectVersionId, List<VersionTableStructure> tableStructures,
+                                Map<VersionTableStructure, List<VersionTableColumn>> tableColumns,
+                                Map<VersionTableStructure, List<VersionTableIndex>> tableIndexes) {
+        if (tableStructures.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // 启用表定义去重时，字段和索引按内容哈希写入共享表定义（已存在的定义直接引用）
+            if (captureProperties.isDedupDefinitions()) {
+                Map<String, Long> definitionIds = resolveTableDefinitions(projectVersionId, tableStructures, tableColumns, tableIndexes);
+                for (VersionTableStructure tableStructure : tableStructures) {
+                    tableStructure.setDefinitionId(definitionIds.get(tableStructure.getContentHash()));
+                }
+            }
+            
+            // 批量插入表结构（多行INSERT），再按唯一键回查生成的ID
+            insertInBatches(tableStructures, versionTableStructureMapper::insertBatch);
+            assignTableIds(projectVersionId, tableStructures);
+            if (captureProperties.isDedupDefinitions()) {
+                return;
+            }
+            
+            // 未启用去重时，回填表ID后这批表的字段和索引合并批量写入
+            List<VersionTableColumn> allColumns = new ArrayList<>();
+            List<VersionTableIndex> allIndexes = new ArrayList<>();
+            for (VersionTableStructure tableStructure : tableStructures) {
+                if (tableStructure.getId() == null) {
+                    log.warn("未找到表结构ID，跳过: {}.{}", tableStructure.getSchemaName(), tableStructure.getTableName());
+                    continue;
+                }
+                for (VersionTableColumn column : tableColumns.get(tableStructure)) {
+                    column.setVersionTableId(tableStructure.getId());
+                    column.setProjectVersionId(projectVersionId);
+                    allColumns.add(column);
+                }
+                for (VersionTableIndex index : tableIndexes.get(tableStructure)) {
+                    index.setVersionTableId(tableStructure.getId());
+                    index.setProjectVersionId(projectVersionId);
+                    allIndexes.add(index);
+                }
+            }
+            insertInBatches(allColumns, versionTableColumnMapper::insertBatch);
+            insertInBatches(allIndexes, versionTableIndexMapper::insertBatch);
+        });
+        log.debug("项目版本 {} 写入检查点: {} 个表", projectVersionId, tableStructures.size());
+    }
+    
+    /**
+     * 执行源库读取，失败时按指数退避重试
+     * 启用一致性快照采集时不重试：事务中的查询失败后会话已不可用，整个采集按失败处理
+     * @param target 读取内容描述（用于日志）
+     */
+    private <T> T readSource(String target, Long projectVersionId, CaptureSessions sessions,
+                             CaptureProgressListener listener, Supplier<T> read) {
+        int attempts = sessions == null ? Math.max(1, captureProperties.getRetryAttempts()) : 1;
+        long backoffMillis = captureProperties.getRetryBackoffMillis();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return read.get();
+            } catch (CaptureCancelledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                log.warn("{}失败（第 {}/{} 次），{} ms 后重试: {}", target, attempt, attempts, backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待重试时被中断", ie);
+                }
+                checkCancelled(projectVersionId, listener);
+                backoffMillis *= 2;
+            }
+        }
+    }
+    
+    /**
+     * 在采集会话上执行源库读取，未启用一致性快照采集时直接执行
+     */
+    private <T> T onSession(CaptureSessions sessions, Supplier<T> task) {
+        return sessions == null ? task.get() : sessions.call(task);
+    }
+    
+    /**
+     * 在逐表执行器上执行源库提取，每个数据源同时进行的提取数量受并发许可限制
+     * 线程池方式下由提交方先获取许可再提交，避免工作线程阻塞在许可上；
+     * 虚拟线程方式下直接提交，由虚拟线程自己等待许可，等待中的虚拟线程不占用系统线程。
+     * 启用一致性快照采集时，任务在借出的采集会话上执行
+     */
+    private <T> CompletableFuture<T> submitExtraction(Datasource datasource, CaptureSessions sessions, Supplier<T> extraction) {
+        Supplier<T> task = () -> onSession(sessions, extraction);
+        if (captureProperties.useVirtualThreads()) {
+            return CompletableFuture.supplyAsync(() -> {
+                acquirePermit(datasource);
+                try {
+                    return task.get();
+                } finally {
+                    datasourceConcurrencyLimiter.release(datasource);
+                }
+            }, schemaTableTaskExecutor);
+        }
+        acquirePermit(datasource);
+        try {
+            return CompletableFuture.supplyAsync(task, schemaTableTaskExecutor)
+                    .whenComplete((result, error) -> datasourceConcurrencyLimiter.release(datasource));
+        } catch (RejectedExecutionException e) {
+            datasourceConcurrencyLimiter.release(datasource);
+            throw e;
+        }
+    }
+    
+    private void acquirePermit(Datasource datasource) {
+        try {
+            datasourceConcurrencyLimiter.acquire(datasource);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待数据源并发许可时被中断", e);
+        }
+    }
+    
+    /**
+     * 等待提取结果，提取异常原样抛出
+     */
+    private <T> T awaitExtraction(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("提取表结构失败: " + cause.getMessage(), cause);
+        }
+    }
+    
+    /**
+     * 提取单个表的字段和索引
+     */
+    private TableExtraction extractTable(DatabaseSchemaExtractor extractor, Datasource datasource, VersionTableStructure table) {
+        long start = System.currentTimeMillis();
+        List<ColumnMeta> columns = extractor.getTableColumns(datasource, table.getSchemaName(), table.getTableName());
+        List<IndexMeta> indexes = extractor.getTableIndexes(datasource, table.getSchemaName(), table.getTableName());
+        return new TableExtraction(columns, indexes, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * 单表提取结果
+     */
+    private record TableExtraction(List<ColumnMeta> columns, List<IndexMeta> indexes, long millis) {
+    }
+    
+    /**
+     * 采集检查点：监听器已请求取消时中断采集
+     */
+    private void checkCancelled(Long projectVersionId, CaptureProgressListener listener) {
+        if (listener.isCancelled()) {
+            throw new CaptureCancelledException(projectVersionId);
+        }
+    }
+    
+    /**
+     * 按内容哈希解析表定义ID：已存在的定义直接引用，不存在的新建并写入字段和索引
+     * 内容相同的多个表共用一个定义，字段和索引只写入一次
+     * @return 内容哈希 -> 表定义ID
+     */
+    private Map<String, Long> resolveTableDefinitions(Long projectVersionId, List<VersionTableStructure> tableStructures,
+                                                      Map<VersionTableStructure, List<VersionTableColumn>> tableColumns,
+                                                      Map<VersionTableStructure, List<VersionTableIndex>> tableIndexes) {
+        Map<String, VersionTableStructure> tablesByHash = new LinkedHashMap<>();
+        for (VersionTableStructure tableStructure : tableStructures) {
+            tablesByHash.putIfAbsent(tableStructure.getContentHash(), tableStructure);
+        }
         
-        // 构建表信息键
-        String tableKey = schemaName + "." + tableName;
-        Map<String, Object> tableInfo = tableInfoMap.get(tableKey);
+        // 按内容哈希排序，并发采集按相同顺序加锁
+        List<String> contentHashes = tablesByHash.keySet().stream().sorted().collect(Collectors.toList());
         
-        if (tableInfo == null) {
-            log.warn("未找到表信息: {}", tableKey);
+        // 先不加锁地找出缺少的定义并INSERT IGNORE写入（并发采集相同内容时只保留一份），
+        // 再对全部定义加共享锁读取：此时记录都已存在，只锁记录不锁间隙，两个采集不会因间隙锁互相阻塞插入而死锁
+        Set<String> existingHashes = new HashSet<>();
+        for (int i = 0; i < contentHashes.size(); i += INSERT_BATCH_SIZE) {
+            List<String> chunk = contentHashes.subList(i, Math.min(i + INSERT_BATCH_SIZE, contentHashes.size()));
+            for (TableDefinition definition : tableDefinitionMapper.selectByContentHashes(chunk)) {
+                existingHashes.add(definition.getContentHash());
+            }
+        }
+        List<String> missingHashes = contentHashes.stream()
+                .filter(contentHash -> !existingHashes.contains(contentHash))
+                .collect(Collectors.toList());
+        insertMissingDefinitions(projectVersionId, missingHashes, tablesByHash, tableColumns, tableIndexes);
+        
+        Map<String, Long> definitionIds = new HashMap<>();
+        List<TableDefinition> definitions = selectDefinitions(contentHashes);
+        if (definitions.size() < contentHashes.size()) {
+            // 两次读取之间定义被清理任务删除（已不再被引用），重新写入后再加锁读取
+            Set<String> locked = definitions.stream().map(TableDefinition::getContentHash).collect(Collectors.toSet());
+            List<String> purgedHashes = contentHashes.stream().filter(contentHash -> !locked.contains(contentHash))
+                    .collect(Collectors.toList());
+            insertMissingDefinitions(projectVersionId, purgedHashes, tablesByHash, tableColumns, tableIndexes);
+            definitions.addAll(selectDefinitions(purgedHashes));
+            missingHashes = new ArrayList<>(missingHashes);
+            missingHashes.addAll(purgedHashes);
+        }
+        if (missingHashes.isEmpty()) {
+            definitions.forEach(definition -> definitionIds.put(definition.getContentHash(), definition.getId()));
+            log.info("项目版本 {} 的 {} 个表定义均已存在，无需写入字段和索引", projectVersionId, tablesByHash.size());
+            return definitionIds;
+        }
+        
+        // 只有本次创建的定义才写入字段和索引
+        Set<String> created = new HashSet<>(missingHashes);
+        List<VersionTableColumn> newColumns = new ArrayList<>();
+        List<VersionTableIndex> newIndexes = new ArrayList<>();
+        for (TableDefinition definition : definitions) {
+            definitionIds.put(definition.getContentHash(), definition.getId());
+            if (!created.contains(definition.getContentHash())
+                    || !projectVersionId.equals(definition.getCreatedByVersionId())) {
+                continue;
+            }
+            VersionTableStructure tableStructure = tablesByHash.get(definition.getContentHash());
+            for (VersionTableColumn column : tableColumns.get(tableStructure)) {
+                column.setVersionTableId(null);
+                column.setProjectVersionId(SHARED_DEFINITION_VERSION_ID);
+                column.setDefinitionId(definition.getId());
+                newColumns.add(column);
+            }
+            for (VersionTableIndex index : tableIndexes.get(tableStructure)) {
+                index.setVersionTableId(null);
+                index.setProjectVersionId(SHARED_DEFINITION_VERSION_ID);
+                index.setDefinitionId(definition.getId());
+                newIndexes.add(index);
+            }
+        }
+        insertInBatches(newColumns, versionTableColumnMapper::insertBatch);
+        insertInBatches(newIndexes, versionTableIndexMapper::insertBatch);
+        log.info("项目版本 {} 共 {} 个表定义，新建 {} 个，写入 {} 个字段，{} 个索引",
+                projectVersionId, tablesByHash.size(), missingHashes.size(), newColumns.size(), newIndexes.size());
+        return definitionIds;
+    }
+    
+    /**
+     * INSERT IGNORE写入缺少的表定义（内容哈希已排序），已存在的记录被忽略
+     */
+    private void insertMissingDefinitions(Long projectVersionId, List<String> contentHashes,
+                                          Map<String, VersionTableStructure> tablesByHash,
+                                          Map<VersionTableStructure, List<VersionTableColumn>> tableColumns,
+                                          Map<VersionTableStructure, List<VersionTableIndex>> tableIndexes) {
+        List<TableDefinition> definitions = new ArrayList<>(contentHashes.size());
+        for (String contentHash : contentHashes) {
+            VersionTableStructure tableStructure = tablesByHash.get(contentHash);
+            TableDefinition definition = new TableDefinition();
+            definition.setContentHash(contentHash);
+            definition.setColumnCount(tableColumns.get(tableStructure).size());
+            definition.setIndexCount(tableIndexes.get(tableStructure).size());
+            definition.setCreatedByVersionId(projectVersionId);
+            definitions.add(definition);
+        }
+        insertInBatches(definitions, tableDefinitionMapper::insertIgnoreBatch);
+    }
+    
+    /**
+     * 分批按内容哈希查询表定义并加共享锁，防止引用期间被清理任务删除
+     */
+    private List<TableDefinition> selectDefinitions(List<String> contentHashes) {
+        List<TableDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < contentHashes.size(); i += INSERT_BATCH_SIZE) {
+            List<String> chunk = contentHashes.subList(i, Math.min(i + INSERT_BATCH_SIZE, contentHashes.size()));
+            definitions.addAll(tableDefinitionMapper.selectByContentHashesForShare(chunk));
+        }
+        return definitions;
+    }
+    
+    /**
+     * 查找项目上一个已采集版本的结构快照（增量采集的基准）
+     */
+    private SchemaSnapshot findPreviousSnapshot(Long projectVersionId) {
+        ProjectVersion previous = findPreviousVersion(projectVersionId);
+        if (previous == null) {
+            return null;
+        }
+        SchemaSnapshot snapshot = getSchemaSnapshot(previous.getId());
+        return snapshot.hasDatabaseSchema() ? snapshot : null;
+    }
+    
+    /**
+     * 查找同一项目中ID小于当前版本的最近一个有效版本
+     */
+    private ProjectVersion findPreviousVersion(Long projectVersionId) {
+        ProjectVersion current = projectVersionMapper.selectById(projectVersionId);
+        if (current == null) {
+            return null;
+        }
+        QueryWrapper<ProjectVersion> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("project_id", current.getProjectId());
+        queryWrapper.eq("status", 1);
+        queryWrapper.lt("id", projectVersionId);
+        queryWrapper.orderByDesc("id");
+        queryWrapper.last("LIMIT 1");
+        return projectVersionMapper.selectOne(queryWrapper);
+    }
+    
+    /**
+     * 计算并保存与项目上一个版本的差异，上一个版本不存在或尚未完成采集时跳过
+     */
+    private void materializeDiffToPrevious(Long projectVersionId) {
+        try {
+            ProjectVersion previous = findPreviousVersion(projectVersionId);
+            if (previous == null) {
+                return;
+            }
+            VersionDatabaseSchema fromSchema = getVersionDatabaseSchema(previous.getId());
+            VersionDatabaseSchema toSchema = getVersionDatabaseSchema(projectVersionId);
+            if (fromSchema == null || toSchema == null) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Map<String, Object> diff = compareVersions(previous.getId(), projectVersionId);
+            if (diff.containsKey("error")) {
+                return;
+            }
+            VersionDiff versionDiff = new VersionDiff();
+            versionDiff.setFromVersionId(previous.getId());
+            versionDiff.setToVersionId(projectVersionId);
+            versionDiff.setFromSchemaId(fromSchema.getId());
+            versionDiff.setToSchemaId(toSchema.getId());
+            versionDiff.setDiffContent(compressDiff(diff));
+            versionDiffMapper.upsert(versionDiff);
+            log.info("已保存项目版本 {} -> {} 的差异，压缩大小: {} 字节，耗时: {}ms", previous.getId(), projectVersionId,
+                    versionDiff.getDiffContent().length, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("预先计算项目版本 {} 与上个版本的差异失败: {}", projectVersionId, e.getMessage());
+        }
+    }
+    
+    /**
+     * 读取预先计算的差异，没有结果或任一版本已重新采集（数据库结构信息ID变化）时返回 null
+     */
+    private Map<String, Object> loadMaterializedDiff(Long fromVersionId, Long toVersionId,
+                                                     VersionDatabaseSchema fromSchema, VersionDatabaseSchema toSchema) {
+        if (fromSchema == null || toSchema == null) {
+            return null;
+        }
+        VersionDiff versionDiff = versionDiffMapper.selectByVersionPair(fromVersionId, toVersionId);
+        if (versionDiff == null || !Objects.equals(versionDiff.getFromSchemaId(), fromSchema.getId())
+                || !Objects.equals(versionDiff.getToSchemaId(), toSchema.getId())) {
+            return null;
+        }
+        try {
+            return decompressDiff(versionDiff.getDiffContent());
+        } catch (IOException e) {
+            log.warn("读取项目版本 {} -> {} 的预先计算差异失败，重新对比: {}", fromVersionId, toVersionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    private byte[] compressDiff(Map<String, Object> diff) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, diff);
+        }
+        return out.toByteArray();
+    }
+    
+    private Map<String, Object> decompressDiff(byte[] content) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return objectMapper.readValue(gzip, new TypeReference<LinkedHashMap<String, Object>>() {});
+        }
+    }
+    
+    /**
+     * 找出可以复用上个版本数据的表：同名表的变更标记一致且上个版本已有内容哈希
+     */
+    private Map<VersionTableStructure, TableSnapshot> findReusableTables(List<VersionTableStructure> tableStructures,
+                                                                        SchemaSnapshot previousSnapshot) {
+        Map<VersionTableStructure, TableSnapshot> reusable = new IdentityHashMap<>();
+        if (previousSnapshot == null) {
+            return reusable;
+        }
+        Map<String, TableSnapshot> previousTables = new HashMap<>();
+        for (TableSnapshot table : previousSnapshot.getTables()) {
+            previousTables.put(buildTableKey(table.getSchemaName(), table.getTableName()), table);
+        }
+        for (VersionTableStructure table : tableStructures) {
+            TableSnapshot previous = previousTables.get(buildTableKey(table.getSchemaName(), table.getTableName()));
+            if (previous != null
+                    && table.getChangeMarker() != null
+                    && table.getChangeMarker().equals(previous.getChangeMarker())
+                    && previous.getContentHash() != null) {
+                reusable.put(table, previous);
+            }
+        }
+        return reusable;
+    }
+    
+    /**
+     * 复制上个版本的字段，去掉ID、所属表和定义ID，作为本版本的新行写入
+     */
+    private List<VersionTableColumn> copyColumns(List<VersionTableColumn> source) {
+        List<VersionTableColumn> columns = new ArrayList<>(source.size());
+        for (VersionTableColumn sourceColumn : source) {
+            VersionTableColumn column = new VersionTableColumn();
+            BeanUtils.copyProperties(sourceColumn, column, "id", "projectVersionId", "versionTableId", "definitionId", "createTime");
+            columns.add(column);
+        }
+        return columns;
+    }
+    
+    /**
+     * 复制上个版本的索引，去掉ID、所属表和定义ID，作为本版本的新行写入
+     */
+    private List<VersionTableIndex> copyIndexes(List<VersionTableIndex> source) {
+        List<VersionTableIndex> indexes = new ArrayList<>(source.size());
+        for (VersionTableIndex sourceIndex : source) {
+            VersionTableIndex index = new VersionTableIndex();
+            BeanUtils.copyProperties(sourceIndex, index, "id", "projectVersionId", "versionTableId", "definitionId", "createTime");
+            indexes.add(index);
+        }
+        return indexes;
+    }
+    
+    /**
+     * 将批量查询流式返回的字段/索引按 schema.table 分组，保持原有顺序
+     * @param source 来源，按顺序把每一条交给传入的consumer
+     * @param tableKey 分组键
+     */
+    private <T> Map<String, List<T>> groupByTable(Consumer<Consumer<T>> source, Function<T, String> tableKey) {
+        Map<String, List<T>> result = new HashMap<>();
+        source.accept(item -> result.computeIfAbsent(tableKey.apply(item), k -> new ArrayList<>()).add(item));
+        return result;
+    }
+    
+    /**
+     * 构建表的分组键：schemaName.tableName
+     */
+    private String buildTableKey(String schemaName, String tableName) {
+        return (schemaName != null ? schemaName : "public") + "." + tableName;
+    }
+    
+    /**
+     * 分批执行多行INSERT，避免单条SQL过长
+     */
+    private <T> void insertInBatches(List<T> rows, Function<List<T>, Integer> batchInserter) {
+        for (int i = 0; i < rows.size(); i += INSERT_BATCH_SIZE) {
+            int end = Math.min(i + INSERT_BATCH_SIZE, rows.size());
+            batchInserter.apply(rows.subList(i, end));
+        }
+    }
+    
+    /**
+     * 批量插入表结构后，按 (schema_name, table_name) 唯一键回查并回填ID（只查询本批表名）
+     */
+    private void assignTableIds(Long projectVersionId, List<VersionTableStructure> tableStructures) {
+        if (tableStructures.isEmpty()) {
             return;
         }
+        QueryWrapper<VersionTableStructure> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "schema_name", "table_name");
+        queryWrapper.eq("project_version_id", projectVersionId);
+        queryWrapper.in("table_name", tableStructures.stream()
+                .map(VersionTableStructure::getTableName)
+                .distinct()
+                .collect(Collectors.toList()));
+        Map<String, Long> idMap = new HashMap<>();
+        for (VersionTableStructure saved : versionTableStructureMapper.selectList(queryWrapper)) {
+            idMap.put(buildTableKey(saved.getSchemaName(), saved.getTableName()), saved.getId());
+        }
+        for (VersionTableStructure tableStructure : tableStructures) {
+            tableStructure.setId(idMap.get(buildTableKey(tableStructure.getSchemaName(), tableStructure.getTableName())));
+        }
+    }
+    
+    /**
+     * 构建单个表的字段实体
+     * @param tableStructure 表结构
+     * @param columns 该表的字段行（来自批量查询）
+     * @return 字段实体列表，同名字段只保留一条（优先保留主键标记）
+     */
+    private List<VersionTableColumn> buildTableColumns(VersionTableStructure tableStructure,
+                                                       List<ColumnMeta> columns) {
+        Long versionTableId = tableStructure.getId();
         
-        // 保存表字段信息
-        List<Map<String, Object>> columns = extractor.getTableColumns(datasource, schemaName, tableName);
-        List<VersionTableColumn> allColumns = new ArrayList<>();
-        for (Map<String, Object> columnInfo : columns) {
+        // 字段与多个约束关联时查询会返回重复行，按字段名去重
+        Map<String, VersionTableColumn> columnMap = new LinkedHashMap<>();
+        for (ColumnMeta column : columns) {
             VersionTableColumn versionTableColumn = new VersionTableColumn();
             versionTableColumn.setVersionTableId(versionTableId);
+            versionTableColumn.setColumnName(column.columnName());
+            versionTableColumn.setOrdinalPosition(column.ordinalPosition());
+            versionTableColumn.setColumnDefault(column.columnDefault());
+            versionTableColumn.setIsNullable(column.isNullable());
+            versionTableColumn.setDataType(column.dataType());
+            versionTableColumn.setCharacterMaximumLength(column.characterMaximumLength());
+            versionTableColumn.setCharacterOctetLength(column.characterOctetLength());
+            versionTableColumn.setNumericPrecision(column.numericPrecision());
+            versionTableColumn.setNumericScale(column.numericScale());
+            versionTableColumn.setDatetimePrecision(column.datetimePrecision());
+            versionTableColumn.setCharacterSetName(column.characterSetName());
+            versionTableColumn.setCollationName(column.collationName());
+            versionTableColumn.setColumnType(column.columnType());
+            versionTableColumn.setColumnKey(column.columnKey());
+            versionTableColumn.setExtra(column.extra());
+            versionTableColumn.setColumnComment(column.columnComment());
             
-            // 处理字段名大小写差异
-            String columnName = (String) columnInfo.get("COLUMN_NAME");
-            if (columnName == null) columnName = (String) columnInfo.get("column_name");
-            
-            Object ordinalPosition = columnInfo.get("ORDINAL_POSITION");
-            if (ordinalPosition == null) ordinalPosition = columnInfo.get("ordinal_position");
-            
-            String columnDefault = (String) columnInfo.get("COLUMN_DEFAULT");
-            if (columnDefault == null) columnDefault = (String) columnInfo.get("column_default");
-            
-            String isNullable = (String) columnInfo.get("IS_NULLABLE");
-            if (isNullable == null) isNullable = (String) columnInfo.get("is_nullable");
-            
-            String dataType = (String) columnInfo.get("DATA_TYPE");
-            if (dataType == null) dataType = (String) columnInfo.get("data_type");
-            
-            Object characterMaxLength = columnInfo.get("CHARACTER_MAXIMUM_LENGTH");
-            if (characterMaxLength == null) characterMaxLength = columnInfo.get("character_maximum_length");
-            
-            Object characterOctetLength = columnInfo.get("CHARACTER_OCTET_LENGTH");
-            if (characterOctetLength == null) characterOctetLength = columnInfo.get("character_octet_length");
-            
-            Object numericPrecision = columnInfo.get("NUMERIC_PRECISION");
-            if (numericPrecision == null) numericPrecision = columnInfo.get("numeric_precision");
-            
-            Object numericScale = columnInfo.get("NUMERIC_SCALE");
-            if (numericScale == null) numericScale = columnInfo.get("numeric_scale");
-            
-            Object datetimePrecision = columnInfo.get("DATETIME_PRECISION");
-            if (datetimePrecision == null) datetimePrecision = columnInfo.get("datetime_precision");
-            
-            String characterSetName = (String) columnInfo.get("CHARACTER_SET_NAME");
-            if (characterSetName == null) characterSetName = (String) columnInfo.get("character_set_name");
-            
-            String collationName = (String) columnInfo.get("COLLATION_NAME");
-            if (collationName == null) collationName = (String) columnInfo.get("collation_name");
-            
-            String columnType = (String) columnInfo.get("COLUMN_TYPE");
-            if (columnType == null) columnType = (String) columnInfo.get("column_type");
-            
-            String columnKey = (String) columnInfo.get("COLUMN_KEY");
-            if (columnKey == null) columnKey = (String) columnInfo.get("column_key");
-            
-            String extra = (String) columnInfo.get("EXTRA");
-            if (extra == null) extra = (String) columnInfo.get("extra");
-            
-            String columnComment = (String) columnInfo.get("COLUMN_COMMENT");
-            if (columnComment == null) columnComment = (String) columnInfo.get("column_comment");
-            
-            versionTableColumn.setColumnName(columnName);
-            versionTableColumn.setOrdinalPosition(getIntValue(ordinalPosition));
-            versionTableColumn.setColumnDefault(columnDefault);
-            versionTableColumn.setIsNullable(isNullable);
-            versionTableColumn.setDataType(dataType);
-            versionTableColumn.setCharacterMaximumLength(getLongValue(characterMaxLength));
-            versionTableColumn.setCharacterOctetLength(getLongValue(characterOctetLength));
-            versionTableColumn.setNumericPrecision(getIntValue(numericPrecision));
-            versionTableColumn.setNumericScale(getIntValue(numericScale));
-            versionTableColumn.setDatetimePrecision(getIntValue(datetimePrecision));
-            versionTableColumn.setCharacterSetName(characterSetName);
-            versionTableColumn.setCollationName(collationName);
-            versionTableColumn.setColumnType(columnType);
-            versionTableColumn.setColumnKey(columnKey);
-            versionTableColumn.setExtra(extra);
-            versionTableColumn.setColumnComment(columnComment);
-            allColumns.add(versionTableColumn);
-        }
-        
-        // 批量插入字段信息
-        if (!allColumns.isEmpty()) {
-            // 分批插入，避免SQL过长
-            int batchSize = 1000;
-            for (int i = 0; i < allColumns.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, allColumns.size());
-                List<VersionTableColumn> batch = allColumns.subList(i, end);
-                for (VersionTableColumn column : batch) {
-                    versionTableColumnMapper.insert(column);
-                }
+            VersionTableColumn existing = columnMap.get(column.columnName());
+            if (existing == null || (!"PRI".equals(existing.getColumnKey()) && "PRI".equals(column.columnKey()))) {
+                columnMap.put(column.columnName(), versionTableColumn);
             }
         }
         
-        // 保存表索引信息
-        List<Map<String, Object>> indexes = extractor.getTableIndexes(datasource, schemaName, tableName);
-        Map<String, List<Map<String, Object>>> indexGroups = groupIndexesByName(indexes);
+        return new ArrayList<>(columnMap.values());
+    }
+    
+    /**
+     * 构建单个表的索引实体
+     * @param tableStructure 表结构
+     * @param indexes 该表的索引行（来自批量查询，每个索引字段一行）
+     * @return 索引实体列表
+     */
+    private List<VersionTableIndex> buildTableIndexes(VersionTableStructure tableStructure,
+                                                      List<IndexMeta> indexes) {
+        Long versionTableId = tableStructure.getId();
+        String tableName = tableStructure.getTableName();
+        
+        Map<String, List<IndexMeta>> indexGroups = groupIndexesByName(indexes);
         
         List<VersionTableIndex> allIndexes = new ArrayList<>();
-        for (Map.Entry<String, List<Map<String, Object>>> entry : indexGroups.entrySet()) {
+        for (Map.Entry<String, List<IndexMeta>> entry : indexGroups.entrySet()) {
             String indexName = entry.getKey();
-            List<Map<String, Object>> indexColumns = entry.getValue();
+            List<IndexMeta> indexColumns = entry.getValue();
             
             // 跳过空的索引名
             if (indexName == null || indexName.trim().isEmpty()) {
@@ -329,38 +1044,21 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
             }
             
             if (!indexColumns.isEmpty()) {
-                Map<String, Object> firstIndex = indexColumns.get(0);
+                IndexMeta firstIndex = indexColumns.get(0);
                 
                 VersionTableIndex versionTableIndex = new VersionTableIndex();
                 versionTableIndex.setVersionTableId(versionTableId);
                 versionTableIndex.setIndexName(indexName);
-                
-                // 处理字段名大小写差异
-                String indexType = (String) firstIndex.get("INDEX_TYPE");
-                if (indexType == null) indexType = (String) firstIndex.get("index_type");
-                
-                Object nonUnique = firstIndex.get("NON_UNIQUE");
-                if (nonUnique == null) nonUnique = firstIndex.get("non_unique");
-                
-                String indexComment = (String) firstIndex.get("INDEX_COMMENT");
-                if (indexComment == null) indexComment = (String) firstIndex.get("index_comment");
-                
-                versionTableIndex.setIndexType(indexType);
-                versionTableIndex.setIsUnique(!getBooleanValue(nonUnique));
-                versionTableIndex.setIsPrimary("PRIMARY".equals(indexName));
+                versionTableIndex.setIndexType(firstIndex.indexType());
+                versionTableIndex.setIsUnique(firstIndex.unique());
+                versionTableIndex.setIsPrimary(firstIndex.primary());
                 
                 // 构建字段名数组
-                List<String> columnNames = new ArrayList<>();
-                List<String> subParts = new ArrayList<>();
-                
-                for (Map<String, Object> indexColumn : indexColumns) {
-                    String columnName = (String) indexColumn.get("COLUMN_NAME");
-                    if (columnName == null) columnName = (String) indexColumn.get("column_name");
-                    columnNames.add(columnName);
-                    
-                    Object subPart = indexColumn.get("SUB_PART");
-                    if (subPart == null) subPart = indexColumn.get("sub_part");
-                    subParts.add(subPart != null ? subPart.toString() : null);
+                List<String> columnNames = new ArrayList<>(indexColumns.size());
+                List<String> subParts = new ArrayList<>(indexColumns.size());
+                for (IndexMeta indexColumn : indexColumns) {
+                    columnNames.add(indexColumn.columnName());
+                    subParts.add(indexColumn.subPart());
                 }
                 
                 try {
@@ -372,23 +1070,12 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                     versionTableIndex.setSubPart(subParts.toString());
                 }
                 
-                versionTableIndex.setIndexComment(indexComment);
+                versionTableIndex.setIndexComment(firstIndex.indexComment());
                 allIndexes.add(versionTableIndex);
             }
         }
         
-        // 批量插入索引信息
-        if (!allIndexes.isEmpty()) {
-            // 分批插入，避免SQL过长
-            int batchSize = 1000;
-            for (int i = 0; i < allIndexes.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, allIndexes.size());
-                List<VersionTableIndex> batch = allIndexes.subList(i, end);
-                for (VersionTableIndex index : batch) {
-                    versionTableIndexMapper.insert(index);
-                }
-            }
-        }
+        return allIndexes;
     }
     
     @Override
@@ -409,6 +1096,15 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     
     @Override
     public List<VersionTableStructure> getVersionTableStructures(Long projectVersionId) {
+        List<VersionTableStructure> tables = selectVersionTableRows(projectVersionId);
+        if (tables.isEmpty()) {
+            // 已归档版本的明细行已删除，从压缩快照还原（快照返回的是副本，调用方可以修改）
+            return new ArrayList<>(getSchemaSnapshot(projectVersionId).getTableStructures());
+        }
+        return tables;
+    }
+    
+    private List<VersionTableStructure> selectVersionTableRows(Long projectVersionId) {
         QueryWrapper<VersionTableStructure> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("project_version_id", projectVersionId);
         queryWrapper.orderByAsc("table_name");
@@ -417,12 +1113,40 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     
     @Override
     public Map<String, Object> compareVersions(Long fromVersionId, Long toVersionId) {
+        // 相同版本对的结果从缓存读取，并发的相同对比合并为一次计算
+        return compareResultCache.get(fromVersionId, toVersionId, () -> computeVersionDiff(fromVersionId, toVersionId));
+    }
+    
+    /**
+     * 计算两个版本的结构差异
+     */
+    private Map<String, Object> computeVersionDiff(Long fromVersionId, Long toVersionId) {
         Map<String, Object> result = new HashMap<>();
         
         try {
-            // 获取两个版本的表结构
-            List<VersionTableStructure> fromTables = getVersionTableStructures(fromVersionId);
-            List<VersionTableStructure> toTables = getVersionTableStructures(toVersionId);
+            // 整库内容哈希相同则两个版本结构完全一致，无需加载明细
+            VersionDatabaseSchema fromSchema = getVersionDatabaseSchema(fromVersionId);
+            VersionDatabaseSchema toSchema = getVersionDatabaseSchema(toVersionId);
+            if (isSchemaHashEqual(fromSchema, toSchema)) {
+                log.info("版本 {} 与 {} 的结构哈希一致，跳过明细对比", fromVersionId, toVersionId);
+                result.put("addedSchemas", new ArrayList<>());
+                result.put("removedSchemas", new ArrayList<>());
+                result.put("modifiedSchemas", new ArrayList<>());
+                return result;
+            }
+            
+            // 采集时已预先计算过这两个版本的差异（通常是相邻版本），直接返回
+            Map<String, Object> materialized = loadMaterializedDiff(fromVersionId, toVersionId, fromSchema, toSchema);
+            if (materialized != null) {
+                log.info("版本 {} 与 {} 使用预先计算的差异", fromVersionId, toVersionId);
+                return materialized;
+            }
+            
+            // 获取两个版本的结构快照（未缓存时每个版本：表、字段、索引各一次查询）
+            SchemaSnapshot fromStructure = getSchemaSnapshot(fromVersionId);
+            SchemaSnapshot toStructure = getSchemaSnapshot(toVersionId);
+            List<VersionTableStructure> fromTables = fromStructure.getTableStructures();
+            List<VersionTableStructure> toTables = toStructure.getTableStructures();
 
             // 按schema分组
             Map<String, List<VersionTableStructure>> fromSchemaMap = groupTablesBySchema(fromTables);
@@ -462,7 +1186,9 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 if (toSchemaMap.containsKey(schemaName)) {
                     Map<String, Object> schemaChanges = compareSchemaDetails(
                         fromSchemaMap.get(schemaName),
-                        toSchemaMap.get(schemaName)
+                        toSchemaMap.get(schemaName),
+                        fromStructure,
+                        toStructure
                     );
                     if (!schemaChanges.isEmpty()) {
                         schemaChanges.put("schemaName", schemaName);
@@ -483,6 +1209,15 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         return result;
     }
 
+    /**
+     * 判断两个版本的整库内容哈希是否一致（任一版本没有哈希时返回false）
+     */
+    private boolean isSchemaHashEqual(VersionDatabaseSchema fromSchema, VersionDatabaseSchema toSchema) {
+        return fromSchema != null && toSchema != null
+                && fromSchema.getSchemaHash() != null
+                && fromSchema.getSchemaHash().equals(toSchema.getSchemaHash());
+    }
+
     /**
      * 按schema对表进行分组
      */
@@ -498,7 +1233,8 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     /**
      * 比较同一个schema内部的表差异
      */
-    private Map<String, Object> compareSchemaDetails(List<VersionTableStructure> fromTables, List<VersionTableStructure> toTables) {
+    private Map<String, Object> compareSchemaDetails(List<VersionTableStructure> fromTables, List<VersionTableStructure> toTables,
+                                                     SchemaSnapshot fromStructure, SchemaSnapshot toStructure) {
         Map<String, Object> changes = new HashMap<>();
         
         Map<String, VersionTableStructure> fromTableMap = fromTables.stream()
@@ -530,19 +1266,25 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
             }
         }
 
-        // 找出修改的表
-        List<Map<String, Object>> modifiedTables = new ArrayList<>();
-        for (String tableName : fromTableMap.keySet()) {
-            if (toTableMap.containsKey(tableName)) {
-                VersionTableStructure fromTable = fromTableMap.get(tableName);
-                VersionTableStructure toTable = toTableMap.get(tableName);
-                
-                Map<String, Object> tableChanges = compareTableDetails(fromTable, toTable);
-                if (!tableChanges.isEmpty()) {
-                    tableChanges.put("tableName", tableName);
-                    tableChanges.put("tableComment", toTable.getTableComment());
-                    modifiedTables.add(tableChanges);
-                }
+        // 找出修改的表（表数量较多时分块并行对比）
+        List<String> commonTableNames = fromTableMap.keySet().stream()
+            .filter(toTableMap::containsKey)
+            .collect(Collectors.toList());
+        List<Map<String, Object>> modifiedTables;
+        if (commonTableNames.size() < PARALLEL_COMPARE_THRESHOLD) {
+            modifiedTables = compareCommonTables(commonTableNames, fromTableMap, toTableMap, fromStructure, toStructure);
+        } else {
+            List<CompletableFuture<List<Map<String, Object>>>> futures = new ArrayList<>();
+            for (int i = 0; i < commonTableNames.size(); i += COMPARE_CHUNK_SIZE) {
+                List<String> chunk = commonTableNames.subList(i, Math.min(i + COMPARE_CHUNK_SIZE, commonTableNames.size()));
+                futures.add(CompletableFuture.supplyAsync(
+                    () -> compareCommonTables(chunk, fromTableMap, toTableMap, fromStructure, toStructure),
+                    schemaCompareTaskExecutor));
+            }
+            // 按提交顺序合并，结果顺序与串行对比一致
+            modifiedTables = new ArrayList<>();
+            for (CompletableFuture<List<Map<String, Object>>> future : futures) {
+                modifiedTables.addAll(future.join());
             }
         }
 
@@ -559,20 +1301,48 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         return changes;
     }
     
+    /**
+     * 依次对比一组共有表，返回有变化的表
+     */
+    private List<Map<String, Object>> compareCommonTables(List<String> tableNames,
+                                                          Map<String, VersionTableStructure> fromTableMap,
+                                                          Map<String, VersionTableStructure> toTableMap,
+                                                          SchemaSnapshot fromStructure, SchemaSnapshot toStructure) {
+        List<Map<String, Object>> modifiedTables = new ArrayList<>();
+        for (String tableName : tableNames) {
+            VersionTableStructure fromTable = fromTableMap.get(tableName);
+            VersionTableStructure toTable = toTableMap.get(tableName);
+            
+            // 内容哈希相同的表没有变化，跳过明细对比（旧版本数据没有哈希时照常对比）
+            if (fromTable.getContentHash() != null && fromTable.getContentHash().equals(toTable.getContentHash())) {
+                continue;
+            }
+            
+            Map<String, Object> tableChanges = compareTableDetails(fromTable, toTable, fromStructure, toStructure);
+            if (!tableChanges.isEmpty()) {
+                tableChanges.put("tableName", tableName);
+                tableChanges.put("tableComment", toTable.getTableComment());
+                modifiedTables.add(tableChanges);
+            }
+        }
+        return modifiedTables;
+    }
+    
     /**
      * 比较两个表的详细差异
      */
-    private Map<String, Object> compareTableDetails(VersionTableStructure fromTable, VersionTableStructure toTable) {
+    private Map<String, Object> compareTableDetails(VersionTableStructure fromTable, VersionTableStructure toTable,
+                                                    SchemaSnapshot fromStructure, SchemaSnapshot toStructure) {
         Map<String, Object> changes = new HashMap<>();
         
         try {
-            // 获取字段信息
-            List<VersionTableColumn> fromColumns = getTableColumns(fromTable.getId());
-            List<VersionTableColumn> toColumns = getTableColumns(toTable.getId());
+            // 获取字段信息（已预先批量加载）
+            List<VersionTableColumn> fromColumns = fromStructure.getColumns(fromTable.getId());
+            List<VersionTableColumn> toColumns = toStructure.getColumns(toTable.getId());
             
-            // 获取索引信息
-            List<VersionTableIndex> fromIndexes = getTableIndexes(fromTable.getId());
-            List<VersionTableIndex> toIndexes = getTableIndexes(toTable.getId());
+            // 获取索引信息（已预先批量加载）
+            List<VersionTableIndex> fromIndexes = fromStructure.getIndexes(fromTable.getId());
+            List<VersionTableIndex> toIndexes = toStructure.getIndexes(toTable.getId());
             
             // 比较字段
             Map<String, Object> columnChanges = compareColumns(fromColumns, toColumns);
@@ -600,24 +1370,74 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         return changes;
     }
     
+    @Override
+    public SchemaSnapshot getSchemaSnapshot(Long projectVersionId) {
+        SchemaSnapshot snapshot = schemaSnapshotCache.get(projectVersionId, this::buildSchemaSnapshot);
+        return snapshot != null ? snapshot : SchemaSnapshot.empty(projectVersionId);
+    }
+    
     /**
-     * 获取表的字段信息
+     * 从数据库构建版本的结构快照：表列表 + 按表ID分组的字段和索引
+     * 字段、索引各用一次查询获取，避免逐表查询；版本尚未采集结构时返回 null（不缓存）
+     * 已归档的版本直接解码压缩快照
      */
-    private List<VersionTableColumn> getTableColumns(Long tableId) {
-        QueryWrapper<VersionTableColumn> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("version_table_id", tableId);
-        queryWrapper.orderByAsc("ordinal_position");
-        return versionTableColumnMapper.selectList(queryWrapper);
+    private SchemaSnapshot buildSchemaSnapshot(Long projectVersionId) {
+        SchemaSnapshot archived = loadArchivedSnapshot(projectVersionId);
+        if (archived != null) {
+            return archived;
+        }
+        VersionDatabaseSchema databaseSchema = getVersionDatabaseSchema(projectVersionId);
+        if (databaseSchema == null) {
+            return null;
+        }
+        List<VersionTableStructure> tables = selectVersionTableRows(projectVersionId);
+        
+        Map<Long, List<VersionTableColumn>> columnsByTable = new HashMap<>();
+        for (VersionTableColumn column : versionTableColumnMapper.selectByVersionId(projectVersionId)) {
+            columnsByTable.computeIfAbsent(column.getVersionTableId(), k -> new ArrayList<>()).add(column);
+        }
+        
+        Map<Long, List<VersionTableIndex>> indexesByTable = new HashMap<>();
+        for (VersionTableIndex index : versionTableIndexMapper.selectByVersionId(projectVersionId)) {
+            indexesByTable.computeIfAbsent(index.getVersionTableId(), k -> new ArrayList<>()).add(index);
+        }
+        
+        List<TableSnapshot> tableSnapshots = new ArrayList<>(tables.size());
+        for (VersionTableStructure table : tables) {
+            tableSnapshots.add(new TableSnapshot(table, columnsByTable.get(table.getId()), indexesByTable.get(table.getId())));
+        }
+        
+        SchemaSnapshot snapshot = new SchemaSnapshot(projectVersionId, databaseSchema, tableSnapshots);
+        log.info("构建项目版本 {} 的结构快照，表数量: {}，权重: {}", projectVersionId, tables.size(), snapshot.weight());
+        return snapshot;
     }
     
     /**
-     * 获取表的索引信息
+     * 读取并解码已归档版本的压缩快照，版本未归档时返回 null
      */
-    private List<VersionTableIndex> getTableIndexes(Long tableId) {
-        QueryWrapper<VersionTableIndex> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("version_table_id", tableId);
-        queryWrapper.orderByAsc("index_name");
-        return versionTableIndexMapper.selectList(queryWrapper);
+    private SchemaSnapshot loadArchivedSnapshot(Long projectVersionId) {
+        ProjectVersion archived = projectVersionMapper.selectArchivedSnapshot(projectVersionId);
+        if (archived == null || archived.getSchemaSnapshot() == null) {
+            return null;
+        }
+        SchemaSnapshot snapshot = SchemaSnapshotCodec.decode(archived.getSchemaSnapshot());
+        log.info("从压缩快照还原项目版本 {} 的结构，表数量: {}，压缩大小: {} 字节",
+                projectVersionId, snapshot.getTables().size(), archived.getSchemaSnapshot().length);
+        return snapshot;
+    }
+    
+    @Override
+    public void evictVersionCaches(Long projectVersionId) {
+        schemaSnapshotCache.evict(projectVersionId);
+        compareResultCache.evictVersion(projectVersionId);
+    }
+    
+    @Override
+    public void deleteVersionDiffs(Long projectVersionId) {
+        int deleted = versionDiffMapper.deleteByVersionId(projectVersionId);
+        if (deleted > 0) {
+            log.info("删除了项目版本 {} 的 {} 条预先计算差异", projectVersionId, deleted);
+        }
     }
     
     /**
@@ -804,6 +1624,18 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     
     @Override
     public String generateDiffSql(Long fromVersionId, Long toVersionId, String fromVersionName, String toVersionName) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeDiffSql(fromVersionId, toVersionId, fromVersionName, toVersionName, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void writeDiffSql(Long fromVersionId, Long toVersionId, String fromVersionName, String toVersionName,
+                             Writer writer) throws IOException {
         // 获取数据源类型
         String datasourceType = getDatasourceTypeByVersionId(toVersionId);
         if (datasourceType == null) {
@@ -819,7 +1651,12 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         // 获取版本对比结果
         Map<String, Object> compareResult = compareVersions(fromVersionId, toVersionId);
         
+        // 新增表的建表语句需要目标版本的完整结构，有新增表时才加载（一次性加载）
+        SchemaSnapshot toStructure = null;
+        
+        // 每个Schema处理完就写出缓冲区，避免整份差异SQL常驻内存
         StringBuilder sqlBuilder = new StringBuilder();
+        boolean hasDiff = false;
         sqlBuilder.append("-- 版本差异SQL: ").append(fromVersionName)
                  .append(" -> ").append(toVersionName).append("\n");
         sqlBuilder.append("-- 数据库类型: ").append(datasourceType.toUpperCase()).append("\n");
@@ -829,6 +1666,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> addedSchemas = (List<Map<String, Object>>) compareResult.get("addedSchemas");
         if (addedSchemas != null && !addedSchemas.isEmpty()) {
+            hasDiff = true;
             sqlBuilder.append("-- 新增的Schema及其表\n");
             for (Map<String, Object> schema : addedSchemas) {
                 String schemaName = (String) schema.get("schemaName");
@@ -838,10 +1676,14 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 sqlBuilder.append("-- Schema: ").append(schemaName).append("\n");
                 if (tables != null) {
                     for (Map<String, Object> table : tables) {
-                        String createTableSql = generateCreateTableSql(toVersionId, (String) table.get("tableName"));
+                        if (toStructure == null) {
+                            toStructure = getSchemaSnapshot(toVersionId);
+                        }
+                        String createTableSql = generateCreateTableSql(sqlStrategy, toStructure, (String) table.get("tableName"));
                         sqlBuilder.append(createTableSql).append("\n\n");
                     }
                 }
+                flushSql(sqlBuilder, writer);
             }
         }
         
@@ -849,6 +1691,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> removedSchemas = (List<Map<String, Object>>) compareResult.get("removedSchemas");
         if (removedSchemas != null && !removedSchemas.isEmpty()) {
+            hasDiff = true;
             sqlBuilder.append("-- 删除的Schema及其表\n");
             for (Map<String, Object> schema : removedSchemas) {
                 String schemaName = (String) schema.get("schemaName");
@@ -863,6 +1706,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                     }
                 }
                 sqlBuilder.append("\n");
+                flushSql(sqlBuilder, writer);
             }
         }
         
@@ -870,6 +1714,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> modifiedSchemas = (List<Map<String, Object>>) compareResult.get("modifiedSchemas");
         if (modifiedSchemas != null && !modifiedSchemas.isEmpty()) {
+            hasDiff = true;
             for (Map<String, Object> schema : modifiedSchemas) {
                 String schemaName = (String) schema.get("schemaName");
                 sqlBuilder.append("-- 修改的Schema: ").append(schemaName).append("\n");
@@ -880,7 +1725,10 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 if (addedTables != null && !addedTables.isEmpty()) {
                     sqlBuilder.append("-- 新增的表\n");
                     for (Map<String, Object> table : addedTables) {
-                        String createTableSql = generateCreateTableSql(toVersionId, (String) table.get("tableName"));
+                        if (toStructure == null) {
+                            toStructure = getSchemaSnapshot(toVersionId);
+                        }
+                        String createTableSql = generateCreateTableSql(sqlStrategy, toStructure, (String) table.get("tableName"));
                         sqlBuilder.append(createTableSql).append("\n\n");
                     }
                 }
@@ -903,22 +1751,34 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 if (modifiedTables != null && !modifiedTables.isEmpty()) {
                     sqlBuilder.append("-- 修改的表\n");
                     for (Map<String, Object> table : modifiedTables) {
-                        String alterTableSql = generateAlterTableSql(toVersionId, (String) table.get("tableName"), table);
+                        String alterTableSql = generateAlterTableSql(sqlStrategy, (String) table.get("tableName"), table);
                         if (!alterTableSql.trim().isEmpty()) {
                             sqlBuilder.append(alterTableSql).append("\n");
                         }
                     }
                     sqlBuilder.append("\n");
                 }
+                flushSql(sqlBuilder, writer);
             }
         }
         
         // 如果没有任何差异，添加提示信息
-        if (sqlBuilder.length() <= 100) { // 只有头部注释的情况
+        if (!hasDiff) {
             sqlBuilder.append("-- 两个版本之间没有发现任何差异\n");
         }
         
-        return sqlBuilder.toString();
+        flushSql(sqlBuilder, writer);
+        writer.flush();
+    }
+
+    /**
+     * 将缓冲的SQL写出并清空缓冲区
+     */
+    private void flushSql(StringBuilder sqlBuilder, Writer writer) throws IOException {
+        if (sqlBuilder.length() > 0) {
+            writer.append(sqlBuilder);
+            sqlBuilder.setLength(0);
+        }
     }
     
     /**
@@ -951,60 +1811,23 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
         }
     }
     
-    private String generateCreateTableSql(Long versionId, String tableName) {
+    private String generateCreateTableSql(SqlGenerationStrategy sqlStrategy, SchemaSnapshot structure, String tableName) {
         try {
-            // 获取数据源类型
-            String datasourceType = getDatasourceTypeByVersionId(versionId);
-            if (datasourceType == null) {
-                datasourceType = "mysql"; // 默认使用MySQL
-            }
-            
-            // 获取对应的SQL生成策略
-            SqlGenerationStrategy sqlStrategy = sqlGenerationStrategyFactory.getStrategy(datasourceType);
-            if (sqlStrategy == null) {
-                return "-- CREATE TABLE " + tableName + "; -- 不支持的数据库类型: " + datasourceType;
-            }
-            
             // 获取表结构信息
-            List<VersionTableStructure> tables = versionTableStructureMapper.selectList(
-                new QueryWrapper<VersionTableStructure>()
-                    .eq("project_version_id", versionId)
-                    .eq("table_name", tableName)
-            );
-            
-            if (tables.isEmpty()) {
+            TableSnapshot table = structure.findTable(tableName);
+            if (table == null) {
                 return "-- CREATE TABLE " + tableName + "; -- 表结构信息未找到";
             }
             
-            VersionTableStructure table = tables.get(0);
-            
-            // 获取字段信息
-            List<VersionTableColumn> columns = getTableColumns(table.getId());
-            
-            // 获取索引信息
-            List<VersionTableIndex> indexes = getTableIndexes(table.getId());
-            
             // 使用策略生成CREATE TABLE SQL
-            return sqlStrategy.generateCreateTableSql(table, columns, indexes);
+            return sqlStrategy.generateCreateTableSql(table.getTable(), table.getColumns(), table.getIndexes());
         } catch (Exception e) {
             return "-- CREATE TABLE " + tableName + "; -- 生成失败: " + e.getMessage();
         }
     }
     
-    private String generateAlterTableSql(Long versionId, String tableName, Map<String, Object> tableChanges) {
+    private String generateAlterTableSql(SqlGenerationStrategy sqlStrategy, String tableName, Map<String, Object> tableChanges) {
         try {
-            // 获取数据源类型
-            String datasourceType = getDatasourceTypeByVersionId(versionId);
-            if (datasourceType == null) {
-                datasourceType = "mysql"; // 默认使用MySQL
-            }
-            
-            // 获取对应的SQL生成策略
-            SqlGenerationStrategy sqlStrategy = sqlGenerationStrategyFactory.getStrategy(datasourceType);
-            if (sqlStrategy == null) {
-                return "-- ALTER TABLE " + tableName + "; -- 不支持的数据库类型: " + datasourceType;
-            }
-            
             return sqlStrategy.generateAlterTableSql(tableName, tableChanges);
         } catch (Exception e) {
             return "-- ALTER TABLE " + tableName + "; -- 生成失败: " + e.getMessage();
@@ -1131,8 +1954,9 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 }
             }
 
-            // 4. 获取数据库结构信息
-            VersionDatabaseSchema databaseSchema = getVersionDatabaseSchema(projectVersionId);
+            // 4. 获取版本结构快照（优先从缓存读取）
+            SchemaSnapshot structure = getSchemaSnapshot(projectVersionId);
+            VersionDatabaseSchema databaseSchema = structure.getDatabaseSchema();
             if (databaseSchema != null) {
                 Map<String, Object> databaseInfo = new HashMap<>();
                 databaseInfo.put("databaseName", databaseSchema.getDatabaseName());
@@ -1146,8 +1970,8 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
             // 5. 添加数据源类型信息
             result.put("datasourceType", datasourceType);
 
-            // 6. 获取表结构列表
-            List<VersionTableStructure> tableStructures = getVersionTableStructures(projectVersionId);
+            // 6. 获取表结构列表及全部字段、索引
+            List<VersionTableStructure> tableStructures = structure.getTableStructures();
             List<Map<String, Object>> tables = new ArrayList<>();
             
             for (VersionTableStructure tableStructure : tableStructures) {
@@ -1168,10 +1992,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 tableInfo.put("autoIncrement", tableStructure.getAutoIncrement());
                 
                 // 7. 获取表的字段信息
-                QueryWrapper<VersionTableColumn> columnQueryWrapper = new QueryWrapper<>();
-                columnQueryWrapper.eq("version_table_id", tableStructure.getId());
-                columnQueryWrapper.orderByAsc("ordinal_position");
-                List<VersionTableColumn> columns = versionTableColumnMapper.selectList(columnQueryWrapper);
+                List<VersionTableColumn> columns = structure.getColumns(tableStructure.getId());
                 
                 List<Map<String, Object>> columnList = new ArrayList<>();
                 for (VersionTableColumn column : columns) {
@@ -1197,10 +2018,7 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
                 tableInfo.put("columns", columnList);
                 
                 // 8. 获取表的索引信息
-                QueryWrapper<VersionTableIndex> indexQueryWrapper = new QueryWrapper<>();
-                indexQueryWrapper.eq("version_table_id", tableStructure.getId());
-                indexQueryWrapper.orderByAsc("index_name");
-                List<VersionTableIndex> indexes = versionTableIndexMapper.selectList(indexQueryWrapper);
+                List<VersionTableIndex> indexes = structure.getIndexes(tableStructure.getId());
                 
                 List<Map<String, Object>> indexList = new ArrayList<>();
                 for (VersionTableIndex index : indexes) {
@@ -1235,112 +2053,26 @@ public class DatabaseSchemaServiceImpl implements DatabaseSchemaService {
     /**
      * 按索引名分组索引信息
      */
-    private Map<String, List<Map<String, Object>>> groupIndexesByName(List<Map<String, Object>> indexes) {
-        Map<String, List<Map<String, Object>>> result = new HashMap<>();
+    private Map<String, List<IndexMeta>> groupIndexesByName(List<IndexMeta> indexes) {
+        Map<String, List<IndexMeta>> result = new HashMap<>();
         
-        for (Map<String, Object> index : indexes) {
-            String indexName = (String) index.get("INDEX_NAME");
-            result.computeIfAbsent(indexName, k -> new ArrayList<>()).add(index);
+        for (IndexMeta index : indexes) {
+            result.computeIfAbsent(index.indexName(), k -> new ArrayList<>()).add(index);
         }
         
         return result;
     }
     
-    /**
-     * 安全获取Long值
-     */
-    private Long getLongValue(Object value) {
-        if (value == null) return null;
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        try {
-            return Long.parseLong(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-    
-    /**
-     * 安全获取Integer值
-     */
-    private Integer getIntValue(Object value) {
-        if (value == null) return null;
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        try {
-            return Integer.parseInt(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-    
-    /**
-     * 安全获取Boolean值
-     */
-    private Boolean getBooleanValue(Object value) {
-        if (value == null) return false;
-        if (value instanceof Boolean) {
-            return (Boolean) value;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).intValue() != 0;
-        }
-        return Boolean.parseBoolean(value.toString());
-    }
-    
     /**
      * 删除指定版本的已存在数据
+     * 按表结构主键范围分批删除，每批一个事务；数据库结构信息最后删除，中途失败时下次采集继续删除
      */
     private void deleteExistingVersionData(Long projectVersionId) {
         try {
             log.info("开始删除项目版本 {} 的已存在数据库结构信息", projectVersionId);
-
-            // 检查删除前的数据量
-            QueryWrapper<VersionTableStructure> checkWrapper = new QueryWrapper<>();
-            checkWrapper.eq("project_version_id", projectVersionId);
-            List<VersionTableStructure> existingTables = versionTableStructureMapper.selectList(checkWrapper);
-            log.info("删除前，项目版本 {} 有 {} 个表结构", projectVersionId, existingTables.size());
-
-            // 使用原生SQL强制删除，确保数据完全清理
-            // 1. 先删除字段和索引信息（通过JOIN删除）
-            int deletedColumns = versionTableColumnMapper.deleteByVersionId(projectVersionId);
-            log.info("删除了 {} 个表字段记录", deletedColumns);
-
-            int deletedIndexes = versionTableIndexMapper.deleteByVersionId(projectVersionId);
-            log.info("删除了 {} 个表索引记录", deletedIndexes);
-
-            // 2. 删除表结构信息
-            QueryWrapper<VersionTableStructure> tableQueryWrapper = new QueryWrapper<>();
-            tableQueryWrapper.eq("project_version_id", projectVersionId);
-            int deletedTables = versionTableStructureMapper.delete(tableQueryWrapper);
-            log.info("删除了 {} 个表结构记录", deletedTables);
-
-            // 3. 删除版本数据库结构信息
-            QueryWrapper<VersionDatabaseSchema> databaseQueryWrapper = new QueryWrapper<>();
-            databaseQueryWrapper.eq("project_version_id", projectVersionId);
-            int deletedDatabases = versionDatabaseSchemaMapper.delete(databaseQueryWrapper);
-            log.info("删除了 {} 个数据库结构记录", deletedDatabases);
-
-            // 4. 强制刷新事务，确保删除操作立即生效
-            try {
-                // 等待一小段时间确保删除操作完成
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-
-            // 5. 再次检查是否还有残留数据
-            List<VersionTableStructure> remainingTables = versionTableStructureMapper.selectList(checkWrapper);
-            if (!remainingTables.isEmpty()) {
-                log.warn("删除后仍有 {} 个表结构记录残留，将强制删除", remainingTables.size());
-                for (VersionTableStructure table : remainingTables) {
-                    versionTableStructureMapper.deleteById(table.getId());
-                }
-            }
-
-            log.info("已完成删除项目版本 {} 的已存在数据库结构信息", projectVersionId);
+            long deleted = versionDataPurgeService.purgeVersion(projectVersionId);
+            evictVersionCaches(projectVersionId);
+            log.info("已完成删除项目版本 {} 的已存在数据库结构信息，共 {} 行", projectVersionId, deleted);
         } catch (Exception e) {
             log.error("删除已存在版本数据时出现异常: {}", e.getMessage(), e);
             throw new RuntimeException("删除已存在版本数据失败: " + e.getMessage(), e);
@@ -3,8 +3,10 @@ package com.dbrecord.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.dbrecord.entity.domain.Datasource;
 import com.dbrecord.mapper.DatasourceMapper;
+import com.dbrecord.service.DatasourceConnectionRegistry;
 import com.dbrecord.service.DatasourceService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.sql.Connection;
@@ -17,6 +19,9 @@ import java.sql.DriverManager;
 @Service
 public class DatasourceServiceImpl extends ServiceImpl<DatasourceMapper, Datasource> implements DatasourceService {
     
+    @Autowired
+    private DatasourceConnectionRegistry connectionRegistry;
+    
     @Override
     public boolean testConnection(Datasource datasource) {
         try {
@@ -42,8 +47,13 @@ public class DatasourceServiceImpl extends ServiceImpl<DatasourceMapper, Datasou
                 }
             }
 
-            Connection connection = DriverManager.getConnection(url, datasource.getUsername(), datasource.getPassword());
-            connection.close();
+            // 使用一次性连接测试页面上填写的连接信息，不创建或替换数据源的共享连接池
+            try (Connection connection = DriverManager.getConnection(url, datasource.getUsername(), datasource.getPassword())) {
+                if (!connection.isValid(5)) {
+                    log.error("数据库连接无效");
+                    return false;
+                }
+            }
             log.info("数据库连接测试成功");
             return true;
         } catch (Exception e) {
@@ -52,6 +62,11 @@ public class DatasourceServiceImpl extends ServiceImpl<DatasourceMapper, Datasou
         }
     }
     
+    @Override
+    public void invalidateConnectionPool(Long datasourceId) {
+        connectionRegistry.invalidate(datasourceId);
+    }
+    
     private String buildJdbcUrl(Datasource datasource) {
         String url;
         switch (datasource.getType().toLowerCase()) {
@@ -1,11 +1,22 @@
 package com.dbrecord.service.impl;
 
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
 import org.springframework.stereotype.Component;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * MySQL数据库结构提取器
@@ -13,9 +24,37 @@ import java.util.Map;
 @Component
 public class MySQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExtractor {
 
+    /**
+     * 只采集结构时读取的表属性列
+     * 不包含 TABLE_ROWS、AVG_ROW_LENGTH、DATA_LENGTH、INDEX_LENGTH、AUTO_INCREMENT、UPDATE_TIME 等统计列：
+     * 读取统计列时 MySQL 5.7（以及 information_schema_stats_expiry 为0的 8.0）会为每个表打开或重新计算统计信息
+     */
+    private static final String STRUCTURE_COLUMNS = "TABLE_SCHEMA, TABLE_NAME, TABLE_TYPE, ENGINE, ROW_FORMAT, " +
+            "TABLE_COLLATION, CREATE_TIME, CREATE_OPTIONS, TABLE_COMMENT";
+
+    /**
+     * 统计信息采样读取的列
+     */
+    private static final String STATISTICS_COLUMNS = "TABLE_NAME, TABLE_ROWS, AVG_ROW_LENGTH, DATA_LENGTH, " +
+            "INDEX_LENGTH, AUTO_INCREMENT";
+
+    /**
+     * 每个表的字段目录摘要：行数和各行 MD5 按位异或（拆成两个64位整数），与行顺序无关，不受 group_concat_max_len 限制
+     * MySQL 8 的 INSTANT/INPLACE DDL（加字段、改注释、重命名字段等）不改变 CREATE_TIME，只能从字段目录本身判断变化
+     */
+    private static final String COLUMN_DIGEST_SQL = digestSql("information_schema.COLUMNS",
+            "COLUMN_NAME, ORDINAL_POSITION, QUOTE(COLUMN_DEFAULT), IS_NULLABLE, COLUMN_TYPE, QUOTE(CHARACTER_SET_NAME), " +
+            "QUOTE(COLLATION_NAME), COLUMN_KEY, EXTRA, COLUMN_COMMENT, QUOTE(GENERATION_EXPRESSION)");
+
+    /**
+     * 每个表的索引目录摘要（加删索引、修改索引注释等在线DDL同样不改变 CREATE_TIME）
+     */
+    private static final String INDEX_DIGEST_SQL = digestSql("information_schema.STATISTICS",
+            "INDEX_NAME, SEQ_IN_INDEX, QUOTE(COLUMN_NAME), NON_UNIQUE, QUOTE(SUB_PART), INDEX_TYPE, INDEX_COMMENT");
+
     @Override
     protected String buildConnectionUrl(Datasource datasource) {
-        return String.format("jdbc:mysql://%s:%d/%s?useUnicode=true&characterEncoding=utf8&useSSL=false&serverTimezone=UTC",
+        return String.format("jdbc:mysql://%s:%d/%s?useUnicode=true&characterEncoding=utf8&useSSL=false&serverTimezone=UTC&useCursorFetch=true",
                 datasource.getHost(), datasource.getPort(), datasource.getDatabaseName());
     }
 
@@ -23,7 +62,15 @@ public class MySQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExtracto
     protected String getDatabaseType() {
         return "mysql";
     }
-    
+
+    /**
+     * information_schema 的名称字段使用不区分大小写的排序规则，按二进制比较以与Java中的过滤规则一致
+     */
+    @Override
+    protected String caseSensitiveColumn(String column) {
+        return "BINARY " + column;
+    }
+
     @Override
     public Map<String, Object> getDatabaseInfo(Datasource datasource) {
         String sql = "SELECT DEFAULT_CHARACTER_SET_NAME as charset, DEFAULT_COLLATION_NAME as collation " +
@@ -39,34 +86,130 @@ public class MySQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExtracto
     }
     
     @Override
-    public List<Map<String, Object>> getTablesStructure(Datasource datasource) {
+    public List<TableMeta> getTablesStructure(Datasource datasource) {
         var filterConfig = getFilterConfig();
 
         // MySQL不使用schema概念，这里检查当前数据库是否在排除列表中
         if (filterConfig.isSchemaExcluded(datasource.getDatabaseName())) {
-            return new java.util.ArrayList<>(); // 如果整个数据库被排除，返回空列表
+            return new ArrayList<>(); // 如果整个数据库被排除，返回空列表
         }
 
-        String sql = "SELECT * FROM information_schema.TABLES WHERE TABLE_SCHEMA = ?";
-        List<Map<String, Object>> tables = executeQuery(datasource, sql, datasource.getDatabaseName());
+        // 表属性与字段、索引目录摘要在一次查询中读取，摘要用作变更标记
+        List<Object> params = new ArrayList<>();
+        params.add(datasource.getDatabaseName());
+        params.add(datasource.getDatabaseName());
+        params.add(datasource.getDatabaseName());
+        String columns = isStatisticsDeferred() ? "t." + STRUCTURE_COLUMNS.replace(", ", ", t.") : "t.*";
+        String sql = "SELECT " + columns + ", cd.digest AS COLUMN_DIGEST, idx.digest AS INDEX_DIGEST " +
+                     "FROM information_schema.TABLES t " +
+                     "LEFT JOIN (" + COLUMN_DIGEST_SQL + ") cd ON cd.TABLE_NAME = t.TABLE_NAME " +
+                     "LEFT JOIN (" + INDEX_DIGEST_SQL + ") idx ON idx.TABLE_NAME = t.TABLE_NAME " +
+                     "WHERE t.TABLE_SCHEMA = ?" +
+                     buildTableFilterSql("t.TABLE_SCHEMA", "t.TABLE_NAME", datasource.getDatabaseName(), params);
+        List<TableMeta> tables = queryForList(datasource, sql, this::tableMetaMapper, params.toArray());
 
         // 应用表级别的过滤（MySQL中schema就是数据库名）
         return tables.stream()
-                .filter(table -> {
-                    String tableName = (String) table.get("TABLE_NAME");
-                    return !filterConfig.isTableExcluded(datasource.getDatabaseName(), tableName);
-                })
-                .collect(java.util.stream.Collectors.toList());
+                .filter(table -> !filterConfig.isTableExcluded(datasource.getDatabaseName(), table.tableName()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 开启一致性读事务并立即建立读视图，不等到第一次查询
+     * MySQL不能在会话间共享快照，多个会话的读视图各自在开启时建立；
+     * 另外 information_schema 不受一致性读隔离，采集期间执行的DDL仍可能被读到，
+     * 由采集服务在读取结束后重新比较变更标记（见 {@link #isCatalogSnapshotIsolated()}）
+     */
+    @Override
+    protected String beginSnapshot(Connection connection) throws SQLException {
+        beginReadOnlyTransaction(connection);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+        }
+        return null;
+    }
+    
+    @Override
+    public boolean isStatisticsDeferred() {
+        return captureProperties != null && captureProperties.isStructureOnly();
+    }
+    
+    /**
+     * information_schema 直接读取数据字典，不使用一致性读事务的读视图
+     */
+    @Override
+    public boolean isCatalogSnapshotIsolated() {
+        return false;
+    }
+    
+    @Override
+    public List<TableMeta> getTablesStatistics(Datasource datasource, String schemaName, Collection<String> tableNames) {
+        List<TableMeta> tables = new ArrayList<>();
+        if (tableNames == null || tableNames.isEmpty()) {
+            return tables;
+        }
+        List<Object> params = new ArrayList<>(tableNames.size() + 1);
+        params.add(datasource.getDatabaseName());
+        params.addAll(tableNames);
+        String sql = "SELECT " + STATISTICS_COLUMNS + " FROM information_schema.TABLES " +
+                     "WHERE TABLE_SCHEMA = ? AND TABLE_NAME IN (" +
+                     String.join(", ", Collections.nCopies(tableNames.size(), "?")) + ")";
+        streamRows(datasource, sql, this::tableMetaMapper, tables::add, params.toArray());
+        return tables;
     }
     
+    /**
+     * MySQL的变更标记：字段目录摘要、索引目录摘要及表级属性
+     * 不使用 CREATE_TIME / UPDATE_TIME：在线DDL不改变创建时间，更新时间只反映数据修改。
+     * 没有字段摘要（表在查询期间被删除或结果中缺少摘要列）时返回null，总是重新采集；没有索引的表索引摘要记为0
+     */
     @Override
-    public List<Map<String, Object>> getTableColumns(Datasource datasource, String schemaName, String tableName) {
+    protected RowMapper<String> changeMarkerMapper(ResultColumns columns) {
+        int columnDigest = columns.indexOf("COLUMN_DIGEST");
+        int indexDigest = columns.indexOf("INDEX_DIGEST");
+        int[] attributeColumns = {
+                columns.indexOf("ENGINE"),
+                columns.indexOf("ROW_FORMAT"),
+                columns.indexOf("TABLE_COLLATION"),
+                columns.indexOf("CREATE_OPTIONS"),
+                columns.indexOf("TABLE_COMMENT")
+        };
+        return rs -> {
+            Object columnsMarker = columnDigest > 0 ? rs.getObject(columnDigest) : null;
+            if (columnsMarker == null) {
+                return null;
+            }
+            Object indexesMarker = indexDigest > 0 ? rs.getObject(indexDigest) : null;
+            StringBuilder marker = new StringBuilder("c:").append(columnsMarker)
+                    .append("|i:").append(indexesMarker != null ? indexesMarker : "0");
+            for (int attributeColumn : attributeColumns) {
+                marker.append('|').append(attributeColumn > 0 ? rs.getObject(attributeColumn) : null);
+            }
+            return marker.toString();
+        };
+    }
+
+    /**
+     * 按表汇总目录行摘要的查询：每行按字段拼接后取 MD5，再按表统计行数并对 MD5 的前后64位分别按位异或
+     * @param catalogTable 目录表
+     * @param rowExpression 参与摘要的字段（可能为NULL的字段用 QUOTE 区分NULL和字符串）
+     */
+    private static String digestSql(String catalogTable, String rowExpression) {
+        return "SELECT TABLE_NAME, CONCAT(COUNT(*), ':', " +
+               "BIT_XOR(CAST(CONV(SUBSTRING(row_hash, 1, 16), 16, 10) AS UNSIGNED)), ':', " +
+               "BIT_XOR(CAST(CONV(SUBSTRING(row_hash, 17, 16), 16, 10) AS UNSIGNED))) AS digest " +
+               "FROM (SELECT TABLE_NAME, MD5(CONCAT_WS('|', " + rowExpression + ")) AS row_hash " +
+               "FROM " + catalogTable + " WHERE TABLE_SCHEMA = ?) rows_hash GROUP BY TABLE_NAME";
+    }
+    
+    @Override
+    public List<ColumnMeta> getTableColumns(Datasource datasource, String schemaName, String tableName) {
         String sql = "SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
-        return executeQuery(datasource, sql, datasource.getDatabaseName(), tableName);
+        return queryForList(datasource, sql, this::columnMetaMapper, datasource.getDatabaseName(), tableName);
     }
     
     @Override
-    public List<Map<String, Object>> getTableIndexes(Datasource datasource, String schemaName, String tableName) {
+    public List<IndexMeta> getTableIndexes(Datasource datasource, String schemaName, String tableName) {
         String sql = "SELECT " +
                      "INDEX_NAME, " +
                      "TABLE_NAME, " +
@@ -80,6 +223,44 @@ public class MySQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExtracto
                      "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? " +
                      "ORDER BY INDEX_NAME, SEQ_IN_INDEX";
         
-        return executeQuery(datasource, sql, datasource.getDatabaseName(), tableName);
+        return queryForList(datasource, sql, this::indexMetaMapper, datasource.getDatabaseName(), tableName);
+    }
+    
+    @Override
+    public void forEachTableColumn(Datasource datasource, Consumer<ColumnMeta> consumer) {
+        if (getFilterConfig().isSchemaExcluded(datasource.getDatabaseName())) {
+            return;
+        }
+        Consumer<ColumnMeta> filtered = filterByRules(consumer, column -> datasource.getDatabaseName(), ColumnMeta::tableName);
+        List<Object> params = new ArrayList<>();
+        params.add(datasource.getDatabaseName());
+        String sql = "SELECT * FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = ?" +
+                     buildTableFilterSql("TABLE_SCHEMA", "TABLE_NAME", datasource.getDatabaseName(), params) + " " +
+                     "ORDER BY TABLE_NAME, ORDINAL_POSITION";
+        streamRows(datasource, sql, this::columnMetaMapper, filtered, params.toArray());
+    }
+    
+    @Override
+    public void forEachTableIndex(Datasource datasource, Consumer<IndexMeta> consumer) {
+        if (getFilterConfig().isSchemaExcluded(datasource.getDatabaseName())) {
+            return;
+        }
+        Consumer<IndexMeta> filtered = filterByRules(consumer, index -> datasource.getDatabaseName(), IndexMeta::tableName);
+        List<Object> params = new ArrayList<>();
+        params.add(datasource.getDatabaseName());
+        String sql = "SELECT " +
+                     "INDEX_NAME, " +
+                     "TABLE_NAME, " +
+                     "COLUMN_NAME, " +
+                     "NON_UNIQUE, " +
+                     "SEQ_IN_INDEX, " +
+                     "INDEX_TYPE, " +
+                     "INDEX_COMMENT, " +
+                     "SUB_PART " +
+                     "FROM information_schema.STATISTICS " +
+                     "WHERE TABLE_SCHEMA = ?" +
+                     buildTableFilterSql("TABLE_SCHEMA", "TABLE_NAME", datasource.getDatabaseName(), params) + " " +
+                     "ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+        streamRows(datasource, sql, this::indexMetaMapper, filtered, params.toArray());
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.dbrecord.service.impl;
+
+/**
+ * PostgreSQL及兼容数据库（KingbaseES）的 pg_catalog 原生目录查询
+ * 直接按OID连接 pg_class、pg_attribute、pg_index、pg_description、pg_constraint，
+ * 不经过 information_schema 视图（按名称关联、逐行做权限检查，关系数量多时很慢）。
+ * 字段的类型、长度、精度等取值沿用 information_schema.columns 的定义，与原有查询结果一致
+ */
+final class PgCatalogQueries {
+
+    /**
+     * 与 information_schema.tables 一致的可见性：表的所有者，或拥有任一表级/字段级权限
+     */
+    private static final String TABLE_PRIVILEGE_SQL =
+            "(pg_has_role(c.relowner, 'USAGE') " +
+            "OR has_table_privilege(c.oid, 'SELECT, INSERT, UPDATE, DELETE, TRUNCATE, REFERENCES, TRIGGER') " +
+            "OR has_any_column_privilege(c.oid, 'SELECT, INSERT, UPDATE, REFERENCES'))";
+
+    /**
+     * 每个表每个字段的键类型，一次聚合整个库的主键、唯一、外键约束
+     * 字段属于多个约束时按 主键 > 唯一 > 外键 取一个
+     */
+    private static final String COLUMN_KEY_SQL =
+            "SELECT con.conrelid, k.attnum, " +
+            "CASE WHEN bool_or(con.contype = 'p') THEN 'PRI' " +
+            "     WHEN bool_or(con.contype = 'u') THEN 'UNI' " +
+            "     ELSE 'MUL' END AS column_key " +
+            "FROM pg_constraint con CROSS JOIN LATERAL unnest(con.conkey) AS k(attnum) " +
+            "WHERE con.contype IN ('p', 'u', 'f') " +
+            "GROUP BY con.conrelid, k.attnum";
+
+    private PgCatalogQueries() {
+    }
+
+    /**
+     * 表列表查询（普通表和分区表，不含临时表）
+     * @param engine 引擎名称
+     * @param filterSql 过滤条件（使用 n.nspname、c.relname）
+     */
+    static String tables(String engine, String filterSql) {
+        return "SELECT n.nspname AS schema_name, c.relname AS table_name, " +
+               "d.description AS table_comment, " +
+               "'BASE TABLE' AS table_type, '" + engine + "' AS engine, " +
+               "COALESCE(s.n_tup_ins, 0) AS table_rows, " +
+               "COALESCE(pg_total_relation_size(c.oid), 0) AS data_length, " +
+               "0 AS index_length, " +
+               AbstractDatabaseSchemaExtractor.PG_CHANGE_MARKER_SQL + " AS change_marker " +
+               "FROM pg_class c " +
+               "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+               "LEFT JOIN pg_stat_user_tables s ON s.relid = c.oid " +
+               "LEFT JOIN pg_description d ON d.objoid = c.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0 " +
+               "WHERE c.relkind IN ('r', 'p') AND c.relpersistence <> 't' AND " + TABLE_PRIVILEGE_SQL + " AND " + filterSql + " " +
+               "ORDER BY n.nspname, c.relname";
+    }
+
+    /**
+     * 字段查询，每个字段一行，按schema、表名、字段位置排序
+     * @param filterSql 过滤条件（使用 n.nspname、c.relname）
+     */
+    static String columns(String filterSql) {
+        return "SELECT x.*, " +
+               "CASE " +
+               "  WHEN x.data_type = 'character varying' THEN 'varchar(' || x.character_maximum_length || ')' " +
+               "  WHEN x.data_type = 'character' THEN 'char(' || x.character_maximum_length || ')' " +
+               "  WHEN x.data_type = 'numeric' AND x.numeric_precision IS NOT NULL AND x.numeric_scale IS NOT NULL THEN 'numeric(' || x.numeric_precision || ',' || x.numeric_scale || ')' " +
+               "  WHEN x.data_type = 'numeric' AND x.numeric_precision IS NOT NULL THEN 'numeric(' || x.numeric_precision || ')' " +
+               "  WHEN x.data_type = 'timestamp without time zone' THEN 'timestamp' " +
+               "  WHEN x.data_type = 'timestamp with time zone' THEN 'timestamptz' " +
+               "  WHEN x.data_type = 'time without time zone' THEN 'time' " +
+               "  WHEN x.data_type = 'time with time zone' THEN 'timetz' " +
+               "  ELSE x.data_type " +
+               "END AS column_type, " +
+               "CASE WHEN x.column_default LIKE 'nextval%' THEN 'auto_increment' ELSE '' END AS extra " +
+               "FROM (" +
+               "SELECT n.nspname AS schema_name, c.relname AS table_name, a.attname AS column_name, " +
+               "a.attnum AS ordinal_position, " +
+               "pg_get_expr(ad.adbin, ad.adrelid) AS column_default, " +
+               "CASE WHEN a.attnotnull OR (t.typtype = 'd' AND t.typnotnull) THEN 'NO' ELSE 'YES' END AS is_nullable, " +
+               "CASE WHEN t.typtype = 'd' THEN " +
+               "       CASE WHEN bt.typelem <> 0 AND bt.typlen = -1 THEN 'ARRAY' " +
+               "            WHEN nbt.nspname = 'pg_catalog' THEN format_type(t.typbasetype, NULL) " +
+               "            ELSE 'USER-DEFINED' END " +
+               "     ELSE " +
+               "       CASE WHEN t.typelem <> 0 AND t.typlen = -1 THEN 'ARRAY' " +
+               "            WHEN nt.nspname = 'pg_catalog' THEN format_type(a.atttypid, NULL) " +
+               "            ELSE 'USER-DEFINED' END " +
+               "END AS data_type, " +
+               "information_schema._pg_char_max_length(information_schema._pg_truetypid(a.*, t.*), information_schema._pg_truetypmod(a.*, t.*)) AS character_maximum_length, " +
+               "information_schema._pg_char_octet_length(information_schema._pg_truetypid(a.*, t.*), information_schema._pg_truetypmod(a.*, t.*)) AS character_octet_length, " +
+               "information_schema._pg_numeric_precision(information_schema._pg_truetypid(a.*, t.*), information_schema._pg_truetypmod(a.*, t.*)) AS numeric_precision, " +
+               "information_schema._pg_numeric_scale(information_schema._pg_truetypid(a.*, t.*), information_schema._pg_truetypmod(a.*, t.*)) AS numeric_scale, " +
+               "information_schema._pg_datetime_precision(information_schema._pg_truetypid(a.*, t.*), information_schema._pg_truetypmod(a.*, t.*)) AS datetime_precision, " +
+               "NULL AS character_set_name, " +
+               "CASE WHEN nco.nspname IS NOT NULL THEN co.collname END AS collation_name, " +
+               "COALESCE(ck.column_key, '') AS column_key, " +
+               "COALESCE(d.description, '') AS column_comment " +
+               "FROM pg_attribute a " +
+               "JOIN pg_class c ON c.oid = a.attrelid " +
+               "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+               "JOIN pg_type t ON t.oid = a.atttypid " +
+               "JOIN pg_namespace nt ON nt.oid = t.typnamespace " +
+               "LEFT JOIN (pg_type bt JOIN pg_namespace nbt ON nbt.oid = bt.typnamespace) " +
+               "  ON t.typtype = 'd' AND t.typbasetype = bt.oid " +
+               "LEFT JOIN pg_attrdef ad ON ad.adrelid = a.attrelid AND ad.adnum = a.attnum " +
+               "LEFT JOIN (pg_collation co JOIN pg_namespace nco ON nco.oid = co.collnamespace) " +
+               "  ON a.attcollation = co.oid AND (nco.nspname, co.collname) <> ('pg_catalog', 'default') " +
+               "LEFT JOIN pg_description d ON d.objoid = c.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = a.attnum " +
+               "LEFT JOIN (" + COLUMN_KEY_SQL + ") ck ON ck.conrelid = c.oid AND ck.attnum = a.attnum " +
+               "WHERE a.attnum > 0 AND NOT a.attisdropped AND c.relkind IN ('r', 'p') AND " + filterSql +
+               ") x " +
+               "ORDER BY x.schema_name, x.table_name, x.ordinal_position";
+    }
+
+    /**
+     * 索引查询，每个索引字段一行
+     * 按 indkey 展开并保留位置（WITH ORDINALITY），同一索引的字段按索引定义顺序排列；
+     * 表达式索引的字段（attnum为0）使用 pg_get_indexdef 输出对应位置的表达式
+     * @param filterSql 过滤条件（使用 n.nspname、t.relname）
+     */
+    static String indexes(String filterSql) {
+        return "SELECT n.nspname AS schema_name, t.relname AS table_name, i.relname AS index_name, " +
+               "COALESCE(a.attname, pg_get_indexdef(ix.indexrelid, k.ord::int, true)) AS column_name, " +
+               "am.amname AS index_type, " +
+               "ix.indisunique AS is_unique, " +
+               "ix.indisprimary AS is_primary, " +
+               "d.description AS index_comment " +
+               "FROM pg_index ix " +
+               "JOIN pg_class t ON t.oid = ix.indrelid " +
+               "JOIN pg_namespace n ON n.oid = t.relnamespace " +
+               "JOIN pg_class i ON i.oid = ix.indexrelid " +
+               "JOIN pg_am am ON am.oid = i.relam " +
+               "CROSS JOIN LATERAL unnest(ix.indkey::int2[]) WITH ORDINALITY AS k(attnum, ord) " +
+               "LEFT JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = k.attnum " +
+               "LEFT JOIN pg_description d ON d.objoid = i.oid AND d.classoid = 'pg_class'::regclass AND d.objsubid = 0 " +
+               "WHERE t.relkind IN ('r', 'p') AND " + filterSql + " " +
+               "ORDER BY n.nspname, t.relname, i.relname, k.ord";
+    }
+}
@@ -1,11 +1,17 @@
 package com.dbrecord.service.impl;
 
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * PostgreSQL数据库结构提取器
@@ -23,6 +29,19 @@ public class PostgreSQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExt
     protected String getDatabaseType() {
         return "postgresql";
     }
+
+    @Override
+    protected boolean isCursorFetchRequiresTransaction() {
+        return true;
+    }
+
+    /**
+     * 通过 pg_export_snapshot 在多个采集会话间共享同一个快照
+     */
+    @Override
+    protected boolean isSnapshotExportSupported() {
+        return true;
+    }
     
     @Override
     public Map<String, Object> getDatabaseInfo(Datasource datasource) {
@@ -37,47 +56,61 @@ public class PostgreSQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExt
         }
         
         // 获取所有schema信息，使用配置过滤
-        var filterConfig = getFilterConfig();
+        List<Object> params = new ArrayList<>();
         String schemasSql = "SELECT schema_name, schema_owner " +
                            "FROM information_schema.schemata " +
-                           "WHERE schema_name NOT IN (" + filterConfig.getExcludedSchemasForSql() + ") " +
+                           "WHERE " + buildSchemaFilterSql("schema_name", params) + " " +
                            "ORDER BY schema_name";
         
-        List<Map<String, Object>> schemasResults = executeQuery(datasource, schemasSql);
+        List<Map<String, Object>> schemasResults = executeQuery(datasource, schemasSql, params.toArray());
+        // schema排除规则中的正则没有下推到SQL，在这里补充过滤
+        schemasResults.removeIf(schema -> getFilterConfig().isSchemaExcluded(String.valueOf(schema.get("schema_name"))));
         dbInfo.put("schemas_info", schemasResults);
         
         return dbInfo;
     }
     
     @Override
-    public List<Map<String, Object>> getTablesStructure(Datasource datasource) {
+    public List<TableMeta> getTablesStructure(Datasource datasource) {
         var filterConfig = getFilterConfig();
-        String sql = "SELECT t.table_schema as schema_name, t.table_name, obj_description(c.oid) as table_comment, " +
-                     "t.table_type, 'postgresql' as engine, " +
-                     "COALESCE(s.n_tup_ins, 0) as table_rows, " +
-                     "COALESCE(pg_total_relation_size(c.oid), 0) as data_length, " +
-                     "0 as index_length, " +
-                     "NULL as create_time, NULL as update_time " +
-                     "FROM information_schema.tables t " +
-                     "LEFT JOIN pg_class c ON c.relname = t.table_name AND c.relnamespace = (SELECT oid FROM pg_namespace WHERE nspname = t.table_schema) " +
-                     "LEFT JOIN pg_stat_user_tables s ON s.relname = t.table_name AND s.schemaname = t.table_schema " +
-                     "WHERE t.table_schema NOT IN (" + filterConfig.getExcludedSchemasForSql() + ") AND t.table_type = 'BASE TABLE' " +
-                     "ORDER BY t.table_schema, t.table_name";
+        List<Object> params = new ArrayList<>();
+        String sql;
+        if (useNativeCatalog()) {
+            sql = PgCatalogQueries.tables("postgresql", buildSchemaFilterSql("n.nspname", params) +
+                    buildTableFilterSql("n.nspname", "c.relname", null, params));
+        } else {
+            sql = "SELECT t.table_schema as schema_name, t.table_name, obj_description(c.oid) as table_comment, " +
+                  "t.table_type, 'postgresql' as engine, " +
+                  "COALESCE(s.n_tup_ins, 0) as table_rows, " +
+                  "COALESCE(pg_total_relation_size(c.oid), 0) as data_length, " +
+                  "0 as index_length, " +
+                  "NULL as create_time, NULL as update_time, " +
+                  PG_CHANGE_MARKER_SQL + " AS change_marker " +
+                  "FROM information_schema.tables t " +
+                  "LEFT JOIN pg_class c ON c.relname = t.table_name AND c.relnamespace = (SELECT oid FROM pg_namespace WHERE nspname = t.table_schema) " +
+                  "LEFT JOIN pg_stat_user_tables s ON s.relname = t.table_name AND s.schemaname = t.table_schema " +
+                  "WHERE " + buildSchemaFilterSql("t.table_schema", params) +
+                  buildTableFilterSql("t.table_schema", "t.table_name", null, params) +
+                  " AND t.table_type = 'BASE TABLE' " +
+                  "ORDER BY t.table_schema, t.table_name";
+        }
 
-        List<Map<String, Object>> tables = executeQuery(datasource, sql);
+        List<TableMeta> tables = queryForList(datasource, sql, this::tableMetaMapper, params.toArray());
 
-        // 应用表级别的过滤
+        // 应用过滤规则，补充没有下推到SQL的正则规则
         return tables.stream()
-                .filter(table -> {
-                    String schemaName = (String) table.get("schema_name");
-                    String tableName = (String) table.get("table_name");
-                    return !filterConfig.isTableExcluded(schemaName, tableName);
-                })
-                .collect(java.util.stream.Collectors.toList());
+                .filter(table -> !filterConfig.isSchemaExcluded(table.schemaName())
+                        && !filterConfig.isTableExcluded(table.schemaName(), table.tableName()))
+                .collect(Collectors.toList());
     }
     
     @Override
-    public List<Map<String, Object>> getTableColumns(Datasource datasource, String schemaName, String tableName) {
+    public List<ColumnMeta> getTableColumns(Datasource datasource, String schemaName, String tableName) {
+        if (useNativeCatalog()) {
+            return queryForList(datasource, PgCatalogQueries.columns("n.nspname = ? AND c.relname = ?"),
+                    this::columnMetaMapper, schemaName, tableName);
+        }
+        
         String sql = "SELECT " +
                      "c.column_name, " +
                      "c.ordinal_position, " +
@@ -127,29 +160,131 @@ public class PostgreSQLDatabaseSchemaExtractor extends AbstractDatabaseSchemaExt
                      "LEFT JOIN pg_description pgd ON pgd.objoid = pgc.oid AND pgd.objsubid = pga.attnum " +
                      "WHERE c.table_schema = ? AND c.table_name = ? " +
                      "ORDER BY c.ordinal_position";
-        return executeQuery(datasource, sql, schemaName, tableName);
+        return queryForList(datasource, sql, this::columnMetaMapper, schemaName, tableName);
     }
     
     @Override
-    public List<Map<String, Object>> getTableIndexes(Datasource datasource, String schemaName, String tableName) {
+    public List<IndexMeta> getTableIndexes(Datasource datasource, String schemaName, String tableName) {
+        if (useNativeCatalog()) {
+            return queryForList(datasource, PgCatalogQueries.indexes("n.nspname = ? AND t.relname = ?"),
+                    this::indexMetaMapper, schemaName, tableName);
+        }
+        
+        // 每个索引字段一行，按索引定义中的字段顺序排序（与批量查询一致）
         String sql = "SELECT " +
                      "i.relname AS index_name, " +
                      "t.relname AS table_name, " +
-                     "string_agg(a.attname, ',' ORDER BY array_position(ix.indkey, a.attnum)) AS column_names, " +
-                     "CASE WHEN ix.indisunique THEN 1 ELSE 0 END AS is_unique, " +
-                     "CASE WHEN ix.indisprimary THEN 1 ELSE 0 END AS is_primary, " +
+                     "a.attname AS column_name, " +
                      "am.amname AS index_type, " +
+                     "ix.indisunique AS is_unique, " +
+                     "ix.indisprimary AS is_primary, " +
                      "obj_description(i.oid, 'pg_class') AS index_comment " +
                      "FROM pg_class t " +
                      "JOIN pg_namespace n ON t.relnamespace = n.oid " +
                      "JOIN pg_index ix ON t.oid = ix.indrelid " +
                      "JOIN pg_class i ON i.oid = ix.indexrelid " +
-                     "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = ANY(ix.indkey) " +
                      "JOIN pg_am am ON i.relam = am.oid " +
+                     "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = ANY(ix.indkey) " +
                      "WHERE t.relname = ? AND n.nspname = ? AND t.relkind = 'r' " +
-                     "GROUP BY i.relname, t.relname, ix.indisunique, ix.indisprimary, am.amname, i.oid " +
-                     "ORDER BY i.relname";
+                     "ORDER BY i.relname, array_position(ix.indkey::int2[], a.attnum)";
+
+        return queryForList(datasource, sql, this::indexMetaMapper, tableName, schemaName);
+    }
 
-        return executeQuery(datasource, sql, tableName, schemaName);
+    @Override
+    public void forEachTableColumn(Datasource datasource, Consumer<ColumnMeta> consumer) {
+        Consumer<ColumnMeta> filtered = filterByRules(consumer, ColumnMeta::schemaName, ColumnMeta::tableName);
+        List<Object> params = new ArrayList<>();
+        if (useNativeCatalog()) {
+            String sql = PgCatalogQueries.columns(buildSchemaFilterSql("n.nspname", params) +
+                    buildTableFilterSql("n.nspname", "c.relname", null, params));
+            streamRows(datasource, sql, this::columnMetaMapper, filtered, params.toArray());
+            return;
+        }
+        String sql = "SELECT " +
+                     "c.table_schema AS schema_name, " +
+                     "c.table_name, " +
+                     "c.column_name, " +
+                     "c.ordinal_position, " +
+                     "c.column_default, " +
+                     "c.is_nullable, " +
+                     "c.data_type, " +
+                     "c.character_maximum_length, " +
+                     "c.character_octet_length, " +
+                     "c.numeric_precision, " +
+                     "c.numeric_scale, " +
+                     "c.datetime_precision, " +
+                     "c.character_set_name, " +
+                     "c.collation_name, " +
+                     "CASE " +
+                     "  WHEN c.data_type = 'character varying' THEN 'varchar(' || c.character_maximum_length || ')' " +
+                     "  WHEN c.data_type = 'character' THEN 'char(' || c.character_maximum_length || ')' " +
+                     "  WHEN c.data_type = 'numeric' AND c.numeric_precision IS NOT NULL AND c.numeric_scale IS NOT NULL THEN 'numeric(' || c.numeric_precision || ',' || c.numeric_scale || ')' " +
+                     "  WHEN c.data_type = 'numeric' AND c.numeric_precision IS NOT NULL THEN 'numeric(' || c.numeric_precision || ')' " +
+                     "  WHEN c.data_type = 'timestamp without time zone' THEN 'timestamp' " +
+                     "  WHEN c.data_type = 'timestamp with time zone' THEN 'timestamptz' " +
+                     "  WHEN c.data_type = 'time without time zone' THEN 'time' " +
+                     "  WHEN c.data_type = 'time with time zone' THEN 'timetz' " +
+                     "  ELSE c.data_type " +
+                     "END AS column_type, " +
+                     "CASE " +
+                     "  WHEN tc.constraint_type = 'PRIMARY KEY' THEN 'PRI' " +
+                     "  WHEN tc.constraint_type = 'UNIQUE' THEN 'UNI' " +
+                     "  WHEN tc.constraint_type = 'FOREIGN KEY' THEN 'MUL' " +
+                     "  ELSE '' " +
+                     "END AS column_key, " +
+                     "CASE " +
+                     "  WHEN c.column_default LIKE 'nextval%' THEN 'auto_increment' " +
+                     "  ELSE '' " +
+                     "END AS extra, " +
+                     "COALESCE(pgd.description, '') AS column_comment " +
+                     "FROM information_schema.columns c " +
+                     "LEFT JOIN information_schema.key_column_usage kcu ON " +
+                     "  c.table_schema = kcu.table_schema AND " +
+                     "  c.table_name = kcu.table_name AND " +
+                     "  c.column_name = kcu.column_name " +
+                     "LEFT JOIN information_schema.table_constraints tc ON " +
+                     "  kcu.constraint_name = tc.constraint_name AND " +
+                     "  kcu.table_schema = tc.table_schema " +
+                     "LEFT JOIN pg_namespace pgn ON pgn.nspname = c.table_schema " +
+                     "LEFT JOIN pg_class pgc ON pgc.relname = c.table_name AND pgc.relnamespace = pgn.oid " +
+                     "LEFT JOIN pg_attribute pga ON pga.attrelid = pgc.oid AND pga.attname = c.column_name " +
+                     "LEFT JOIN pg_description pgd ON pgd.objoid = pgc.oid AND pgd.objsubid = pga.attnum " +
+                     "WHERE " + buildSchemaFilterSql("c.table_schema", params) +
+                     buildTableFilterSql("c.table_schema", "c.table_name", null, params) + " " +
+                     "ORDER BY c.table_schema, c.table_name, c.ordinal_position";
+        streamRows(datasource, sql, this::columnMetaMapper, filtered, params.toArray());
+    }
+    
+    @Override
+    public void forEachTableIndex(Datasource datasource, Consumer<IndexMeta> consumer) {
+        Consumer<IndexMeta> filtered = filterByRules(consumer, IndexMeta::schemaName, IndexMeta::tableName);
+        List<Object> params = new ArrayList<>();
+        if (useNativeCatalog()) {
+            String sql = PgCatalogQueries.indexes(buildSchemaFilterSql("n.nspname", params) +
+                    buildTableFilterSql("n.nspname", "t.relname", null, params));
+            streamRows(datasource, sql, this::indexMetaMapper, filtered, params.toArray());
+            return;
+        }
+        // 每个索引字段一行，按索引定义中的字段顺序排序
+        String sql = "SELECT " +
+                     "n.nspname AS schema_name, " +
+                     "t.relname AS table_name, " +
+                     "i.relname AS index_name, " +
+                     "a.attname AS column_name, " +
+                     "am.amname AS index_type, " +
+                     "ix.indisunique AS is_unique, " +
+                     "ix.indisprimary AS is_primary, " +
+                     "obj_description(i.oid, 'pg_class') AS index_comment " +
+                     "FROM pg_class t " +
+                     "JOIN pg_namespace n ON t.relnamespace = n.oid " +
+                     "JOIN pg_index ix ON t.oid = ix.indrelid " +
+                     "JOIN pg_class i ON i.oid = ix.indexrelid " +
+                     "JOIN pg_am am ON i.relam = am.oid " +
+                     "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = ANY(ix.indkey) " +
+                     "WHERE t.relkind = 'r' AND " + buildSchemaFilterSql("n.nspname", params) +
+                     buildTableFilterSql("n.nspname", "t.relname", null, params) + " " +
+                     "ORDER BY n.nspname, t.relname, i.relname, array_position(ix.indkey::int2[], a.attnum)";
+        streamRows(datasource, sql, this::indexMetaMapper, filtered, params.toArray());
     }
 }
\ No newline at end of file
@@ -0,0 +1,431 @@
+package com.dbrecord.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.dbrecord.config.CountingRejectedExecutionHandler;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.SchemaCaptureJob;
+import com.dbrecord.enums.CaptureJobStatus;
+import com.dbrecord.exception.CaptureCancelledException;
+import com.dbrecord.mapper.SchemaCaptureJobMapper;
+import com.dbrecord.service.CaptureProgressListener;
+import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.DatasourceConcurrencyLimiter;
+import com.dbrecord.service.SchemaCaptureJobService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 结构采集任务服务实现类
+ * 运行中的任务保存在内存中（按版本ID唯一），进度按时间间隔节流后写库并推送给订阅者
+ */
+@Slf4j
+@Service
+public class SchemaCaptureJobServiceImpl extends ServiceImpl<SchemaCaptureJobMapper, SchemaCaptureJob> implements SchemaCaptureJobService {
+
+    /**
+     * 进度写库的最小间隔（毫秒）
+     */
+    private static final long PROGRESS_PERSIST_INTERVAL_MS = 2000;
+
+    /**
+     * 进度推送的最小间隔（毫秒）
+     */
+    private static final long PROGRESS_PUSH_INTERVAL_MS = 500;
+
+    /**
+     * 记录耗时最长的表数量
+     */
+    private static final int SLOWEST_TABLE_LIMIT = 20;
+
+    /**
+     * SSE连接超时时间（毫秒）
+     */
+    private static final long SSE_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    @Autowired
+    private DatabaseSchemaService databaseSchemaService;
+
+    @Autowired
+    @Qualifier("schemaCaptureTaskExecutor")
+    private ThreadPoolTaskExecutor schemaCaptureTaskExecutor;
+
+    @Autowired
+    @Qualifier("schemaTableTaskExecutor")
+    private ExecutorService schemaTableTaskExecutor;
+
+    @Autowired
+    private CountingRejectedExecutionHandler captureRejectedExecutionHandler;
+
+    @Autowired
+    private DatasourceConcurrencyLimiter datasourceConcurrencyLimiter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 项目版本ID -> 未结束的任务
+     */
+    private final Map<Long, RunningJob> runningJobsByVersion = new ConcurrentHashMap<>();
+
+    /**
+     * 任务ID -> 未结束的任务
+     */
+    private final Map<Long, RunningJob> runningJobsById = new ConcurrentHashMap<>();
+
+    /**
+     * 本次启动的时间，在Bean创建时（Web服务开始接收请求之前）记录
+     * 任务的创建时间由本服务写入，与该时间使用同一个时钟；早于该时间创建的未结束任务属于上次运行
+     */
+    private final LocalDateTime bootTime = LocalDateTime.now();
+
+    /**
+     * 服务启动完成后，上次运行遗留的未结束任务已不可能继续执行，标记为失败
+     * 在应用就绪后执行，不在Bean初始化期间访问数据库；失败只记录日志，不影响启动。
+     * 此时Web服务可能已接收并提交了新任务，只处理启动时间之前创建的任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            int count = baseMapper.failUnfinishedJobs("服务重启，采集中断，重新采集时从检查点继续", bootTime);
+            if (count > 0) {
+                log.warn("将 {} 个因服务重启而中断的采集任务标记为失败", count);
+            }
+        } catch (Exception e) {
+            log.error("标记因服务重启而中断的采集任务失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public SchemaCaptureJob submit(Long projectVersionId, Datasource datasource, Long userId) {
+        boolean[] created = new boolean[1];
+        RunningJob running = runningJobsByVersion.computeIfAbsent(projectVersionId, id -> {
+            SchemaCaptureJob job = new SchemaCaptureJob();
+            job.setProjectVersionId(projectVersionId);
+            job.setDatasourceId(datasource.getId());
+            job.setUserId(userId);
+            job.setStatus(CaptureJobStatus.QUEUED.name());
+            job.setTotalTables(0);
+            job.setProcessedTables(0);
+            // 创建时间由本服务写入，与启动时间使用同一个时钟（见 failInterruptedJobs）
+            job.setCreateTime(LocalDateTime.now());
+            baseMapper.insert(job);
+            created[0] = true;
+            return new RunningJob(job);
+        });
+        if (!created[0]) {
+            log.info("项目版本 {} 已有运行中的采集任务 {}，合并本次请求", projectVersionId, running.job.getId());
+            return running.snapshot();
+        }
+
+        runningJobsById.put(running.job.getId(), running);
+        try {
+            schemaCaptureTaskExecutor.execute(() -> run(running, datasource, userId));
+        } catch (RejectedExecutionException e) {
+            running.finish(CaptureJobStatus.FAILED, "采集任务队列已满，请稍后重试");
+        }
+        return running.snapshot();
+    }
+
+    @Override
+    public boolean cancel(Long jobId) {
+        RunningJob running = runningJobsById.get(jobId);
+        if (running == null) {
+            return false;
+        }
+        running.cancelled = true;
+        log.info("已请求取消采集任务 {}", jobId);
+        return true;
+    }
+
+    @Override
+    public SchemaCaptureJob getJob(Long jobId) {
+        RunningJob running = runningJobsById.get(jobId);
+        return running != null ? running.snapshot() : getById(jobId);
+    }
+
+    @Override
+    public SchemaCaptureJob getLatestJob(Long projectVersionId) {
+        RunningJob running = runningJobsByVersion.get(projectVersionId);
+        if (running != null) {
+            return running.snapshot();
+        }
+        QueryWrapper<SchemaCaptureJob> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("project_version_id", projectVersionId);
+        queryWrapper.orderByDesc("id");
+        queryWrapper.last("LIMIT 1");
+        return getOne(queryWrapper);
+    }
+
+    @Override
+    public SseEmitter subscribe(Long jobId) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        RunningJob running = runningJobsById.get(jobId);
+        if (running != null) {
+            running.addEmitter(emitter);
+            // 订阅期间任务可能刚好结束，此时不会再收到结束通知
+            if (runningJobsById.containsKey(jobId)) {
+                return emitter;
+            }
+        }
+
+        // 任务已结束，推送最终状态后结束连接
+        try {
+            SchemaCaptureJob job = getById(jobId);
+            if (job != null) {
+                emitter.send(SseEmitter.event().name("done").data(job));
+            }
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    @Override
+    public Map<String, Object> getExecutorStats() {
+        Map<String, Object> jobPool = new LinkedHashMap<>();
+        ThreadPoolExecutor jobExecutor = schemaCaptureTaskExecutor.getThreadPoolExecutor();
+        jobPool.put("poolSize", jobExecutor.getPoolSize());
+        jobPool.put("activeCount", jobExecutor.getActiveCount());
+        jobPool.put("queueSize", jobExecutor.getQueue().size());
+        jobPool.put("queueRemainingCapacity", jobExecutor.getQueue().remainingCapacity());
+        jobPool.put("completedTaskCount", jobExecutor.getCompletedTaskCount());
+        jobPool.put("rejectedCount", captureRejectedExecutionHandler.getRejectedCount());
+
+        Map<String, Object> tablePool = new LinkedHashMap<>();
+        if (schemaTableTaskExecutor instanceof ForkJoinPool forkJoinPool) {
+            tablePool.put("mode", "platform");
+            tablePool.put("parallelism", forkJoinPool.getParallelism());
+            tablePool.put("poolSize", forkJoinPool.getPoolSize());
+            tablePool.put("activeCount", forkJoinPool.getActiveThreadCount());
+            tablePool.put("queuedTaskCount", forkJoinPool.getQueuedTaskCount() + forkJoinPool.getQueuedSubmissionCount());
+            tablePool.put("stealCount", forkJoinPool.getStealCount());
+        } else {
+            // 虚拟线程没有池和队列，正在执行的提取数见各数据源的占用许可
+            tablePool.put("mode", "virtual");
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runningJobs", runningJobsById.size());
+        stats.put("jobPool", jobPool);
+        stats.put("tablePool", tablePool);
+        stats.put("datasourceInFlight", datasourceConcurrencyLimiter.inFlightByDatasource());
+        return stats;
+    }
+
+    /**
+     * 执行采集任务
+     */
+    private void run(RunningJob running, Datasource datasource, Long userId) {
+        Long projectVersionId = running.job.getProjectVersionId();
+        if (running.cancelled) {
+            running.finish(CaptureJobStatus.CANCELLED, null);
+            return;
+        }
+        running.start();
+        try {
+            boolean success = databaseSchemaService.captureAndSaveDatabaseSchema(projectVersionId, datasource, userId, running);
+            if (success) {
+                running.finish(CaptureJobStatus.SUCCESS, null);
+            } else {
+                running.finish(CaptureJobStatus.FAILED, running.errorMessage != null ? running.errorMessage : "采集失败，详见服务日志");
+            }
+        } catch (CaptureCancelledException e) {
+            running.finish(CaptureJobStatus.CANCELLED, null);
+        } catch (Exception e) {
+            log.error("采集任务 {} 执行异常: {}", running.job.getId(), e.getMessage(), e);
+            running.finish(CaptureJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 运行中的任务：作为采集流程的进度监听器，维护进度、取消标记和订阅者
+     */
+    private class RunningJob implements CaptureProgressListener {
+
+        private final SchemaCaptureJob job;
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final PriorityQueue<TableTiming> slowestTables = new PriorityQueue<>(Comparator.comparingLong(TableTiming::millis));
+        private volatile boolean cancelled;
+        private volatile String errorMessage;
+        private long startMillis;
+        private long lastPersistMillis;
+        private long lastPushMillis;
+
+        RunningJob(SchemaCaptureJob job) {
+            this.job = job;
+        }
+
+        synchronized SchemaCaptureJob snapshot() {
+            SchemaCaptureJob copy = new SchemaCaptureJob();
+            BeanUtils.copyProperties(job, copy);
+            return copy;
+        }
+
+        void addEmitter(SseEmitter emitter) {
+            emitters.add(emitter);
+            emitter.onCompletion(() -> emitters.remove(emitter));
+            emitter.onTimeout(() -> emitters.remove(emitter));
+            emitter.onError(e -> emitters.remove(emitter));
+            send(emitter, "progress", snapshot());
+        }
+
+        synchronized void start() {
+            startMillis = System.currentTimeMillis();
+            job.setStatus(CaptureJobStatus.RUNNING.name());
+            job.setStartTime(LocalDateTime.now());
+            persistAndPush(true);
+        }
+
+        @Override
+        public synchronized void onPhase(String phase) {
+            job.setPhase(phase);
+            persistAndPush(true);
+        }
+
+        @Override
+        public synchronized void onTablesDiscovered(int totalTables) {
+            job.setTotalTables(totalTables);
+            persistAndPush(true);
+        }
+
+        @Override
+        public synchronized void onTableCaptured(String schemaName, String tableName, long elapsedMillis) {
+            String table = schemaName + "." + tableName;
+            job.setProcessedTables(job.getProcessedTables() + 1);
+            job.setCurrentTable(table);
+            slowestTables.offer(new TableTiming(table, elapsedMillis));
+            if (slowestTables.size() > SLOWEST_TABLE_LIMIT) {
+                slowestTables.poll();
+            }
+            persistAndPush(false);
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            errorMessage = error.getMessage();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 结束任务：写入最终状态，通知订阅者并移出运行中任务
+         * 写入最终状态失败（如元数据库不可用）时只记录日志，任务仍移出运行中任务并通知订阅者，
+         * 否则该版本之后的采集请求都会合并到这个已结束的任务上；库中残留的未结束状态在下次启动时标记为失败
+         */
+        void finish(CaptureJobStatus status, String error) {
+            SchemaCaptureJob finalJob;
+            synchronized (this) {
+                job.setStatus(status.name());
+                job.setErrorMessage(error);
+                job.setFinishTime(LocalDateTime.now());
+                if (startMillis > 0) {
+                    job.setDurationMs(System.currentTimeMillis() - startMillis);
+                }
+                job.setSlowestTables(serializeSlowestTables());
+                finalJob = snapshot();
+            }
+            try {
+                updateById(finalJob);
+            } catch (Exception e) {
+                log.error("写入采集任务 {} 的最终状态失败: {}", job.getId(), e.getMessage(), e);
+            } finally {
+                runningJobsByVersion.remove(job.getProjectVersionId(), this);
+                runningJobsById.remove(job.getId(), this);
+                for (SseEmitter emitter : emitters) {
+                    send(emitter, "done", finalJob);
+                    emitter.complete();
+                }
+            }
+            log.info("采集任务 {}（项目版本 {}）结束: {}，已处理 {}/{} 个表，耗时 {} ms", job.getId(),
+                    job.getProjectVersionId(), status.getDescription(), job.getProcessedTables(),
+                    job.getTotalTables(), job.getDurationMs());
+        }
+
+        /**
+         * 按间隔节流写库和推送，阶段变化时立即执行
+         */
+        private void persistAndPush(boolean force) {
+            long now = System.currentTimeMillis();
+            if (force || now - lastPersistMillis >= PROGRESS_PERSIST_INTERVAL_MS) {
+                lastPersistMillis = now;
+                job.setSlowestTables(serializeSlowestTables());
+                try {
+                    updateById(job);
+                } catch (Exception e) {
+                    log.warn("更新采集任务 {} 进度失败: {}", job.getId(), e.getMessage());
+                }
+            }
+            if (!emitters.isEmpty() && (force || now - lastPushMillis >= PROGRESS_PUSH_INTERVAL_MS)) {
+                lastPushMillis = now;
+                SchemaCaptureJob progress = snapshot();
+                for (SseEmitter emitter : emitters) {
+                    send(emitter, "progress", progress);
+                }
+            }
+        }
+
+        private void send(SseEmitter emitter, String eventName, SchemaCaptureJob data) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开，移除订阅者
+                emitters.remove(emitter);
+            }
+        }
+
+        private String serializeSlowestTables() {
+            if (slowestTables.isEmpty()) {
+                return null;
+            }
+            List<TableTiming> timings = new ArrayList<>(slowestTables);
+            timings.sort(Comparator.comparingLong(TableTiming::millis).reversed());
+            List<Map<String, Object>> rows = new ArrayList<>(timings.size());
+            for (TableTiming timing : timings) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("table", timing.table());
+                row.put("millis", timing.millis());
+                rows.add(row);
+            }
+            try {
+                return objectMapper.writeValueAsString(rows);
+            } catch (JsonProcessingException e) {
+                log.warn("序列化表耗时失败: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 单表采集耗时
+     */
+    private record TableTiming(String table, long millis) {
+    }
+}
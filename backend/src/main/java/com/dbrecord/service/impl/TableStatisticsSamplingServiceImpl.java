@@ -0,0 +1,303 @@
+package com.dbrecord.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.TableMeta;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.Project;
+import com.dbrecord.entity.domain.ProjectVersion;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.mapper.DatasourceMapper;
+import com.dbrecord.mapper.ProjectMapper;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.DatabaseSchemaExtractor;
+import com.dbrecord.service.DatabaseSchemaExtractorFactory;
+import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.DatasourceConcurrencyLimiter;
+import com.dbrecord.service.TableStatisticsSamplingService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表统计信息采样服务实现类
+ * 按版本、schema分批向源库查询统计信息，每批占用一个数据源并发许可，批与批之间暂停，限制对源库的查询速率。
+ * 源库读取失败的版本按失败次数退避，退避期间不再选取，避免不可用的数据源一直占住每次采样的名额
+ */
+@Slf4j
+@Service
+public class TableStatisticsSamplingServiceImpl implements TableStatisticsSamplingService {
+
+    @Autowired
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Autowired
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Autowired
+    private ProjectMapper projectMapper;
+
+    @Autowired
+    private DatasourceMapper datasourceMapper;
+
+    @Autowired
+    private DatabaseSchemaExtractorFactory extractorFactory;
+
+    @Autowired
+    private DatabaseSchemaService databaseSchemaService;
+
+    @Autowired
+    private DatasourceConcurrencyLimiter datasourceConcurrencyLimiter;
+
+    @Autowired
+    private SchemaCaptureProperties captureProperties;
+
+    /**
+     * 源库读取失败的项目版本：版本ID -> 失败状态（只保存在内存中，服务重启后重新计数）
+     */
+    private final Map<Long, SamplingFailure> failuresByVersion = new ConcurrentHashMap<>();
+
+    /**
+     * 定期采样（未启用采样任务时跳过）
+     */
+    @Scheduled(fixedDelayString = "${database.capture.stats-sampling.interval-millis:600000}",
+               initialDelayString = "${database.capture.stats-sampling.interval-millis:600000}")
+    public void sampleScheduled() {
+        SchemaCaptureProperties.StatsSampling sampling = captureProperties.getStatsSampling();
+        if (!sampling.isEnabled()) {
+            return;
+        }
+        try {
+            int processed = samplePendingTables(sampling.getMaxTablesPerRun());
+            if (processed > 0) {
+                log.info("表统计信息采样完成，处理表数量: {}", processed);
+            }
+        } catch (Exception e) {
+            log.error("表统计信息采样失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int samplePendingTables(int maxTables) {
+        if (maxTables <= 0) {
+            return 0;
+        }
+        // 退避中的版本不参与本次采样
+        long now = System.currentTimeMillis();
+        List<Long> backoffVersionIds = new ArrayList<>();
+        failuresByVersion.forEach((versionId, failure) -> {
+            if (failure.retryAt() > now) {
+                backoffVersionIds.add(versionId);
+            }
+        });
+        QueryWrapper<VersionTableStructure> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "project_version_id", "schema_name", "table_name")
+                .eq("stats_pending", 1)
+                .notIn(!backoffVersionIds.isEmpty(), "project_version_id", backoffVersionIds)
+                .orderByDesc("id")
+                .last("LIMIT " + maxTables);
+        List<VersionTableStructure> pendingTables = versionTableStructureMapper.selectList(queryWrapper);
+        if (pendingTables.isEmpty()) {
+            return 0;
+        }
+
+        // 最近创建的版本优先
+        Map<Long, List<VersionTableStructure>> tablesByVersion = new LinkedHashMap<>();
+        for (VersionTableStructure table : pendingTables) {
+            tablesByVersion.computeIfAbsent(table.getProjectVersionId(), k -> new ArrayList<>()).add(table);
+        }
+
+        int processed = 0;
+        Set<Long> failedDatasourceIds = new HashSet<>();
+        for (Map.Entry<Long, List<VersionTableStructure>> entry : tablesByVersion.entrySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            int versionProcessed = sampleVersion(entry.getKey(), entry.getValue(), failedDatasourceIds);
+            if (versionProcessed > 0) {
+                databaseSchemaService.evictVersionCaches(entry.getKey());
+            }
+            processed += versionProcessed;
+        }
+        return processed;
+    }
+
+    /**
+     * 采样一个版本的待采样表
+     * @param failedDatasourceIds 本次采样中已读取失败的数据源，同一数据源的其他版本不再查询，直接按失败处理
+     * @return 已处理的表数量
+     */
+    private int sampleVersion(Long projectVersionId, List<VersionTableStructure> tables, Set<Long> failedDatasourceIds) {
+        Datasource datasource = findDatasource(projectVersionId);
+        if (datasource == null || !extractorFactory.isSupported(datasource.getType())) {
+            // 版本或数据源已删除，无法再采样
+            log.info("项目版本 {} 的数据源不存在或不支持，跳过 {} 个表的统计信息采样", projectVersionId, tables.size());
+            for (VersionTableStructure table : tables) {
+                updateStatistics(table, null);
+            }
+            return tables.size();
+        }
+        if (failedDatasourceIds.contains(datasource.getId())) {
+            recordFailure(projectVersionId, datasource);
+            return 0;
+        }
+        DatabaseSchemaExtractor extractor = extractorFactory.getExtractor(datasource.getType());
+
+        Map<String, List<VersionTableStructure>> tablesBySchema = new LinkedHashMap<>();
+        for (VersionTableStructure table : tables) {
+            tablesBySchema.computeIfAbsent(table.getSchemaName(), k -> new ArrayList<>()).add(table);
+        }
+
+        SchemaCaptureProperties.StatsSampling sampling = captureProperties.getStatsSampling();
+        int batchSize = Math.max(1, sampling.getBatchSize());
+        int processed = 0;
+        boolean first = true;
+        for (Map.Entry<String, List<VersionTableStructure>> entry : tablesBySchema.entrySet()) {
+            List<VersionTableStructure> schemaTables = entry.getValue();
+            for (int from = 0; from < schemaTables.size(); from += batchSize) {
+                if (!first && !pause(sampling.getBatchPauseMillis())) {
+                    return processed;
+                }
+                first = false;
+                List<VersionTableStructure> batch = schemaTables.subList(from, Math.min(from + batchSize, schemaTables.size()));
+                int batchProcessed = sampleBatch(extractor, datasource, entry.getKey(), batch);
+                if (batchProcessed < 0) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        failedDatasourceIds.add(datasource.getId());
+                        recordFailure(projectVersionId, datasource);
+                    }
+                    return processed;
+                }
+                processed += batchProcessed;
+            }
+        }
+        failuresByVersion.remove(projectVersionId);
+        return processed;
+    }
+
+    /**
+     * 记录版本的源库读取失败：按连续失败次数加倍退避；达到失败次数上限后清除该版本的待采样标记，不再采样
+     */
+    private void recordFailure(Long projectVersionId, Datasource datasource) {
+        SchemaCaptureProperties.StatsSampling sampling = captureProperties.getStatsSampling();
+        SamplingFailure previous = failuresByVersion.get(projectVersionId);
+        int failures = previous != null ? previous.failures() + 1 : 1;
+        if (sampling.getMaxFailures() > 0 && failures >= sampling.getMaxFailures()) {
+            failuresByVersion.remove(projectVersionId);
+            int cleared = versionTableStructureMapper.clearStatsPending(projectVersionId);
+            databaseSchemaService.evictVersionCaches(projectVersionId);
+            log.warn("数据源 {} 连续 {} 次读取统计信息失败，放弃项目版本 {} 的 {} 个表的统计信息采样",
+                    datasource.getId(), failures, projectVersionId, cleared);
+            return;
+        }
+        long backoffMillis = Math.max(0, sampling.getFailureBackoffMillis()) << Math.min(failures - 1, 10);
+        failuresByVersion.put(projectVersionId, new SamplingFailure(failures, System.currentTimeMillis() + backoffMillis));
+        log.info("项目版本 {} 的统计信息采样第 {} 次失败，{} ms 内不再采样", projectVersionId, failures, backoffMillis);
+    }
+
+    /**
+     * 查询一批表的统计信息并写回版本表结构
+     * @return 已处理的表数量，源库查询失败或被中断时返回-1
+     */
+    private int sampleBatch(DatabaseSchemaExtractor extractor, Datasource datasource, String schemaName,
+                            List<VersionTableStructure> batch) {
+        List<String> tableNames = new ArrayList<>(batch.size());
+        for (VersionTableStructure table : batch) {
+            tableNames.add(table.getTableName());
+        }
+
+        List<TableMeta> statistics;
+        try {
+            datasourceConcurrencyLimiter.acquire(datasource);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        try {
+            statistics = extractor.getTablesStatistics(datasource, schemaName, tableNames);
+        } catch (Exception e) {
+            log.warn("读取数据源 {} 的表统计信息失败，下次采样时重试: {}", datasource.getId(), e.getMessage());
+            return -1;
+        } finally {
+            datasourceConcurrencyLimiter.release(datasource);
+        }
+
+        Map<String, TableMeta> statisticsByName = new HashMap<>();
+        for (TableMeta table : statistics) {
+            statisticsByName.put(table.tableName(), table);
+        }
+        for (VersionTableStructure table : batch) {
+            // 源库中已不存在的表不再采样
+            updateStatistics(table, statisticsByName.get(table.getTableName()));
+        }
+        return batch.size();
+    }
+
+    /**
+     * 写回统计信息并清除待采样标记，statistics为null时只清除标记
+     */
+    private void updateStatistics(VersionTableStructure table, TableMeta statistics) {
+        VersionTableStructure update = new VersionTableStructure();
+        update.setId(table.getId());
+        update.setStatsPending(false);
+        if (statistics != null) {
+            update.setTableRows(statistics.tableRows());
+            update.setAvgRowLength(statistics.avgRowLength());
+            update.setDataLength(statistics.dataLength());
+            update.setIndexLength(statistics.indexLength());
+            update.setAutoIncrement(statistics.autoIncrement());
+        }
+        versionTableStructureMapper.updateById(update);
+    }
+
+    /**
+     * 获取项目版本对应的数据源
+     */
+    private Datasource findDatasource(Long projectVersionId) {
+        ProjectVersion projectVersion = projectVersionMapper.selectById(projectVersionId);
+        if (projectVersion == null) {
+            return null;
+        }
+        Project project = projectMapper.selectById(projectVersion.getProjectId());
+        if (project == null || project.getDatasourceId() == null) {
+            return null;
+        }
+        return datasourceMapper.selectById(project.getDatasourceId());
+    }
+
+    /**
+     * 批与批之间暂停
+     * @return 被中断时返回false
+     */
+    private boolean pause(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 版本的采样失败状态
+     * @param failures 连续失败次数
+     * @param retryAt 可以再次采样的时间（毫秒时间戳）
+     */
+    private record SamplingFailure(int failures, long retryAt) {
+    }
+}
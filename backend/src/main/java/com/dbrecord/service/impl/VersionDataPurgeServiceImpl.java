@@ -0,0 +1,328 @@
+package com.dbrecord.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.mapper.TableDefinitionMapper;
+import com.dbrecord.mapper.VersionDatabaseSchemaMapper;
+import com.dbrecord.mapper.VersionDiffMapper;
+import com.dbrecord.mapper.VersionTableColumnMapper;
+import com.dbrecord.mapper.VersionTableIndexMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.SchemaSnapshotCache;
+import com.dbrecord.service.VersionDataPurgeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * 版本结构数据清理服务实现类
+ * 每批按主键顺序取一段版本表结构，在一个事务中删除这些表的字段、索引和表结构本身，
+ * 共享表定义在版本的表结构全部删除后按引用情况清理
+ */
+@Slf4j
+@Service
+public class VersionDataPurgeServiceImpl implements VersionDataPurgeService {
+
+    @Autowired
+    private VersionDatabaseSchemaMapper versionDatabaseSchemaMapper;
+
+    @Autowired
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Autowired
+    private VersionTableColumnMapper versionTableColumnMapper;
+
+    @Autowired
+    private VersionTableIndexMapper versionTableIndexMapper;
+
+    @Autowired
+    private TableDefinitionMapper tableDefinitionMapper;
+
+    @Autowired
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Autowired
+    private VersionDiffMapper versionDiffMapper;
+
+    @Autowired
+    private SchemaSnapshotCache schemaSnapshotCache;
+
+    @Autowired
+    private SchemaCaptureProperties captureProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong totalDeletedRows = new AtomicLong();
+    private volatile LocalDateTime lastRunTime;
+    private volatile long lastRunMillis;
+    private volatile int lastRunVersions;
+    private volatile long lastRunDeletedRows;
+    private volatile String lastError;
+
+    /**
+     * 定期清理已删除版本的结构数据（未启用清理任务时跳过）
+     */
+    @Scheduled(fixedDelayString = "${database.capture.purge.interval-millis:300000}",
+               initialDelayString = "${database.capture.purge.interval-millis:300000}")
+    public void purgeScheduled() {
+        SchemaCaptureProperties.Purge purge = captureProperties.getPurge();
+        if (!purge.isEnabled()) {
+            return;
+        }
+        try {
+            long deleted = purgeDeletedVersions(purge.getMaxVersionsPerRun());
+            if (deleted > 0) {
+                log.info("已删除版本的结构数据清理完成，删除 {} 行", deleted);
+            }
+        } catch (Exception e) {
+            log.error("清理已删除版本的结构数据失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long purgeVersion(Long projectVersionId) {
+        return purgeVersion(projectVersionId, 0);
+    }
+
+    @Override
+    public long purgeTables(Collection<VersionTableStructure> tables) {
+        List<VersionTableStructure> tableList = new ArrayList<>(tables);
+        int chunkSize = chunkSize();
+        long deleted = 0;
+        for (int i = 0; i < tableList.size(); i += chunkSize) {
+            List<VersionTableStructure> chunk = tableList.subList(i, Math.min(i + chunkSize, tableList.size()));
+            List<Long> tableIds = chunk.stream().map(VersionTableStructure::getId).collect(Collectors.toList());
+            Long projectVersionId = chunk.get(0).getProjectVersionId();
+            boolean sameVersion = chunk.stream().allMatch(table -> Objects.equals(projectVersionId, table.getProjectVersionId()));
+            deleted += inTransaction(() -> deleteChildren(sameVersion ? projectVersionId : null, tableIds)
+                    + versionTableStructureMapper.deleteBatchIds(tableIds));
+        }
+        deleted += deleteUnreferencedDefinitions(definitionIdsOf(tableList));
+        return deleted;
+    }
+
+    @Override
+    public long purgeDeletedVersions(int maxVersions) {
+        long start = System.currentTimeMillis();
+        long deleted = 0;
+        int versions = 0;
+        try {
+            for (Long projectVersionId : versionTableStructureMapper.selectPurgeableVersionIds(maxVersions)) {
+                deleted += purgeVersion(projectVersionId, captureProperties.getPurge().getChunkPauseMillis());
+                versions++;
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            }
+            lastError = null;
+        } catch (RuntimeException e) {
+            lastError = e.getMessage();
+            throw e;
+        } finally {
+            lastRunTime = LocalDateTime.now();
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunVersions = versions;
+            lastRunDeletedRows = deleted;
+            totalDeletedRows.addAndGet(deleted);
+        }
+        return deleted;
+    }
+
+    @Override
+    public Map<String, Object> getPurgeStats() {
+        SchemaCaptureProperties.Purge purge = captureProperties.getPurge();
+        Map<String, Object> backlog = versionTableStructureMapper.countPurgeBacklog();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", purge.isEnabled());
+        stats.put("pendingVersions", backlog != null ? backlog.get("pending_versions") : 0);
+        stats.put("pendingTables", backlog != null ? backlog.get("pending_tables") : 0);
+        stats.put("lastRunTime", lastRunTime);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunVersions", lastRunVersions);
+        stats.put("lastRunDeletedRows", lastRunDeletedRows);
+        stats.put("totalDeletedRows", totalDeletedRows.get());
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+    /**
+     * 删除版本的全部结构数据
+     * @param pauseMillis 批与批之间的暂停时间（毫秒），0表示不暂停
+     */
+    private long purgeVersion(Long projectVersionId, long pauseMillis) {
+        int chunkSize = chunkSize();
+        Set<Long> definitionIds = new LinkedHashSet<>();
+        long deleted = 0;
+        long afterId = 0;
+        while (true) {
+            QueryWrapper<VersionTableStructure> queryWrapper = new QueryWrapper<>();
+            queryWrapper.select("id", "definition_id");
+            queryWrapper.eq("project_version_id", projectVersionId);
+            queryWrapper.gt("id", afterId);
+            queryWrapper.orderByAsc("id");
+            queryWrapper.last("LIMIT " + chunkSize);
+            List<VersionTableStructure> chunk = versionTableStructureMapper.selectList(queryWrapper);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Long> tableIds = chunk.stream().map(VersionTableStructure::getId).collect(Collectors.toList());
+            Long firstId = tableIds.get(0);
+            Long lastId = tableIds.get(tableIds.size() - 1);
+            deleted += inTransaction(() -> {
+                QueryWrapper<VersionTableStructure> rangeWrapper = new QueryWrapper<>();
+                rangeWrapper.eq("project_version_id", projectVersionId);
+                rangeWrapper.between("id", firstId, lastId);
+                return deleteChildren(projectVersionId, tableIds) + versionTableStructureMapper.delete(rangeWrapper);
+            });
+            definitionIds.addAll(definitionIdsOf(chunk));
+            afterId = lastId;
+            if (!pause(pauseMillis)) {
+                // 被中断时保留数据库结构信息，下次继续清理
+                schemaSnapshotCache.evict(projectVersionId);
+                return deleted;
+            }
+        }
+
+        // 表结构已删除但仍残留的字段和索引（按冗余的项目版本ID分批清理）
+        deleted += deleteInRowChunks(limit -> versionTableColumnMapper.deleteByVersionId(projectVersionId, limit), pauseMillis);
+        deleted += deleteInRowChunks(limit -> versionTableIndexMapper.deleteByVersionId(projectVersionId, limit), pauseMillis);
+        if (Thread.currentThread().isInterrupted()) {
+            schemaSnapshotCache.evict(projectVersionId);
+            return deleted;
+        }
+
+        // 数据库结构信息最后删除（重新采集时以它判断版本是否已完成采集）
+        QueryWrapper<VersionDatabaseSchema> databaseQueryWrapper = new QueryWrapper<>();
+        databaseQueryWrapper.eq("project_version_id", projectVersionId);
+        deleted += versionDatabaseSchemaMapper.delete(databaseQueryWrapper);
+        // 已归档版本的压缩快照和与该版本相关的预先计算差异随之清除
+        projectVersionMapper.clearArchivedSnapshot(projectVersionId);
+        deleted += versionDiffMapper.deleteByVersionId(projectVersionId);
+
+        // 清理该版本引用过、且已不再被其他版本引用的共享表定义
+        deleted += deleteUnreferencedDefinitions(new ArrayList<>(definitionIds));
+
+        // 版本数据已变化，使缓存的快照失效
+        schemaSnapshotCache.evict(projectVersionId);
+        log.info("项目版本 {} 的结构数据已删除，共 {} 行", projectVersionId, deleted);
+        return deleted;
+    }
+
+    /**
+     * 分批删除，每批最多删除配置的行数并在一个事务中完成，删除行数不足一批或被中断时结束
+     * @param deleteChunk 按给定行数上限删除一批，返回删除的行数
+     * @param pauseMillis 批与批之间的暂停时间（毫秒），0表示不暂停
+     */
+    private long deleteInRowChunks(IntUnaryOperator deleteChunk, long pauseMillis) {
+        int limit = Math.max(1, captureProperties.getPurge().getRowChunkSize());
+        long deleted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long rows = inTransaction(() -> deleteChunk.applyAsInt(limit));
+            deleted += rows;
+            if (rows < limit || !pause(pauseMillis)) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除版本表结构下的字段和索引
+     * @param projectVersionId 这些表结构所属的项目版本ID（带上该条件时走版本前缀索引，分区表只访问一个分区），未知时传null
+     */
+    private long deleteChildren(Long projectVersionId, List<Long> tableIds) {
+        QueryWrapper<VersionTableColumn> columnWrapper = new QueryWrapper<>();
+        columnWrapper.eq(projectVersionId != null, "project_version_id", projectVersionId);
+        columnWrapper.in("version_table_id", tableIds);
+        QueryWrapper<VersionTableIndex> indexWrapper = new QueryWrapper<>();
+        indexWrapper.eq(projectVersionId != null, "project_version_id", projectVersionId);
+        indexWrapper.in("version_table_id", tableIds);
+        return versionTableColumnMapper.delete(columnWrapper) + versionTableIndexMapper.delete(indexWrapper);
+    }
+
+    /**
+     * 删除不再被任何版本引用的共享表定义及其字段和索引
+     * 每批在一个事务中完成，查询未引用定义时加的锁防止并发采集在删除期间引用这些定义
+     * @param definitionIds 候选的表定义ID（被删除表结构曾引用的定义）
+     */
+    private long deleteUnreferencedDefinitions(List<Long> definitionIds) {
+        int chunkSize = chunkSize();
+        long deleted = 0;
+        int definitions = 0;
+        for (int i = 0; i < definitionIds.size(); i += chunkSize) {
+            List<Long> chunk = definitionIds.subList(i, Math.min(i + chunkSize, definitionIds.size()));
+            int[] removedDefinitions = new int[1];
+            deleted += inTransaction(() -> {
+                List<Long> unreferenced = tableDefinitionMapper.selectUnreferencedIds(chunk);
+                if (unreferenced.isEmpty()) {
+                    return 0L;
+                }
+                long rows = versionTableColumnMapper.deleteByDefinitionIds(unreferenced)
+                        + versionTableIndexMapper.deleteByDefinitionIds(unreferenced);
+                int removed = tableDefinitionMapper.deleteBatchIds(unreferenced);
+                removedDefinitions[0] = removed;
+                return rows + removed;
+            });
+            definitions += removedDefinitions[0];
+        }
+        if (definitions > 0) {
+            log.info("删除了 {} 个不再被引用的共享表定义", definitions);
+        }
+        return deleted;
+    }
+
+    private List<Long> definitionIdsOf(Collection<VersionTableStructure> tables) {
+        return tables.stream()
+                .map(VersionTableStructure::getDefinitionId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private long inTransaction(LongSupplier action) {
+        Long rows = transactionTemplate.execute(status -> action.getAsLong());
+        return rows != null ? rows : 0;
+    }
+
+    private int chunkSize() {
+        return Math.max(1, captureProperties.getPurge().getChunkSize());
+    }
+
+    /**
+     * 批与批之间暂停，被中断时返回false
+     */
+    private boolean pause(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.dbrecord.service.impl;
+
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.domain.ProjectVersion;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.SchemaSnapshotCache;
+import com.dbrecord.service.VersionDataPurgeService;
+import com.dbrecord.service.VersionSnapshotArchiveService;
+import com.dbrecord.util.SchemaSnapshotCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 版本结构归档服务实现类
+ * 先写入压缩快照（解码校验通过后才写入），再按快照中的表结构ID分批删除明细行；
+ * 删除中途失败时版本已是归档状态，读取走压缩快照，残留的明细行由重新采集或版本删除时清理
+ */
+@Slf4j
+@Service
+public class VersionSnapshotArchiveServiceImpl implements VersionSnapshotArchiveService {
+
+    @Autowired
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Autowired
+    private DatabaseSchemaService databaseSchemaService;
+
+    @Autowired
+    private VersionDataPurgeService versionDataPurgeService;
+
+    @Autowired
+    private SchemaSnapshotCache schemaSnapshotCache;
+
+    @Autowired
+    private SchemaCaptureProperties captureProperties;
+
+    /**
+     * 定期归档旧版本（未启用归档任务时跳过）
+     */
+    @Scheduled(fixedDelayString = "${database.capture.archive.interval-millis:3600000}",
+               initialDelayString = "${database.capture.archive.interval-millis:3600000}")
+    public void archiveScheduled() {
+        SchemaCaptureProperties.Archive archive = captureProperties.getArchive();
+        if (!archive.isEnabled()) {
+            return;
+        }
+        try {
+            int archived = archiveEligibleVersions(archive.getMaxVersionsPerRun());
+            if (archived > 0) {
+                log.info("版本结构归档完成，归档版本数量: {}", archived);
+            }
+        } catch (Exception e) {
+            log.error("版本结构归档失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int archiveEligibleVersions(int maxVersions) {
+        SchemaCaptureProperties.Archive archive = captureProperties.getArchive();
+        LocalDateTime createdBefore = archive.getMinAgeDays() > 0
+                ? LocalDateTime.now().minusDays(archive.getMinAgeDays()) : null;
+        List<Long> versionIds = projectVersionMapper.selectArchivableVersionIds(
+                createdBefore, archive.getKeepLatestVersions(), maxVersions);
+
+        int archived = 0;
+        for (Long projectVersionId : versionIds) {
+            try {
+                if (archiveVersion(projectVersionId)) {
+                    archived++;
+                }
+            } catch (Exception e) {
+                // 单个版本失败不影响其他版本
+                log.error("归档项目版本 {} 失败: {}", projectVersionId, e.getMessage(), e);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public boolean archiveVersion(Long projectVersionId) {
+        ProjectVersion version = projectVersionMapper.selectById(projectVersionId);
+        if (version == null || version.getStatus() == null || version.getStatus() != 1
+                || version.getArchivedTime() != null) {
+            return false;
+        }
+
+        SchemaSnapshot snapshot = databaseSchemaService.getSchemaSnapshot(projectVersionId);
+        if (!snapshot.hasDatabaseSchema()) {
+            log.warn("项目版本 {} 尚未完成采集，跳过归档", projectVersionId);
+            return false;
+        }
+
+        byte[] data = SchemaSnapshotCodec.encode(snapshot);
+        SchemaSnapshot decoded = SchemaSnapshotCodec.decode(data);
+        if (decoded.getTables().size() != snapshot.getTables().size() || decoded.weight() != snapshot.weight()) {
+            throw new IllegalStateException("项目版本 " + projectVersionId + " 的压缩快照校验失败");
+        }
+
+        // 期间被重新采集（数据库结构信息已被删除）时不写入
+        int updated = projectVersionMapper.updateArchivedSnapshot(projectVersionId, data, LocalDateTime.now(),
+                snapshot.getDatabaseSchema().getId());
+        if (updated == 0) {
+            log.warn("项目版本 {} 已归档或正在重新采集，跳过归档", projectVersionId);
+            return false;
+        }
+        schemaSnapshotCache.evict(projectVersionId);
+
+        // 只删除快照中的表结构，避免误删期间新写入的数据
+        long deleted = versionDataPurgeService.purgeTables(snapshot.getTableStructures());
+        log.info("项目版本 {} 已归档，表数量: {}，删除明细 {} 行，压缩快照 {} 字节",
+                projectVersionId, snapshot.getTables().size(), deleted, data.length);
+        return true;
+    }
+}
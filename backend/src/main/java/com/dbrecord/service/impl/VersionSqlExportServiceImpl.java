@@ -0,0 +1,504 @@
+package com.dbrecord.service.impl;
+
+import com.dbrecord.entity.domain.ProjectVersion;
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.dbrecord.entity.snapshot.TableSnapshot;
+import com.dbrecord.mapper.VersionTableColumnMapper;
+import com.dbrecord.mapper.VersionTableIndexMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.VersionSqlExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 版本结构SQL导出服务实现类
+ * 按 (schema, 表名) 顺序分页读取表结构，每页的字段和索引各用一次查询加载，生成一个表的SQL就写出一个表
+ * 已归档的版本从压缩快照按同样的顺序导出
+ */
+@Slf4j
+@Service
+public class VersionSqlExportServiceImpl implements VersionSqlExportService {
+
+    /**
+     * 每页读取的表数量
+     */
+    private static final int TABLE_PAGE_SIZE = 200;
+
+    @Autowired
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Autowired
+    private VersionTableColumnMapper versionTableColumnMapper;
+
+    @Autowired
+    private VersionTableIndexMapper versionTableIndexMapper;
+
+    @Autowired
+    private DatabaseSchemaService databaseSchemaService;
+
+    @Override
+    public String generateVersionSql(ProjectVersion version, String databaseType) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeVersionSql(version, databaseType, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void writeVersionSql(ProjectVersion version, String databaseType, Writer writer) throws IOException {
+        Long versionId = version.getId();
+        boolean postgresLike = isPostgresLike(databaseType);
+
+        // 添加头部注释
+        writer.write("-- 数据库结构导出\n");
+        writer.write("-- 版本: " + version.getVersionName() + "\n");
+        writer.write("-- 版本ID: " + versionId + "\n");
+        writer.write("-- 导出时间: " + new java.util.Date() + "\n\n");
+
+        // 添加数据库信息
+        VersionDatabaseSchema databaseSchema = databaseSchemaService.getVersionDatabaseSchema(versionId);
+        if (databaseSchema != null) {
+            writer.write("-- 数据库信息\n");
+            writer.write("-- 数据库名: " + databaseSchema.getDatabaseName() + "\n");
+            writer.write("-- 字符集: " + databaseSchema.getCharset() + "\n");
+            writer.write("-- 排序规则: " + databaseSchema.getCollation() + "\n\n");
+        }
+
+        // PostgreSQL/KingbaseES: 先创建schema，再按schema分组创建表
+        Map<String, Long> schemaTableCounts = countTablesBySchema(versionId);
+        List<TableSnapshot> archivedTables = null;
+        if (schemaTableCounts.isEmpty()) {
+            // 已归档版本的明细行已删除，改从压缩快照导出
+            archivedTables = sortedTables(databaseSchemaService.getSchemaSnapshot(versionId));
+            schemaTableCounts = countTablesBySchema(archivedTables);
+        }
+        if (schemaTableCounts.isEmpty()) {
+            writer.write("-- 该版本暂无表结构数据\n");
+            writer.flush();
+            return;
+        }
+        if (postgresLike) {
+            writer.write("-- 创建Schema\n");
+            for (String schemaName : schemaTableCounts.keySet()) {
+                if (!"public".equals(schemaName)) {
+                    writer.write("CREATE SCHEMA IF NOT EXISTS \"" + schemaName + "\";\n");
+                }
+            }
+            writer.write("\n");
+        }
+
+        String currentSchema = null;
+        String afterSchemaName = null;
+        String afterTableName = null;
+        int tableCount = 0;
+        while (true) {
+            List<VersionTableStructure> tables;
+            Map<Long, List<VersionTableColumn>> columnsByTable;
+            Map<Long, List<VersionTableIndex>> indexesByTable;
+            if (archivedTables != null) {
+                List<TableSnapshot> page = archivedTables.subList(tableCount,
+                        Math.min(tableCount + TABLE_PAGE_SIZE, archivedTables.size()));
+                if (page.isEmpty()) {
+                    break;
+                }
+                tables = page.stream().map(TableSnapshot::getTable).collect(Collectors.toList());
+                columnsByTable = page.stream().collect(Collectors.toMap(TableSnapshot::getId, TableSnapshot::getColumns));
+                indexesByTable = page.stream().collect(Collectors.toMap(TableSnapshot::getId, TableSnapshot::getIndexes));
+            } else {
+                tables = versionTableStructureMapper.selectPageByVersionId(
+                        versionId, afterSchemaName, afterTableName, TABLE_PAGE_SIZE);
+                if (tables.isEmpty()) {
+                    break;
+                }
+
+                List<Long> tableIds = tables.stream().map(VersionTableStructure::getId).collect(Collectors.toList());
+                columnsByTable = versionTableColumnMapper.selectByVersionTableIds(versionId, tableIds)
+                        .stream().collect(Collectors.groupingBy(VersionTableColumn::getVersionTableId));
+                indexesByTable = versionTableIndexMapper.selectByVersionTableIds(versionId, tableIds)
+                        .stream().collect(Collectors.groupingBy(VersionTableIndex::getVersionTableId));
+            }
+
+            for (VersionTableStructure table : tables) {
+                if (postgresLike) {
+                    String schemaName = table.getSchemaName() == null || table.getSchemaName().isEmpty()
+                            ? "public" : table.getSchemaName();
+                    if (!schemaName.equals(currentSchema)) {
+                        if (currentSchema != null) {
+                            writer.write("\n");
+                        }
+                        currentSchema = schemaName;
+                        writer.write("-- Schema: " + schemaName + " (" + schemaTableCounts.getOrDefault(schemaName, 0L) + "个表)\n");
+                        writer.write("-- " + "=".repeat(50) + "\n\n");
+                    }
+                }
+                writer.write(generateCreateTableSql(table,
+                        columnsByTable.getOrDefault(table.getId(), Collections.emptyList()),
+                        indexesByTable.getOrDefault(table.getId(), Collections.emptyList()),
+                        postgresLike ? "postgresql" : databaseType));
+                writer.write("\n");
+            }
+
+            tableCount += tables.size();
+            VersionTableStructure last = tables.get(tables.size() - 1);
+            afterSchemaName = last.getSchemaName();
+            afterTableName = last.getTableName();
+            writer.flush();
+        }
+        if (postgresLike) {
+            writer.write("\n");
+        }
+        writer.flush();
+        log.info("版本 {} 的SQL导出完成，共 {} 个表", versionId, tableCount);
+    }
+
+    /**
+     * 各schema下的表数量，按schema名排序
+     */
+    private Map<String, Long> countTablesBySchema(Long versionId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Map<String, Object> row : versionTableStructureMapper.countTablesBySchema(versionId)) {
+            Object schemaName = row.get("schema_name");
+            Object tableCount = row.get("table_count");
+            String key = schemaName == null || schemaName.toString().isEmpty() ? "public" : schemaName.toString();
+            counts.merge(key, tableCount instanceof Number ? ((Number) tableCount).longValue() : 0L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * 各schema下的表数量（从归档快照统计），按schema名排序
+     */
+    private Map<String, Long> countTablesBySchema(List<TableSnapshot> tables) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TableSnapshot table : tables) {
+            String schemaName = table.getSchemaName();
+            counts.merge(schemaName == null || schemaName.isEmpty() ? "public" : schemaName, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * 快照中的表按 (schema, 表名) 排序，与分页查询的顺序一致
+     */
+    private List<TableSnapshot> sortedTables(SchemaSnapshot snapshot) {
+        return snapshot.getTables().stream()
+                .sorted(Comparator.comparing(TableSnapshot::getSchemaName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                        .thenComparing(TableSnapshot::getTableName, Comparator.nullsFirst(Comparator.<String>naturalOrder())))
+                .collect(Collectors.toList());
+    }
+
+    private boolean isPostgresLike(String databaseType) {
+        return "postgresql".equalsIgnoreCase(databaseType) || "kingbase".equalsIgnoreCase(databaseType);
+    }
+
+    /**
+     * 将MySQL字段类型转换为PostgreSQL字段类型
+     */
+    private String convertColumnTypeForPostgreSQL(String mysqlType, String extra) {
+        if (mysqlType == null) {
+            return "TEXT";
+        }
+
+        String type = mysqlType.toLowerCase().trim();
+
+        // 处理AUTO_INCREMENT
+        if (extra != null && extra.toLowerCase().contains("auto_increment")) {
+            if (type.contains("bigint")) {
+                return "BIGSERIAL";
+            } else if (type.contains("int")) {
+                return "SERIAL";
+            }
+        }
+
+        // 处理已经是PostgreSQL格式的类型（从PostgreSQL数据源捕获的）
+        if (type.startsWith("character varying")) {
+            return type.replace("character varying", "VARCHAR");
+        }
+        if (type.equals("character")) {
+            return "CHAR";
+        }
+        if (type.equals("timestamp without time zone")) {
+            return "TIMESTAMP";
+        }
+        if (type.equals("timestamp with time zone")) {
+            return "TIMESTAMPTZ";
+        }
+        
+        // 字符串类型
+        if (type.startsWith("varchar")) {
+            return type.replace("varchar", "VARCHAR");
+        }
+        if (type.startsWith("char")) {
+            return type.replace("char", "CHAR");
+        }
+        if (type.equals("text") || type.equals("longtext") || type.equals("mediumtext")) {
+            return "TEXT";
+        }
+        if (type.equals("tinytext")) {
+            return "TEXT";
+        }
+        
+        // 数值类型
+        if (type.equals("tinyint(1)") || type.equals("boolean")) {
+            return "BOOLEAN";
+        }
+        if (type.startsWith("tinyint")) {
+            return "SMALLINT";
+        }
+        if (type.startsWith("smallint")) {
+            return "SMALLINT";
+        }
+        if (type.startsWith("mediumint") || type.startsWith("int")) {
+            return "INTEGER";
+        }
+        if (type.startsWith("bigint")) {
+            return "BIGINT";
+        }
+        if (type.startsWith("decimal") || type.startsWith("numeric")) {
+            return type.toUpperCase();
+        }
+        if (type.startsWith("float")) {
+            return "REAL";
+        }
+        if (type.startsWith("double")) {
+            return "DOUBLE PRECISION";
+        }
+        
+        // 日期时间类型
+        if (type.equals("datetime")) {
+            return "TIMESTAMP";
+        }
+        if (type.equals("date")) {
+            return "DATE";
+        }
+        if (type.equals("time")) {
+            return "TIME";
+        }
+        if (type.equals("timestamp")) {
+            return "TIMESTAMP";
+        }
+        if (type.equals("year")) {
+            return "INTEGER";
+        }
+        
+        // 二进制类型
+        if (type.startsWith("blob") || type.equals("longblob") || type.equals("mediumblob")) {
+            return "BYTEA";
+        }
+        if (type.startsWith("binary") || type.startsWith("varbinary")) {
+            return "BYTEA";
+        }
+        
+        // JSON类型
+        if (type.equals("json")) {
+            return "JSON";
+        }
+        
+        // 枚举和集合类型
+        if (type.startsWith("enum")) {
+            return "VARCHAR(255)";
+        }
+        if (type.startsWith("set")) {
+            return "TEXT";
+        }
+        
+        // 默认返回原类型
+        return mysqlType.toUpperCase();
+    }
+    
+    /**
+     * 生成创建表的SQL语句
+     */
+    private String generateCreateTableSql(VersionTableStructure table, List<VersionTableColumn> columns,
+                                          List<VersionTableIndex> indexes, String databaseType) {
+        StringBuilder sql = new StringBuilder();
+
+        String tableName = table.getTableName();
+        String schemaName = table.getSchemaName();
+        String tableComment = table.getTableComment();
+        String engine = table.getEngine();
+        String charset = table.getCharset();
+        String collation = table.getCollation();
+        Long autoIncrement = table.getAutoIncrement();
+
+        // 构建完整的表名（包含schema）
+        String fullTableName = tableName;
+        if ("postgresql".equalsIgnoreCase(databaseType) && schemaName != null && !schemaName.isEmpty()) {
+            fullTableName = schemaName + "." + tableName;
+        }
+
+        sql.append("-- 表: ").append(fullTableName);
+        if (tableComment != null && !tableComment.isEmpty()) {
+            sql.append(" (").append(tableComment).append(")");
+        }
+        sql.append("\n");
+
+        // 根据数据库类型生成不同的语法
+        if (isPostgresLike(databaseType)) {
+            // PostgreSQL/KingbaseES语法，使用schema.table格式
+            if (schemaName != null && !schemaName.isEmpty()) {
+                sql.append("DROP TABLE IF EXISTS \"").append(schemaName).append("\".\"").append(tableName).append("\" CASCADE;\n");
+                sql.append("CREATE TABLE \"").append(schemaName).append("\".\"").append(tableName).append("\" (\n");
+            } else {
+                sql.append("DROP TABLE IF EXISTS \"").append(tableName).append("\" CASCADE;\n");
+                sql.append("CREATE TABLE \"").append(tableName).append("\" (\n");
+            }
+        } else {
+            // MySQL语法
+            sql.append("DROP TABLE IF EXISTS `").append(tableName).append("`;\n");
+            sql.append("CREATE TABLE `").append(tableName).append("` (\n");
+        }
+        
+        // 添加字段定义
+        for (int i = 0; i < columns.size(); i++) {
+            VersionTableColumn column = columns.get(i);
+            
+            if (isPostgresLike(databaseType)) {
+                sql.append("  \"").append(column.getColumnName()).append("\" ");
+                // PostgreSQL/KingbaseES字段类型转换
+                sql.append(convertColumnTypeForPostgreSQL(column.getColumnType(), column.getExtra()));
+            } else {
+                // MySQL语法
+                sql.append("  `").append(column.getColumnName()).append("` ");
+                sql.append(column.getColumnType());
+            }
+            
+            // 处理NULL约束
+            if ("NO".equals(column.getIsNullable())) {
+                sql.append(" NOT NULL");
+            }
+            
+            // 处理默认值
+            String defaultValue = column.getColumnDefault();
+            if (defaultValue != null && !"null".equalsIgnoreCase(defaultValue)) {
+                sql.append(" DEFAULT '").append(defaultValue).append("'");
+            }
+            
+            // 处理额外属性（如AUTO_INCREMENT）
+            String extra = column.getExtra();
+            if (extra != null && !extra.isEmpty() && !"postgresql".equalsIgnoreCase(databaseType)) {
+                // PostgreSQL的AUTO_INCREMENT已在类型转换中处理
+                sql.append(" ").append(extra.toUpperCase());
+            }
+            
+            // 处理字段注释（PostgreSQL注释需要单独的COMMENT语句，在建表语句之后生成）
+            String columnComment = column.getColumnComment();
+            if (columnComment != null && !columnComment.isEmpty() && !"postgresql".equalsIgnoreCase(databaseType)) {
+                sql.append(" COMMENT '").append(columnComment.replace("'", "\\'")).append("'");
+            }
+            
+            if (i < columns.size() - 1) {
+                sql.append(",");
+            }
+            sql.append("\n");
+        }
+        
+        // 添加索引定义
+        for (VersionTableIndex index : indexes) {
+            String indexName = index.getIndexName();
+            String columnNames = index.getColumnNames();
+            
+            sql.append(",\n  ");
+            
+            if (Boolean.TRUE.equals(index.getIsPrimary())) {
+                sql.append("PRIMARY KEY (").append(columnNames).append(")");
+            } else if (Boolean.TRUE.equals(index.getIsUnique())) {
+                if (isPostgresLike(databaseType)) {
+                    sql.append("UNIQUE (").append(columnNames).append(")");
+                } else {
+                    sql.append("UNIQUE KEY `").append(indexName).append("` (").append(columnNames).append(")");
+                }
+            } else if (!isPostgresLike(databaseType)) {
+                // PostgreSQL/KingbaseES的普通索引需要在CREATE TABLE外部创建，后面单独处理
+                sql.append("KEY `").append(indexName).append("` (").append(columnNames).append(")");
+            }
+        }
+        
+        if (isPostgresLike(databaseType)) {
+            sql.append("\n);");
+
+            // PostgreSQL/KingbaseES表注释
+            if (tableComment != null && !tableComment.isEmpty()) {
+                sql.append("\nCOMMENT ON TABLE \"").append(tableName).append("\" IS '").append(tableComment.replace("'", "\\'")).append("';");
+            }
+            
+            // 构建完整表名（用于注释和索引）
+            String quotedTableName = schemaName != null && !schemaName.isEmpty() ?
+                "\"" + schemaName + "\".\"" + tableName + "\"" : "\"" + tableName + "\"";
+
+            // PostgreSQL字段注释
+            for (VersionTableColumn column : columns) {
+                String columnComment = column.getColumnComment();
+                if (columnComment != null && !columnComment.isEmpty()) {
+                    sql.append("\nCOMMENT ON COLUMN ").append(quotedTableName).append(".\"").append(column.getColumnName()).append("\" IS '").append(columnComment.replace("'", "\\'")).append("';");
+                }
+            }
+
+            // PostgreSQL索引
+            for (VersionTableIndex index : indexes) {
+                String indexName = index.getIndexName();
+                String columnNames = index.getColumnNames();
+                String indexComment = index.getIndexComment();
+
+                // 跳过主键索引（已在表定义中处理）
+                if (Boolean.TRUE.equals(index.getIsPrimary())) {
+                    continue;
+                }
+
+                if (Boolean.TRUE.equals(index.getIsUnique())) {
+                    sql.append("\nCREATE UNIQUE INDEX \"").append(indexName).append("\" ON ").append(quotedTableName).append(" (").append(columnNames).append(");");
+                } else {
+                    sql.append("\nCREATE INDEX \"").append(indexName).append("\" ON ").append(quotedTableName).append(" (").append(columnNames).append(");");
+                }
+
+                // 添加索引注释
+                if (indexComment != null && !indexComment.isEmpty()) {
+                    sql.append("\nCOMMENT ON INDEX \"").append(indexName).append("\" IS '").append(indexComment.replace("'", "\\'")).append("';");
+                }
+            }
+        } else {
+            // MySQL语法
+            sql.append("\n) ENGINE=").append(engine != null ? engine : "InnoDB");
+            
+            if (autoIncrement != null && autoIncrement != 0L) {
+                sql.append(" AUTO_INCREMENT=").append(autoIncrement);
+            }
+            
+            if (charset != null) {
+                sql.append(" DEFAULT CHARSET=").append(charset);
+            }
+            
+            if (collation != null) {
+                sql.append(" COLLATE=").append(collation);
+            }
+            
+            if (tableComment != null && !tableComment.isEmpty()) {
+                sql.append(" COMMENT='").append(tableComment.replace("'", "\\'")).append("'");
+            }
+        }
+        
+        sql.append(";\n");
+        
+        return sql.toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.dbrecord.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 名称匹配规则集合（schema名、表名过滤使用）
+ * 规则有三种写法：普通名称精确匹配；含 * 或 ? 的通配符（* 匹配任意个字符，? 匹配一个字符）；
+ * 以 regex: 开头的正则表达式（整个名称匹配）。
+ * 规则在创建时编译一次：精确名称放入哈希集合，通配符和正则合并为一个正则表达式，匹配时不再逐条比较
+ */
+public final class NamePatternSet {
+
+    /**
+     * 正则表达式规则前缀
+     */
+    public static final String REGEX_PREFIX = "regex:";
+
+    private static final NamePatternSet EMPTY = new NamePatternSet(Collections.emptySet(),
+            Collections.emptyList(), Collections.emptyList(), null);
+
+    private final Set<String> exactNames;
+    private final List<String> globs;
+    private final List<String> regexes;
+    private final Pattern combinedPattern;
+
+    private NamePatternSet(Set<String> exactNames, List<String> globs, List<String> regexes, Pattern combinedPattern) {
+        this.exactNames = exactNames;
+        this.globs = globs;
+        this.regexes = regexes;
+        this.combinedPattern = combinedPattern;
+    }
+
+    /**
+     * 编译规则
+     * @param patterns 规则列表，可以为null
+     * @return 规则集合
+     * @throws IllegalArgumentException 正则表达式语法错误
+     */
+    public static NamePatternSet compile(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+        Set<String> exactNames = new HashSet<>();
+        List<String> globs = new ArrayList<>();
+        List<String> regexes = new ArrayList<>();
+        List<String> alternatives = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            if (pattern.startsWith(REGEX_PREFIX)) {
+                String regex = pattern.substring(REGEX_PREFIX.length());
+                Pattern.compile(regex);
+                regexes.add(regex);
+                alternatives.add(regex);
+            } else if (isGlob(pattern)) {
+                globs.add(pattern);
+                alternatives.add(globToRegex(pattern));
+            } else {
+                exactNames.add(pattern);
+            }
+        }
+        Pattern combinedPattern = null;
+        if (!alternatives.isEmpty()) {
+            combinedPattern = Pattern.compile("(?:" + String.join(")|(?:", alternatives) + ")");
+        }
+        return new NamePatternSet(Collections.unmodifiableSet(exactNames), Collections.unmodifiableList(globs),
+                Collections.unmodifiableList(regexes), combinedPattern);
+    }
+
+    /**
+     * 名称是否匹配任意一条规则
+     */
+    public boolean matches(String name) {
+        if (name == null) {
+            return false;
+        }
+        if (exactNames.contains(name)) {
+            return true;
+        }
+        return combinedPattern != null && combinedPattern.matcher(name).matches();
+    }
+
+    /**
+     * 是否没有任何规则
+     */
+    public boolean isEmpty() {
+        return exactNames.isEmpty() && combinedPattern == null;
+    }
+
+    /**
+     * 精确匹配的名称（用于SQL的 IN 条件）
+     */
+    public Set<String> getExactNames() {
+        return exactNames;
+    }
+
+    /**
+     * 通配符规则转换成的SQL LIKE模式，使用反斜杠作为转义字符
+     */
+    public List<String> getLikePatterns() {
+        List<String> likePatterns = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            likePatterns.add(globToLike(glob));
+        }
+        return likePatterns;
+    }
+
+    /**
+     * 正则表达式规则（不含前缀）
+     * 正则按Java语法编译，不能原样交给数据库的正则运算符，只在 {@link #matches} 中使用
+     */
+    public List<String> getRegexes() {
+        return regexes;
+    }
+
+    /**
+     * 是否包含正则表达式规则
+     */
+    public boolean hasRegexes() {
+        return !regexes.isEmpty();
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    private static String globToLike(String glob) {
+        StringBuilder like = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> like.append('%');
+                case '?' -> like.append('_');
+                case '%', '_', '\\' -> like.append('\\').append(c);
+                default -> like.append(c);
+            }
+        }
+        return like.toString();
+    }
+}
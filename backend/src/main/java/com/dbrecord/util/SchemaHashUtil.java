@@ -0,0 +1,122 @@
+package com.dbrecord.util;
+
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * 表结构内容哈希工具类
+ * 对表的字段、索引和注释做规范化（按名称排序、忽略ID和时间等非结构信息）后计算SHA-256，
+ * 内容相同的表在不同版本中得到相同的哈希，用于版本对比时跳过未变化的表，以及共享表定义的去重。
+ * 哈希必须覆盖字段和索引的全部存储内容，否则去重时会丢失信息
+ */
+public class SchemaHashUtil {
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private SchemaHashUtil() {
+    }
+
+    /**
+     * 计算单个表的内容哈希
+     * @param table 表结构（只使用表注释）
+     * @param columns 字段列表
+     * @param indexes 索引列表
+     * @return 64位十六进制SHA-256
+     */
+    public static String tableHash(VersionTableStructure table, List<VersionTableColumn> columns, List<VersionTableIndex> indexes) {
+        StringBuilder canonical = new StringBuilder();
+        append(canonical, "T", table.getTableComment());
+
+        List<VersionTableColumn> sortedColumns = new ArrayList<>(columns);
+        sortedColumns.sort(Comparator.comparing(VersionTableColumn::getColumnName, NULLS_FIRST));
+        for (VersionTableColumn column : sortedColumns) {
+            append(canonical, "C",
+                    column.getColumnName(),
+                    column.getOrdinalPosition(),
+                    column.getColumnType(),
+                    column.getDataType(),
+                    column.getCharacterMaximumLength(),
+                    column.getCharacterOctetLength(),
+                    column.getNumericPrecision(),
+                    column.getNumericScale(),
+                    column.getDatetimePrecision(),
+                    column.getIsNullable(),
+                    column.getColumnDefault(),
+                    column.getColumnKey(),
+                    column.getExtra(),
+                    column.getCharacterSetName(),
+                    column.getCollationName(),
+                    column.getColumnComment());
+        }
+
+        List<VersionTableIndex> sortedIndexes = new ArrayList<>(indexes);
+        sortedIndexes.sort(Comparator.comparing(VersionTableIndex::getIndexName, NULLS_FIRST));
+        for (VersionTableIndex index : sortedIndexes) {
+            append(canonical, "I",
+                    index.getIndexName(),
+                    index.getIndexType(),
+                    index.getIsUnique(),
+                    index.getIsPrimary(),
+                    index.getColumnNames(),
+                    index.getSubPart(),
+                    index.getIndexComment());
+        }
+        return sha256(canonical.toString());
+    }
+
+    /**
+     * 计算整库的内容哈希，表需已设置内容哈希
+     * @param tables 表结构列表
+     * @return 64位十六进制SHA-256
+     */
+    public static String schemaHash(List<VersionTableStructure> tables) {
+        List<String> entries = new ArrayList<>(tables.size());
+        for (VersionTableStructure table : tables) {
+            StringBuilder entry = new StringBuilder();
+            append(entry, "S", table.getSchemaName() != null ? table.getSchemaName() : "public",
+                    table.getTableName(), table.getContentHash());
+            entries.add(entry.toString());
+        }
+        entries.sort(Comparator.naturalOrder());
+
+        StringBuilder canonical = new StringBuilder();
+        for (String entry : entries) {
+            canonical.append(entry);
+        }
+        return sha256(canonical.toString());
+    }
+
+    /**
+     * 追加一条记录：类型标记 + 各字段（长度前缀，null单独标记），避免字段拼接产生歧义
+     */
+    private static void append(StringBuilder sb, String type, Object... values) {
+        sb.append(type);
+        for (Object value : values) {
+            if (value == null) {
+                sb.append("|-");
+            } else {
+                String text = value.toString();
+                sb.append('|').append(text.length()).append(':').append(text);
+            }
+        }
+        sb.append('\n');
+    }
+
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
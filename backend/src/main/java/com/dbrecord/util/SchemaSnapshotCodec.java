@@ -0,0 +1,424 @@
+package com.dbrecord.util;
+
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.dbrecord.entity.snapshot.TableSnapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 版本结构快照的压缩二进制编码，用于归档版本存入 project_version.schema_snapshot
+ * 列式布局：表、字段、索引各自按属性逐列写出，字段和索引按所属表的顺序排列，只记录每个表的字段数和索引数；
+ * 所有字符串（类型、字符集、排序规则、名称等）进入同一个字典，各列只记录字典序号；ID按差值编码，整体使用Deflate压缩
+ */
+public class SchemaSnapshotCodec {
+
+    private static final int MAGIC = 0x44525353;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final List<Field<VersionDatabaseSchema>> DATABASE_FIELDS = List.of(
+            longField(VersionDatabaseSchema::getId, VersionDatabaseSchema::setId, false),
+            stringField(VersionDatabaseSchema::getDatabaseName, VersionDatabaseSchema::setDatabaseName),
+            stringField(VersionDatabaseSchema::getCharset, VersionDatabaseSchema::setCharset),
+            stringField(VersionDatabaseSchema::getCollation, VersionDatabaseSchema::setCollation),
+            stringField(VersionDatabaseSchema::getSchemasInfo, VersionDatabaseSchema::setSchemasInfo),
+            timeField(VersionDatabaseSchema::getSnapshotTime, VersionDatabaseSchema::setSnapshotTime),
+            longField(VersionDatabaseSchema::getUserId, VersionDatabaseSchema::setUserId, false),
+            stringField(VersionDatabaseSchema::getSchemaHash, VersionDatabaseSchema::setSchemaHash),
+            timeField(VersionDatabaseSchema::getCreateTime, VersionDatabaseSchema::setCreateTime));
+
+    private static final List<Field<VersionTableStructure>> TABLE_FIELDS = List.of(
+            longField(VersionTableStructure::getId, VersionTableStructure::setId, true),
+            stringField(VersionTableStructure::getTableName, VersionTableStructure::setTableName),
+            stringField(VersionTableStructure::getSchemaName, VersionTableStructure::setSchemaName),
+            stringField(VersionTableStructure::getTableComment, VersionTableStructure::setTableComment),
+            stringField(VersionTableStructure::getTableType, VersionTableStructure::setTableType),
+            stringField(VersionTableStructure::getEngine, VersionTableStructure::setEngine),
+            stringField(VersionTableStructure::getCharset, VersionTableStructure::setCharset),
+            stringField(VersionTableStructure::getCollation, VersionTableStructure::setCollation),
+            stringField(VersionTableStructure::getRowFormat, VersionTableStructure::setRowFormat),
+            longField(VersionTableStructure::getTableRows, VersionTableStructure::setTableRows, false),
+            longField(VersionTableStructure::getAvgRowLength, VersionTableStructure::setAvgRowLength, false),
+            longField(VersionTableStructure::getDataLength, VersionTableStructure::setDataLength, false),
+            longField(VersionTableStructure::getIndexLength, VersionTableStructure::setIndexLength, false),
+            longField(VersionTableStructure::getAutoIncrement, VersionTableStructure::setAutoIncrement, false),
+            longField(VersionTableStructure::getDefinitionId, VersionTableStructure::setDefinitionId, false),
+            stringField(VersionTableStructure::getContentHash, VersionTableStructure::setContentHash),
+            stringField(VersionTableStructure::getChangeMarker, VersionTableStructure::setChangeMarker),
+            booleanField(VersionTableStructure::getStatsPending, VersionTableStructure::setStatsPending),
+            timeField(VersionTableStructure::getCreateTime, VersionTableStructure::setCreateTime));
+
+    private static final List<Field<VersionTableColumn>> COLUMN_FIELDS = List.of(
+            longField(VersionTableColumn::getId, VersionTableColumn::setId, true),
+            stringField(VersionTableColumn::getColumnName, VersionTableColumn::setColumnName),
+            intField(VersionTableColumn::getOrdinalPosition, VersionTableColumn::setOrdinalPosition),
+            stringField(VersionTableColumn::getColumnDefault, VersionTableColumn::setColumnDefault),
+            stringField(VersionTableColumn::getIsNullable, VersionTableColumn::setIsNullable),
+            stringField(VersionTableColumn::getDataType, VersionTableColumn::setDataType),
+            longField(VersionTableColumn::getCharacterMaximumLength, VersionTableColumn::setCharacterMaximumLength, false),
+            longField(VersionTableColumn::getCharacterOctetLength, VersionTableColumn::setCharacterOctetLength, false),
+            intField(VersionTableColumn::getNumericPrecision, VersionTableColumn::setNumericPrecision),
+            intField(VersionTableColumn::getNumericScale, VersionTableColumn::setNumericScale),
+            intField(VersionTableColumn::getDatetimePrecision, VersionTableColumn::setDatetimePrecision),
+            stringField(VersionTableColumn::getCharacterSetName, VersionTableColumn::setCharacterSetName),
+            stringField(VersionTableColumn::getCollationName, VersionTableColumn::setCollationName),
+            stringField(VersionTableColumn::getColumnType, VersionTableColumn::setColumnType),
+            stringField(VersionTableColumn::getColumnKey, VersionTableColumn::setColumnKey),
+            stringField(VersionTableColumn::getExtra, VersionTableColumn::setExtra),
+            stringField(VersionTableColumn::getColumnComment, VersionTableColumn::setColumnComment),
+            longField(VersionTableColumn::getDefinitionId, VersionTableColumn::setDefinitionId, false),
+            timeField(VersionTableColumn::getCreateTime, VersionTableColumn::setCreateTime));
+
+    private static final List<Field<VersionTableIndex>> INDEX_FIELDS = List.of(
+            longField(VersionTableIndex::getId, VersionTableIndex::setId, true),
+            stringField(VersionTableIndex::getIndexName, VersionTableIndex::setIndexName),
+            stringField(VersionTableIndex::getIndexType, VersionTableIndex::setIndexType),
+            booleanField(VersionTableIndex::getIsUnique, VersionTableIndex::setIsUnique),
+            booleanField(VersionTableIndex::getIsPrimary, VersionTableIndex::setIsPrimary),
+            stringField(VersionTableIndex::getColumnNames, VersionTableIndex::setColumnNames),
+            stringField(VersionTableIndex::getSubPart, VersionTableIndex::setSubPart),
+            stringField(VersionTableIndex::getIndexComment, VersionTableIndex::setIndexComment),
+            longField(VersionTableIndex::getDefinitionId, VersionTableIndex::setDefinitionId, false),
+            timeField(VersionTableIndex::getCreateTime, VersionTableIndex::setCreateTime));
+
+    private SchemaSnapshotCodec() {
+    }
+
+    /**
+     * 将版本结构快照编码为压缩的二进制数据
+     * @param snapshot 结构快照
+     * @return 压缩后的二进制数据
+     */
+    public static byte[] encode(SchemaSnapshot snapshot) {
+        try {
+            List<VersionTableStructure> tables = new ArrayList<>(snapshot.getTables().size());
+            List<VersionTableColumn> columns = new ArrayList<>();
+            List<VersionTableIndex> indexes = new ArrayList<>();
+            for (TableSnapshot table : snapshot.getTables()) {
+                tables.add(table.getTable());
+                columns.addAll(table.getColumns());
+                indexes.addAll(table.getIndexes());
+            }
+
+            Encoder body = new Encoder();
+            writeVarLong(body.out, snapshot.getProjectVersionId());
+            body.writeRows(snapshot.getDatabaseSchema() != null ? List.of(snapshot.getDatabaseSchema()) : List.of(), DATABASE_FIELDS);
+            body.writeRows(tables, TABLE_FIELDS);
+            for (TableSnapshot table : snapshot.getTables()) {
+                writeVarLong(body.out, table.getColumnCount());
+                writeVarLong(body.out, table.getIndexCount());
+            }
+            body.writeRows(columns, COLUMN_FIELDS);
+            body.writeRows(indexes, INDEX_FIELDS);
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(result);
+            header.writeInt(MAGIC);
+            header.writeByte(FORMAT_VERSION);
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(result, deflater))) {
+                // 字典写在数据前面，解码时先恢复字典
+                writeVarLong(out, body.dictionaryOrder.size());
+                for (String value : body.dictionaryOrder) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarLong(out, bytes.length);
+                    out.write(bytes);
+                }
+                body.buffer.writeTo(out);
+            } finally {
+                deflater.end();
+            }
+            return result.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("编码结构快照失败", e);
+        }
+    }
+
+    /**
+     * 从压缩的二进制数据还原版本结构快照
+     * @param data {@link #encode} 生成的数据
+     * @return 结构快照，字段和索引的版本表结构ID指向所属的表
+     */
+    public static SchemaSnapshot decode(byte[] data) {
+        try (DataInputStream header = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (header.readInt() != MAGIC) {
+                throw new IllegalArgumentException("不是有效的结构快照数据");
+            }
+            int formatVersion = header.readUnsignedByte();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IllegalArgumentException("不支持的结构快照格式版本: " + formatVersion);
+            }
+            Decoder decoder = new Decoder(new DataInputStream(new InflaterInputStream(header)));
+            long projectVersionId = readVarLong(decoder.in);
+            List<VersionDatabaseSchema> databases = decoder.readRows(VersionDatabaseSchema::new, DATABASE_FIELDS);
+            List<VersionTableStructure> tables = decoder.readRows(VersionTableStructure::new, TABLE_FIELDS);
+            int[] columnCounts = new int[tables.size()];
+            int[] indexCounts = new int[tables.size()];
+            for (int i = 0; i < tables.size(); i++) {
+                columnCounts[i] = (int) readVarLong(decoder.in);
+                indexCounts[i] = (int) readVarLong(decoder.in);
+            }
+            List<VersionTableColumn> columns = decoder.readRows(VersionTableColumn::new, COLUMN_FIELDS);
+            List<VersionTableIndex> indexes = decoder.readRows(VersionTableIndex::new, INDEX_FIELDS);
+
+            List<TableSnapshot> tableSnapshots = new ArrayList<>(tables.size());
+            int columnOffset = 0;
+            int indexOffset = 0;
+            for (int i = 0; i < tables.size(); i++) {
+                VersionTableStructure table = tables.get(i);
+                table.setProjectVersionId(projectVersionId);
+                List<VersionTableColumn> tableColumns = columns.subList(columnOffset, columnOffset + columnCounts[i]);
+                for (VersionTableColumn column : tableColumns) {
+                    column.setProjectVersionId(projectVersionId);
+                    column.setVersionTableId(table.getId());
+                }
+                List<VersionTableIndex> tableIndexes = indexes.subList(indexOffset, indexOffset + indexCounts[i]);
+                for (VersionTableIndex index : tableIndexes) {
+                    index.setProjectVersionId(projectVersionId);
+                    index.setVersionTableId(table.getId());
+                }
+                tableSnapshots.add(new TableSnapshot(table, tableColumns, tableIndexes));
+                columnOffset += columnCounts[i];
+                indexOffset += indexCounts[i];
+            }
+
+            VersionDatabaseSchema databaseSchema = databases.isEmpty() ? null : databases.get(0);
+            if (databaseSchema != null) {
+                databaseSchema.setProjectVersionId(projectVersionId);
+            }
+            return new SchemaSnapshot(projectVersionId, databaseSchema, tableSnapshots);
+        } catch (IOException e) {
+            throw new UncheckedIOException("解码结构快照失败", e);
+        }
+    }
+
+    /**
+     * 一个属性的列式编解码：一次写出/读取所有行的该属性
+     */
+    private interface Field<T> {
+
+        void write(Encoder encoder, List<T> rows) throws IOException;
+
+        void read(Decoder decoder, List<T> rows) throws IOException;
+    }
+
+    private static <T> Field<T> stringField(Function<T, String> getter, BiConsumer<T, String> setter) {
+        return new Field<>() {
+            @Override
+            public void write(Encoder encoder, List<T> rows) throws IOException {
+                for (T row : rows) {
+                    encoder.writeString(getter.apply(row));
+                }
+            }
+
+            @Override
+            public void read(Decoder decoder, List<T> rows) throws IOException {
+                for (T row : rows) {
+                    setter.accept(row, decoder.readString());
+                }
+            }
+        };
+    }
+
+    /**
+     * 可空整数列：先写空值位图，再写非空值（ZigZag变长编码）
+     * @param delta 是否按与前一个非空值的差值编码（用于ID等递增的列）
+     */
+    private static <T> Field<T> longField(Function<T, Long> getter, BiConsumer<T, Long> setter, boolean delta) {
+        return new Field<>() {
+            @Override
+            public void write(Encoder encoder, List<T> rows) throws IOException {
+                BitSet present = new BitSet(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    present.set(i, getter.apply(rows.get(i)) != null);
+                }
+                byte[] bits = present.toByteArray();
+                writeVarLong(encoder.out, bits.length);
+                encoder.out.write(bits);
+                long previous = 0;
+                for (T row : rows) {
+                    Long value = getter.apply(row);
+                    if (value != null) {
+                        writeVarLong(encoder.out, zigZag(delta ? value - previous : value));
+                        previous = value;
+                    }
+                }
+            }
+
+            @Override
+            public void read(Decoder decoder, List<T> rows) throws IOException {
+                byte[] bits = new byte[(int) readVarLong(decoder.in)];
+                decoder.in.readFully(bits);
+                BitSet present = BitSet.valueOf(bits);
+                long previous = 0;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (!present.get(i)) {
+                        continue;
+                    }
+                    long value = unZigZag(readVarLong(decoder.in));
+                    if (delta) {
+                        value += previous;
+                    }
+                    setter.accept(rows.get(i), value);
+                    previous = value;
+                }
+            }
+        };
+    }
+
+    private static <T> Field<T> intField(Function<T, Integer> getter, BiConsumer<T, Integer> setter) {
+        return longField(row -> {
+            Integer value = getter.apply(row);
+            return value != null ? value.longValue() : null;
+        }, (row, value) -> setter.accept(row, value.intValue()), false);
+    }
+
+    private static <T> Field<T> booleanField(Function<T, Boolean> getter, BiConsumer<T, Boolean> setter) {
+        return new Field<>() {
+            @Override
+            public void write(Encoder encoder, List<T> rows) throws IOException {
+                for (T row : rows) {
+                    Boolean value = getter.apply(row);
+                    encoder.out.writeByte(value == null ? 0 : (value ? 2 : 1));
+                }
+            }
+
+            @Override
+            public void read(Decoder decoder, List<T> rows) throws IOException {
+                for (T row : rows) {
+                    int value = decoder.in.readUnsignedByte();
+                    if (value != 0) {
+                        setter.accept(row, value == 2);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * 时间列按ISO格式字符串进入字典（同一批写入的记录创建时间大量重复）
+     */
+    private static <T> Field<T> timeField(Function<T, LocalDateTime> getter, BiConsumer<T, LocalDateTime> setter) {
+        return stringField(row -> {
+            LocalDateTime value = getter.apply(row);
+            return value != null ? value.toString() : null;
+        }, (row, value) -> setter.accept(row, value != null ? LocalDateTime.parse(value) : null));
+    }
+
+    private static final class Encoder {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final List<String> dictionaryOrder = new ArrayList<>();
+
+        /**
+         * 写出字典序号，0表示null
+         */
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(out, 0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                dictionaryOrder.add(value);
+                index = dictionaryOrder.size();
+                dictionary.put(value, index);
+            }
+            writeVarLong(out, index);
+        }
+
+        <T> void writeRows(List<T> rows, List<Field<T>> fields) throws IOException {
+            writeVarLong(out, rows.size());
+            for (Field<T> field : fields) {
+                field.write(this, rows);
+            }
+        }
+    }
+
+    private static final class Decoder {
+
+        private final DataInputStream in;
+        private final List<String> dictionary;
+
+        Decoder(DataInputStream in) throws IOException {
+            this.in = in;
+            int size = (int) readVarLong(in);
+            this.dictionary = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = new byte[(int) readVarLong(in)];
+                in.readFully(bytes);
+                dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+
+        String readString() throws IOException {
+            int index = (int) readVarLong(in);
+            return index == 0 ? null : dictionary.get(index - 1);
+        }
+
+        <T> List<T> readRows(Supplier<T> factory, List<Field<T>> fields) throws IOException {
+            int size = (int) readVarLong(in);
+            List<T> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                rows.add(factory.get());
+            }
+            for (Field<T> field : fields) {
+                field.read(this, rows);
+            }
+            return rows;
+        }
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.dbrecord.benchmark;
+
+import com.dbrecord.util.VirtualThreadSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 逐表提取执行方式基准测试：线程池 与 虚拟线程+数据源信号量 的对比
+ * 用固定时长的休眠模拟逐表的阻塞JDBC调用，不需要数据库；虚拟线程需要 JDK 21 运行时
+ * 运行方式：mvn test -Dtest=CaptureExecutionModeBenchmarkTest -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CaptureExecutionModeBenchmarkTest {
+
+    private static final int TABLE_COUNT = 5000;
+    private static final long QUERY_MILLIS = 5;
+    private static final int CONCURRENCY = 200;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    @Test
+    void comparePlatformPoolAndVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreadSupport.isAvailable(), "当前运行时不支持虚拟线程");
+
+        // 原有配置：核心5、最大10、队列100、调用方执行
+        ThreadPoolTaskExecutor legacyPool = createPool(5, 10, 100);
+        long legacyMillis = run(legacyPool, null);
+        shutdown(legacyPool);
+
+        // 与虚拟线程相同并发的线程池
+        ThreadPoolTaskExecutor platformPool = createPool(CONCURRENCY, CONCURRENCY, Integer.MAX_VALUE);
+        threadBean.resetPeakThreadCount();
+        long platformMillis = run(platformPool, null);
+        int platformPeakThreads = threadBean.getPeakThreadCount();
+        shutdown(platformPool);
+
+        // 每个表一个虚拟线程，并发由数据源信号量控制
+        ExecutorService virtualExecutor = VirtualThreadSupport.newVirtualThreadPerTaskExecutor();
+        threadBean.resetPeakThreadCount();
+        long virtualMillis = run(virtualExecutor, new Semaphore(CONCURRENCY));
+        int virtualPeakThreads = threadBean.getPeakThreadCount();
+        virtualExecutor.shutdown();
+
+        System.out.printf("原线程池(10线程): %d ms%n", legacyMillis);
+        System.out.printf("线程池(%d线程): %d ms，峰值系统线程数 %d%n", CONCURRENCY, platformMillis, platformPeakThreads);
+        System.out.printf("虚拟线程(信号量%d): %d ms，峰值系统线程数 %d%n", CONCURRENCY, virtualMillis, virtualPeakThreads);
+        assertTrue(virtualMillis < legacyMillis, "虚拟线程方式应快于原线程池");
+        assertTrue(virtualPeakThreads < platformPeakThreads, "虚拟线程方式占用的系统线程应少于同并发的线程池");
+    }
+
+    /**
+     * 提交所有表的模拟提取任务并等待完成
+     * @param permits 数据源信号量，为null时不限制（由线程池大小限制并发）
+     * @return 耗时（毫秒）
+     */
+    private long run(Executor executor, Semaphore permits) {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(TABLE_COUNT);
+        for (int i = 0; i < TABLE_COUNT; i++) {
+            futures.add(CompletableFuture.runAsync(() -> simulateQuery(permits), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private void simulateQuery(Semaphore permits) {
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+            try {
+                Thread.sleep(QUERY_MILLIS);
+            } finally {
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 关闭线程池并等待线程退出，避免影响下一轮的峰值线程数
+     */
+    private void shutdown(ThreadPoolTaskExecutor executor) throws InterruptedException {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        executor.shutdown();
+        pool.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private ThreadPoolTaskExecutor createPool(int coreSize, int maxSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,188 @@
+package com.dbrecord.benchmark;
+
+import com.dbrecord.config.DatabaseScanFilterProperties;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.service.DatasourceConnectionRegistry;
+import com.dbrecord.service.impl.PostgreSQLDatabaseSchemaExtractor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * PostgreSQL目录提取基准测试：information_schema 查询 与 pg_catalog 原生查询 的查询次数和耗时对比
+ * 在 bench_catalog schema 下创建 2000 个表（每个表含主键、二级索引、TOAST表及其索引，约1万个关系），结束后删除。
+ * 需要可用的PostgreSQL，运行方式：
+ * mvn test -Dtest=PgCatalogExtractionBenchmarkTest -Dbenchmark=true -Dbenchmark.pg.user=postgres -Dbenchmark.pg.password=...
+ * 可选 -Dbenchmark.pg.host（默认localhost）、-Dbenchmark.pg.port（默认5432）、-Dbenchmark.pg.database（默认postgres）
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PgCatalogExtractionBenchmarkTest {
+
+    private static final String SCHEMA = "bench_catalog";
+    private static final int TABLE_COUNT = 2000;
+    private static final int DDL_CHUNK = 200;
+    private static final int PER_TABLE_SAMPLE = 100;
+
+    private Datasource datasource;
+
+    @BeforeAll
+    void createCatalog() throws Exception {
+        assumeTrue(System.getProperty("benchmark.pg.user") != null, "未配置 benchmark.pg.user");
+        datasource = new Datasource();
+        datasource.setType("postgresql");
+        datasource.setHost(System.getProperty("benchmark.pg.host", "localhost"));
+        datasource.setPort(Integer.parseInt(System.getProperty("benchmark.pg.port", "5432")));
+        datasource.setDatabaseName(System.getProperty("benchmark.pg.database", "postgres"));
+        datasource.setUsername(System.getProperty("benchmark.pg.user"));
+        datasource.setPassword(System.getProperty("benchmark.pg.password", ""));
+
+        try (Connection connection = connect(); Statement stmt = connection.createStatement()) {
+            dropTables(stmt);
+            stmt.execute("CREATE SCHEMA " + SCHEMA);
+            // 分批建表，避免单个事务持有的锁超过 max_locks_per_transaction
+            for (int from = 1; from <= TABLE_COUNT; from += DDL_CHUNK) {
+                int to = Math.min(from + DDL_CHUNK - 1, TABLE_COUNT);
+                stmt.execute("DO $$ BEGIN FOR i IN " + from + ".." + to + " LOOP " +
+                        "EXECUTE format('CREATE TABLE " + SCHEMA + ".bench_t_%s (id bigint PRIMARY KEY, " +
+                        "name varchar(64) NOT NULL, amount numeric(12,2), created_at timestamp, note text)', lpad(i::text, 5, '0')); " +
+                        // 二级索引的字段顺序与表字段顺序相反，用于校验索引字段顺序
+                        "EXECUTE format('CREATE INDEX bench_i_%s ON " + SCHEMA + ".bench_t_%s (created_at, name)', " +
+                        "lpad(i::text, 5, '0'), lpad(i::text, 5, '0')); " +
+                        "EXECUTE format('COMMENT ON COLUMN " + SCHEMA + ".bench_t_%s.name IS ''名称''', lpad(i::text, 5, '0')); " +
+                        "END LOOP; END $$");
+            }
+            stmt.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    void dropCatalog() throws Exception {
+        if (datasource == null) {
+            return;
+        }
+        try (Connection connection = connect(); Statement stmt = connection.createStatement()) {
+            dropTables(stmt);
+        }
+    }
+
+    @Test
+    void compareInformationSchemaAndNativeCatalog() {
+        CountingExtractor legacy = new CountingExtractor(false);
+        CountingExtractor nativeCatalog = new CountingExtractor(true);
+
+        // 预热，避免首次执行的连接和目录缓存开销影响结果
+        legacy.getTablesStructure(datasource);
+        nativeCatalog.getTablesStructure(datasource);
+
+        BulkResult legacyBulk = runBulk(legacy);
+        BulkResult nativeBulk = runBulk(nativeCatalog);
+        long legacyPerTable = runPerTable(legacy, legacyBulk.tables());
+        long nativePerTable = runPerTable(nativeCatalog, nativeBulk.tables());
+
+        System.out.printf("关系数量约 %d（%d 个表）%n", TABLE_COUNT * 5, TABLE_COUNT);
+        System.out.printf("information_schema 整库: %d 次查询，%d ms（表 %d，字段 %d，索引字段 %d）%n",
+                legacyBulk.queries(), legacyBulk.millis(), legacyBulk.tables().size(), legacyBulk.columns(), legacyBulk.indexColumns());
+        System.out.printf("pg_catalog 原生整库: %d 次查询，%d ms（表 %d，字段 %d，索引字段 %d）%n",
+                nativeBulk.queries(), nativeBulk.millis(), nativeBulk.tables().size(), nativeBulk.columns(), nativeBulk.indexColumns());
+        System.out.printf("逐表提取 %d 个表: information_schema %d 次查询 %d ms，pg_catalog 原生 %d 次查询 %d ms%n",
+                PER_TABLE_SAMPLE, PER_TABLE_SAMPLE * 2, legacyPerTable, PER_TABLE_SAMPLE * 2, nativePerTable);
+
+        assertEquals(TABLE_COUNT, nativeBulk.tables().size());
+        assertEquals(legacyBulk.tables().size(), nativeBulk.tables().size());
+        assertEquals(legacyBulk.columns(), nativeBulk.columns());
+        assertEquals(3, nativeBulk.queries(), "整库提取应只执行表、字段、索引三次查询");
+        assertTrue(nativeBulk.millis() < legacyBulk.millis(), "原生目录查询应快于 information_schema 查询");
+
+        // 二级索引字段按索引定义顺序返回
+        List<String> indexColumns = nativeCatalog.getTableIndexes(datasource, SCHEMA, "bench_t_00001").stream()
+                .filter(index -> "bench_i_00001".equals(index.indexName()))
+                .map(IndexMeta::columnName)
+                .collect(Collectors.toList());
+        assertEquals(List.of("created_at", "name"), indexColumns);
+    }
+
+    private BulkResult runBulk(CountingExtractor extractor) {
+        extractor.queries.set(0);
+        AtomicInteger columns = new AtomicInteger();
+        AtomicInteger indexColumns = new AtomicInteger();
+        long start = System.nanoTime();
+        List<TableMeta> tables = extractor.getTablesStructure(datasource);
+        extractor.forEachTableColumn(datasource, (ColumnMeta column) -> columns.incrementAndGet());
+        extractor.forEachTableIndex(datasource, (IndexMeta index) -> indexColumns.incrementAndGet());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new BulkResult(tables, columns.get(), indexColumns.get(), extractor.queries.get(), millis);
+    }
+
+    private long runPerTable(CountingExtractor extractor, List<TableMeta> tables) {
+        long start = System.nanoTime();
+        for (TableMeta table : tables.subList(0, Math.min(PER_TABLE_SAMPLE, tables.size()))) {
+            extractor.getTableColumns(datasource, table.schemaName(), table.tableName());
+            extractor.getTableIndexes(datasource, table.schemaName(), table.tableName());
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private Connection connect() throws Exception {
+        return DriverManager.getConnection(String.format("jdbc:postgresql://%s:%d/%s",
+                datasource.getHost(), datasource.getPort(), datasource.getDatabaseName()),
+                datasource.getUsername(), datasource.getPassword());
+    }
+
+    private void dropTables(Statement stmt) throws Exception {
+        for (int from = 1; from <= TABLE_COUNT; from += DDL_CHUNK) {
+            List<String> names = new ArrayList<>();
+            for (int i = from; i < from + DDL_CHUNK && i <= TABLE_COUNT; i++) {
+                names.add(String.format("%s.bench_t_%05d", SCHEMA, i));
+            }
+            stmt.execute("DROP TABLE IF EXISTS " + String.join(", ", names));
+        }
+        stmt.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    /**
+     * 统计执行查询次数的提取器，只采集基准测试创建的表
+     */
+    private static class CountingExtractor extends PostgreSQLDatabaseSchemaExtractor {
+
+        private final AtomicInteger queries = new AtomicInteger();
+
+        CountingExtractor(boolean nativeCatalog) {
+            DatabaseScanFilterProperties filters = new DatabaseScanFilterProperties();
+            filters.getPostgresql().setIncludedTablePatterns(List.of("bench_t_*"));
+            SchemaCaptureProperties capture = new SchemaCaptureProperties();
+            capture.setPgNativeCatalog(nativeCatalog);
+            this.filterProperties = filters;
+            this.captureProperties = capture;
+            // 基准测试的数据源没有ID，注册表直接建立连接
+            this.connectionRegistry = new DatasourceConnectionRegistry();
+        }
+
+        @Override
+        protected void queryForEach(Datasource datasource, String sql, RowCallback callback, Object... params) {
+            queries.incrementAndGet();
+            super.queryForEach(datasource, sql, callback, params);
+        }
+    }
+
+    private record BulkResult(List<TableMeta> tables, int columns, int indexColumns, int queries, long millis) {
+    }
+}
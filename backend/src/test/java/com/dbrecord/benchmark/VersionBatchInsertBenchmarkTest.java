@@ -0,0 +1,78 @@
+package com.dbrecord.benchmark;
+
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.mapper.VersionTableColumnMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 版本字段写入基准测试：逐行INSERT 与 多行INSERT 的吞吐对比
+ * 需要可用的元数据库，运行方式：mvn test -Dtest=VersionBatchInsertBenchmarkTest -Dbenchmark=true
+ * 测试在事务中执行，结束后回滚，不会留下数据
+ */
+@SpringBootTest
+@Transactional
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VersionBatchInsertBenchmarkTest {
+
+    private static final int ROW_COUNT = 5000;
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private VersionTableColumnMapper versionTableColumnMapper;
+
+    @Test
+    void compareRowByRowAndBatchInsert() {
+        // 预热，避免首次执行的连接和语句解析开销影响结果
+        versionTableColumnMapper.insertBatch(createColumns(Long.MAX_VALUE - 3, 100));
+
+        List<VersionTableColumn> rowByRow = createColumns(Long.MAX_VALUE - 2, ROW_COUNT);
+        long start = System.nanoTime();
+        for (VersionTableColumn column : rowByRow) {
+            versionTableColumnMapper.insert(column);
+        }
+        double rowByRowRate = rowsPerSecond(ROW_COUNT, System.nanoTime() - start);
+
+        List<VersionTableColumn> batch = createColumns(Long.MAX_VALUE - 1, ROW_COUNT);
+        start = System.nanoTime();
+        for (int i = 0; i < batch.size(); i += BATCH_SIZE) {
+            versionTableColumnMapper.insertBatch(batch.subList(i, Math.min(i + BATCH_SIZE, batch.size())));
+        }
+        double batchRate = rowsPerSecond(ROW_COUNT, System.nanoTime() - start);
+
+        System.out.printf("逐行INSERT: %.0f 行/秒%n", rowByRowRate);
+        System.out.printf("多行INSERT(每批%d行): %.0f 行/秒，提升 %.1f 倍%n", BATCH_SIZE, batchRate, batchRate / rowByRowRate);
+        assertTrue(batchRate > rowByRowRate, "多行INSERT吞吐应高于逐行INSERT");
+    }
+
+    private double rowsPerSecond(int rows, long elapsedNanos) {
+        return rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    private List<VersionTableColumn> createColumns(Long versionTableId, int count) {
+        List<VersionTableColumn> columns = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            VersionTableColumn column = new VersionTableColumn();
+            column.setVersionTableId(versionTableId);
+            column.setColumnName("column_" + i);
+            column.setOrdinalPosition(i);
+            column.setIsNullable("YES");
+            column.setDataType("varchar");
+            column.setCharacterMaximumLength(255L);
+            column.setColumnType("varchar(255)");
+            column.setColumnKey("");
+            column.setExtra("");
+            column.setColumnComment("基准测试字段 " + i);
+            columns.add(column);
+        }
+        return columns;
+    }
+}
@@ -153,4 +153,39 @@ class DatabaseScanFilterPropertiesTest {
         assertEquals(config1.getExcludedSchemas(), config2.getExcludedSchemas());
         assertEquals(config2.getExcludedSchemas(), config3.getExcludedSchemas());
     }
+
+    @Test
+    void testTablePatternsAndSchemaGlob() {
+        DatabaseScanFilterProperties.DatabaseFilterConfig config = properties.getFilterConfig("postgresql");
+        config.setExcludedSchemas(Arrays.asList("information_schema", "pg_temp_*"));
+        config.setExcludedTables(Map.of("public", Arrays.asList("log_table", "tmp_*")));
+        config.setExcludedTablePatterns(Arrays.asList("log_20*", "regex:shard_[0-9]+"));
+
+        assertTrue(config.isSchemaExcluded("pg_temp_12"));
+        assertFalse(config.isSchemaExcluded("pg_toast"));
+
+        assertTrue(config.isTableExcluded("public", "log_table"));
+        assertTrue(config.isTableExcluded("public", "tmp_import"));
+        assertFalse(config.isTableExcluded("app", "tmp_import"));
+        assertTrue(config.isTableExcluded("app", "log_2024_01"));
+        assertTrue(config.isTableExcluded("app", "shard_17"));
+        assertFalse(config.isTableExcluded("app", "shard_main"));
+        // 正则规则不下推到SQL，需要在Java中过滤
+        assertTrue(config.hasRegexRules());
+        config.setExcludedTablePatterns(List.of("log_20*"));
+        assertFalse(config.hasRegexRules());
+    }
+
+    @Test
+    void testIncludedTablePatterns() {
+        DatabaseScanFilterProperties.DatabaseFilterConfig config = properties.getFilterConfig("mysql");
+        config.setIncludedTablePatterns(Arrays.asList("user*", "orders"));
+
+        assertFalse(config.isTableExcluded("test_db", "user_profile"));
+        assertFalse(config.isTableExcluded("test_db", "orders"));
+        assertTrue(config.isTableExcluded("test_db", "audit_log"));
+        // 排除规则优先于包含规则
+        config.setExcludedTables(Map.of("test_db", Arrays.asList("user_tmp")));
+        assertTrue(config.isTableExcluded("test_db", "user_tmp"));
+    }
 }
@@ -1,5 +1,7 @@
 package com.dbrecord.debug;
 
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
 import com.dbrecord.service.impl.KingbaseDatabaseSchemaExtractor;
 import org.junit.jupiter.api.Test;
@@ -43,14 +45,14 @@ public class KingbaseTableExtractionTest {
             
             // 测试获取表结构
             try {
-                List<Map<String, Object>> tables = kingbaseExtractor.getTablesStructure(datasource);
+                List<TableMeta> tables = kingbaseExtractor.getTablesStructure(datasource);
                 System.out.println("表结构获取成功，表数量: " + tables.size());
                 
                 // 按schema分组统计
                 Map<String, Integer> schemaCount = new java.util.HashMap<>();
-                for (Map<String, Object> table : tables) {
-                    String schemaName = (String) table.get("schema_name");
-                    String tableName = (String) table.get("table_name");
+                for (TableMeta table : tables) {
+                    String schemaName = table.schemaName();
+                    String tableName = table.tableName();
                     
                     System.out.println("表: " + tableName + ", Schema: " + schemaName);
                     
@@ -92,11 +94,11 @@ public class KingbaseTableExtractionTest {
             
             // 测试获取test_schema中的表
             try {
-                List<Map<String, Object>> testSchemaColumns = kingbaseExtractor.getTableColumns(datasource, "test_schema", "test_table");
+                List<ColumnMeta> testSchemaColumns = kingbaseExtractor.getTableColumns(datasource, "test_schema", "test_table");
                 System.out.println("test_schema.test_table 字段数量: " + testSchemaColumns.size());
                 
-                for (Map<String, Object> column : testSchemaColumns) {
-                    System.out.println("字段: " + column.get("column_name") + ", 类型: " + column.get("data_type"));
+                for (ColumnMeta column : testSchemaColumns) {
+                    System.out.println("字段: " + column.columnName() + ", 类型: " + column.dataType());
                 }
                 
             } catch (Exception e) {
@@ -0,0 +1,64 @@
+package com.dbrecord.entity.snapshot;
+
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 版本结构快照测试
+ */
+class SchemaSnapshotTest {
+
+    @Test
+    void snapshotIsImmutableAndIndexedByIdAndName() {
+        VersionTableStructure table = new VersionTableStructure();
+        table.setId(1L);
+        table.setSchemaName("public");
+        table.setTableName("users");
+
+        List<VersionTableColumn> columns = new ArrayList<>();
+        columns.add(new VersionTableColumn());
+        columns.add(new VersionTableColumn());
+        List<VersionTableIndex> indexes = new ArrayList<>();
+        indexes.add(new VersionTableIndex());
+
+        SchemaSnapshot snapshot = new SchemaSnapshot(10L, new VersionDatabaseSchema(),
+                List.of(new TableSnapshot(table, columns, indexes)));
+
+        // 构建后修改源列表和源实体不影响快照
+        columns.clear();
+        table.setTableName("changed");
+        assertEquals(2, snapshot.getColumns(1L).size());
+        assertEquals(1, snapshot.getIndexes(1L).size());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getTables().clear());
+
+        // 读取返回副本，修改副本不影响快照
+        VersionTableStructure read = snapshot.findTable("users").getTable();
+        assertNotSame(table, read);
+        read.setTableName("renamed");
+        snapshot.getColumns(1L).get(0).setColumnName("renamed");
+        snapshot.getColumns(1L).clear();
+        assertEquals("users", snapshot.findTable("users").getTableName());
+        assertEquals("users", snapshot.getTableStructures().get(0).getTableName());
+        assertNull(snapshot.getColumns(1L).get(0).getColumnName());
+        assertEquals(2, snapshot.getColumns(1L).size());
+        assertTrue(snapshot.getColumns(99L).isEmpty());
+        // 1（快照） + 1（表） + 2（字段） + 1（索引）
+        assertEquals(5, snapshot.weight());
+    }
+
+    @Test
+    void emptySnapshotHasNoTables() {
+        SchemaSnapshot snapshot = SchemaSnapshot.empty(1L);
+        assertNull(snapshot.getDatabaseSchema());
+        assertTrue(snapshot.getTables().isEmpty());
+        assertNull(snapshot.findTable("users"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.dbrecord.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 一致性快照采集会话组测试
+ */
+class CaptureSessionsTest {
+
+    @Test
+    void testCallBindsSessionToCurrentThread() throws Exception {
+        Connection connection = mock(Connection.class);
+        CaptureSessions sessions = new CaptureSessions(List.of(connection), "00000003-0000001B-1");
+
+        assertNull(CaptureSessions.currentConnection());
+        String result = sessions.call(() -> {
+            try (Connection bound = CaptureSessions.currentConnection()) {
+                assertNotNull(bound);
+                bound.getAutoCommit();
+                // 嵌套调用直接使用已绑定的会话
+                return sessions.call(() -> "done");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals("done", result);
+        assertNull(CaptureSessions.currentConnection());
+        verify(connection).getAutoCommit();
+        // 提取器关闭连接时不会关闭会话
+        verify(connection, never()).close();
+    }
+
+    @Test
+    void testReportedFailureFailsCapture() {
+        CaptureSessions sessions = new CaptureSessions(List.of(mock(Connection.class)), null);
+
+        // 未绑定会话的线程上报的失败不影响会话组
+        CaptureSessions.reportFailure(new IllegalStateException("unbound"));
+        sessions.checkHealthy();
+
+        sessions.call(() -> {
+            CaptureSessions.reportFailure(new IllegalStateException("relation does not exist"));
+            return null;
+        });
+        IllegalStateException error = assertThrows(IllegalStateException.class, sessions::checkHealthy);
+        assertTrue(error.getMessage().contains("relation does not exist"));
+    }
+
+    @Test
+    void testCloseEndsTransactionsOnce() throws Exception {
+        Connection first = mock(Connection.class);
+        Connection second = mock(Connection.class);
+        CaptureSessions sessions = new CaptureSessions(List.of(first, second), null);
+
+        sessions.close();
+        sessions.close();
+
+        for (Connection connection : List.of(first, second)) {
+            verify(connection, times(1)).rollback();
+            verify(connection, times(1)).close();
+        }
+        assertThrows(IllegalStateException.class, () -> sessions.call(() -> null));
+    }
+}
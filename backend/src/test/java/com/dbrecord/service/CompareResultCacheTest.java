@@ -0,0 +1,143 @@
+package com.dbrecord.service;
+
+import com.dbrecord.config.CompareCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 版本对比结果缓存测试：相同的并发对比只计算一次，版本失效后重新计算
+ */
+class CompareResultCacheTest {
+
+    private CompareResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CompareResultCache();
+        ReflectionTestUtils.setField(cache, "cacheProperties", new CompareCacheProperties());
+        cache.init();
+    }
+
+    @Test
+    void concurrentComparesShareOneComputation() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> cache.get(1L, 2L, () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            await(release);
+            return Map.of("addedSchemas", List.of());
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Map<String, Object>> second = CompletableFuture.supplyAsync(() -> cache.get(1L, 2L, () -> {
+            computations.incrementAndGet();
+            return Map.of();
+        }));
+        while (cache.getStats().get("coalesced").equals(0L)) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals(Map.of("addedSchemas", List.of()), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Map.of("addedSchemas", List.of()), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    void cachedResultIsCopiedAndCounted() {
+        Map<String, Object> result = cache.get(1L, 2L, () -> Map.of("modifiedSchemas", List.of()));
+        // 调用方可以修改返回的结果，不影响缓存
+        result.put("fromVersion", "v1");
+
+        assertEquals(Map.of("modifiedSchemas", List.of()), cache.get(1L, 2L, () -> fail("应命中缓存")));
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    void evictVersionDropsPairsInvolvingVersion() {
+        AtomicInteger computations = new AtomicInteger();
+        cache.get(1L, 2L, () -> Map.of("n", computations.incrementAndGet()));
+        cache.get(3L, 4L, () -> Map.of("n", computations.incrementAndGet()));
+
+        cache.evictVersion(2L);
+
+        assertEquals(Map.of("n", 3), cache.get(1L, 2L, () -> Map.of("n", computations.incrementAndGet())));
+        assertEquals(Map.of("n", 2), cache.get(3L, 4L, () -> Map.of("n", computations.incrementAndGet())));
+    }
+
+    @Test
+    void errorResultIsNotCached() {
+        cache.get(1L, 2L, () -> Map.of("error", "连接失败"));
+
+        assertEquals(Map.of(), cache.get(1L, 2L, Map::of));
+        assertEquals(2L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void waiterReceivesLoaderError() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> cache.get(1L, 2L, () -> {
+            started.countDown();
+            await(release);
+            throw new AssertionError("计算失败");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Map<String, Object>> second = CompletableFuture.supplyAsync(() -> cache.get(1L, 2L, Map::of));
+        while (cache.getStats().get("coalesced").equals(0L)) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, error.getCause());
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, cache.getStats().get("inFlight"));
+    }
+
+    @Test
+    void waiterGivesUpAfterTimeout() throws Exception {
+        CompareCacheProperties properties = new CompareCacheProperties();
+        properties.setWaitTimeoutSeconds(0);
+        ReflectionTestUtils.setField(cache, "cacheProperties", properties);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> cache.get(1L, 2L, () -> {
+            started.countDown();
+            await(release);
+            return Map.of();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            assertThrows(IllegalStateException.class, () -> cache.get(1L, 2L, () -> fail("应等待正在进行的对比")));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(Map.of(), first.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
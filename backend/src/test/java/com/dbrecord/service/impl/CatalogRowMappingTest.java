@@ -0,0 +1,117 @@
+package com.dbrecord.service.impl;
+
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 目录查询结果到 TableMeta/ColumnMeta/IndexMeta 的映射测试
+ * 字段名大小写由 ResultColumns 统一处理，MySQL（大写）与 PostgreSQL（小写）共用同一套映射
+ */
+class CatalogRowMappingTest {
+
+    private final MySQLDatabaseSchemaExtractor mysqlExtractor = new MySQLDatabaseSchemaExtractor();
+    private final PostgreSQLDatabaseSchemaExtractor postgresqlExtractor = new PostgreSQLDatabaseSchemaExtractor();
+
+    @Test
+    void mysqlIndexRowUsesNonUniqueAndPrimaryName() throws SQLException {
+        ResultSet rs = mockRow(
+                new String[]{"INDEX_NAME", "TABLE_NAME", "COLUMN_NAME", "NON_UNIQUE", "INDEX_TYPE", "SUB_PART"},
+                new Object[]{"PRIMARY", "user", "id", 0, "BTREE", null});
+
+        IndexMeta index = mysqlExtractor.indexMetaMapper(columnsOf(rs)).mapRow(rs);
+
+        assertNull(index.schemaName());
+        assertEquals("user", index.tableName());
+        assertEquals("id", index.columnName());
+        assertTrue(index.unique());
+        assertTrue(index.primary());
+        assertNull(index.subPart());
+    }
+
+    @Test
+    void postgresqlIndexRowUsesUniqueAndPrimaryFlags() throws SQLException {
+        ResultSet rs = mockRow(
+                new String[]{"schema_name", "table_name", "index_name", "column_name", "is_unique", "is_primary"},
+                new Object[]{"app", "orders", "orders_no_idx", "order_no", true, false});
+
+        IndexMeta index = postgresqlExtractor.indexMetaMapper(columnsOf(rs)).mapRow(rs);
+
+        assertEquals("app", index.schemaName());
+        assertEquals("orders_no_idx", index.indexName());
+        assertTrue(index.unique());
+        assertFalse(index.primary());
+    }
+
+    @Test
+    void columnRowConvertsNumericTypes() throws SQLException {
+        ResultSet rs = mockRow(
+                new String[]{"TABLE_NAME", "COLUMN_NAME", "ORDINAL_POSITION", "CHARACTER_MAXIMUM_LENGTH", "NUMERIC_PRECISION", "COLUMN_KEY"},
+                new Object[]{"user", "name", java.math.BigInteger.valueOf(2), 255L, null, "UNI"});
+
+        ColumnMeta column = mysqlExtractor.columnMetaMapper(columnsOf(rs)).mapRow(rs);
+
+        assertEquals("name", column.columnName());
+        assertEquals(2, column.ordinalPosition());
+        assertEquals(255L, column.characterMaximumLength());
+        assertNull(column.numericPrecision());
+        assertEquals("UNI", column.columnKey());
+        assertNull(column.columnComment());
+    }
+
+    @Test
+    void mysqlChangeMarkerIsNullWithoutColumnDigest() throws SQLException {
+        ResultSet rs = mockRow(
+                new String[]{"TABLE_NAME", "TABLE_TYPE", "CREATE_TIME", "COLUMN_DIGEST", "INDEX_DIGEST"},
+                new Object[]{"user_view", "VIEW", null, null, null});
+
+        TableMeta table = mysqlExtractor.tableMetaMapper(columnsOf(rs)).mapRow(rs);
+
+        assertEquals("user_view", table.tableName());
+        assertNull(table.changeMarker());
+    }
+
+    @Test
+    void mysqlChangeMarkerFollowsCatalogDigestNotCreateTime() throws SQLException {
+        String[] names = {"TABLE_NAME", "CREATE_TIME", "ENGINE", "COLUMN_DIGEST", "INDEX_DIGEST"};
+        ResultSet original = mockRow(names, new Object[]{"orders", "2024-01-01 00:00:00", "InnoDB", "3:11:12", null});
+        String before = mysqlExtractor.tableMetaMapper(columnsOf(original)).mapRow(original).changeMarker();
+        // 在线DDL加字段：创建时间不变，字段摘要变化
+        ResultSet added = mockRow(names, new Object[]{"orders", "2024-01-01 00:00:00", "InnoDB", "4:21:22", null});
+        String after = mysqlExtractor.tableMetaMapper(columnsOf(added)).mapRow(added).changeMarker();
+        // 表被重建：创建时间变化，目录未变化
+        ResultSet rebuilt = mockRow(names, new Object[]{"orders", "2024-06-01 00:00:00", "InnoDB", "3:11:12", null});
+        String rebuiltMarker = mysqlExtractor.tableMetaMapper(columnsOf(rebuilt)).mapRow(rebuilt).changeMarker();
+
+        assertNotNull(before);
+        assertNotEquals(before, after);
+        assertEquals(before, rebuiltMarker);
+    }
+
+    private AbstractDatabaseSchemaExtractor.ResultColumns columnsOf(ResultSet rs) throws SQLException {
+        return new AbstractDatabaseSchemaExtractor.ResultColumns(rs.getMetaData());
+    }
+
+    private ResultSet mockRow(String[] names, Object[] values) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(names.length);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        for (int i = 0; i < names.length; i++) {
+            when(metaData.getColumnName(i + 1)).thenReturn(names[i]);
+            when(metaData.getColumnLabel(i + 1)).thenReturn(names[i]);
+            when(rs.getObject(i + 1)).thenReturn(values[i]);
+            when(rs.getString(i + 1)).thenReturn(values[i] != null ? values[i].toString() : null);
+        }
+        return rs;
+    }
+}
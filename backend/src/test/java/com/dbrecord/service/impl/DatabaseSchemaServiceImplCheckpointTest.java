@@ -0,0 +1,197 @@
+package com.dbrecord.service.impl;
+
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.TableMeta;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.mapper.VersionDatabaseSchemaMapper;
+import com.dbrecord.mapper.VersionTableColumnMapper;
+import com.dbrecord.mapper.VersionTableIndexMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.CaptureProgressListener;
+import com.dbrecord.service.CompareResultCache;
+import com.dbrecord.service.DatabaseSchemaExtractor;
+import com.dbrecord.service.DatabaseSchemaExtractorFactory;
+import com.dbrecord.service.DatasourceConcurrencyLimiter;
+import com.dbrecord.service.SchemaSnapshotCache;
+import com.dbrecord.service.VersionDataPurgeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 结构采集检查点测试：中断后重新采集时跳过已写入的表，失败的表按退避重试
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseSchemaServiceImplCheckpointTest {
+
+    @Mock
+    private VersionDatabaseSchemaMapper versionDatabaseSchemaMapper;
+
+    @Mock
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Mock
+    private VersionTableColumnMapper versionTableColumnMapper;
+
+    @Mock
+    private VersionTableIndexMapper versionTableIndexMapper;
+
+    @Mock
+    private DatabaseSchemaExtractorFactory extractorFactory;
+
+    @Mock
+    private DatabaseSchemaExtractor extractor;
+
+    @Mock
+    private SchemaSnapshotCache schemaSnapshotCache;
+
+    @Mock
+    private CompareResultCache compareResultCache;
+
+    @Mock
+    private DatasourceConcurrencyLimiter datasourceConcurrencyLimiter;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private VersionDataPurgeService versionDataPurgeService;
+
+    @Mock
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Spy
+    private SchemaCaptureProperties captureProperties = new SchemaCaptureProperties();
+
+    @InjectMocks
+    private DatabaseSchemaServiceImpl databaseSchemaService;
+
+    private Datasource datasource;
+
+    @BeforeEach
+    void setUp() {
+        captureProperties.setDedupDefinitions(false);
+        captureProperties.setRetryBackoffMillis(0);
+        ReflectionTestUtils.setField(databaseSchemaService, "schemaTableTaskExecutor", (Executor) Runnable::run);
+
+        datasource = new Datasource();
+        datasource.setId(5L);
+        datasource.setType("mysql");
+        datasource.setDatabaseName("shop");
+
+        when(extractorFactory.isSupported("mysql")).thenReturn(true);
+        when(extractorFactory.getExtractor("mysql")).thenReturn(extractor);
+        when(extractor.getDatabaseInfo(datasource)).thenReturn(Map.of("charset", "utf8mb4"));
+        doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void testResumeSkipsCheckpointTablesAndRetriesFailedTable() {
+        // 上次采集中断：没有数据库结构信息，orders 已写入且源库未变化
+        when(versionDatabaseSchemaMapper.selectOne(any())).thenReturn(null);
+        when(versionTableStructureMapper.selectList(any()))
+                .thenReturn(List.of(savedTable(11L, "orders", "m1", "h1")))
+                .thenReturn(List.of(savedTable(12L, "users", "m2", null)));
+        when(extractor.getTablesStructure(datasource)).thenReturn(List.of(table("orders", "m1"), table("users", "m2")));
+        when(extractor.getTableColumns(datasource, "public", "users"))
+                .thenThrow(new IllegalStateException("执行查询失败: Communications link failure"))
+                .thenReturn(List.of(column("users", "id")));
+        when(extractor.getTableIndexes(datasource, "public", "users")).thenReturn(List.of());
+
+        assertTrue(databaseSchemaService.captureAndSaveDatabaseSchema(9L, datasource, 1L, CaptureProgressListener.NONE));
+
+        // 已写入的表不再提取，失败的表重试后成功
+        verify(extractor, never()).getTableColumns(datasource, "public", "orders");
+        verify(extractor, times(2)).getTableColumns(datasource, "public", "users");
+        verify(extractor, never()).forEachTableColumn(any(), any());
+        verify(versionDataPurgeService, never()).purgeVersion(any());
+        verify(versionDataPurgeService, never()).purgeTables(any());
+
+        ArgumentCaptor<List<VersionTableStructure>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(versionTableStructureMapper).insertBatch(inserted.capture());
+        assertEquals(List.of("users"), inserted.getValue().stream().map(VersionTableStructure::getTableName).toList());
+        ArgumentCaptor<List<VersionTableColumn>> columns = ArgumentCaptor.forClass(List.class);
+        verify(versionTableColumnMapper).insertBatch(columns.capture());
+        // 字段记录冗余存储项目版本ID
+        assertEquals(9L, columns.getValue().get(0).getProjectVersionId());
+        verify(versionDatabaseSchemaMapper).insert(any(VersionDatabaseSchema.class));
+    }
+
+    @Test
+    void testFailedTableKeepsOtherTablesAndLeavesVersionIncomplete() {
+        captureProperties.setRetryAttempts(2);
+        when(versionDatabaseSchemaMapper.selectOne(any())).thenReturn(null);
+        when(versionTableStructureMapper.selectList(any()))
+                .thenReturn(List.of(savedTable(10L, "items", "m3", "h3"), savedTable(11L, "orders", "m0", "h0")))
+                .thenReturn(List.of(savedTable(13L, "orders", "m1", null)));
+        when(extractor.getTablesStructure(datasource))
+                .thenReturn(List.of(table("items", "m3"), table("orders", "m1"), table("users", "m2")));
+        when(extractor.getTableColumns(datasource, "public", "orders")).thenReturn(List.of(column("orders", "id")));
+        when(extractor.getTableIndexes(datasource, "public", "orders")).thenReturn(List.of());
+        when(extractor.getTableColumns(eq(datasource), eq("public"), eq("users")))
+                .thenThrow(new IllegalStateException("执行查询失败: Communications link failure"));
+
+        assertFalse(databaseSchemaService.captureAndSaveDatabaseSchema(9L, datasource, 1L, CaptureProgressListener.NONE));
+
+        // 源库已变化的检查点表删除后重新提取
+        ArgumentCaptor<Collection<VersionTableStructure>> purged = ArgumentCaptor.forClass(Collection.class);
+        verify(versionDataPurgeService).purgeTables(purged.capture());
+        assertEquals(List.of(11L), purged.getValue().stream().map(VersionTableStructure::getId).toList());
+        verify(extractor, times(2)).getTableColumns(datasource, "public", "users");
+
+        // 提取成功的表照常写入，失败的表留给下次采集，版本不标记为完成
+        ArgumentCaptor<List<VersionTableStructure>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(versionTableStructureMapper).insertBatch(inserted.capture());
+        assertEquals(List.of("orders"), inserted.getValue().stream().map(VersionTableStructure::getTableName).toList());
+        verify(versionDatabaseSchemaMapper, never()).insert(any(VersionDatabaseSchema.class));
+    }
+
+    private static VersionTableStructure savedTable(Long id, String tableName, String changeMarker, String contentHash) {
+        VersionTableStructure table = new VersionTableStructure();
+        table.setId(id);
+        table.setProjectVersionId(9L);
+        table.setSchemaName("public");
+        table.setTableName(tableName);
+        table.setChangeMarker(changeMarker);
+        table.setContentHash(contentHash);
+        return table;
+    }
+
+    private static TableMeta table(String tableName, String changeMarker) {
+        return new TableMeta(null, tableName, null, "BASE TABLE", "InnoDB", null, null,
+                null, null, null, null, null, changeMarker);
+    }
+
+    private static ColumnMeta column(String tableName, String columnName) {
+        return new ColumnMeta(null, tableName, columnName, 1, null, "NO", "bigint", null, null,
+                19, 0, null, null, null, "bigint", "PRI", "", "");
+    }
+}
@@ -0,0 +1,103 @@
+package com.dbrecord.service.impl;
+
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionDiff;
+import com.dbrecord.mapper.VersionDatabaseSchemaMapper;
+import com.dbrecord.mapper.VersionDiffMapper;
+import com.dbrecord.service.CompareResultCache;
+import com.dbrecord.service.SchemaSnapshotCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 预先计算的版本差异测试：数据库结构信息未变化时直接返回保存的结果，版本重新采集后重新对比
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseSchemaServiceImplDiffTest {
+
+    @Mock
+    private VersionDatabaseSchemaMapper versionDatabaseSchemaMapper;
+
+    @Mock
+    private VersionDiffMapper versionDiffMapper;
+
+    @Mock
+    private SchemaSnapshotCache schemaSnapshotCache;
+
+    @Mock
+    private CompareResultCache compareResultCache;
+
+    @InjectMocks
+    private DatabaseSchemaServiceImpl databaseSchemaService;
+
+    @BeforeEach
+    void setUp() {
+        when(compareResultCache.get(any(), any(), any())).thenAnswer(invocation -> {
+            Supplier<Map<String, Object>> loader = invocation.getArgument(2);
+            return loader.get();
+        });
+    }
+
+    @Test
+    void testCompareServesMaterializedDiff() throws Exception {
+        when(versionDatabaseSchemaMapper.selectOne(any())).thenReturn(schema(21L, "a"), schema(22L, "b"));
+        Map<String, Object> saved = Map.of(
+                "addedSchemas", List.of(Map.of("schemaName", "audit")),
+                "removedSchemas", List.of(),
+                "modifiedSchemas", List.of());
+        when(versionDiffMapper.selectByVersionPair(1L, 2L)).thenReturn(diff(21L, 22L, saved));
+
+        Map<String, Object> result = databaseSchemaService.compareVersions(1L, 2L);
+
+        assertEquals(saved, result);
+        // 返回的结果可以继续添加版本名称等信息
+        result.put("fromVersion", "v1");
+        verifyNoInteractions(schemaSnapshotCache);
+    }
+
+    @Test
+    void testCompareIgnoresDiffOfRecapturedVersion() throws Exception {
+        when(versionDatabaseSchemaMapper.selectOne(any())).thenReturn(schema(21L, "a"), schema(23L, "b"));
+        when(versionDiffMapper.selectByVersionPair(1L, 2L))
+                .thenReturn(diff(21L, 22L, Map.of("addedSchemas", List.of(Map.of("schemaName", "audit")))));
+
+        Map<String, Object> result = databaseSchemaService.compareVersions(1L, 2L);
+
+        assertEquals(List.of(), result.get("addedSchemas"));
+        verify(schemaSnapshotCache, times(2)).get(any(), any());
+    }
+
+    private static VersionDatabaseSchema schema(Long id, String schemaHash) {
+        VersionDatabaseSchema schema = new VersionDatabaseSchema();
+        schema.setId(id);
+        schema.setSchemaHash(schemaHash);
+        return schema;
+    }
+
+    private static VersionDiff diff(Long fromSchemaId, Long toSchemaId, Map<String, Object> content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            new ObjectMapper().writeValue(gzip, content);
+        }
+        VersionDiff diff = new VersionDiff();
+        diff.setFromSchemaId(fromSchemaId);
+        diff.setToSchemaId(toSchemaId);
+        diff.setDiffContent(out.toByteArray());
+        return diff;
+    }
+}
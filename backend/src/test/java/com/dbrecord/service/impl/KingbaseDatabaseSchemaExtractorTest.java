@@ -1,16 +1,25 @@
 package com.dbrecord.service.impl;
 
+import com.dbrecord.entity.catalog.ColumnMeta;
+import com.dbrecord.entity.catalog.IndexMeta;
+import com.dbrecord.entity.catalog.TableMeta;
 import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.service.DatasourceConnectionRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
 
 /**
  * 人大金仓数据库结构提取器测试
@@ -21,10 +30,13 @@ class KingbaseDatabaseSchemaExtractorTest {
     @InjectMocks
     private KingbaseDatabaseSchemaExtractor extractor;
 
+    @Mock
+    private DatasourceConnectionRegistry connectionRegistry;
+
     private Datasource datasource;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws SQLException {
         datasource = new Datasource();
         datasource.setHost("localhost");
         datasource.setPort(54321);
@@ -32,6 +44,9 @@ class KingbaseDatabaseSchemaExtractorTest {
         datasource.setUsername("test_user");
         datasource.setPassword("test_password");
         datasource.setType("kingbase");
+        // 不进行实际的数据库连接
+        lenient().when(connectionRegistry.getConnection(any(Datasource.class), anyString()))
+                .thenThrow(new SQLException("Connection refused"));
     }
 
     @Test
@@ -60,7 +75,7 @@ class KingbaseDatabaseSchemaExtractorTest {
     void testGetTablesStructureStructure() {
         // 测试getTablesStructure方法的结构
         try {
-            List<Map<String, Object>> result = extractor.getTablesStructure(datasource);
+            List<TableMeta> result = extractor.getTablesStructure(datasource);
             assertNotNull(result);
         } catch (Exception e) {
             // 预期会有连接异常，这是正常的
@@ -74,7 +89,7 @@ class KingbaseDatabaseSchemaExtractorTest {
     void testGetTableColumnsStructure() {
         // 测试getTableColumns方法的结构
         try {
-            List<Map<String, Object>> result = extractor.getTableColumns(datasource, "public", "test_table");
+            List<ColumnMeta> result = extractor.getTableColumns(datasource, "public", "test_table");
             assertNotNull(result);
         } catch (Exception e) {
             // 预期会有连接异常，这是正常的
@@ -88,7 +103,7 @@ class KingbaseDatabaseSchemaExtractorTest {
     void testGetTableIndexesStructure() {
         // 测试getTableIndexes方法的结构
         try {
-            List<Map<String, Object>> result = extractor.getTableIndexes(datasource, "public", "test_table");
+            List<IndexMeta> result = extractor.getTableIndexes(datasource, "public", "test_table");
             assertNotNull(result);
         } catch (Exception e) {
             // 预期会有连接异常，这是正常的
@@ -103,16 +118,16 @@ class KingbaseDatabaseSchemaExtractorTest {
         // 测试schema名称的默认处理
         try {
             // 测试空schema名称的处理
-            List<Map<String, Object>> result1 = extractor.getTableColumns(datasource, null, "test_table");
+            List<ColumnMeta> result1 = extractor.getTableColumns(datasource, null, "test_table");
             assertNotNull(result1);
             
-            List<Map<String, Object>> result2 = extractor.getTableColumns(datasource, "", "test_table");
+            List<ColumnMeta> result2 = extractor.getTableColumns(datasource, "", "test_table");
             assertNotNull(result2);
             
-            List<Map<String, Object>> result3 = extractor.getTableIndexes(datasource, null, "test_table");
+            List<IndexMeta> result3 = extractor.getTableIndexes(datasource, null, "test_table");
             assertNotNull(result3);
             
-            List<Map<String, Object>> result4 = extractor.getTableIndexes(datasource, "", "test_table");
+            List<IndexMeta> result4 = extractor.getTableIndexes(datasource, "", "test_table");
             assertNotNull(result4);
         } catch (Exception e) {
             // 预期会有连接异常，这是正常的
@@ -0,0 +1,181 @@
+package com.dbrecord.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.catalog.TableMeta;
+import com.dbrecord.entity.domain.Datasource;
+import com.dbrecord.entity.domain.Project;
+import com.dbrecord.entity.domain.ProjectVersion;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.mapper.DatasourceMapper;
+import com.dbrecord.mapper.ProjectMapper;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.DatabaseSchemaExtractor;
+import com.dbrecord.service.DatabaseSchemaExtractorFactory;
+import com.dbrecord.service.DatabaseSchemaService;
+import com.dbrecord.service.DatasourceConcurrencyLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 表统计信息采样服务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TableStatisticsSamplingServiceImplTest {
+
+    @Mock
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Mock
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Mock
+    private ProjectMapper projectMapper;
+
+    @Mock
+    private DatasourceMapper datasourceMapper;
+
+    @Mock
+    private DatabaseSchemaExtractorFactory extractorFactory;
+
+    @Mock
+    private DatabaseSchemaService databaseSchemaService;
+
+    @Mock
+    private DatasourceConcurrencyLimiter datasourceConcurrencyLimiter;
+
+    @Mock
+    private DatabaseSchemaExtractor extractor;
+
+    @Spy
+    private SchemaCaptureProperties captureProperties = new SchemaCaptureProperties();
+
+    @InjectMocks
+    private TableStatisticsSamplingServiceImpl samplingService;
+
+    private Datasource datasource;
+
+    @BeforeEach
+    void setUp() {
+        captureProperties.getStatsSampling().setBatchSize(2);
+        captureProperties.getStatsSampling().setBatchPauseMillis(0);
+
+        ProjectVersion projectVersion = new ProjectVersion();
+        projectVersion.setId(7L);
+        projectVersion.setProjectId(3L);
+        Project project = new Project();
+        project.setId(3L);
+        project.setDatasourceId(5L);
+        datasource = new Datasource();
+        datasource.setId(5L);
+        datasource.setType("mysql");
+
+        when(versionTableStructureMapper.selectList(any())).thenReturn(List.of(
+                pendingTable(1L, "t1"), pendingTable(2L, "t2"), pendingTable(3L, "t3")));
+        when(projectVersionMapper.selectById(7L)).thenReturn(projectVersion);
+        when(projectMapper.selectById(3L)).thenReturn(project);
+        when(datasourceMapper.selectById(5L)).thenReturn(datasource);
+        when(extractorFactory.isSupported("mysql")).thenReturn(true);
+        when(extractorFactory.getExtractor("mysql")).thenReturn(extractor);
+    }
+
+    @Test
+    void testSamplePendingTablesInBatches() throws Exception {
+        when(extractor.getTablesStatistics(eq(datasource), eq("public"), anyCollection()))
+                .thenReturn(List.of(statistics("t1", 100L), statistics("t2", 200L)))
+                .thenReturn(List.of());
+
+        assertEquals(3, samplingService.samplePendingTables(100));
+
+        // 每批占用一个数据源并发许可
+        verify(extractor, times(2)).getTablesStatistics(eq(datasource), eq("public"), anyCollection());
+        verify(datasourceConcurrencyLimiter, times(2)).acquire(datasource);
+        verify(datasourceConcurrencyLimiter, times(2)).release(datasource);
+
+        ArgumentCaptor<VersionTableStructure> captor = ArgumentCaptor.forClass(VersionTableStructure.class);
+        verify(versionTableStructureMapper, times(3)).updateById(captor.capture());
+        Map<Long, VersionTableStructure> updates = captor.getAllValues().stream()
+                .collect(Collectors.toMap(VersionTableStructure::getId, Function.identity()));
+        assertEquals(100L, updates.get(1L).getTableRows());
+        assertEquals(200L, updates.get(2L).getTableRows());
+        // 源库中已不存在的表只清除待采样标记
+        assertNull(updates.get(3L).getTableRows());
+        updates.values().forEach(update -> assertEquals(Boolean.FALSE, update.getStatsPending()));
+
+        verify(databaseSchemaService).evictVersionCaches(7L);
+    }
+
+    @Test
+    void testSourceFailureKeepsTablesPending() {
+        when(extractor.getTablesStatistics(eq(datasource), eq("public"), anyCollection()))
+                .thenThrow(new IllegalStateException("连接失败"));
+
+        assertEquals(0, samplingService.samplePendingTables(100));
+
+        verify(extractor, times(1)).getTablesStatistics(eq(datasource), eq("public"), anyCollection());
+        verify(datasourceConcurrencyLimiter).release(datasource);
+        verify(versionTableStructureMapper, never()).updateById(any(VersionTableStructure.class));
+        verify(databaseSchemaService, never()).evictVersionCaches(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedVersionIsBackedOff() {
+        when(extractor.getTablesStatistics(eq(datasource), eq("public"), anyCollection()))
+                .thenThrow(new IllegalStateException("连接失败"));
+
+        assertEquals(0, samplingService.samplePendingTables(100));
+        samplingService.samplePendingTables(100);
+
+        // 第二次采样不再选取退避中的版本，其他版本的待采样表不会被挤占
+        ArgumentCaptor<QueryWrapper<VersionTableStructure>> captor = ArgumentCaptor.forClass(QueryWrapper.class);
+        verify(versionTableStructureMapper, times(2)).selectList(captor.capture());
+        assertFalse(captor.getAllValues().get(0).getSqlSegment().contains("NOT IN"));
+        assertTrue(captor.getAllValues().get(1).getSqlSegment().contains("project_version_id NOT IN"));
+        verify(versionTableStructureMapper, never()).clearStatsPending(any());
+    }
+
+    @Test
+    void testRepeatedFailuresClearPendingFlags() {
+        captureProperties.getStatsSampling().setMaxFailures(1);
+        when(extractor.getTablesStatistics(eq(datasource), eq("public"), anyCollection()))
+                .thenThrow(new IllegalStateException("连接失败"));
+
+        assertEquals(0, samplingService.samplePendingTables(100));
+
+        verify(versionTableStructureMapper).clearStatsPending(7L);
+        verify(databaseSchemaService).evictVersionCaches(7L);
+    }
+
+    private static VersionTableStructure pendingTable(Long id, String tableName) {
+        VersionTableStructure table = new VersionTableStructure();
+        table.setId(id);
+        table.setProjectVersionId(7L);
+        table.setSchemaName("public");
+        table.setTableName(tableName);
+        return table;
+    }
+
+    private static TableMeta statistics(String tableName, Long tableRows) {
+        return new TableMeta(null, tableName, null, null, null, null, null,
+                tableRows, 64L, tableRows * 64, 16384L, null, null);
+    }
+}
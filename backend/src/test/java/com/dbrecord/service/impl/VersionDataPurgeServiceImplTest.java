@@ -0,0 +1,140 @@
+package com.dbrecord.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.dbrecord.config.SchemaCaptureProperties;
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.mapper.ProjectVersionMapper;
+import com.dbrecord.mapper.TableDefinitionMapper;
+import com.dbrecord.mapper.VersionDatabaseSchemaMapper;
+import com.dbrecord.mapper.VersionDiffMapper;
+import com.dbrecord.mapper.VersionTableColumnMapper;
+import com.dbrecord.mapper.VersionTableIndexMapper;
+import com.dbrecord.mapper.VersionTableStructureMapper;
+import com.dbrecord.service.SchemaSnapshotCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 版本结构数据清理测试：按主键范围分批删除，数据库结构信息最后删除
+ */
+@ExtendWith(MockitoExtension.class)
+class VersionDataPurgeServiceImplTest {
+
+    @Mock
+    private VersionDatabaseSchemaMapper versionDatabaseSchemaMapper;
+
+    @Mock
+    private VersionTableStructureMapper versionTableStructureMapper;
+
+    @Mock
+    private VersionTableColumnMapper versionTableColumnMapper;
+
+    @Mock
+    private VersionTableIndexMapper versionTableIndexMapper;
+
+    @Mock
+    private TableDefinitionMapper tableDefinitionMapper;
+
+    @Mock
+    private ProjectVersionMapper projectVersionMapper;
+
+    @Mock
+    private VersionDiffMapper versionDiffMapper;
+
+    @Mock
+    private SchemaSnapshotCache schemaSnapshotCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private SchemaCaptureProperties captureProperties = new SchemaCaptureProperties();
+
+    @InjectMocks
+    private VersionDataPurgeServiceImpl versionDataPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        captureProperties.getPurge().setChunkSize(2);
+        captureProperties.getPurge().setRowChunkSize(5);
+        captureProperties.getPurge().setChunkPauseMillis(0);
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionCallback<?> callback = invocation.getArgument(0);
+            return callback.doInTransaction(null);
+        });
+    }
+
+    @Test
+    void testPurgeVersionDeletesInPrimaryKeyChunks() {
+        when(versionTableStructureMapper.selectList(any()))
+                .thenReturn(List.of(table(1L, 100L), table(2L, 100L)))
+                .thenReturn(List.of(table(5L, 101L)))
+                .thenReturn(List.of());
+        when(versionTableColumnMapper.delete(ArgumentMatchers.<QueryWrapper<VersionTableColumn>>any())).thenReturn(3);
+        when(versionTableIndexMapper.delete(ArgumentMatchers.<QueryWrapper<VersionTableIndex>>any())).thenReturn(1);
+        when(versionTableStructureMapper.delete(ArgumentMatchers.<QueryWrapper<VersionTableStructure>>any())).thenReturn(2, 1);
+        when(versionDatabaseSchemaMapper.delete(ArgumentMatchers.<QueryWrapper<VersionDatabaseSchema>>any())).thenReturn(1);
+        // 残留字段分两批删除（第一批删满一批行数）
+        when(versionTableColumnMapper.deleteByVersionId(9L, 5)).thenReturn(5, 2);
+        when(tableDefinitionMapper.selectUnreferencedIds(List.of(100L, 101L))).thenReturn(List.of(101L));
+        when(versionTableColumnMapper.deleteByDefinitionIds(List.of(101L))).thenReturn(4);
+        when(versionTableIndexMapper.deleteByDefinitionIds(List.of(101L))).thenReturn(0);
+        when(tableDefinitionMapper.deleteBatchIds(List.of(101L))).thenReturn(1);
+
+        long deleted = versionDataPurgeService.purgeVersion(9L);
+
+        // 两批表结构、两批残留字段、一批残留索引各一个事务，再加上共享表定义的清理事务
+        verify(transactionTemplate, times(6)).execute(any());
+        verify(versionTableStructureMapper, times(2)).delete(ArgumentMatchers.<QueryWrapper<VersionTableStructure>>any());
+        verify(versionTableStructureMapper, never()).deleteBatchIds(any());
+        verify(versionTableColumnMapper, times(2)).deleteByVersionId(9L, 5);
+        verify(versionTableIndexMapper).deleteByVersionId(9L, 5);
+        verify(versionDatabaseSchemaMapper).delete(ArgumentMatchers.<QueryWrapper<VersionDatabaseSchema>>any());
+        verify(projectVersionMapper).clearArchivedSnapshot(9L);
+        verify(versionDiffMapper).deleteByVersionId(9L);
+        verify(schemaSnapshotCache).evict(9L);
+        assertEquals(2 * (3 + 1) + 2 + 1 + 5 + 2 + 1 + 4 + 1, deleted);
+    }
+
+    @Test
+    void testPurgeDeletedVersionsRecordsStats() {
+        when(versionTableStructureMapper.selectPurgeableVersionIds(10)).thenReturn(List.of(7L));
+        when(versionTableStructureMapper.selectList(any())).thenReturn(List.of());
+        when(versionDatabaseSchemaMapper.delete(ArgumentMatchers.<QueryWrapper<VersionDatabaseSchema>>any())).thenReturn(1);
+        when(versionTableStructureMapper.countPurgeBacklog())
+                .thenReturn(Map.of("pending_versions", 0L, "pending_tables", 0L));
+
+        assertEquals(1, versionDataPurgeService.purgeDeletedVersions(10));
+
+        Map<String, Object> stats = versionDataPurgeService.getPurgeStats();
+        assertEquals(1, stats.get("lastRunVersions"));
+        assertEquals(1L, stats.get("totalDeletedRows"));
+        assertEquals(0L, stats.get("pendingVersions"));
+        assertNull(stats.get("lastError"));
+    }
+
+    private static VersionTableStructure table(Long id, Long definitionId) {
+        VersionTableStructure table = new VersionTableStructure();
+        table.setId(id);
+        table.setDefinitionId(definitionId);
+        return table;
+    }
+}
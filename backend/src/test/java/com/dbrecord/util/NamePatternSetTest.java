@@ -0,0 +1,53 @@
+package com.dbrecord.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 名称匹配规则测试
+ */
+class NamePatternSetTest {
+
+    @Test
+    void exactGlobAndRegexRules() {
+        NamePatternSet patterns = NamePatternSet.compile(Arrays.asList("temp_table", "log_20*", "t?p", "regex:shard_[0-9]+"));
+
+        assertTrue(patterns.matches("temp_table"));
+        assertTrue(patterns.matches("log_2024_01"));
+        assertTrue(patterns.matches("tmp"));
+        assertTrue(patterns.matches("shard_12"));
+        assertFalse(patterns.matches("shard_12a"));
+        assertFalse(patterns.matches("log.2024"));
+        assertFalse(patterns.matches("Temp_table"));
+        assertFalse(patterns.matches(null));
+    }
+
+    @Test
+    void sqlPushDownForms() {
+        NamePatternSet patterns = NamePatternSet.compile(Arrays.asList("temp_table", "log_20*", "a%b?", "regex:shard_[0-9]+"));
+
+        assertEquals(Set.of("temp_table"), patterns.getExactNames());
+        // LIKE模式中转义原有的 _ 和 %
+        assertEquals(List.of("log\\_20%", "a\\%b_"), patterns.getLikePatterns());
+        assertEquals(List.of("shard_[0-9]+"), patterns.getRegexes());
+        assertTrue(patterns.hasRegexes());
+        assertFalse(NamePatternSet.compile(List.of("log_20*")).hasRegexes());
+    }
+
+    @Test
+    void emptyRules() {
+        assertTrue(NamePatternSet.compile(null).isEmpty());
+        assertTrue(NamePatternSet.compile(List.of()).isEmpty());
+        assertFalse(NamePatternSet.compile(null).matches("any"));
+    }
+
+    @Test
+    void invalidRegexIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> NamePatternSet.compile(List.of("regex:[unclosed")));
+    }
+}
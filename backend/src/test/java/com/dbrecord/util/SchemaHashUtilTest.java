@@ -0,0 +1,84 @@
+package com.dbrecord.util;
+
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表结构内容哈希测试
+ */
+class SchemaHashUtilTest {
+
+    @Test
+    void tableHashIgnoresOrderAndIds() {
+        VersionTableStructure table = table("public", "users", "用户表");
+        List<VersionTableColumn> columns = List.of(column(1L, "id", 1, "bigint"), column(2L, "name", 2, "varchar(50)"));
+        List<VersionTableColumn> reordered = List.of(column(20L, "name", 2, "varchar(50)"), column(10L, "id", 1, "bigint"));
+
+        assertEquals(SchemaHashUtil.tableHash(table, columns, List.of(index("idx_name", "name"))),
+                SchemaHashUtil.tableHash(table, reordered, List.of(index("idx_name", "name"))));
+    }
+
+    @Test
+    void tableHashChangesWithStructure() {
+        VersionTableStructure table = table("public", "users", "用户表");
+        List<VersionTableColumn> columns = List.of(column(1L, "id", 1, "bigint"));
+        String hash = SchemaHashUtil.tableHash(table, columns, new ArrayList<>());
+
+        assertNotEquals(hash, SchemaHashUtil.tableHash(table, List.of(column(1L, "id", 1, "int")), new ArrayList<>()));
+        assertNotEquals(hash, SchemaHashUtil.tableHash(table, columns, List.of(index("idx_id", "id"))));
+        assertNotEquals(hash, SchemaHashUtil.tableHash(table("public", "users", "用户"), columns, new ArrayList<>()));
+        // 注释为null与空字符串需要区分
+        assertNotEquals(SchemaHashUtil.tableHash(table("public", "users", null), columns, new ArrayList<>()),
+                SchemaHashUtil.tableHash(table("public", "users", ""), columns, new ArrayList<>()));
+    }
+
+    @Test
+    void schemaHashDependsOnTableNamesAndContent() {
+        VersionTableStructure users = table("public", "users", null);
+        users.setContentHash("a");
+        VersionTableStructure orders = table("public", "orders", null);
+        orders.setContentHash("b");
+
+        String hash = SchemaHashUtil.schemaHash(List.of(users, orders));
+        assertEquals(hash, SchemaHashUtil.schemaHash(List.of(orders, users)));
+
+        VersionTableStructure renamed = table("sales", "orders", null);
+        renamed.setContentHash("b");
+        assertNotEquals(hash, SchemaHashUtil.schemaHash(List.of(users, renamed)));
+    }
+
+    private VersionTableStructure table(String schemaName, String tableName, String comment) {
+        VersionTableStructure table = new VersionTableStructure();
+        table.setSchemaName(schemaName);
+        table.setTableName(tableName);
+        table.setTableComment(comment);
+        return table;
+    }
+
+    private VersionTableColumn column(Long id, String name, int position, String type) {
+        VersionTableColumn column = new VersionTableColumn();
+        column.setId(id);
+        column.setColumnName(name);
+        column.setOrdinalPosition(position);
+        column.setColumnType(type);
+        column.setIsNullable("NO");
+        return column;
+    }
+
+    private VersionTableIndex index(String name, String columnNames) {
+        VersionTableIndex index = new VersionTableIndex();
+        index.setIndexName(name);
+        index.setIndexType("BTREE");
+        index.setIsUnique(false);
+        index.setIsPrimary(false);
+        index.setColumnNames(columnNames);
+        return index;
+    }
+}
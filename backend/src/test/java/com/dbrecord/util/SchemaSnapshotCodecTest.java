@@ -0,0 +1,102 @@
+package com.dbrecord.util;
+
+import com.dbrecord.entity.domain.VersionDatabaseSchema;
+import com.dbrecord.entity.domain.VersionTableColumn;
+import com.dbrecord.entity.domain.VersionTableIndex;
+import com.dbrecord.entity.domain.VersionTableStructure;
+import com.dbrecord.entity.snapshot.SchemaSnapshot;
+import com.dbrecord.entity.snapshot.TableSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 结构快照压缩编码测试
+ */
+class SchemaSnapshotCodecTest {
+
+    @Test
+    void roundTripKeepsAllFields() {
+        VersionDatabaseSchema databaseSchema = new VersionDatabaseSchema();
+        databaseSchema.setId(3L);
+        databaseSchema.setProjectVersionId(9L);
+        databaseSchema.setDatabaseName("shop");
+        databaseSchema.setCharset("utf8mb4");
+        databaseSchema.setCreateTime(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+
+        List<TableSnapshot> tables = new ArrayList<>();
+        for (long i = 1; i <= 50; i++) {
+            VersionTableStructure table = new VersionTableStructure();
+            table.setId(100 + i);
+            table.setProjectVersionId(9L);
+            table.setDefinitionId(i % 2 == 0 ? 500 + i : null);
+            table.setSchemaName("public");
+            table.setTableName("t_" + i);
+            table.setTableComment(i % 3 == 0 ? null : "表" + i);
+            table.setTableRows(i * 1000);
+            tables.add(new TableSnapshot(table,
+                    List.of(column(table.getId(), "id", 1, "bigint", "NO"), column(table.getId(), "name", 2, "varchar(50)", "YES")),
+                    List.of(index(table.getId(), "PRIMARY", "id", true))));
+        }
+        SchemaSnapshot snapshot = new SchemaSnapshot(9L, databaseSchema, tables);
+
+        SchemaSnapshot decoded = SchemaSnapshotCodec.decode(SchemaSnapshotCodec.encode(snapshot));
+
+        assertEquals(9L, decoded.getProjectVersionId());
+        assertEquals(databaseSchema, decoded.getDatabaseSchema());
+        assertEquals(snapshot.weight(), decoded.weight());
+        for (TableSnapshot expected : snapshot.getTables()) {
+            TableSnapshot actual = decoded.getTable(expected.getId());
+            assertEquals(expected.getTable(), actual.getTable());
+            assertEquals(expected.getColumns(), actual.getColumns());
+            assertEquals(expected.getIndexes(), actual.getIndexes());
+        }
+    }
+
+    @Test
+    void roundTripEmptySnapshot() {
+        VersionDatabaseSchema databaseSchema = new VersionDatabaseSchema();
+        databaseSchema.setId(1L);
+        databaseSchema.setProjectVersionId(2L);
+
+        SchemaSnapshot decoded = SchemaSnapshotCodec.decode(
+                SchemaSnapshotCodec.encode(new SchemaSnapshot(2L, databaseSchema, List.of())));
+
+        assertEquals(2L, decoded.getProjectVersionId());
+        assertEquals(1L, decoded.getDatabaseSchema().getId());
+        assertTrue(decoded.getTables().isEmpty());
+    }
+
+    @Test
+    void decodeRejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> SchemaSnapshotCodec.decode(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    private static VersionTableColumn column(Long tableId, String name, int position, String type, String nullable) {
+        VersionTableColumn column = new VersionTableColumn();
+        column.setId(tableId * 10 + position);
+        column.setProjectVersionId(9L);
+        column.setVersionTableId(tableId);
+        column.setColumnName(name);
+        column.setOrdinalPosition(position);
+        column.setColumnType(type);
+        column.setIsNullable(nullable);
+        return column;
+    }
+
+    private static VersionTableIndex index(Long tableId, String name, String columns, boolean primary) {
+        VersionTableIndex index = new VersionTableIndex();
+        index.setId(tableId * 10);
+        index.setProjectVersionId(9L);
+        index.setVersionTableId(tableId);
+        index.setIndexName(name);
+        index.setColumnNames(columns);
+        index.setIsPrimary(primary);
+        index.setIsUnique(primary);
+        return index;
+    }
+}